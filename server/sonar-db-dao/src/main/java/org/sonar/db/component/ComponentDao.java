@@ -37,6 +37,7 @@ import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
+import org.sonar.db.Pagination;
 import org.sonar.db.RowNotFoundException;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -214,6 +215,33 @@ public class ComponentDao implements Dao {
     return mapper(dbSession).selectDescendants(query, componentOpt.get().uuid(), query.getUuidPath(component));
   }
 
+  /**
+   * Select a page of the children or the leaves of a base component, sorted and filtered in database by
+   * {@link ComponentTreeOrder}, so that the other components of the tree are not loaded.
+   *
+   * @see #selectDescendants(DbSession, ComponentTreeQuery)
+   */
+  public List<ComponentDto> selectDescendants(DbSession dbSession, ComponentTreeQuery query, ComponentTreeOrder order, Pagination pagination) {
+    Optional<ComponentDto> componentOpt = selectByUuid(dbSession, query.getBaseUuid());
+    if (!componentOpt.isPresent()) {
+      return emptyList();
+    }
+    ComponentDto component = componentOpt.get();
+    return mapper(dbSession).selectSortedDescendants(query, component.uuid(), query.getUuidPath(component), order, pagination);
+  }
+
+  /**
+   * Count the children or the leaves of a base component that match the filter of {@link ComponentTreeOrder}
+   */
+  public int countDescendants(DbSession dbSession, ComponentTreeQuery query, ComponentTreeOrder order) {
+    Optional<ComponentDto> componentOpt = selectByUuid(dbSession, query.getBaseUuid());
+    if (!componentOpt.isPresent()) {
+      return 0;
+    }
+    ComponentDto component = componentOpt.get();
+    return mapper(dbSession).countSortedDescendants(query, component.uuid(), query.getUuidPath(component), order);
+  }
+
   public ComponentDto selectOrFailByKey(DbSession session, String key) {
     Optional<ComponentDto> component = selectByKey(session, key);
     if (!component.isPresent()) {
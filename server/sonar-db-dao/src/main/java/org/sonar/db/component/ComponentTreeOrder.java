@@ -0,0 +1,169 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.component;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sort and filter of a page of components of a tree, on their fields or on the value of one of their measures.
+ * Components are finally sorted by name, case-insensitive. Null values are always last.
+ * @see ComponentDao#selectDescendants(org.sonar.db.DbSession, ComponentTreeQuery, ComponentTreeOrder, org.sonar.db.Pagination)
+ */
+public class ComponentTreeOrder {
+
+  public enum Field {
+    NAME, QUALIFIER, PATH, MEASURE_VALUE, MEASURE_VARIATION
+  }
+
+  // a public implementation of List must be used in MyBatis
+  private final ArrayList<Sort> sorts;
+  @CheckForNull
+  private final Integer metricId;
+  @CheckForNull
+  private final Double valueBestValue;
+  @CheckForNull
+  private final Double variationBestValue;
+  @CheckForNull
+  private final Field withMeasureOnly;
+
+  private ComponentTreeOrder(Builder builder) {
+    this.sorts = new ArrayList<>(builder.sorts);
+    this.metricId = builder.metricId;
+    this.valueBestValue = builder.valueBestValue;
+    this.variationBestValue = builder.variationBestValue;
+    this.withMeasureOnly = builder.withMeasureOnly;
+  }
+
+  public List<Sort> getSorts() {
+    return sorts;
+  }
+
+  @CheckForNull
+  public Integer getMetricId() {
+    return metricId;
+  }
+
+  /**
+   * Value of measure of files and unit tests that don't have any measure on the metric
+   */
+  @CheckForNull
+  public Double getValueBestValue() {
+    return valueBestValue;
+  }
+
+  /**
+   * Variation of measure of files and unit tests that don't have any measure on the metric
+   */
+  @CheckForNull
+  public Double getVariationBestValue() {
+    return variationBestValue;
+  }
+
+  /**
+   * Used by MyBatis mapper
+   */
+  public boolean isWithMeasureValueOnly() {
+    return withMeasureOnly == Field.MEASURE_VALUE;
+  }
+
+  /**
+   * Used by MyBatis mapper
+   */
+  public boolean isWithMeasureVariationOnly() {
+    return withMeasureOnly == Field.MEASURE_VARIATION;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Sort {
+    private final Field field;
+    private final boolean asc;
+
+    private Sort(Field field, boolean asc) {
+      this.field = field;
+      this.asc = asc;
+    }
+
+    public Field getField() {
+      return field;
+    }
+
+    public boolean isAsc() {
+      return asc;
+    }
+  }
+
+  public static class Builder {
+    private final List<Sort> sorts = new ArrayList<>();
+    private Integer metricId;
+    private Double valueBestValue;
+    private Double variationBestValue;
+    private Field withMeasureOnly;
+
+    private Builder() {
+      // private constructor
+    }
+
+    public Builder addSort(Field field, boolean asc) {
+      sorts.add(new Sort(requireNonNull(field), asc));
+      return this;
+    }
+
+    public Builder setMetricId(@Nullable Integer metricId) {
+      this.metricId = metricId;
+      return this;
+    }
+
+    public Builder setValueBestValue(@Nullable Double valueBestValue) {
+      this.valueBestValue = valueBestValue;
+      return this;
+    }
+
+    public Builder setVariationBestValue(@Nullable Double variationBestValue) {
+      this.variationBestValue = variationBestValue;
+      return this;
+    }
+
+    /**
+     * Keep only the components having a measure value (when {@link Field#MEASURE_VALUE}) or variation
+     * (when {@link Field#MEASURE_VARIATION})
+     */
+    public Builder setWithMeasureOnly(@Nullable Field withMeasureOnly) {
+      checkArgument(withMeasureOnly == null || withMeasureOnly == Field.MEASURE_VALUE || withMeasureOnly == Field.MEASURE_VARIATION,
+        "Only components with measure value or variation can be kept");
+      this.withMeasureOnly = withMeasureOnly;
+      return this;
+    }
+
+    public ComponentTreeOrder build() {
+      boolean measureUsed = withMeasureOnly != null || sorts.stream().anyMatch(s -> s.field == Field.MEASURE_VALUE || s.field == Field.MEASURE_VARIATION);
+      checkArgument(!measureUsed || metricId != null, "Metric is mandatory to sort or filter on measures");
+      return new ComponentTreeOrder(this);
+    }
+  }
+}
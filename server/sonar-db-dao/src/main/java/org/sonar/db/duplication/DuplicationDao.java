@@ -22,10 +22,12 @@ package org.sonar.db.duplication;
 import java.util.Collection;
 import java.util.List;
 import javax.annotation.Nullable;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+import static org.sonar.db.DatabaseUtils.toUniqueAndSortedPartitions;
 
 public class DuplicationDao implements Dao {
 
@@ -38,6 +40,18 @@ public class DuplicationDao implements Dao {
       partition -> session.getMapper(DuplicationMapper.class).selectCandidates(analysisUuid, language, partition));
   }
 
+  /**
+   * Same as {@link #selectCandidates(DbSession, String, String, Collection)}, but rows are passed to the handler
+   * instead of being loaded in a list
+   */
+  public void scrollCandidates(DbSession session, @Nullable String analysisUuid, String language, Collection<String> hashes,
+    ResultHandler<DuplicationUnitDto> handler) {
+    DuplicationMapper mapper = session.getMapper(DuplicationMapper.class);
+    for (List<String> partition : toUniqueAndSortedPartitions(hashes)) {
+      mapper.scrollCandidates(analysisUuid, language, partition, handler);
+    }
+  }
+
   /**
    * Insert rows in the table DUPLICATIONS_INDEX.
    * Note that generated ids are not returned.
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 public interface DuplicationMapper {
 
@@ -31,6 +32,12 @@ public interface DuplicationMapper {
     @Param("language") String language,
     @Param("hashes") Collection<String> hashes);
 
+  void scrollCandidates(
+    @Nullable @Param("analysisUuid") String analysisUuid,
+    @Param("language") String language,
+    @Param("hashes") Collection<String> hashes,
+    ResultHandler<DuplicationUnitDto> handler);
+
   void batchInsert(DuplicationUnitDto unit);
 
   List<DuplicationUnitDto> selectComponent(@Param("componentUuid") String componentUuid, @Param("analysisUuid") String analysisUuid);
@@ -33,6 +33,12 @@ import static org.sonar.db.DatabaseUtils.executeLargeUpdates;
 
 public class EsQueueDao implements Dao {
 
+  /**
+   * Prefix of the doc types of items used to track the progress of indexing at startup. These items
+   * are not returned by {@link #selectForRecovery(DbSession, long, long)}.
+   */
+  public static final String STARTUP_DOC_TYPE_PREFIX = "startup:";
+
   private final System2 system2;
   private final UuidFactory uuidFactory;
 
@@ -70,7 +76,11 @@ public class EsQueueDao implements Dao {
   }
 
   public Collection<EsQueueDto> selectForRecovery(DbSession dbSession, long beforeDate, long limit) {
-    return mapper(dbSession).selectForRecovery(beforeDate, limit);
+    return mapper(dbSession).selectForRecovery(beforeDate, limit, STARTUP_DOC_TYPE_PREFIX + "%");
+  }
+
+  public Collection<EsQueueDto> selectByDocType(DbSession dbSession, String docType) {
+    return mapper(dbSession).selectByDocType(docType);
   }
 
   private static EsQueueMapper mapper(DbSession dbSession) {
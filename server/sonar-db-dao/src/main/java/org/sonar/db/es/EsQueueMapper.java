@@ -29,5 +29,7 @@ public interface EsQueueMapper {
 
   void delete(@Param("uuids") List<String> uuids);
 
-  Collection<EsQueueDto> selectForRecovery(@Param("beforeDate") long beforeDate, @Param("limit") long limit);
+  Collection<EsQueueDto> selectForRecovery(@Param("beforeDate") long beforeDate, @Param("limit") long limit, @Param("excludedDocTypes") String excludedDocTypes);
+
+  Collection<EsQueueDto> selectByDocType(@Param("docType") String docType);
 }
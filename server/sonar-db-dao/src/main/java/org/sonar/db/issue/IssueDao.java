@@ -94,6 +94,13 @@ public class IssueDao implements Dao {
     return mapper(session).selectComponentUuidsOfOpenIssuesForProjectUuid(projectUuid);
   }
 
+  /**
+   * Uuids of the projects and branches having at least one issue
+   */
+  public List<String> selectProjectUuids(DbSession session) {
+    return mapper(session).selectProjectUuids();
+  }
+
   public void scrollNonClosedByComponentUuid(DbSession dbSession, String componentUuid, ResultHandler<IssueDto> handler) {
     mapper(dbSession).scrollNonClosedByComponentUuid(componentUuid, handler);
   }
@@ -103,6 +110,21 @@ public class IssueDao implements Dao {
     mapper(dbSession).scrollNonClosedByModuleOrProject(module.projectUuid(), likeModuleUuidPath, handler);
   }
 
+  /**
+   * Issues of the component, including closed ones, which have been updated since the given date (inclusive)
+   */
+  public void scrollChangedSinceByComponentUuid(DbSession dbSession, String componentUuid, long changedSince, ResultHandler<IssueDto> handler) {
+    mapper(dbSession).scrollChangedSinceByComponentUuid(componentUuid, changedSince, handler);
+  }
+
+  /**
+   * Issues of the module or project, including closed ones, which have been updated since the given date (inclusive)
+   */
+  public void scrollChangedSinceByModuleOrProject(DbSession dbSession, ComponentDto module, long changedSince, ResultHandler<IssueDto> handler) {
+    String likeModuleUuidPath = buildLikeValue(module.moduleUuidPath(), WildcardPosition.AFTER);
+    mapper(dbSession).scrollChangedSinceByModuleOrProject(module.projectUuid(), likeModuleUuidPath, changedSince, handler);
+  }
+
   public List<ShortBranchIssueDto> selectOpenByComponentUuids(DbSession dbSession, Collection<String> componentUuids) {
     return executeLargeInputs(componentUuids, mapper(dbSession)::selectOpenByComponentUuids);
   }
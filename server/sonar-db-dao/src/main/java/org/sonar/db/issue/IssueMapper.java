@@ -32,8 +32,16 @@ public interface IssueMapper {
 
   Set<String> selectComponentUuidsOfOpenIssuesForProjectUuid(String projectUuid);
 
+  List<String> selectProjectUuids();
+
   List<IssueDto> selectByKeys(List<String> keys);
 
+  /**
+   * Issues among {@code keys} whose technical update date is not {@code updatedAt}, for example because
+   * they have not been updated by {@link #updateIfBeforeSelectedDate(IssueDto)}.
+   */
+  List<IssueDto> selectByKeysIfNotUpdatedAt(@Param("keys") List<String> keys, @Param("updatedAt") long updatedAt);
+
   List<ShortBranchIssueDto> selectOpenByComponentUuids(List<String> componentUuids);
 
   void insert(IssueDto issue);
@@ -49,6 +57,14 @@ public interface IssueMapper {
     @Param("likeModuleUuidPath") String likeModuleUuidPath,
     ResultHandler<IssueDto> handler);
 
+  void scrollChangedSinceByComponentUuid(@Param("componentUuid") String componentUuid, @Param("changedSince") long changedSince, ResultHandler<IssueDto> handler);
+
+  void scrollChangedSinceByModuleOrProject(
+    @Param("projectUuid") String projectUuid,
+    @Param("likeModuleUuidPath") String likeModuleUuidPath,
+    @Param("changedSince") long changedSince,
+    ResultHandler<IssueDto> handler);
+
   Collection<IssueGroupDto> selectIssueGroupsByBaseComponent(
     @Param("baseComponent") ComponentDto baseComponent,
     @Param("leakPeriodBeginningDate") long leakPeriodBeginningDate);
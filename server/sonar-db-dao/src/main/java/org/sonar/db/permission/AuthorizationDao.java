@@ -76,6 +76,25 @@ public class AuthorizationDao implements Dao {
     return mapper(dbSession).selectProjectPermissionsOfAnonymous(projectUuid);
   }
 
+  /**
+   * Loads in bulk the permissions granted to a logged-in user, or to anonymous if {@code userId} is {@code null},
+   * on the specified projects <strong>stored in *_ROLES tables</strong>. Projects on which user has no
+   * permissions are not returned.
+   *
+   * <strong>This method does not support public components</strong>
+   */
+  public List<ProjectPermissionDto> selectProjectPermissions(DbSession dbSession, Collection<String> projectUuids, @Nullable Integer userId) {
+    return executeLargeInputs(
+      projectUuids,
+      partition -> {
+        if (userId == null) {
+          return mapper(dbSession).selectProjectPermissionsOfProjectsOfAnonymous(partition);
+        }
+        return mapper(dbSession).selectProjectPermissionsOfProjects(partition, userId);
+      },
+      partitionSize -> partitionSize / 3);
+  }
+
   /**
    * The number of users who will still have the permission if the group {@code excludedGroupId}
    * is deleted. The anyone virtual group is not taken into account.
@@ -61,6 +61,10 @@ public interface AuthorizationMapper {
 
   Set<String> selectProjectPermissionsOfAnonymous(@Param("projectUuid") String projectUuid);
 
+  List<ProjectPermissionDto> selectProjectPermissionsOfProjects(@Param("projectUuids") Collection<String> projectUuids, @Param("userId") int userId);
+
+  List<ProjectPermissionDto> selectProjectPermissionsOfProjectsOfAnonymous(@Param("projectUuids") Collection<String> projectUuids);
+
   List<String> selectQualityProfileAdministratorLogins(@Param("permission") String permission);
 
   Set<String> keepAuthorizedLoginsOnProject(@Param("logins") List<String> logins, @Param("projectKey") String projectKey, @Param("permission") String permission);
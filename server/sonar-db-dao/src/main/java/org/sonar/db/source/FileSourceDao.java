@@ -44,6 +44,14 @@ public class FileSourceDao implements Dao {
     return mapper(session).select(fileUuid, Type.SOURCE);
   }
 
+  /**
+   * MD5 of the source data of a file, which changes whenever a new version of its data is persisted
+   */
+  @CheckForNull
+  public String selectSourceDataHashByFileUuid(DbSession session, String fileUuid) {
+    return mapper(session).selectDataHash(fileUuid, Type.SOURCE);
+  }
+
   @CheckForNull
   public FileSourceDto selectTest(DbSession dbSession, String fileUuid) {
     return mapper(dbSession).select(fileUuid, Type.TEST);
@@ -23,9 +23,12 @@ import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -35,12 +38,25 @@ import org.apache.commons.io.IOUtils;
 import org.sonar.db.protobuf.DbFileSources;
 
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.US_ASCII;
 
 public class FileSourceDto {
 
   private static final String SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE = "Protocol message was too large.  May be malicious.  " +
     "Use CodedInputStream.setSizeLimit() to increase the size limit.";
 
+  /**
+   * Source data is split into chunks of this number of lines, each chunk being compressed independently
+   * so that a range of lines can be read without decompressing the whole file.
+   */
+  static final int LINES_PER_CHUNK = 500;
+
+  /**
+   * Header of chunked source data. Source data stored before chunking is a single LZ4 block stream,
+   * starting with the magic "LZ4Block".
+   */
+  private static final byte[] CHUNKED_MAGIC = "SQChunks".getBytes(US_ASCII);
+
   private Long id;
   private String projectUuid;
   private String fileUuid;
@@ -52,6 +68,7 @@ public class FileSourceDto {
   private String dataType;
   private String dataHash;
   private String revision;
+  private String inputsHash;
 
   public Long getId() {
     return id;
@@ -94,8 +111,26 @@ public class FileSourceDto {
   }
 
   public DbFileSources.Data decodeSourceData(byte[] binaryData) {
+    return decodeSourceData(binaryData, 1, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Decompress and deserialize only the lines {@code from} to {@code toInclusive} of the source data. When data
+   * is chunked, only the chunks containing these lines are decompressed.
+   */
+  public DbFileSources.Data decodeSourceData(byte[] binaryData, int from, int toInclusive) {
+    boolean wholeFile = from <= 1 && toInclusive == Integer.MAX_VALUE;
     try {
-      return decodeRegularSourceData(binaryData);
+      if (isChunked(binaryData)) {
+        return decodeChunkedSourceData(binaryData, wholeFile ? Integer.MIN_VALUE : from, toInclusive);
+      }
+      DbFileSources.Data data = decodeRegularSourceData(binaryData, 0, binaryData.length);
+      if (wholeFile) {
+        return data;
+      }
+      DbFileSources.Data.Builder builder = DbFileSources.Data.newBuilder();
+      addLines(builder, data, from, toInclusive);
+      return builder.build();
     } catch (IOException e) {
       throw new IllegalStateException(
         format("Fail to decompress and deserialize source data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
@@ -103,19 +138,48 @@ public class FileSourceDto {
     }
   }
 
-  private static DbFileSources.Data decodeRegularSourceData(byte[] binaryData) throws IOException {
-    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
+  static boolean isChunked(byte[] binaryData) {
+    return binaryData.length >= CHUNKED_MAGIC.length && Arrays.equals(CHUNKED_MAGIC, Arrays.copyOf(binaryData, CHUNKED_MAGIC.length));
+  }
+
+  private static DbFileSources.Data decodeChunkedSourceData(byte[] binaryData, int from, int toInclusive) throws IOException {
+    DataInputStream header = new DataInputStream(new ByteArrayInputStream(binaryData, CHUNKED_MAGIC.length, binaryData.length - CHUNKED_MAGIC.length));
+    int chunks = header.readInt();
+    int offset = CHUNKED_MAGIC.length + 4 + chunks * 12;
+    DbFileSources.Data.Builder builder = DbFileSources.Data.newBuilder();
+    for (int i = 0; i < chunks; i++) {
+      int firstLine = header.readInt();
+      int lastLine = header.readInt();
+      int length = header.readInt();
+      if (lastLine >= from && firstLine <= toInclusive) {
+        addLines(builder, decodeRegularSourceData(binaryData, offset, length), from, toInclusive);
+      }
+      offset += length;
+    }
+    return builder.build();
+  }
+
+  private static void addLines(DbFileSources.Data.Builder builder, DbFileSources.Data data, int from, int toInclusive) {
+    for (DbFileSources.Line line : data.getLinesList()) {
+      if (line.getLine() >= from && line.getLine() <= toInclusive) {
+        builder.addLines(line);
+      }
+    }
+  }
+
+  private static DbFileSources.Data decodeRegularSourceData(byte[] binaryData, int offset, int length) throws IOException {
+    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData, offset, length))) {
       return DbFileSources.Data.parseFrom(lz4Input);
     } catch (InvalidProtocolBufferException e) {
       if (SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE.equals(e.getMessage())) {
-        return decodeHugeSourceData(binaryData);
+        return decodeHugeSourceData(binaryData, offset, length);
       }
       throw e;
     }
   }
 
-  private static DbFileSources.Data decodeHugeSourceData(byte[] binaryData) throws IOException {
-    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
+  private static DbFileSources.Data decodeHugeSourceData(byte[] binaryData, int offset, int length) throws IOException {
+    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData, offset, length))) {
       CodedInputStream input = CodedInputStream.newInstance(lz4Input);
       input.setSizeLimit(Integer.MAX_VALUE);
       return DbFileSources.Data.parseFrom(input);
@@ -124,9 +188,38 @@ public class FileSourceDto {
 
   /**
    * Serialize and compress protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}
-   * in the column BINARY_DATA.
+   * in the column BINARY_DATA. Lines are split into chunks of {@link #LINES_PER_CHUNK} lines, preceded
+   * by an index of the line range and size of each chunk.
    */
   public static byte[] encodeSourceData(DbFileSources.Data data) {
+    return encodeSourceData(data, LINES_PER_CHUNK);
+  }
+
+  static byte[] encodeSourceData(DbFileSources.Data data, int linesPerChunk) {
+    List<DbFileSources.Line> lines = data.getLinesList();
+    List<byte[]> chunks = new ArrayList<>();
+    ByteArrayOutputStream headerOutput = new ByteArrayOutputStream();
+    try (DataOutputStream header = new DataOutputStream(headerOutput)) {
+      header.write(CHUNKED_MAGIC);
+      header.writeInt((lines.size() + linesPerChunk - 1) / linesPerChunk);
+      for (int start = 0; start < lines.size(); start += linesPerChunk) {
+        List<DbFileSources.Line> chunkLines = lines.subList(start, Math.min(start + linesPerChunk, lines.size()));
+        byte[] chunk = compress(DbFileSources.Data.newBuilder().addAllLines(chunkLines).build());
+        header.writeInt(chunkLines.stream().mapToInt(DbFileSources.Line::getLine).min().getAsInt());
+        header.writeInt(chunkLines.stream().mapToInt(DbFileSources.Line::getLine).max().getAsInt());
+        header.writeInt(chunk.length);
+        chunks.add(chunk);
+      }
+      for (byte[] chunk : chunks) {
+        header.write(chunk);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to serialize and compress source data", e);
+    }
+    return headerOutput.toByteArray();
+  }
+
+  private static byte[] compress(DbFileSources.Data data) {
     ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
     LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput);
     try {
@@ -212,6 +305,14 @@ public class FileSourceDto {
     return decodeSourceData(binaryData);
   }
 
+  /**
+   * Lines {@code from} to {@code toInclusive} of {@link #getSourceData()}, decompressing only the chunks
+   * they belong to.
+   */
+  public DbFileSources.Data getSourceData(int from, int toInclusive) {
+    return decodeSourceData(binaryData, from, toInclusive);
+  }
+
   public FileSourceDto setSourceData(DbFileSources.Data data) {
     this.dataType = Type.SOURCE;
     this.binaryData = encodeSourceData(data);
@@ -290,6 +391,20 @@ public class FileSourceDto {
     return this;
   }
 
+  @CheckForNull
+  public String getInputsHash() {
+    return inputsHash;
+  }
+
+  /**
+   * Hash of the inputs the binary data has been computed from (source, SCM, coverage, highlighting, symbols and
+   * duplications). Value is computed by the Compute Engine.
+   */
+  public FileSourceDto setInputsHash(@Nullable String inputsHash) {
+    this.inputsHash = inputsHash;
+    return this;
+  }
+
   public static class Type {
     public static final String SOURCE = "SOURCE";
     public static final String TEST = "TEST";
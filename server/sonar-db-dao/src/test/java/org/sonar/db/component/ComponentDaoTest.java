@@ -37,7 +37,9 @@ import org.sonar.api.resources.Scopes;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.Pagination;
 import org.sonar.db.RowNotFoundException;
+import org.sonar.db.metric.MetricDto;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.source.FileSourceDto;
 
@@ -1378,6 +1380,81 @@ public class ComponentDaoTest {
     assertThat(result).isEmpty();
   }
 
+  @Test
+  public void select_page_of_descendants_sorted_by_measure_value() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project).setName("File1"));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project).setName("file2"));
+    ComponentDto file3 = db.components().insertComponent(newFileDto(project).setName("File3"));
+    ComponentDto file4 = db.components().insertComponent(newFileDto(project).setName("File4"));
+    MetricDto metric = db.measures().insertMetric();
+    db.measures().insertLiveMeasure(file1, metric, m -> m.setValue(5.0d).setVariation(null));
+    db.measures().insertLiveMeasure(file2, metric, m -> m.setValue(10.0d).setVariation(2.0d));
+    db.measures().insertLiveMeasure(file3, metric, m -> m.setValue(null).setVariation(1.0d));
+    ComponentTreeQuery query = newTreeQuery(project.uuid()).setStrategy(LEAVES).build();
+    ComponentTreeOrder desc = ComponentTreeOrder.builder().setMetricId(metric.getId()).addSort(ComponentTreeOrder.Field.MEASURE_VALUE, false).build();
+    ComponentTreeOrder asc = ComponentTreeOrder.builder().setMetricId(metric.getId()).addSort(ComponentTreeOrder.Field.MEASURE_VALUE, true).build();
+
+    assertThat(underTest.selectDescendants(dbSession, query, desc, Pagination.all())).extracting(ComponentDto::uuid)
+      .containsExactly(file2.uuid(), file1.uuid(), file3.uuid(), file4.uuid());
+    assertThat(underTest.selectDescendants(dbSession, query, asc, Pagination.all())).extracting(ComponentDto::uuid)
+      .containsExactly(file1.uuid(), file2.uuid(), file3.uuid(), file4.uuid());
+    assertThat(underTest.selectDescendants(dbSession, query, desc, Pagination.forPage(2).andSize(2))).extracting(ComponentDto::uuid)
+      .containsExactly(file3.uuid(), file4.uuid());
+    assertThat(underTest.countDescendants(dbSession, query, desc)).isEqualTo(4);
+
+    ComponentTreeOrder byVariation = ComponentTreeOrder.builder().setMetricId(metric.getId()).addSort(ComponentTreeOrder.Field.MEASURE_VARIATION, true)
+      .setWithMeasureOnly(ComponentTreeOrder.Field.MEASURE_VARIATION).build();
+    assertThat(underTest.selectDescendants(dbSession, query, byVariation, Pagination.all())).extracting(ComponentDto::uuid)
+      .containsExactly(file3.uuid(), file2.uuid());
+    assertThat(underTest.countDescendants(dbSession, query, byVariation)).isEqualTo(2);
+  }
+
+  @Test
+  public void select_descendants_sorted_by_measure_value_with_best_value_of_files() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto dir = db.components().insertComponent(newDirectory(project, "src"));
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project, dir).setName("File1"));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project, dir).setName("File2"));
+    MetricDto metric = db.measures().insertMetric();
+    db.measures().insertLiveMeasure(file1, metric, m -> m.setValue(5.0d));
+    ComponentTreeQuery query = newTreeQuery(project.uuid()).setStrategy(LEAVES).build();
+    ComponentTreeOrder order = ComponentTreeOrder.builder().setMetricId(metric.getId()).setValueBestValue(0.0d)
+      .addSort(ComponentTreeOrder.Field.MEASURE_VALUE, true)
+      .setWithMeasureOnly(ComponentTreeOrder.Field.MEASURE_VALUE)
+      .build();
+
+    assertThat(underTest.selectDescendants(dbSession, query, order, Pagination.all())).extracting(ComponentDto::uuid)
+      .containsExactly(file2.uuid(), file1.uuid());
+    assertThat(underTest.countDescendants(dbSession, query, order)).isEqualTo(2);
+  }
+
+  @Test
+  public void select_descendants_sorted_by_fields_of_components() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto dir = db.components().insertComponent(newDirectory(project, "src").setName("b"));
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project).setName("A").setPath("z/A"));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project).setName("c").setPath("y/c"));
+    ComponentTreeQuery query = newTreeQuery(project.uuid()).setStrategy(CHILDREN).build();
+
+    assertThat(underTest.selectDescendants(dbSession, query, ComponentTreeOrder.builder().addSort(ComponentTreeOrder.Field.NAME, true).build(), Pagination.all()))
+      .extracting(ComponentDto::uuid).containsExactly(file1.uuid(), dir.uuid(), file2.uuid());
+    assertThat(underTest.selectDescendants(dbSession, query, ComponentTreeOrder.builder().addSort(ComponentTreeOrder.Field.PATH, false).build(), Pagination.all()))
+      .extracting(ComponentDto::uuid).containsExactly(file1.uuid(), file2.uuid(), dir.uuid());
+    assertThat(underTest.selectDescendants(dbSession, query, ComponentTreeOrder.builder().addSort(ComponentTreeOrder.Field.QUALIFIER, true).build(), Pagination.all()))
+      .extracting(ComponentDto::uuid).containsExactly(dir.uuid(), file1.uuid(), file2.uuid());
+    assertThat(underTest.countDescendants(dbSession, query, ComponentTreeOrder.builder().build())).isEqualTo(3);
+  }
+
+  @Test
+  public void select_sorted_descendants_returns_empty_list_if_base_component_does_not_exist() {
+    ComponentTreeQuery query = newTreeQuery(PROJECT_UUID).setStrategy(CHILDREN).build();
+    ComponentTreeOrder order = ComponentTreeOrder.builder().addSort(ComponentTreeOrder.Field.NAME, true).build();
+
+    assertThat(underTest.selectDescendants(dbSession, query, order, Pagination.all())).isEmpty();
+    assertThat(underTest.countDescendants(dbSession, query, order)).isZero();
+  }
+
   @Test
   public void select_descendants_of_a_view_and_filter_by_name() {
     OrganizationDto organizationDto = db.organizations().insert();
@@ -19,6 +19,7 @@
  */
 package org.sonar.db.duplication;
 
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
@@ -26,6 +27,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -59,6 +61,20 @@ public class DuplicationDaoTest {
     assertThat(blocks).hasSize(2);
   }
 
+  @Test
+  public void scroll_candidates() {
+    db.prepareDbUnit(getClass(), "select_candidates.xml");
+    dbSession.commit();
+
+    List<DuplicationUnitDto> blocks = new ArrayList<>();
+    dao.scrollCandidates(dbSession, "u7", "java", asList("aa", "aa"), context -> blocks.add(context.getResultObject()));
+    assertThat(blocks).extracting(DuplicationUnitDto::getComponentKey).containsExactly("bar-last");
+
+    blocks.clear();
+    dao.scrollCandidates(dbSession, null, "java", singletonList("aa"), context -> blocks.add(context.getResultObject()));
+    assertThat(blocks).hasSize(2);
+  }
+
   @Test
   public void select_component() {
     db.prepareDbUnit(getClass(), "select_component.xml");
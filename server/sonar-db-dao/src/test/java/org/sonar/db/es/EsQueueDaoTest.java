@@ -126,4 +126,27 @@ public class EsQueueDaoTest {
       .extracting(EsQueueDto::getUuid)
       .containsExactly(i3.getUuid(), i2.getUuid(), i1.getUuid());
   }
+
+  @Test
+  public void selectForRecovery_ignores_items_of_startup_indexing() {
+    system2.setNow(1_000L);
+    EsQueueDto i1 = underTest.insert(dbSession, EsQueueDto.create("foo", UuidFactoryFast.getInstance().create()));
+    underTest.insert(dbSession, EsQueueDto.create(EsQueueDao.STARTUP_DOC_TYPE_PREFIX + "foo", UuidFactoryFast.getInstance().create()));
+
+    assertThat(underTest.selectForRecovery(dbSession, 2_000, LIMIT))
+      .extracting(EsQueueDto::getUuid)
+      .containsExactly(i1.getUuid());
+  }
+
+  @Test
+  public void selectByDocType() {
+    EsQueueDto i1 = underTest.insert(dbSession, EsQueueDto.create("foo", UuidFactoryFast.getInstance().create()));
+    EsQueueDto i2 = underTest.insert(dbSession, EsQueueDto.create("foo", UuidFactoryFast.getInstance().create()));
+    underTest.insert(dbSession, EsQueueDto.create("bar", UuidFactoryFast.getInstance().create()));
+
+    assertThat(underTest.selectByDocType(dbSession, "foo"))
+      .extracting(EsQueueDto::getUuid)
+      .containsExactlyInAnyOrder(i1.getUuid(), i2.getUuid());
+    assertThat(underTest.selectByDocType(dbSession, "other")).isEmpty();
+  }
 }
@@ -134,6 +134,19 @@ public class IssueDaoTest {
     assertThat(issues).extracting("key").containsExactly("I2", "I1");
   }
 
+  @Test
+  public void selectProjectUuids() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project1 = db.components().insertPrivateProject();
+    ComponentDto project2 = db.components().insertPrivateProject();
+    db.components().insertPrivateProject();
+    db.issues().insert(rule, project1, project1);
+    db.issues().insert(rule, project1, project1);
+    db.issues().insert(rule, project2, project2);
+
+    assertThat(underTest.selectProjectUuids(db.getSession())).containsExactlyInAnyOrder(project1.uuid(), project2.uuid());
+  }
+
   @Test
   public void scrollNonClosedByComponentUuid() {
     RuleDefinitionDto rule = db.rules().insert();
@@ -157,6 +170,47 @@ public class IssueDaoTest {
     assertThat(accumulator.list).isEmpty();
   }
 
+  @Test
+  public void scrollChangedSinceByComponentUuid() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    IssueDto oldIssueOnFile = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setUpdatedAt(1_000L));
+    IssueDto changedIssueOnFile = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setUpdatedAt(2_000L));
+    IssueDto closedIssueOnFile = db.issues().insert(rule, project, file, i -> i.setStatus("CLOSED").setResolution("FIXED").setUpdatedAt(3_000L));
+    IssueDto changedIssueOnProject = db.issues().insert(rule, project, project, i -> i.setStatus("OPEN").setUpdatedAt(3_000L));
+
+    Accumulator accumulator = new Accumulator();
+    underTest.scrollChangedSinceByComponentUuid(db.getSession(), file.uuid(), 2_000L, accumulator);
+    accumulator.assertThatContainsOnly(changedIssueOnFile, closedIssueOnFile);
+
+    accumulator.clear();
+    underTest.scrollChangedSinceByComponentUuid(db.getSession(), file.uuid(), 4_000L, accumulator);
+    assertThat(accumulator.list).isEmpty();
+  }
+
+  @Test
+  public void scrollChangedSinceByModuleOrProject() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto anotherProject = db.components().insertPrivateProject();
+    ComponentDto module = db.components().insertComponent(newModuleDto(project));
+    ComponentDto file = db.components().insertComponent(newFileDto(module));
+    IssueDto oldIssueOnFile = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setUpdatedAt(1_000L));
+    IssueDto closedIssueOnFile = db.issues().insert(rule, project, file, i -> i.setStatus("CLOSED").setResolution("FIXED").setUpdatedAt(2_000L));
+    IssueDto changedIssueOnModule = db.issues().insert(rule, project, module, i -> i.setStatus("OPEN").setUpdatedAt(2_000L));
+    IssueDto changedIssueOnProject = db.issues().insert(rule, project, project, i -> i.setStatus("OPEN").setUpdatedAt(3_000L));
+    IssueDto changedIssueOnAnotherProject = db.issues().insert(rule, anotherProject, anotherProject, i -> i.setStatus("OPEN").setUpdatedAt(3_000L));
+
+    Accumulator accumulator = new Accumulator();
+    underTest.scrollChangedSinceByModuleOrProject(db.getSession(), project, 2_000L, accumulator);
+    accumulator.assertThatContainsOnly(closedIssueOnFile, changedIssueOnModule, changedIssueOnProject);
+
+    accumulator.clear();
+    underTest.scrollChangedSinceByModuleOrProject(db.getSession(), module, 2_000L, accumulator);
+    accumulator.assertThatContainsOnly(closedIssueOnFile, changedIssueOnModule);
+  }
+
   @Test
   public void scrollNonClosedByModuleOrProject() {
     RuleDefinitionDto rule = db.rules().insert();
@@ -31,6 +31,7 @@ import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class IssueMapperTest {
@@ -213,6 +214,19 @@ public class IssueMapperTest {
     assertThat(result.getUpdatedAt()).isEqualTo(1_500_000_000_000L);
   }
 
+  @Test
+  public void selectByKeysIfNotUpdatedAt() {
+    underTest.insert(newIssue().setKee("ISSUE1").setUpdatedAt(1_500_000_000_000L));
+    underTest.insert(newIssue().setKee("ISSUE2").setUpdatedAt(1_600_000_000_000L));
+    underTest.insert(newIssue().setKee("ISSUE3").setUpdatedAt(1_500_000_000_000L));
+    dbTester.getSession().commit();
+
+    assertThat(underTest.selectByKeysIfNotUpdatedAt(asList("ISSUE1", "ISSUE2", "ISSUE3"), 1_600_000_000_000L))
+      .extracting(IssueDto::getKey)
+      .containsOnly("ISSUE1", "ISSUE3");
+    assertThat(underTest.selectByKeysIfNotUpdatedAt(asList("ISSUE2", "UNKNOWN"), 1_600_000_000_000L)).isEmpty();
+  }
+
   private IssueDto newIssue() {
     return new IssueDto()
       .setKee("ABCDE")
@@ -42,8 +42,10 @@ import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 
 import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Arrays.asList;
 import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.core.permission.GlobalPermissions.QUALITY_GATE_ADMIN;
 import static org.sonar.core.permission.GlobalPermissions.SCAN_EXECUTION;
 import static org.sonar.core.permission.GlobalPermissions.SYSTEM_ADMIN;
@@ -889,6 +891,45 @@ public class AuthorizationDaoTest {
     assertThat(underTest.selectProjectPermissions(dbSession, project.uuid(), user.getId())).containsOnly("p1", "p2", "p3");
   }
 
+  @Test
+  public void selectProjectPermissions_of_projects_returns_permissions_of_logged_in_user_on_specified_projects() {
+    ComponentDto project1 = db.components().insertPrivateProject(organization);
+    ComponentDto project2 = db.components().insertPublicProject(organization);
+    ComponentDto project3 = db.components().insertPrivateProject(organization);
+    ComponentDto otherProject = db.components().insertPrivateProject(organization);
+    db.users().insertProjectPermissionOnUser(user, UserRole.CODEVIEWER, project1);
+    db.users().insertProjectPermissionOnGroup(group1, UserRole.ISSUE_ADMIN, project1);
+    db.users().insertProjectPermissionOnAnyone("p1", project2);
+    db.users().insertProjectPermissionOnGroup(group2, UserRole.ADMIN, project3);
+    db.users().insertProjectPermissionOnUser(user, UserRole.ADMIN, otherProject);
+    db.users().insertMember(group1, user);
+
+    List<ProjectPermissionDto> permissions = underTest.selectProjectPermissions(dbSession,
+      asList(project1.uuid(), project2.uuid(), project3.uuid(), "does_not_exist"), user.getId());
+
+    assertThat(permissions)
+      .extracting(ProjectPermissionDto::getProjectUuid, ProjectPermissionDto::getPermission)
+      .containsOnly(
+        tuple(project1.uuid(), UserRole.CODEVIEWER),
+        tuple(project1.uuid(), UserRole.ISSUE_ADMIN),
+        tuple(project2.uuid(), "p1"));
+  }
+
+  @Test
+  public void selectProjectPermissions_of_projects_returns_permissions_of_anonymous_on_specified_projects() {
+    ComponentDto project1 = db.components().insertPublicProject(organization);
+    ComponentDto project2 = db.components().insertPublicProject(organization);
+    db.users().insertProjectPermissionOnAnyone("p1", project1);
+    db.users().insertProjectPermissionOnUser(user, "p2", project1);
+    db.users().insertProjectPermissionOnGroup(group1, "p3", project2);
+
+    List<ProjectPermissionDto> permissions = underTest.selectProjectPermissions(dbSession, asList(project1.uuid(), project2.uuid()), null);
+
+    assertThat(permissions)
+      .extracting(ProjectPermissionDto::getProjectUuid, ProjectPermissionDto::getPermission)
+      .containsOnly(tuple(project1.uuid(), "p1"));
+  }
+
   @Test
   public void keepAuthorizedProjectUuids_filters_projects_authorized_to_logged_in_user_by_direct_permission() {
     ComponentDto privateProject = db.components().insertPrivateProject(organization);
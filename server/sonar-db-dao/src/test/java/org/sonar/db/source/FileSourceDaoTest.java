@@ -57,6 +57,15 @@ public class FileSourceDaoTest {
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(1500000000000L);
     assertThat(fileSourceDto.getDataType()).isEqualTo(Type.SOURCE);
     assertThat(fileSourceDto.getRevision()).isEqualTo("123456789");
+    assertThat(fileSourceDto.getInputsHash()).isEqualTo("INPUTS_HASH");
+  }
+
+  @Test
+  public void select_source_data_hash() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    assertThat(underTest.selectSourceDataHashByFileUuid(session, "FILE1_UUID")).isEqualTo("hash");
+    assertThat(underTest.selectSourceDataHashByFileUuid(session, "UNKNOWN")).isNull();
   }
 
   @Test
@@ -103,11 +112,12 @@ public class FileSourceDaoTest {
       .setDataType(Type.SOURCE)
       .setCreatedAt(1500000000000L)
       .setUpdatedAt(1500000000001L)
-      .setRevision("123456789"));
+      .setRevision("123456789")
+      .setInputsHash("FILE2_INPUTS_HASH"));
     session.commit();
 
     dbTester.assertDbUnitTable(getClass(), "insert-result.xml", "file_sources",
-      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
+      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision", "inputs_hash");
   }
 
   @Test
@@ -172,11 +182,12 @@ public class FileSourceDaoTest {
       .setLineHashes("NEW_LINE_HASHES")
       .setDataType(Type.SOURCE)
       .setUpdatedAt(1500000000002L)
-      .setRevision("987654321"));
+      .setRevision("987654321")
+      .setInputsHash("NEW_INPUTS_HASH"));
     session.commit();
 
     dbTester.assertDbUnitTable(getClass(), "update-result.xml", "file_sources",
-      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
+      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision", "inputs_hash");
   }
 
   private static class ReaderToStringFunction implements Function<Reader, String> {
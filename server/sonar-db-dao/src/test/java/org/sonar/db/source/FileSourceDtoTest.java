@@ -19,8 +19,11 @@
  */
 package org.sonar.db.source;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -80,6 +83,87 @@ public class FileSourceDtoTest {
     assertThat(data.getLinesCount()).isEqualTo(build.getLinesCount());
   }
 
+  @Test
+  public void decodeSourceData_reads_legacy_Data_object_bigger_than_default_size_limit() throws IOException {
+    DbFileSources.Data build = createOver64MBDataStructure();
+    byte[] bytes = encodeLegacySourceData(build);
+
+    DbFileSources.Data data = new FileSourceDto().decodeSourceData(bytes);
+    assertThat(data.getLinesCount()).isEqualTo(build.getLinesCount());
+  }
+
+  @Test
+  public void encode_source_data_in_chunks_of_lines() {
+    DbFileSources.Data build = createData(95);
+
+    byte[] bytes = FileSourceDto.encodeSourceData(build, 10);
+
+    assertThat(FileSourceDto.isChunked(bytes)).isTrue();
+    assertThat(new FileSourceDto().decodeSourceData(bytes)).isEqualTo(build);
+  }
+
+  @Test
+  public void encode_and_decode_empty_source_data() {
+    byte[] bytes = FileSourceDto.encodeSourceData(DbFileSources.Data.getDefaultInstance());
+
+    assertThat(new FileSourceDto().decodeSourceData(bytes).getLinesCount()).isZero();
+    assertThat(new FileSourceDto().decodeSourceData(bytes, 1, 10).getLinesCount()).isZero();
+  }
+
+  @Test
+  public void decodeSourceData_reads_range_of_lines_over_chunks() {
+    byte[] bytes = FileSourceDto.encodeSourceData(createData(95), 10);
+
+    DbFileSources.Data data = new FileSourceDto().decodeSourceData(bytes, 19, 31);
+    assertThat(data.getLinesList()).extracting(DbFileSources.Line::getLine)
+      .containsExactly(19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31);
+    assertThat(new FileSourceDto().decodeSourceData(bytes, 90, Integer.MAX_VALUE).getLinesList()).extracting(DbFileSources.Line::getLine)
+      .containsExactly(90, 91, 92, 93, 94, 95);
+    assertThat(new FileSourceDto().decodeSourceData(bytes, 100, 110).getLinesCount()).isZero();
+  }
+
+  @Test
+  public void decodeSourceData_reads_range_of_lines_in_legacy_format() throws IOException {
+    byte[] bytes = encodeLegacySourceData(createData(95));
+
+    assertThat(FileSourceDto.isChunked(bytes)).isFalse();
+    assertThat(new FileSourceDto().decodeSourceData(bytes).getLinesCount()).isEqualTo(95);
+    assertThat(new FileSourceDto().decodeSourceData(bytes, 19, 21).getLinesList()).extracting(DbFileSources.Line::getLine)
+      .containsExactly(19, 20, 21);
+  }
+
+  @Test
+  public void getSourceData_keeps_lines_without_number() {
+    DbFileSources.Data build = DbFileSources.Data.newBuilder()
+      .addLines(DbFileSources.Line.newBuilder().setSource("no line"))
+      .addLines(DbFileSources.Line.newBuilder().setLine(1).setSource("line 1"))
+      .build();
+
+    FileSourceDto underTest = new FileSourceDto().setSourceData(build);
+
+    assertThat(underTest.getSourceData()).isEqualTo(build);
+    assertThat(underTest.getSourceData(1, 1).getLinesList()).extracting(DbFileSources.Line::getSource).containsExactly("line 1");
+  }
+
+  private static DbFileSources.Data createData(int lines) {
+    DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= lines; i++) {
+      dataBuilder.addLinesBuilder().setLine(i).setSource("line " + i);
+    }
+    return dataBuilder.build();
+  }
+
+  /**
+   * Format of source data before it was split into chunks
+   */
+  private static byte[] encodeLegacySourceData(DbFileSources.Data data) throws IOException {
+    ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+    try (LZ4BlockOutputStream compressedOutput = new LZ4BlockOutputStream(byteOutput)) {
+      data.writeTo(compressedOutput);
+    }
+    return byteOutput.toByteArray();
+  }
+
   private static DbFileSources.Data createOver64MBDataStructure() {
     DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
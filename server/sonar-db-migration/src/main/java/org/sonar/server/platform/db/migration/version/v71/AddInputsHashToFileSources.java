@@ -17,38 +17,29 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonar.server.util;
+package org.sonar.server.platform.db.migration.version.v71;
 
-import com.google.common.base.Throwables;
-import org.apache.commons.io.IOUtils;
+import java.sql.SQLException;
+import org.sonar.db.Database;
+import org.sonar.server.platform.db.migration.sql.AddColumnsBuilder;
+import org.sonar.server.platform.db.migration.step.DdlChange;
 
-import java.io.EOFException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import org.sonar.core.util.CloseableIterator;
+import static org.sonar.server.platform.db.migration.def.VarcharColumnDef.newVarcharColumnDefBuilder;
 
-public class ObjectInputStreamIterator<E> extends CloseableIterator<E> {
+public class AddInputsHashToFileSources extends DdlChange {
 
-  private ObjectInputStream stream;
-
-  public ObjectInputStreamIterator(InputStream stream) throws IOException {
-    this.stream = new ObjectInputStream(stream);
-  }
-
-  @Override
-  protected E doNext() {
-    try {
-      return (E) stream.readObject();
-    } catch (EOFException e) {
-      return null;
-    } catch (Exception e) {
-      throw Throwables.propagate(e);
-    }
+  public AddInputsHashToFileSources(Database db) {
+    super(db);
   }
 
   @Override
-  protected void doClose() {
-    IOUtils.closeQuietly(stream);
+  public void execute(Context context) throws SQLException {
+    context.execute(new AddColumnsBuilder(getDialect(), "file_sources")
+      .addColumn(newVarcharColumnDefBuilder()
+        .setColumnName("inputs_hash")
+        .setIsNullable(true)
+        .setLimit(50)
+        .build())
+      .build());
   }
 }
@@ -27,6 +27,7 @@ public class DbVersion71 implements DbVersion {
   @Override
   public void addSteps(MigrationStepRegistry registry) {
     registry
-      .add(2000, "Delete settings defined in sonar.properties from PROPERTIES table", DeleteSettingsDefinedInSonarDotProperties.class);
+      .add(2000, "Delete settings defined in sonar.properties from PROPERTIES table", DeleteSettingsDefinedInSonarDotProperties.class)
+      .add(2001, "Add FILE_SOURCES.INPUTS_HASH", AddInputsHashToFileSources.class);
   }
 }
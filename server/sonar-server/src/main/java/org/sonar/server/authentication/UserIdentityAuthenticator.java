@@ -41,6 +41,7 @@ import org.sonar.server.authentication.event.AuthenticationException;
 import org.sonar.server.organization.DefaultOrganization;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.OrganizationFlags;
+import org.sonar.server.permission.PermissionCache;
 import org.sonar.server.user.ExternalIdentity;
 import org.sonar.server.user.NewUser;
 import org.sonar.server.user.UpdateUser;
@@ -60,14 +61,16 @@ public class UserIdentityAuthenticator {
   private final DefaultOrganizationProvider defaultOrganizationProvider;
   private final OrganizationFlags organizationFlags;
   private final DefaultGroupFinder defaultGroupFinder;
+  private final PermissionCache permissionCache;
 
   public UserIdentityAuthenticator(DbClient dbClient, UserUpdater userUpdater, DefaultOrganizationProvider defaultOrganizationProvider, OrganizationFlags organizationFlags,
-    DefaultGroupFinder defaultGroupFinder) {
+    DefaultGroupFinder defaultGroupFinder, PermissionCache permissionCache) {
     this.dbClient = dbClient;
     this.userUpdater = userUpdater;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
     this.organizationFlags = organizationFlags;
     this.defaultGroupFinder = defaultGroupFinder;
+    this.permissionCache = permissionCache;
   }
 
   public UserDto authenticate(UserIdentity user, IdentityProvider provider, AuthenticationEvent.Source source) {
@@ -123,6 +126,9 @@ public class UserIdentityAuthenticator {
       .setName(identity.getName())
       .setExternalIdentity(new ExternalIdentity(provider.getKey(), identity.getProviderLogin()));
     userUpdater.updateAndCommit(dbSession, update, u -> syncGroups(dbSession, identity, u));
+    if (identity.shouldSyncGroups()) {
+      permissionCache.invalidate(userDto.getId());
+    }
   }
 
   private void syncGroups(DbSession dbSession, UserIdentity userIdentity, UserDto userDto) {
@@ -51,6 +51,7 @@ public class IssuesAction implements BatchWsAction {
 
   private static final String PARAM_KEY = "key";
   private static final String PARAM_BRANCH = "branch";
+  private static final String PARAM_CHANGED_SINCE = "changedSince";
   private static final Splitter MODULE_PATH_SPLITTER = Splitter.on('.').trimResults().omitEmptyStrings();
 
   private final DbClient dbClient;
@@ -66,7 +67,8 @@ public class IssuesAction implements BatchWsAction {
   @Override
   public void define(WebService.NewController controller) {
     WebService.NewAction action = controller.createAction("issues")
-      .setDescription("Return open issues")
+      .setDescription("Return open issues. If parameter '" + PARAM_CHANGED_SINCE + "' is set, then only the issues updated since this date are returned, " +
+        "including the closed ones.")
       .setResponseExample(getClass().getResource("issues-example.proto"))
       .setSince("5.1")
       .setInternal(true)
@@ -83,6 +85,12 @@ public class IssuesAction implements BatchWsAction {
       .setSince("6.6")
       .setDescription("Branch key")
       .setExampleValue(KEY_BRANCH_EXAMPLE_001);
+
+    action
+      .createParam(PARAM_CHANGED_SINCE)
+      .setSince("7.1")
+      .setDescription("Return only the issues updated since this date (inclusive), in milliseconds since epoch, including the closed ones")
+      .setExampleValue("1514761200000");
   }
 
   @Override
@@ -100,20 +108,46 @@ public class IssuesAction implements BatchWsAction {
         IssueDto issue = resultContext.getResultObject();
         handleIssue(issue, responseBuilder, keysByUUid, output);
       };
-      switch (component.scope()) {
-        case Scopes.PROJECT:
-          dbClient.issueDao().scrollNonClosedByModuleOrProject(dbSession, component, handler);
-          break;
-        case Scopes.FILE:
-          dbClient.issueDao().scrollNonClosedByComponentUuid(dbSession, component.uuid(), handler);
-          break;
-        default:
-          // only projects, modules and files are supported. Other types of components are not allowed.
-          throw new IllegalArgumentException(format("Component of scope '%s' is not allowed", component.scope()));
+      Long changedSince = request.paramAsLong(PARAM_CHANGED_SINCE);
+      if (changedSince == null) {
+        scrollNonClosed(dbSession, component, handler);
+      } else {
+        scrollChangedSince(dbSession, component, changedSince, handler);
       }
     }
   }
 
+  private void scrollNonClosed(DbSession dbSession, ComponentDto component, ResultHandler<IssueDto> handler) {
+    switch (component.scope()) {
+      case Scopes.PROJECT:
+        dbClient.issueDao().scrollNonClosedByModuleOrProject(dbSession, component, handler);
+        break;
+      case Scopes.FILE:
+        dbClient.issueDao().scrollNonClosedByComponentUuid(dbSession, component.uuid(), handler);
+        break;
+      default:
+        throw unsupportedScope(component);
+    }
+  }
+
+  private void scrollChangedSince(DbSession dbSession, ComponentDto component, long changedSince, ResultHandler<IssueDto> handler) {
+    switch (component.scope()) {
+      case Scopes.PROJECT:
+        dbClient.issueDao().scrollChangedSinceByModuleOrProject(dbSession, component, changedSince, handler);
+        break;
+      case Scopes.FILE:
+        dbClient.issueDao().scrollChangedSinceByComponentUuid(dbSession, component.uuid(), changedSince, handler);
+        break;
+      default:
+        throw unsupportedScope(component);
+    }
+  }
+
+  private static IllegalArgumentException unsupportedScope(ComponentDto component) {
+    // only projects, modules and files are supported. Other types of components are not allowed.
+    return new IllegalArgumentException(format("Component of scope '%s' is not allowed", component.scope()));
+  }
+
   private static void handleIssue(IssueDto issue, ScannerInput.ServerIssue.Builder issueBuilder,
     Map<String, String> keysByUUid, OutputStream out) {
     issueBuilder.setKey(issue.getKey());
@@ -132,6 +166,7 @@ public class IssuesAction implements BatchWsAction {
     setNullable(issue.getResolution(), issueBuilder::setResolution);
     issueBuilder.setType(RuleType.valueOf(issue.getType()).name());
     issueBuilder.setCreationDate(issue.getIssueCreationTime());
+    issueBuilder.setUpdatedAt(issue.getUpdatedAt());
     try {
       issueBuilder.build().writeDelimitedTo(out);
     } catch (IOException e) {
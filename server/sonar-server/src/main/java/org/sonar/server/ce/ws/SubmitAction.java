@@ -30,6 +30,7 @@ import org.sonar.api.server.ws.WebService;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.server.computation.queue.ReportSubmitter;
 import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonar.server.ws.BodyPartAction;
 import org.sonar.server.ws.WsUtils;
 import org.sonarqube.ws.Ce;
 
@@ -37,7 +38,7 @@ import static org.sonar.core.component.ComponentKeys.MAX_COMPONENT_KEY_LENGTH;
 import static org.sonar.db.component.ComponentValidator.MAX_COMPONENT_NAME_LENGTH;
 import static org.sonar.server.ws.WsUtils.checkRequest;
 
-public class SubmitAction implements CeWsAction {
+public class SubmitAction implements CeWsAction, BodyPartAction {
 
   private static final String PARAM_ORGANIZATION_KEY = "organization";
   private static final String PARAM_PROJECT_KEY = "projectKey";
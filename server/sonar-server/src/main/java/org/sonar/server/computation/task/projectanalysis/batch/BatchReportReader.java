@@ -22,6 +22,7 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 import java.util.Optional;
 import javax.annotation.CheckForNull;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
 public interface BatchReportReader {
@@ -55,6 +56,12 @@ public interface BatchReportReader {
    */
   Optional<CloseableIterator<String>> readFileSource(int fileRef);
 
+  /**
+   * MD5 hash of the content of the entry of the specified domain and component.
+   * Return an absent optional if the entry does not exist.
+   */
+  Optional<String> readHash(FileStructure.Domain domain, int componentRef);
+
   CloseableIterator<ScannerReport.Test> readTests(int testFileRef);
 
   CloseableIterator<ScannerReport.CoverageDetail> readCoverageDetails(int testFileRef);
@@ -19,138 +19,242 @@
  */
 package org.sonar.server.computation.task.projectanalysis.batch;
 
-import com.google.common.base.Throwables;
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
 import com.google.protobuf.Parser;
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import javax.annotation.CheckForNull;
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
+import org.picocontainer.Startable;
+import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.LineReaderIterator;
+import org.sonar.core.util.Protobuf;
+import org.sonar.scanner.protocol.output.FileStructure;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
+import org.sonar.scanner.protocol.output.ReportContainer;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
-public class BatchReportReaderImpl implements BatchReportReader {
+import static java.lang.String.format;
+import static org.sonar.core.util.CloseableIterator.emptyCloseableIterator;
+import static org.sonar.scanner.protocol.output.FileStructure.fileNameFor;
 
-  private final BatchReportDirectoryHolder batchReportDirectoryHolder;
-  private org.sonar.scanner.protocol.output.ScannerReportReader delegate;
+/**
+ * Reads the entries of the zipped Batch report without extracting it: entries are decompressed only when they are read.
+ * <p>
+ * If data of components are packed in a {@link ReportContainer}, the data of the container, which is stored
+ * uncompressed, is memory mapped in place from the zip file, except on Windows where it is read from the zip file.
+ * </p>
+ */
+public class BatchReportReaderImpl implements BatchReportReader, Startable {
+
+  private final BatchReportFileHolder batchReportFileHolder;
+  private final System2 system2;
+  private ZipFile zipFile;
+  @CheckForNull
+  private ReportContainer container;
   // caching of metadata which are read often
-  private ScannerReport.Metadata metadata;
+  private volatile ScannerReport.Metadata metadata;
 
-  public BatchReportReaderImpl(BatchReportDirectoryHolder batchReportDirectoryHolder) {
-    this.batchReportDirectoryHolder = batchReportDirectoryHolder;
+  public BatchReportReaderImpl(BatchReportFileHolder batchReportFileHolder, System2 system2) {
+    this.batchReportFileHolder = batchReportFileHolder;
+    this.system2 = system2;
   }
 
-  private void ensureInitialized() {
-    if (this.delegate == null) {
-      this.delegate = new org.sonar.scanner.protocol.output.ScannerReportReader(batchReportDirectoryHolder.getDirectory());
+  /**
+   * Synchronized as the report can be read concurrently by the steps executed in background (see
+   * {@link org.sonar.server.computation.task.step.ComputationSteps#backgroundSteps()}). Fields are then safely
+   * read by the calling thread.
+   */
+  private synchronized void ensureInitialized() {
+    if (this.zipFile == null) {
+      File file = batchReportFileHolder.getZipFile();
+      try {
+        this.zipFile = new ZipFile(file);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to open analysis report " + file, e);
+      }
+      if (zipFile.getEntry(ReportContainer.INDEX_FILE_NAME) != null) {
+        // a mapped file is locked on Windows until the buffer is garbage collected, so the report could not be deleted
+        this.container = ReportContainer.open(file, zipFile, !system2.isOsWindows());
+      }
     }
   }
 
   @Override
-  public ScannerReport.Metadata readMetadata() {
-    ensureInitialized();
-    if (this.metadata == null) {
-      this.metadata = delegate.readMetadata();
-    }
-    return this.metadata;
+  public void start() {
+    // nothing to do, zip file is lazily opened
   }
 
   @Override
-  public CloseableIterator<String> readScannerLogs() {
+  public void stop() {
+    if (container != null) {
+      try {
+        container.close();
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to close container of analysis report " + zipFile.getName(), e);
+      }
+    }
+    if (zipFile != null) {
+      try {
+        zipFile.close();
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to close analysis report " + zipFile.getName(), e);
+      }
+    }
+  }
+
+  /**
+   * @return {@code null} if the entry does not exist in the report
+   */
+  @CheckForNull
+  private InputStream openEntry(String name) {
     ensureInitialized();
-    File file = delegate.getFileStructure().analysisLog();
-    if (!file.exists()) {
-      return CloseableIterator.emptyCloseableIterator();
+    ZipEntry entry = zipFile.getEntry(name);
+    if (entry == null || entry.isDirectory()) {
+      return null;
     }
     try {
-      InputStreamReader reader = new InputStreamReader(FileUtils.openInputStream(file), StandardCharsets.UTF_8);
-      return new LineReaderIterator(reader);
+      return new BufferedInputStream(zipFile.getInputStream(entry));
     } catch (IOException e) {
-      throw new IllegalStateException("Fail to open file " + file, e);
+      throw new IllegalStateException(format("Fail to read entry %s of analysis report %s", name, zipFile.getName()), e);
+    }
+  }
+
+  /**
+   * @return {@code null} if there is no data for this domain and component in the report
+   */
+  @CheckForNull
+  private InputStream openEntry(Domain domain, int componentRef) {
+    ensureInitialized();
+    if (container != null) {
+      return container.open(domain, componentRef);
+    }
+    return openEntry(fileNameFor(domain, componentRef));
+  }
+
+  @CheckForNull
+  private static <M extends Message> M read(@CheckForNull InputStream input, Parser<M> parser) {
+    if (input == null) {
+      return null;
+    }
+    return Protobuf.read(input, parser);
+  }
+
+  private static <M extends Message> CloseableIterator<M> readStream(@CheckForNull InputStream input, Parser<M> parser) {
+    if (input == null) {
+      return emptyCloseableIterator();
+    }
+    return Protobuf.readStream(input, parser);
+  }
+
+  @Override
+  public ScannerReport.Metadata readMetadata() {
+    ScannerReport.Metadata res = this.metadata;
+    if (res == null) {
+      // metadata may be read more than once by concurrent threads, which is harmless
+      res = read(openEntry(FileStructure.METADATA_FILE_NAME), ScannerReport.Metadata.parser());
+      if (res == null) {
+        throw new IllegalStateException("Metadata file is missing in analysis report: " + FileStructure.METADATA_FILE_NAME);
+      }
+      this.metadata = res;
+    }
+    return res;
+  }
+
+  @Override
+  public CloseableIterator<String> readScannerLogs() {
+    InputStream input = openEntry(FileStructure.ANALYSIS_LOG_FILE_NAME);
+    if (input == null) {
+      return emptyCloseableIterator();
     }
+    return new LineReaderIterator(new InputStreamReader(input, StandardCharsets.UTF_8));
   }
 
   @Override
   public CloseableIterator<ScannerReport.ActiveRule> readActiveRules() {
-    ensureInitialized();
-    return delegate.readActiveRules();
+    return readStream(openEntry(FileStructure.ACTIVE_RULES_FILE_NAME), ScannerReport.ActiveRule.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponentMeasures(componentRef);
+    return readStream(openEntry(Domain.MEASURES, componentRef), ScannerReport.Measure.parser());
   }
 
   @Override
   @CheckForNull
   public ScannerReport.Changesets readChangesets(int componentRef) {
-    ensureInitialized();
-    return delegate.readChangesets(componentRef);
+    return read(openEntry(Domain.CHANGESETS, componentRef), ScannerReport.Changesets.parser());
   }
 
   @Override
   public ScannerReport.Component readComponent(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponent(componentRef);
+    String entryName = fileNameFor(Domain.COMPONENT, componentRef);
+    ScannerReport.Component res = read(openEntry(Domain.COMPONENT, componentRef), ScannerReport.Component.parser());
+    if (res == null) {
+      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + entryName);
+    }
+    return res;
   }
 
   @Override
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponentIssues(componentRef);
+    return readStream(openEntry(Domain.ISSUES, componentRef), ScannerReport.Issue.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponentDuplications(componentRef);
+    return readStream(openEntry(Domain.DUPLICATIONS, componentRef), ScannerReport.Duplication.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
-    ensureInitialized();
-    return delegate.readCpdTextBlocks(componentRef);
+    return readStream(openEntry(Domain.CPD_TEXT_BLOCKS, componentRef), ScannerReport.CpdTextBlock.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
-    ensureInitialized();
-    return delegate.readComponentSymbols(componentRef);
+    return readStream(openEntry(Domain.SYMBOLS, componentRef), ScannerReport.Symbol.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
-    ensureInitialized();
-    return delegate.readComponentSyntaxHighlighting(fileRef);
+    return readStream(openEntry(Domain.SYNTAX_HIGHLIGHTINGS, fileRef), ScannerReport.SyntaxHighlightingRule.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
-    ensureInitialized();
-    return delegate.readComponentCoverage(fileRef);
+    return readStream(openEntry(Domain.COVERAGES, fileRef), ScannerReport.LineCoverage.parser());
   }
 
   @Override
   public Optional<CloseableIterator<String>> readFileSource(int fileRef) {
-    ensureInitialized();
-    File file = delegate.readFileSource(fileRef);
-    if (file == null) {
+    InputStream input = openEntry(Domain.SOURCE, fileRef);
+    if (input == null) {
       return Optional.empty();
     }
+    return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(new InputStreamReader(input, StandardCharsets.UTF_8))));
+  }
 
-    try {
-      return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(FileUtils.openInputStream(file), StandardCharsets.UTF_8)));
+  @Override
+  public Optional<String> readHash(Domain domain, int componentRef) {
+    try (InputStream input = openEntry(domain, componentRef)) {
+      if (input == null) {
+        return Optional.empty();
+      }
+      return Optional.of(DigestUtils.md5Hex(input));
     } catch (IOException e) {
-      throw new IllegalStateException("Fail to traverse file: " + file, e);
+      throw new IllegalStateException(format("Fail to read %s of component %d in analysis report %s", domain, componentRef, zipFile.getName()), e);
     }
   }
 
@@ -185,67 +289,16 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
   @Override
   public CloseableIterator<ScannerReport.Test> readTests(int testFileRef) {
-    ensureInitialized();
-    File file = delegate.readTests(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-
-    try {
-      return new ParserCloseableIterator<>(ScannerReport.Test.parser(), FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
-      return CloseableIterator.emptyCloseableIterator();
-    }
+    return readStream(openEntry(Domain.TESTS, testFileRef), ScannerReport.Test.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.CoverageDetail> readCoverageDetails(int testFileRef) {
-    ensureInitialized();
-    File file = delegate.readCoverageDetails(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-
-    try {
-      return new ParserCloseableIterator<>(ScannerReport.CoverageDetail.parser(), FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
-      return CloseableIterator.emptyCloseableIterator();
-    }
+    return readStream(openEntry(Domain.COVERAGE_DETAILS, testFileRef), ScannerReport.CoverageDetail.parser());
   }
 
   @Override
   public CloseableIterator<ScannerReport.ContextProperty> readContextProperties() {
-    ensureInitialized();
-    return delegate.readContextProperties();
-  }
-
-  private static class ParserCloseableIterator<T> extends CloseableIterator<T> {
-    private final Parser<T> parser;
-    private final FileInputStream fileInputStream;
-
-    public ParserCloseableIterator(Parser<T> parser, FileInputStream fileInputStream) {
-      this.parser = parser;
-      this.fileInputStream = fileInputStream;
-    }
-
-    @Override
-    protected T doNext() {
-      try {
-        return parser.parseDelimitedFrom(fileInputStream);
-      } catch (InvalidProtocolBufferException e) {
-        Throwables.propagate(e);
-        // actually never reached
-        return null;
-      }
-    }
-
-    @Override
-    protected void doClose() throws Exception {
-      fileInputStream.close();
-    }
+    return readStream(openEntry(FileStructure.CONTEXT_PROPERTIES_FILE_NAME), ScannerReport.ContextProperty.parser());
   }
 }
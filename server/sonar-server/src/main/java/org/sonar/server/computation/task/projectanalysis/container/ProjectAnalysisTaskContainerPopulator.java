@@ -31,7 +31,7 @@ import org.sonar.plugin.ce.ReportAnalysisComponentProvider;
 import org.sonar.server.computation.task.container.TaskContainer;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolderImpl;
 import org.sonar.server.computation.task.projectanalysis.api.posttask.PostProjectAnalysisTasksExecutor;
-import org.sonar.server.computation.task.projectanalysis.batch.BatchReportDirectoryHolderImpl;
+import org.sonar.server.computation.task.projectanalysis.batch.BatchReportFileHolderImpl;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderImpl;
 import org.sonar.server.computation.task.projectanalysis.component.BranchLoader;
 import org.sonar.server.computation.task.projectanalysis.component.BranchPersisterImpl;
@@ -165,7 +165,7 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
       // holders
       AnalysisMetadataHolderImpl.class,
       CrossProjectDuplicationStatusHolderImpl.class,
-      BatchReportDirectoryHolderImpl.class,
+      BatchReportFileHolderImpl.class,
       TreeRootHolderImpl.class,
       PeriodHolderImpl.class,
       QualityGateHolderImpl.class,
@@ -34,8 +34,8 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
 import org.sonar.duplications.index.CloneGroup;
-import org.sonar.duplications.index.CloneIndex;
 import org.sonar.duplications.index.ClonePart;
+import org.sonar.duplications.index.DirectBufferPool;
 import org.sonar.duplications.index.PackedMemoryCloneIndex;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 
@@ -52,9 +52,19 @@ public class IntegrateCrossProjectDuplications {
 
   private static final int MAX_CLONE_GROUP_PER_FILE = 100;
   private static final int MAX_CLONE_PART_PER_GROUP = 100;
+  /**
+   * Once this number of blocks has been loaded for the analysis, data of clone indexes is stored off-heap
+   */
+  private static final long OFF_HEAP_MIN_LOADED_BLOCKS = 100_000L;
+  private static final int HASH_BYTES = 8;
 
   private final Configuration config;
   private final DuplicationRepository duplicationRepository;
+  /**
+   * Shared by the indexes of all the files of the analysis, so that direct memory is bounded by the biggest index
+   */
+  private final DirectBufferPool bufferPool = new DirectBufferPool();
+  private long loadedBlocks = 0L;
 
   private Map<String, NumberOfUnitsNotLessThan> numberOfUnitsByLanguage = new HashMap<>();
 
@@ -67,16 +77,20 @@ public class IntegrateCrossProjectDuplications {
   }
 
   public void computeCpd(Component component, Collection<Block> originBlocks, Collection<Block> duplicationBlocks) {
-    CloneIndex duplicationIndex = new PackedMemoryCloneIndex();
-    populateIndex(duplicationIndex, originBlocks);
-    populateIndex(duplicationIndex, duplicationBlocks);
-
-    List<CloneGroup> duplications = SuffixTreeCloneDetectionAlgorithm.detect(duplicationIndex, originBlocks);
+    int nbBlocks = originBlocks.size() + duplicationBlocks.size();
+    loadedBlocks += nbBlocks;
+    List<CloneGroup> duplications;
+    try (PackedMemoryCloneIndex duplicationIndex = new PackedMemoryCloneIndex(HASH_BYTES, Math.max(1, nbBlocks),
+      loadedBlocks >= OFF_HEAP_MIN_LOADED_BLOCKS ? bufferPool : null)) {
+      populateIndex(duplicationIndex, originBlocks);
+      populateIndex(duplicationIndex, duplicationBlocks);
+      duplications = SuffixTreeCloneDetectionAlgorithm.detect(duplicationIndex, originBlocks);
+    }
     Iterable<CloneGroup> filtered = from(duplications).filter(getNumberOfUnitsNotLessThan(component.getFileAttributes().getLanguageKey()));
     addDuplications(component, filtered);
   }
 
-  private static void populateIndex(CloneIndex duplicationIndex, Collection<Block> duplicationBlocks) {
+  private static void populateIndex(PackedMemoryCloneIndex duplicationIndex, Collection<Block> duplicationBlocks) {
     for (Block block : duplicationBlocks) {
       duplicationIndex.insert(block);
     }
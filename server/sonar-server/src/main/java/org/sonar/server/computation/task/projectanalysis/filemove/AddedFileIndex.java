@@ -0,0 +1,150 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.server.computation.task.projectanalysis.filemove.FileSimilarity.File;
+
+import static org.sonar.server.computation.task.projectanalysis.filemove.FileMoveDetectionStep.MIN_REQUIRED_SCORE;
+
+/**
+ * Index of the line hashes of added files, which selects the added files that may have a score greater or equal to
+ * {@link FileMoveDetectionStep#MIN_REQUIRED_SCORE} with a removed file, without computing the score of every pair of files.
+ * <p>
+ * The score of two files can only reach this threshold if their number of lines are close enough and if they share
+ * at least {@link FileMoveDetectionStep#MIN_REQUIRED_SCORE}% of the lines of the largest one. Lines are
+ * indexed as tokens (line hash and number of previous occurrences of this hash in the file) ordered from the rarest
+ * to the most frequent one. Two files sharing that many tokens necessarily share one among the first tokens
+ * of each file (prefix filtering), so only these first tokens are indexed and looked up.
+ * </p>
+ */
+final class AddedFileIndex {
+  private final Map<String, File> filesByKey;
+  private final List<String> fileKeys;
+  private final List<File> files;
+  private final Map<String, Integer> lineHashIds = new HashMap<>();
+  private final Map<Long, Integer> tokenFrequencies = new HashMap<>();
+  private final Map<Long, List<Integer>> fileIndexesByToken = new HashMap<>();
+
+  private AddedFileIndex(Map<String, File> addedFilesByKey) {
+    this.filesByKey = addedFilesByKey;
+    this.fileKeys = new ArrayList<>(addedFilesByKey.keySet());
+    this.files = new ArrayList<>(addedFilesByKey.values());
+  }
+
+  public static AddedFileIndex create(Map<String, File> addedFilesByKey) {
+    AddedFileIndex index = new AddedFileIndex(addedFilesByKey);
+    List<long[]> tokensByFile = new ArrayList<>(index.files.size());
+    for (File file : index.files) {
+      long[] tokens = index.tokenize(file, true);
+      for (long token : tokens) {
+        index.tokenFrequencies.merge(token, 1, Integer::sum);
+      }
+      tokensByFile.add(tokens);
+    }
+    for (int i = 0; i < tokensByFile.size(); i++) {
+      for (long token : index.prefix(tokensByFile.get(i), index.files.get(i))) {
+        index.fileIndexesByToken.computeIfAbsent(token, t -> new ArrayList<>(1)).add(i);
+      }
+    }
+    return index;
+  }
+
+  public File getFile(String addedFileKey) {
+    return filesByKey.get(addedFileKey);
+  }
+
+  /**
+   * Keys of the added files which score with the specified removed file may be greater or equal to
+   * {@link FileMoveDetectionStep#MIN_REQUIRED_SCORE}, in the order of the map used to create the index.
+   * This method is thread-safe.
+   */
+  public List<String> getCandidates(File removedFile) {
+    BitSet candidates = new BitSet(files.size());
+    for (long token : prefix(tokenize(removedFile, false), removedFile)) {
+      List<Integer> fileIndexes = fileIndexesByToken.get(token);
+      if (fileIndexes != null) {
+        fileIndexes.forEach(candidates::set);
+      }
+    }
+    int removedFileLines = removedFile.getLineHashes().size();
+    List<String> res = new ArrayList<>();
+    candidates.stream()
+      .filter(i -> haveCloseLineCounts(removedFileLines, files.get(i).getLineHashes().size()))
+      .forEach(i -> res.add(fileKeys.get(i)));
+    return res;
+  }
+
+  /**
+   * Score is based on the edit distance of lines, which can not be less than the difference of line counts.
+   */
+  private static boolean haveCloseLineCounts(int lines1, int lines2) {
+    int maxLines = Math.max(lines1, lines2);
+    return 100L * Math.abs(lines1 - lines2) <= (100L - MIN_REQUIRED_SCORE) * maxLines;
+  }
+
+  /**
+   * Tokens of the lines of the file. When {@code register} is false, tokens which do not exist in added files
+   * are ignored.
+   */
+  private long[] tokenize(File file, boolean register) {
+    Map<Integer, Integer> occurrences = new HashMap<>();
+    long[] tokens = new long[file.getLineHashes().size()];
+    int count = 0;
+    for (String lineHash : file.getLineHashes()) {
+      Integer hashId = register ? lineHashIds.computeIfAbsent(lineHash, h -> lineHashIds.size()) : lineHashIds.get(lineHash);
+      if (hashId == null) {
+        continue;
+      }
+      long token = ((long) hashId << 32) | occurrences.merge(hashId, 1, Integer::sum);
+      if (register || tokenFrequencies.containsKey(token)) {
+        tokens[count] = token;
+        count++;
+      }
+    }
+    return count == tokens.length ? tokens : Arrays.copyOf(tokens, count);
+  }
+
+  /**
+   * Rarest tokens of the file, which must contain a token of any file sharing enough lines with it. Tokens which
+   * can not be shared have already been excluded, but their lines still count in the number of lines of the file.
+   */
+  private List<Long> prefix(long[] tokens, File file) {
+    int lines = file.getLineHashes().size();
+    if (lines == 0) {
+      // score of an empty file is always 0
+      return new ArrayList<>(0);
+    }
+    int minSharedLines = Math.max(1, (int) Math.floor(lines * MIN_REQUIRED_SCORE / 100.0));
+    int prefixSize = Math.min(tokens.length, lines - minSharedLines + 1);
+    List<Long> sorted = new ArrayList<>(tokens.length);
+    for (long token : tokens) {
+      sorted.add(token);
+    }
+    sorted.sort(Comparator.<Long>comparingInt(t -> tokenFrequencies.getOrDefault(t, 0)).thenComparing(Comparator.naturalOrder()));
+    return sorted.subList(0, prefixSize);
+  }
+}
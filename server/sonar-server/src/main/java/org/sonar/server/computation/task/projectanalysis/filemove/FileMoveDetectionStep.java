@@ -28,6 +28,7 @@ import com.google.common.collect.Sets;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -59,6 +60,7 @@ import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.base.Splitter.on;
 import static com.google.common.collect.FluentIterable.from;
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
 
 public class FileMoveDetectionStep implements ComputationStep {
@@ -66,6 +68,10 @@ public class FileMoveDetectionStep implements ComputationStep {
   private static final Logger LOG = Loggers.get(FileMoveDetectionStep.class);
   private static final List<String> FILE_QUALIFIERS = asList(Qualifiers.FILE, Qualifiers.UNIT_TEST_FILE);
   private static final Splitter LINES_HASHES_SPLITTER = on('\n');
+  /**
+   * Number of removed files loaded from db and compared with added files at the same time
+   */
+  private static final int DB_FILES_BATCH_SIZE = 100;
 
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final TreeRootHolder rootHolder;
@@ -195,32 +201,38 @@ public class FileMoveDetectionStep implements ComputationStep {
   }
 
   private ScoreMatrix computeScoreMatrix(Map<String, DbComponent> dtosByKey, Set<String> dbFileKeys, Map<String, File> reportFileSourcesByKey) {
-    int[][] scoreMatrix = new int[dbFileKeys.size()][reportFileSourcesByKey.size()];
-    int maxScore = 0;
+    AddedFileIndex addedFileIndex = AddedFileIndex.create(reportFileSourcesByKey);
+    List<ScoreMatrix.Score> scores = new ArrayList<>();
 
     try (DbSession dbSession = dbClient.openSession(false)) {
-      int dbFileIndex = 0;
+      Map<String, File> dbFilesByKey = new LinkedHashMap<>();
       for (String removedFileKey : dbFileKeys) {
         File fileInDb = getFile(dbSession, dtosByKey.get(removedFileKey));
         if (fileInDb == null) {
           continue;
         }
-
-        int reportFileIndex = 0;
-        for (Map.Entry<String, File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-          File unmatchedFile = reportFileSourceAndKey.getValue();
-          int score = fileSimilarity.score(fileInDb, unmatchedFile);
-          scoreMatrix[dbFileIndex][reportFileIndex] = score;
-          if (score > maxScore) {
-            maxScore = score;
-          }
-          reportFileIndex++;
+        dbFilesByKey.put(removedFileKey, fileInDb);
+        if (dbFilesByKey.size() == DB_FILES_BATCH_SIZE) {
+          scores.addAll(computeScores(addedFileIndex, dbFilesByKey));
+          dbFilesByKey.clear();
         }
-        dbFileIndex++;
       }
+      scores.addAll(computeScores(addedFileIndex, dbFilesByKey));
     }
 
-    return new ScoreMatrix(dbFileKeys, reportFileSourcesByKey, scoreMatrix, maxScore);
+    int maxScore = scores.stream().mapToInt(ScoreMatrix.Score::getScore).max().orElse(0);
+    return new ScoreMatrix(scores, maxScore);
+  }
+
+  /**
+   * Scores, in parallel, the pairs of removed and added files which score may be greater or equal to {@link #MIN_REQUIRED_SCORE}.
+   */
+  private List<ScoreMatrix.Score> computeScores(AddedFileIndex addedFileIndex, Map<String, File> dbFilesByKey) {
+    return dbFilesByKey.entrySet().parallelStream()
+      .flatMap(dbFile -> addedFileIndex.getCandidates(dbFile.getValue()).stream()
+        .map(reportFileKey -> new ScoreMatrix.Score(dbFile.getKey(), reportFileKey,
+          fileSimilarity.score(dbFile.getValue(), addedFileIndex.getFile(reportFileKey)))))
+      .collect(toList());
   }
 
   @CheckForNull
@@ -238,7 +250,7 @@ public class FileMoveDetectionStep implements ComputationStep {
 
   private static void printIfDebug(ScoreMatrix scoreMatrix) {
     if (LOG.isDebugEnabled()) {
-      LOG.debug("ScoreMatrix:\n" + scoreMatrix.toCsv(';'));
+      LOG.debug("ScoreMatrix ({} compared pairs of files):\n{}", scoreMatrix.getSize(), scoreMatrix.toCsv(';'));
     }
   }
 
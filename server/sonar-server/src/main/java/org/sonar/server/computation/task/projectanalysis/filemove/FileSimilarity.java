@@ -47,5 +47,9 @@ public interface FileSimilarity {
     }
   }
 
+  /**
+   * Score, from 0 to 100, of the similarity of the lines of the two files. As it is based on the edit distance of lines,
+   * score can not be greater than the percentage of lines of the largest file which exist in both files.
+   */
   int score(File file1, File file2);
 }
@@ -19,56 +19,34 @@
  */
 package org.sonar.server.computation.task.projectanalysis.filemove;
 
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
+import java.util.List;
+import javax.annotation.concurrent.Immutable;
 
+/**
+ * Scores of the pairs of removed and added files which have been compared. Pairs which have not been compared are
+ * known to have a score lower than {@link FileMoveDetectionStep#MIN_REQUIRED_SCORE}.
+ */
 final class ScoreMatrix {
-  private final Set<String> dbFileKeys;
-  private final Map<String, FileSimilarity.File> reportFileSourcesByKey;
-  private final int[][] scores;
+  private final List<Score> scores;
   private final int maxScore;
 
-  public ScoreMatrix(Set<String> dbFileKeys, Map<String, FileSimilarity.File> reportFileSourcesByKey, int[][] scores, int maxScore) {
-    this.dbFileKeys = dbFileKeys;
-    this.reportFileSourcesByKey = reportFileSourcesByKey;
+  public ScoreMatrix(List<Score> scores, int maxScore) {
     this.scores = scores;
     this.maxScore = maxScore;
   }
 
   public void accept(ScoreMatrixVisitor visitor) {
-    int dbFileIndex = 0;
-    for (String dbFileKey : dbFileKeys) {
-      int reportFileIndex = 0;
-      for (Map.Entry<String, FileSimilarity.File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-        int score = scores[dbFileIndex][reportFileIndex];
-        visitor.visit(dbFileKey, reportFileSourceAndKey.getKey(), score);
-        reportFileIndex++;
-      }
-      dbFileIndex++;
+    for (Score score : scores) {
+      visitor.visit(score.getDbFileKey(), score.getReportFileKey(), score.getScore());
     }
   }
 
   public String toCsv(char separator) {
     StringBuilder res = new StringBuilder();
-    // first row: empty column, then one column for each report file (its key)
-    res.append(separator);
-    for (Map.Entry<String, FileSimilarity.File> reportEntry : reportFileSourcesByKey.entrySet()) {
-      res.append(reportEntry.getKey()).append(separator);
-    }
-    // rows with data: column with db file (its key), then one column for each value
-    accept(new ScoreMatrixVisitor() {
-      private String previousDbFileKey = null;
-
-      @Override
-      public void visit(String dbFileKey, String reportFileKey, int score) {
-        if (!Objects.equals(previousDbFileKey, dbFileKey)) {
-          res.append('\n').append(dbFileKey).append(separator);
-          previousDbFileKey = dbFileKey;
-        }
-        res.append(score).append(separator);
-      }
-    });
+    // one row for each compared pair of files: db file key, report file key, then score
+    accept((dbFileKey, reportFileKey, score) -> res.append(dbFileKey).append(separator)
+      .append(reportFileKey).append(separator)
+      .append(score).append('\n'));
     return res.toString();
   }
 
@@ -80,4 +58,33 @@ final class ScoreMatrix {
   public int getMaxScore() {
     return maxScore;
   }
+
+  public int getSize() {
+    return scores.size();
+  }
+
+  @Immutable
+  static final class Score {
+    private final String dbFileKey;
+    private final String reportFileKey;
+    private final int score;
+
+    Score(String dbFileKey, String reportFileKey, int score) {
+      this.dbFileKey = dbFileKey;
+      this.reportFileKey = reportFileKey;
+      this.score = score;
+    }
+
+    public String getDbFileKey() {
+      return dbFileKey;
+    }
+
+    public String getReportFileKey() {
+      return reportFileKey;
+    }
+
+    public int getScore() {
+      return score;
+    }
+  }
 }
@@ -0,0 +1,158 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
+
+/**
+ * Loads the base inputs of the files of the project on a pool of threads, in the order the files are visited by
+ * the component crawler, so that the DB requests of the next files are executed while issues of the
+ * current file are being tracked.
+ * <p>
+ * The number of inputs loaded ahead of the crawler is bounded to limit heap consumption. As files are visited in
+ * order, the inputs of the files preceding the file passed to {@link #take(Component)} will never be requested:
+ * they are dropped so that they don't hold a place among the inputs loaded ahead.
+ * Instances are not thread-safe: {@link #take(Component)} must always be called by the same thread.
+ * </p>
+ */
+class BaseInputPrefetcher implements AutoCloseable {
+  private static final String THREAD_NAME_PREFIX = "CE_IssueTracking_";
+  private static final int INPUTS_PER_THREAD = 2;
+
+  private final Function<Component, Input<DefaultIssue>> inputLoader;
+  private final List<Component> files;
+  private final Map<String, Integer> positionsByFileUuid = new HashMap<>();
+  private final int maxLoadedInputs;
+  private final ExecutorService executorService;
+  // inputs being loaded or not taken yet, in the order of files
+  private final LinkedHashMap<String, Future<Input<DefaultIssue>>> inputsByFileUuid = new LinkedHashMap<>();
+  private int nextFileToLoad = 0;
+
+  BaseInputPrefetcher(Component root, int threadCount, Function<Component, Input<DefaultIssue>> inputLoader) {
+    checkArgument(threadCount > 0, "Thread count must be strictly positive");
+    this.inputLoader = inputLoader;
+    this.files = listFiles(root);
+    for (int i = 0; i < files.size(); i++) {
+      positionsByFileUuid.put(files.get(i).getUuid(), i);
+    }
+    this.maxLoadedInputs = INPUTS_PER_THREAD * threadCount;
+    this.executorService = Executors.newFixedThreadPool(threadCount, new ThreadFactoryBuilder()
+      .setNameFormat(THREAD_NAME_PREFIX + "%d")
+      .setDaemon(true)
+      .build());
+    scheduleLoads();
+  }
+
+  private static List<Component> listFiles(Component root) {
+    List<Component> files = new ArrayList<>();
+    new DepthTraversalTypeAwareCrawler(
+      new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, POST_ORDER) {
+        @Override
+        public void visitFile(Component file) {
+          files.add(file);
+        }
+      }).visit(root);
+    return files;
+  }
+
+  /**
+   * Returns the input of the specified file, waiting for it to be loaded if needed. Input is loaded in the
+   * calling thread if the file is not (or no longer) being prefetched.
+   */
+  Input<DefaultIssue> take(Component file) {
+    Integer position = positionsByFileUuid.get(file.getUuid());
+    if (position == null) {
+      return inputLoader.apply(file);
+    }
+    dropInputsOfFilesBefore(position);
+    Future<Input<DefaultIssue>> future = inputsByFileUuid.remove(file.getUuid());
+    nextFileToLoad = Math.max(nextFileToLoad, position + 1);
+    scheduleLoads();
+    if (future == null) {
+      return inputLoader.apply(file);
+    }
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading base issues of file " + file.getKey(), e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to load base issues of file " + file.getKey(), e.getCause());
+    }
+  }
+
+  /**
+   * Files are visited in order, so inputs of the files before the specified position have been skipped by the crawler.
+   * Loads in progress are not interrupted, so that DB connections are not interrupted in the middle of a request.
+   */
+  private void dropInputsOfFilesBefore(int position) {
+    Iterator<Map.Entry<String, Future<Input<DefaultIssue>>>> it = inputsByFileUuid.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, Future<Input<DefaultIssue>>> entry = it.next();
+      if (positionsByFileUuid.get(entry.getKey()) >= position) {
+        return;
+      }
+      entry.getValue().cancel(false);
+      it.remove();
+    }
+  }
+
+  private void scheduleLoads() {
+    while (inputsByFileUuid.size() < maxLoadedInputs && nextFileToLoad < files.size()) {
+      Component file = files.get(nextFileToLoad);
+      nextFileToLoad++;
+      inputsByFileUuid.put(file.getUuid(), executorService.submit(() -> load(file)));
+    }
+  }
+  private Input<DefaultIssue> load(Component file) {
+    Input<DefaultIssue> input = inputLoader.apply(file);
+    // line hashes are required by tracking only when there are some base issues
+    if (!input.getIssues().isEmpty()) {
+      input.getLineHashSequence();
+    }
+    return input;
+  }
+
+  @Override
+  public void close() {
+    executorService.shutdownNow();
+    inputsByFileUuid.clear();
+  }
+}
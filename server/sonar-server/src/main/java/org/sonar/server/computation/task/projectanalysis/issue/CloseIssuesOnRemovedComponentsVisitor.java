@@ -54,7 +54,7 @@ public class CloseIssuesOnRemovedComponentsVisitor extends TypeAwareVisitorAdapt
   }
 
   private void closeIssuesForDeletedComponentUuids(Set<String> deletedComponentUuids) {
-    DiskCache<DefaultIssue>.DiskAppender cacheAppender = issueCache.newAppender();
+    DiskCache.DiskAppender<DefaultIssue> cacheAppender = issueCache.newAppender();
     try {
       for (String deletedComponentUuid : deletedComponentUuids) {
         List<DefaultIssue> issues = issuesLoader.loadForComponentUuid(deletedComponentUuid);
@@ -57,7 +57,7 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
 
   @Override
   public void visitAny(Component component) {
-    try (DiskCache<DefaultIssue>.DiskAppender cacheAppender = issueCache.newAppender()) {
+    try (DiskCache.DiskAppender<DefaultIssue> cacheAppender = issueCache.newAppender()) {
       issueVisitors.beforeComponent(component);
 
       TrackingResult tracking = issueTracking.track(component);
@@ -71,7 +71,7 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     }
   }
 
-  private void fillNewOpenIssues(Component component, Iterable<DefaultIssue> newIssues, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+  private void fillNewOpenIssues(Component component, Iterable<DefaultIssue> newIssues, DiskCache.DiskAppender<DefaultIssue> cacheAppender) {
     List<DefaultIssue> list = new ArrayList<>();
 
     newIssues.forEach(issue -> {
@@ -92,7 +92,7 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     }
   }
 
-  private void copyIssues(Component component, Map<DefaultIssue, DefaultIssue> matched, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+  private void copyIssues(Component component, Map<DefaultIssue, DefaultIssue> matched, DiskCache.DiskAppender<DefaultIssue> cacheAppender) {
     for (Map.Entry<DefaultIssue, DefaultIssue> entry : matched.entrySet()) {
       DefaultIssue raw = entry.getKey();
       DefaultIssue base = entry.getValue();
@@ -101,7 +101,7 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     }
   }
 
-  private void fillExistingOpenIssues(Component component, Map<DefaultIssue, DefaultIssue> matched, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+  private void fillExistingOpenIssues(Component component, Map<DefaultIssue, DefaultIssue> matched, DiskCache.DiskAppender<DefaultIssue> cacheAppender) {
     for (Map.Entry<DefaultIssue, DefaultIssue> entry : matched.entrySet()) {
       DefaultIssue raw = entry.getKey();
       DefaultIssue base = entry.getValue();
@@ -110,7 +110,7 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     }
   }
 
-  private void closeIssues(Component component, Iterable<DefaultIssue> issues, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+  private void closeIssues(Component component, Iterable<DefaultIssue> issues, DiskCache.DiskAppender<DefaultIssue> cacheAppender) {
     for (DefaultIssue issue : issues) {
       // TODO should replace flag "beingClosed" by express call to transition "automaticClose"
       issue.setBeingClosed(true);
@@ -119,7 +119,7 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     }
   }
 
-  private void process(Component component, DefaultIssue issue, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+  private void process(Component component, DefaultIssue issue, DiskCache.DiskAppender<DefaultIssue> cacheAppender) {
     issueLifecycle.doAutomaticTransition(issue);
     issueVisitors.onIssue(component, issue);
     cacheAppender.append(issue);
@@ -87,7 +87,11 @@ public class RuleRepositoryImpl implements RuleRepository {
     requireNonNull(key, "RuleKey can not be null");
   }
 
-  private void ensureInitialized() {
+  /**
+   * Synchronized as rules can be requested concurrently, for example by the threads loading the base issues
+   * of files (see {@link TrackerBaseInputFactory}).
+   */
+  private synchronized void ensureInitialized() {
     if (rulesByKey == null) {
       try (DbSession dbSession = dbClient.openSession(false)) {
         loadRulesFromDb(dbSession);
@@ -104,8 +108,9 @@ public class RuleRepositoryImpl implements RuleRepository {
       rulesByKeyBuilder.put(ruleDto.getKey(), rule);
       rulesByIdBuilder.put(ruleDto.getId(), rule);
     }
-    this.rulesByKey = rulesByKeyBuilder.build();
+    // rulesByKey is used as initialization flag, it must be the last field to be set
     this.rulesById = rulesByIdBuilder.build();
+    this.rulesByKey = rulesByKeyBuilder.build();
   }
 
 }
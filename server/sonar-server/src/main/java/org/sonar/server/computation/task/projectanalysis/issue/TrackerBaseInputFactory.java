@@ -23,6 +23,8 @@ import java.util.Collections;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.picocontainer.Startable;
+import org.sonar.api.config.Configuration;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.tracking.Input;
 import org.sonar.core.issue.tracking.LazyInput;
@@ -30,29 +32,76 @@ import org.sonar.core.issue.tracking.LineHashSequence;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository.OriginalFile;
 
 /**
  * Factory of {@link Input} of base data for issue tracking. Data are lazy-loaded.
+ * <p>
+ * Data of files are loaded in advance by the number of threads defined by property {@value #LOADER_THREAD_COUNT_PROPERTY}
+ * (see {@link BaseInputPrefetcher}). Value 1 disables loading in advance.
+ * </p>
  */
-public class TrackerBaseInputFactory {
+public class TrackerBaseInputFactory implements Startable {
+  public static final String LOADER_THREAD_COUNT_PROPERTY = "sonar.ce.issueTracking.loaderThreadCount";
+  private static final int DEFAULT_LOADER_THREAD_COUNT = 2;
   private static final LineHashSequence EMPTY_LINE_HASH_SEQUENCE = new LineHashSequence(Collections.emptyList());
 
   private final ComponentIssuesLoader issuesLoader;
   private final DbClient dbClient;
   private final MovedFilesRepository movedFilesRepository;
+  @CheckForNull
+  private final TreeRootHolder treeRootHolder;
+  private final int loaderThreadCount;
+  @CheckForNull
+  private BaseInputPrefetcher prefetcher;
 
   public TrackerBaseInputFactory(ComponentIssuesLoader issuesLoader, DbClient dbClient, MovedFilesRepository movedFilesRepository) {
+    this(issuesLoader, dbClient, movedFilesRepository, null, DEFAULT_LOADER_THREAD_COUNT);
+  }
+
+  public TrackerBaseInputFactory(ComponentIssuesLoader issuesLoader, DbClient dbClient, MovedFilesRepository movedFilesRepository,
+    TreeRootHolder treeRootHolder, Configuration configuration) {
+    this(issuesLoader, dbClient, movedFilesRepository, treeRootHolder,
+      configuration.getInt(LOADER_THREAD_COUNT_PROPERTY).orElse(DEFAULT_LOADER_THREAD_COUNT));
+  }
+
+  private TrackerBaseInputFactory(ComponentIssuesLoader issuesLoader, DbClient dbClient, MovedFilesRepository movedFilesRepository,
+    @Nullable TreeRootHolder treeRootHolder, int loaderThreadCount) {
     this.issuesLoader = issuesLoader;
     this.dbClient = dbClient;
     this.movedFilesRepository = movedFilesRepository;
+    this.treeRootHolder = treeRootHolder;
+    this.loaderThreadCount = loaderThreadCount;
   }
 
   public Input<DefaultIssue> create(Component component) {
+    if (treeRootHolder != null && loaderThreadCount > 1 && component.getType() == Component.Type.FILE) {
+      if (prefetcher == null) {
+        prefetcher = new BaseInputPrefetcher(treeRootHolder.getRoot(), loaderThreadCount, this::createLazy);
+      }
+      return prefetcher.take(component);
+    }
+    return createLazy(component);
+  }
+
+  private Input<DefaultIssue> createLazy(Component component) {
     return new BaseLazyInput(component, movedFilesRepository.getOriginalFile(component).orNull());
   }
 
+  @Override
+  public void start() {
+    // nothing to do
+  }
+
+  @Override
+  public void stop() {
+    if (prefetcher != null) {
+      prefetcher.close();
+    }
+  }
+
   private class BaseLazyInput extends LazyInput<DefaultIssue> {
     private final Component component;
     @CheckForNull
@@ -0,0 +1,287 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Implementation of MeasureRepository which supports only raw measures and stores them in one column per metric,
+ * indexed by the report reference of the component.
+ * <p>
+ * Measures with a numerical value (or no value) and without data, quality gate status nor developer, which are the
+ * vast majority, are stored as primitive values and a new {@link Measure} is created each time they are read.
+ * Other measures are stored as is.
+ * </p>
+ * Intended to be used as a delegate of other MeasureRepository implementations (hence the final keyword).
+ */
+public final class ColumnarRawMeasureRepository implements MeasureRepository {
+  private final Map<String, MeasureColumn> columnsByMetricKey = new LinkedHashMap<>();
+  private final Map<Integer, Map<MeasureKey, Measure>> developerMeasuresByRef = new HashMap<>();
+
+  /**
+   * @throws UnsupportedOperationException all the time, not supported
+   */
+  @Override
+  public Optional<Measure> getBaseMeasure(Component component, Metric metric) {
+    throw new UnsupportedOperationException("This implementation of MeasureRepository supports only raw measures");
+  }
+
+  @Override
+  public Optional<Measure> getRawMeasure(Component component, Metric metric) {
+    // fail fast
+    requireNonNull(component);
+    requireNonNull(metric);
+
+    return Optional.fromNullable(find(toRef(component), metric.getKey(), null));
+  }
+
+  @Override
+  public void add(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    if (find(toRef(component), metric.getKey(), measure) != null) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be set only once for a specific Component (key=%s), Metric (key=%s). Use update method",
+          component.getKey(),
+          metric.getKey()));
+    }
+    add(component, metric, measure, OverridePolicy.OVERRIDE);
+  }
+
+  @Override
+  public void update(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    if (find(toRef(component), metric.getKey(), measure) == null) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be updated only if one already exists for a specific Component (key=%s), Metric (key=%s). Use add method",
+          component.getKey(),
+          metric.getKey()));
+    }
+    add(component, metric, measure, OverridePolicy.OVERRIDE);
+  }
+
+  private static void checkValueTypeConsistency(Metric metric, Measure measure) {
+    checkArgument(
+      measure.getValueType() == Measure.ValueType.NO_VALUE || measure.getValueType() == metric.getType().getValueType(),
+      "Measure's ValueType (%s) is not consistent with the Metric's ValueType (%s)",
+      measure.getValueType(), metric.getType().getValueType());
+  }
+
+  @Override
+  public Set<Measure> getRawMeasures(Component component, Metric metric) {
+    requireNonNull(metric);
+    requireNonNull(component);
+    int ref = toRef(component);
+    ImmutableSet.Builder<Measure> builder = ImmutableSet.builder();
+    MeasureColumn column = columnsByMetricKey.get(metric.getKey());
+    if (column != null) {
+      Measure measure = column.get(ref);
+      if (measure != null) {
+        builder.add(measure);
+      }
+    }
+    for (Map.Entry<MeasureKey, Measure> entry : developerMeasures(ref).entrySet()) {
+      if (entry.getKey().getMetricKey().equals(metric.getKey())) {
+        builder.add(entry.getValue());
+      }
+    }
+    return builder.build();
+  }
+
+  @Override
+  public SetMultimap<String, Measure> getRawMeasures(Component component) {
+    int ref = toRef(component);
+    ImmutableSetMultimap.Builder<String, Measure> builder = ImmutableSetMultimap.builder();
+    for (Map.Entry<String, MeasureColumn> entry : columnsByMetricKey.entrySet()) {
+      Measure measure = entry.getValue().get(ref);
+      if (measure != null) {
+        builder.put(entry.getKey(), measure);
+      }
+    }
+    for (Map.Entry<MeasureKey, Measure> entry : developerMeasures(ref).entrySet()) {
+      builder.put(entry.getKey().getMetricKey(), entry.getValue());
+    }
+    return builder.build();
+  }
+
+  @CheckForNull
+  private Measure find(int ref, String metricKey, @Nullable Measure measure) {
+    if (measure != null && measure.getDeveloper() != null) {
+      return developerMeasures(ref).get(new MeasureKey(metricKey, measure.getDeveloper()));
+    }
+    MeasureColumn column = columnsByMetricKey.get(metricKey);
+    return column == null ? null : column.get(ref);
+  }
+
+  private Map<MeasureKey, Measure> developerMeasures(int ref) {
+    Map<MeasureKey, Measure> measures = developerMeasuresByRef.get(ref);
+    return measures == null ? Collections.emptyMap() : measures;
+  }
+
+  public void add(Component component, Metric metric, Measure measure, OverridePolicy overridePolicy) {
+    requireNonNull(component);
+    requireNonNull(measure);
+    requireNonNull(overridePolicy);
+
+    int ref = toRef(component);
+    if (measure.getDeveloper() != null) {
+      Map<MeasureKey, Measure> measures = developerMeasuresByRef.computeIfAbsent(ref, r -> new HashMap<>());
+      MeasureKey key = new MeasureKey(metric.getKey(), measure.getDeveloper());
+      if (!measures.containsKey(key) || overridePolicy == OverridePolicy.OVERRIDE) {
+        measures.put(key, measure);
+      }
+      return;
+    }
+
+    MeasureColumn column = columnsByMetricKey.computeIfAbsent(metric.getKey(), k -> new MeasureColumn());
+    if (!column.contains(ref) || overridePolicy == OverridePolicy.OVERRIDE) {
+      column.set(ref, measure);
+    }
+  }
+
+  private static int toRef(Component component) {
+    return component.getReportAttributes().getRef();
+  }
+
+  public enum OverridePolicy {
+    OVERRIDE, DO_NOT_OVERRIDE
+  }
+
+  /**
+   * Measures of a single metric, indexed by component reference.
+   */
+  private static final class MeasureColumn {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final Measure.ValueType[] VALUE_TYPES = Measure.ValueType.values();
+    // values of codes[] lower than VALUE_TYPES.length + 1 are the ordinal + 1 of the ValueType of a primitive-encoded measure
+    private static final byte ABSENT = 0;
+    private static final byte OBJECT = 0x0F;
+    private static final byte TYPE_MASK = 0x0F;
+    private static final byte VARIATION_FLAG = 0x10;
+
+    private byte[] codes = new byte[INITIAL_CAPACITY];
+    private double[] values = new double[INITIAL_CAPACITY];
+    // allocated only if at least one measure of the column has a variation
+    @CheckForNull
+    private double[] variations;
+    private final Map<Integer, Measure> objects = new HashMap<>();
+
+    boolean contains(int ref) {
+      return ref < codes.length && codes[ref] != ABSENT;
+    }
+
+    @CheckForNull
+    Measure get(int ref) {
+      if (!contains(ref)) {
+        return null;
+      }
+      byte code = codes[ref];
+      if (code == OBJECT) {
+        return objects.get(ref);
+      }
+      Double variation = (code & VARIATION_FLAG) == 0 ? null : variations[ref];
+      return Measure.createNumerical(VALUE_TYPES[(code & TYPE_MASK) - 1], values[ref], variation);
+    }
+
+    void set(int ref, Measure measure) {
+      ensureCapacity(ref);
+      if (!isNumerical(measure)) {
+        codes[ref] = OBJECT;
+        objects.put(ref, measure);
+        return;
+      }
+      objects.remove(ref);
+      byte code = (byte) (measure.getValueType().ordinal() + 1);
+      values[ref] = numericalValue(measure);
+      if (measure.hasVariation()) {
+        if (variations == null) {
+          variations = new double[values.length];
+        }
+        variations[ref] = measure.getVariation();
+        code |= VARIATION_FLAG;
+      }
+      codes[ref] = code;
+    }
+
+    private void ensureCapacity(int ref) {
+      if (ref >= codes.length) {
+        int newCapacity = Math.max(ref + 1, codes.length * 2);
+        codes = Arrays.copyOf(codes, newCapacity);
+        values = Arrays.copyOf(values, newCapacity);
+        if (variations != null) {
+          variations = Arrays.copyOf(variations, newCapacity);
+        }
+      }
+    }
+
+    private static boolean isNumerical(Measure measure) {
+      if (measure.getData() != null || measure.hasQualityGateStatus()) {
+        return false;
+      }
+      switch (measure.getValueType()) {
+        case NO_VALUE:
+        case BOOLEAN:
+        case INT:
+        case LONG:
+        case DOUBLE:
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    private static double numericalValue(Measure measure) {
+      switch (measure.getValueType()) {
+        case BOOLEAN:
+          return measure.getBooleanValue() ? 1.0d : 0.0d;
+        case INT:
+          return measure.getIntValue();
+        case LONG:
+          return measure.getLongValue();
+        case DOUBLE:
+          return measure.getDoubleValue();
+        default:
+          return 0.0d;
+      }
+    }
+  }
+}
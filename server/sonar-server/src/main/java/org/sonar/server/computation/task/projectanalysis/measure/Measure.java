@@ -92,6 +92,14 @@ public final class Measure {
     this.variation = variation;
   }
 
+  /**
+   * Restores a measure with a numerical value (or no value), without data, developer nor QualityGate status, as
+   * stored by {@link ColumnarRawMeasureRepository}. No control is done on the arguments.
+   */
+  static Measure createNumerical(ValueType valueType, double value, @Nullable Double variation) {
+    return new Measure(valueType, null, valueType == ValueType.NO_VALUE ? null : value, null, null, null, variation);
+  }
+
   public static NewMeasureBuilder newMeasureBuilder() {
     return new NewMeasureBuilder();
   }
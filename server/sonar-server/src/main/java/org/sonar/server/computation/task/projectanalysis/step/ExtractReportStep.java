@@ -19,38 +19,42 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Optional;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
-import org.sonar.api.utils.ZipUtils;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeTaskInputDao;
-import org.sonar.server.computation.task.projectanalysis.batch.MutableBatchReportDirectoryHolder;
+import org.sonar.server.computation.task.projectanalysis.batch.MutableBatchReportFileHolder;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 /**
- * Extracts the content zip file of the {@link CeTask} to a temp directory and adds a {@link File}
- * representing that temp directory to the {@link MutableBatchReportDirectoryHolder}.
+ * Copies the content zip file of the {@link CeTask} to a temp file and adds this {@link File}
+ * to the {@link MutableBatchReportFileHolder}.
+ * <p>
+ * The zip file is not extracted: its entries are decompressed by
+ * {@link org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderImpl} only when they are read.
+ * </p>
  */
 public class ExtractReportStep implements ComputationStep {
 
   private final DbClient dbClient;
   private final CeTask task;
   private final TempFolder tempFolder;
-  private final MutableBatchReportDirectoryHolder reportDirectoryHolder;
+  private final MutableBatchReportFileHolder reportFileHolder;
 
   public ExtractReportStep(DbClient dbClient, CeTask task, TempFolder tempFolder,
-    MutableBatchReportDirectoryHolder reportDirectoryHolder) {
+    MutableBatchReportFileHolder reportFileHolder) {
     this.dbClient = dbClient;
     this.task = task;
     this.tempFolder = tempFolder;
-    this.reportDirectoryHolder = reportDirectoryHolder;
+    this.reportFileHolder = reportFileHolder;
   }
 
   @Override
@@ -58,14 +62,14 @@ public class ExtractReportStep implements ComputationStep {
     try (DbSession dbSession = dbClient.openSession(false)) {
       Optional<CeTaskInputDao.DataStream> opt = dbClient.ceTaskInputDao().selectData(dbSession, task.getUuid());
       if (opt.isPresent()) {
-        File unzippedDir = tempFolder.newDir();
+        File zipFile = tempFolder.newFile("report", ".zip");
         try (CeTaskInputDao.DataStream reportStream = opt.get();
-             InputStream zipStream = new BufferedInputStream(reportStream.getInputStream())) {
-          ZipUtils.unzip(zipStream, unzippedDir);
+             InputStream zipStream = reportStream.getInputStream()) {
+          Files.copy(zipStream, zipFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException e) {
           throw new IllegalStateException("Fail to extract report " + task.getUuid() + " from database", e);
         }
-        reportDirectoryHolder.setDirectory(unzippedDir);
+        reportFileHolder.setZipFile(zipFile);
       } else {
         throw MessageException.of("Analysis report " + task.getUuid() + " is missing in database");
       }
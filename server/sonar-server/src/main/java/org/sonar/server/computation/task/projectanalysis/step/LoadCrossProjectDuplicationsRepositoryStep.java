@@ -20,8 +20,11 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Function;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nonnull;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -107,24 +110,33 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
       }
 
       Collection<String> hashes = from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList();
-      List<DuplicationUnitDto> dtos = selectDuplicates(file, hashes);
-      if (dtos.isEmpty()) {
+      List<Block> duplicatedBlocks = selectDuplicates(file, hashes);
+      if (duplicatedBlocks.isEmpty()) {
         return;
       }
 
-      Collection<Block> duplicatedBlocks = from(dtos).transform(DtoToBlock.INSTANCE).toList();
       Collection<Block> originBlocks = from(cpdTextBlocks).transform(new CpdTextBlockToBlock(file.getKey())).toList();
       LOGGER.trace("Found {} duplicated cpd blocks on file {}", duplicatedBlocks.size(), file.getKey());
 
       integrateCrossProjectDuplications.computeCpd(file, originBlocks, duplicatedBlocks);
     }
 
-    private List<DuplicationUnitDto> selectDuplicates(Component file, Collection<String> hashes) {
+    /**
+     * Rows are converted to blocks as they are read, so that rows are not all kept in memory. Keys of components
+     * are shared by the blocks of a same component.
+     */
+    private List<Block> selectDuplicates(Component file, Collection<String> hashes) {
+      List<Block> blocks = new ArrayList<>();
+      Map<String, String> componentKeys = new HashMap<>();
       try (DbSession dbSession = dbClient.openSession(false)) {
         Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
         String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
-        return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, file.getFileAttributes().getLanguageKey(), hashes);
+        dbClient.duplicationDao().scrollCandidates(dbSession, analysisUuid, file.getFileAttributes().getLanguageKey(), hashes, context -> {
+          DuplicationUnitDto dto = context.getResultObject();
+          blocks.add(toBlock(dto, componentKeys.computeIfAbsent(dto.getComponentKey(), k -> k)));
+        });
       }
+      return blocks;
     }
   }
 
@@ -137,19 +149,14 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
     }
   }
 
-  private enum DtoToBlock implements Function<DuplicationUnitDto, Block> {
-    INSTANCE;
-
-    @Override
-    public Block apply(@Nonnull DuplicationUnitDto dto) {
-      // Note that the dto doesn't contains start/end token indexes
-      return Block.builder()
-        .setResourceId(dto.getComponentKey())
-        .setBlockHash(new ByteArray(dto.getHash()))
-        .setIndexInFile(dto.getIndexInFile())
-        .setLines(dto.getStartLine(), dto.getEndLine())
-        .build();
-    }
+  private static Block toBlock(DuplicationUnitDto dto, String componentKey) {
+    // Note that the dto doesn't contains start/end token indexes
+    return Block.builder()
+      .setResourceId(componentKey)
+      .setBlockHash(new ByteArray(dto.getHash()))
+      .setIndexInFile(dto.getIndexInFile())
+      .setLines(dto.getStartLine(), dto.getEndLine())
+      .build();
   }
 
   private static class CpdTextBlockToBlock implements Function<CpdTextBlock, Block> {
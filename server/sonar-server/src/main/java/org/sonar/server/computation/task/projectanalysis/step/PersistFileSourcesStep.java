@@ -22,6 +22,7 @@ package org.sonar.server.computation.task.projectanalysis.step;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +37,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 import org.sonar.db.source.FileSourceDto.Type;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
@@ -43,7 +45,10 @@ import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthL
 import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.task.projectanalysis.duplication.Duplication;
 import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepository;
+import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplicate;
+import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
 import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfo;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepository;
@@ -54,29 +59,42 @@ import org.sonar.server.computation.task.projectanalysis.source.HighlightingLine
 import org.sonar.server.computation.task.projectanalysis.source.LineReader;
 import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConverter;
 import org.sonar.server.computation.task.projectanalysis.source.ScmLineReader;
+import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SymbolsLineReader;
 import org.sonar.server.computation.task.step.ComputationStep;
 
+import static com.google.common.collect.FluentIterable.from;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
 public class PersistFileSourcesStep implements ComputationStep {
 
+  /**
+   * Must be changed whenever the way file source data is computed from its inputs, or the way it is stored, changes,
+   * so that the data of all files is computed again.
+   * Version 2: source data is split into independently compressed chunks of lines
+   * Version 3: inputs are identified by MD5 hashes instead of checksums of report entries
+   */
+  private static final String INPUTS_HASH_VERSION = "3";
+  private static final Domain[] INPUT_DOMAINS = {Domain.CHANGESETS, Domain.COVERAGES, Domain.SYNTAX_HIGHLIGHTINGS, Domain.SYMBOLS};
+
   private final DbClient dbClient;
   private final System2 system2;
   private final TreeRootHolder treeRootHolder;
   private final BatchReportReader reportReader;
   private final SourceLinesRepository sourceLinesRepository;
+  private final SourceHashRepository sourceHashRepository;
   private final ScmInfoRepository scmInfoRepository;
   private final DuplicationRepository duplicationRepository;
 
   public PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder, BatchReportReader reportReader, SourceLinesRepository sourceLinesRepository,
-    ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository) {
+    SourceHashRepository sourceHashRepository, ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.treeRootHolder = treeRootHolder;
     this.reportReader = reportReader;
     this.sourceLinesRepository = sourceLinesRepository;
+    this.sourceHashRepository = sourceHashRepository;
     this.scmInfoRepository = scmInfoRepository;
     this.duplicationRepository = duplicationRepository;
   }
@@ -114,17 +132,56 @@ public class PersistFileSourcesStep implements ComputationStep {
 
     @Override
     public void visitFile(Component file) {
+      String inputsHash = computeInputsHash(file);
+      FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
+      if (previousDto != null && inputsHash.equals(previousDto.getInputsHash())) {
+        // data would be the same as the persisted one, no need to read the report entries of the file
+        return;
+      }
       try (CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
         LineReaders lineReaders = new LineReaders(reportReader, scmInfoRepository, duplicationRepository, file)) {
         ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), file.getFileAttributes().getLines());
         ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
-        persistSource(fileSourceData, file.getUuid(), lineReaders.getLatestChange());
+        persistSource(fileSourceData, file.getUuid(), lineReaders.getLatestChange(), inputsHash);
       } catch (Exception e) {
         throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
       }
     }
 
-    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid, @Nullable Changeset latestChange) {
+    /**
+     * Hash of everything the file source data is computed from: the hash of the source, which is shared with the other
+     * steps through {@link SourceHashRepository}, and the MD5 hashes of the other report entries of the file.
+     */
+    private String computeInputsHash(Component file) {
+      int fileRef = file.getReportAttributes().getRef();
+      StringBuilder inputs = new StringBuilder(INPUTS_HASH_VERSION)
+        .append('|').append(file.getFileAttributes().getLines())
+        .append('|').append(sourceHashRepository.getRawSourceHash(file));
+      for (Domain domain : INPUT_DOMAINS) {
+        inputs.append('|').append(reportReader.readHash(domain, fileRef).orElse(""));
+      }
+      for (TextBlock textBlock : duplicatedTextBlocks(file)) {
+        inputs.append('|').append(textBlock.getStart()).append('-').append(textBlock.getEnd());
+      }
+      return DigestUtils.md5Hex(inputs.toString());
+    }
+
+    /**
+     * Same text blocks as the ones read by {@link DuplicationLineReader}
+     */
+    private List<TextBlock> duplicatedTextBlocks(Component file) {
+      List<TextBlock> textBlocks = new ArrayList<>();
+      for (Duplication duplication : duplicationRepository.getDuplications(file)) {
+        textBlocks.add(duplication.getOriginal());
+        for (InnerDuplicate duplicate : from(duplication.getDuplicates()).filter(InnerDuplicate.class)) {
+          textBlocks.add(duplicate.getTextBlock());
+        }
+      }
+      Collections.sort(textBlocks);
+      return textBlocks;
+    }
+
+    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid, @Nullable Changeset latestChange, String inputsHash) {
       DbFileSources.Data fileData = fileSourceData.getFileSourceData();
 
       byte[] data = FileSourceDto.encodeSourceData(fileData);
@@ -144,23 +201,30 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setLineHashes(lineHashes)
           .setCreatedAt(system2.now())
           .setUpdatedAt(system2.now())
-          .setRevision(computeRevision(latestChange));
+          .setRevision(computeRevision(latestChange))
+          .setInputsHash(inputsHash);
         dbClient.fileSourceDao().insert(session, dto);
         session.commit();
       } else {
-        // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
+        // Update only if data_hash has changed or if src_hash or revision is missing (progressive migration)
         boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
         boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
         String revision = computeRevision(latestChange);
         boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
-        if (binaryDataUpdated || srcHashUpdated || revisionUpdated) {
+        boolean dataUpdated = binaryDataUpdated || srcHashUpdated || revisionUpdated;
+        // inputs_hash can change, or be missing, while data stays the same. Date of update is then kept.
+        boolean inputsHashUpdated = !inputsHash.equals(previousDto.getInputsHash());
+        if (dataUpdated || inputsHashUpdated) {
           previousDto
             .setBinaryData(data)
             .setDataHash(dataHash)
             .setSrcHash(srcHash)
             .setLineHashes(lineHashes)
             .setRevision(revision)
-            .setUpdatedAt(system2.now());
+            .setInputsHash(inputsHash);
+          if (dataUpdated) {
+            previousDto.setUpdatedAt(system2.now());
+          }
           dbClient.fileSourceDao().update(session, previousDto);
           session.commit();
         }
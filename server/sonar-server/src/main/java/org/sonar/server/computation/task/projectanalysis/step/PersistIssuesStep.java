@@ -19,9 +19,15 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.BatchSession;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.issue.IssueChangeMapper;
@@ -33,8 +39,16 @@ import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictRes
 import org.sonar.server.computation.task.step.ComputationStep;
 import org.sonar.server.issue.IssueStorage;
 
+import static org.sonar.core.util.stream.MoreCollectors.toList;
+import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
+
 public class PersistIssuesStep implements ComputationStep {
 
+  private static final Logger LOG = Loggers.get(PersistIssuesStep.class);
+
+  // must be lower than 1000, the maximum number of expressions in a list on Oracle
+  private static final int ISSUE_BATCHING_SIZE = BatchSession.MAX_BATCH_SIZE;
+
   private final DbClient dbClient;
   private final System2 system2;
   private final UpdateConflictResolver conflictResolver;
@@ -52,54 +66,98 @@ public class PersistIssuesStep implements ComputationStep {
 
   @Override
   public void execute() {
+    IssueStatistics statistics = new IssueStatistics(system2.now());
     try (DbSession dbSession = dbClient.openSession(true);
       CloseableIterator<DefaultIssue> issues = issueCache.traverse()) {
 
       IssueMapper mapper = dbSession.getMapper(IssueMapper.class);
       IssueChangeMapper changeMapper = dbSession.getMapper(IssueChangeMapper.class);
+      List<DefaultIssue> addedIssues = new ArrayList<>(ISSUE_BATCHING_SIZE);
+      List<DefaultIssue> updatedIssues = new ArrayList<>(ISSUE_BATCHING_SIZE);
       while (issues.hasNext()) {
         DefaultIssue issue = issues.next();
-        boolean saved = persistIssueIfRequired(mapper, issue);
-        if (saved) {
-          IssueStorage.insertChanges(changeMapper, issue);
+        if (issue.isNew() || issue.isCopied()) {
+          addedIssues.add(issue);
+          if (addedIssues.size() >= ISSUE_BATCHING_SIZE) {
+            persistNewIssues(statistics, addedIssues, mapper, changeMapper);
+          }
+        } else if (issue.isChanged()) {
+          updatedIssues.add(issue);
+          if (updatedIssues.size() >= ISSUE_BATCHING_SIZE) {
+            persistUpdatedIssues(statistics, updatedIssues, mapper, changeMapper);
+          }
         }
       }
+      persistNewIssues(statistics, addedIssues, mapper, changeMapper);
+      persistUpdatedIssues(statistics, updatedIssues, mapper, changeMapper);
       dbSession.flushStatements();
       dbSession.commit();
     }
+    statistics.log(system2.now());
   }
 
-  private boolean persistIssueIfRequired(IssueMapper mapper, DefaultIssue issue) {
-    if (issue.isNew() || issue.isCopied()) {
-      persistNewIssue(mapper, issue);
-      return true;
+  private void persistNewIssues(IssueStatistics statistics, List<DefaultIssue> addedIssues, IssueMapper mapper, IssueChangeMapper changeMapper) {
+    if (addedIssues.isEmpty()) {
+      return;
     }
 
-    if (issue.isChanged()) {
-      persistChangedIssue(mapper, issue);
-      return true;
+    long now = system2.now();
+    for (DefaultIssue issue : addedIssues) {
+      Integer ruleId = ruleRepository.getByKey(issue.ruleKey()).getId();
+      mapper.insert(IssueDto.toDtoForComputationInsert(issue, ruleId, now));
+      statistics.inserts++;
     }
-    return false;
+    addedIssues.forEach(issue -> IssueStorage.insertChanges(changeMapper, issue));
+    addedIssues.clear();
   }
 
-  private void persistNewIssue(IssueMapper mapper, DefaultIssue issue) {
-    Integer ruleId = ruleRepository.getByKey(issue.ruleKey()).getId();
-    IssueDto dto = IssueDto.toDtoForComputationInsert(issue, ruleId, system2.now());
-    mapper.insert(dto);
-  }
+  private void persistUpdatedIssues(IssueStatistics statistics, List<DefaultIssue> updatedIssues, IssueMapper mapper, IssueChangeMapper changeMapper) {
+    if (updatedIssues.isEmpty()) {
+      return;
+    }
+
+    long now = system2.now();
+    for (DefaultIssue issue : updatedIssues) {
+      mapper.updateIfBeforeSelectedDate(IssueDto.toDtoForUpdate(issue, now));
+      statistics.updates++;
+    }
 
-  private void persistChangedIssue(IssueMapper mapper, DefaultIssue issue) {
-    IssueDto dto = IssueDto.toDtoForUpdate(issue, system2.now());
-    int updateCount = mapper.updateIfBeforeSelectedDate(dto);
-    if (updateCount == 0) {
-      // End-user and scan changed the issue at the same time.
-      // See https://jira.sonarsource.com/browse/SONAR-4309
-      conflictResolver.resolve(issue, mapper);
+    // Update counts are not available in batch mode. Issues which have not been updated are the ones
+    // that have been changed by end-user and scan at the same time.
+    // See https://jira.sonarsource.com/browse/SONAR-4309
+    List<String> updatedIssueKeys = updatedIssues.stream().map(DefaultIssue::key).collect(toList(updatedIssues.size()));
+    List<IssueDto> conflictingIssues = mapper.selectByKeysIfNotUpdatedAt(updatedIssueKeys, now);
+    if (!conflictingIssues.isEmpty()) {
+      Map<String, DefaultIssue> issuesByKey = updatedIssues.stream().collect(uniqueIndex(DefaultIssue::key, updatedIssues.size()));
+      for (IssueDto dbIssue : conflictingIssues) {
+        conflictResolver.resolve(issuesByKey.get(dbIssue.getKey()), dbIssue, mapper);
+        statistics.merged++;
+      }
     }
+    updatedIssues.forEach(issue -> IssueStorage.insertChanges(changeMapper, issue));
+    updatedIssues.clear();
   }
 
   @Override
   public String getDescription() {
     return "Persist issues";
   }
+
+  private static class IssueStatistics {
+    private final long startedAt;
+    private int inserts = 0;
+    private int updates = 0;
+    private int merged = 0;
+
+    private IssueStatistics(long startedAt) {
+      this.startedAt = startedAt;
+    }
+
+    private void log(long now) {
+      long duration = now - startedAt;
+      int rows = inserts + updates;
+      LOG.debug("Issues persisted | inserts={} | updates={} | merged={} | rowsPerSecond={}",
+        inserts, updates, merged, duration > 0 ? (rows * 1_000L / duration) : rows);
+    }
+  }
 }
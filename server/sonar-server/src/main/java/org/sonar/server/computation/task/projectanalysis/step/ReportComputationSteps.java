@@ -19,8 +19,10 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableMap;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import org.sonar.server.computation.task.container.TaskContainer;
 import org.sonar.server.computation.task.projectanalysis.filemove.FileMoveDetectionStep;
 import org.sonar.server.computation.task.step.ComputationStep;
@@ -92,8 +94,9 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     PersistIssuesStep.class,
     PersistProjectLinksStep.class,
     PersistEventsStep.class,
-    PersistFileSourcesStep.class,
+    // Must be executed before PersistFileSourcesStep, as both write FILE_SOURCES
     PersistTestsStep.class,
+    PersistFileSourcesStep.class,
     PersistCrossProjectDuplicationIndexStep.class,
     EnableAnalysisStep.class,
 
@@ -106,6 +109,16 @@ public class ReportComputationSteps extends AbstractComputationSteps {
 
     PublishTaskResultStep.class);
 
+  /**
+   * Data persisted by these steps are final once the components and the analysis are persisted. They share no
+   * non thread-safe component with the persistence steps executed concurrently, they don't write the tables written
+   * by these steps (PersistTestsStep, which writes FILE_SOURCES too, is executed before PersistFileSourcesStep) and
+   * they must be finished before the analysis is enabled.
+   */
+  private static final Map<Class<? extends ComputationStep>, Class<? extends ComputationStep>> BACKGROUND_STEPS = ImmutableMap.of(
+    PersistIssuesStep.class, EnableAnalysisStep.class,
+    PersistFileSourcesStep.class, EnableAnalysisStep.class);
+
   public ReportComputationSteps(TaskContainer taskContainer) {
     super(taskContainer);
   }
@@ -119,4 +132,9 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     return STEPS;
   }
 
+  @Override
+  public Map<Class<? extends ComputationStep>, Class<? extends ComputationStep>> backgroundSteps() {
+    return BACKGROUND_STEPS;
+  }
+
 }
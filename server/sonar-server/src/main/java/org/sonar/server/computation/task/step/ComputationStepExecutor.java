@@ -19,14 +19,30 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.slf4j.MDC;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
 
+/**
+ * Executes the steps in the order of {@link ComputationSteps#instances()}. Steps declared by
+ * {@link ComputationSteps#backgroundSteps()} are executed in a dedicated thread, the execution of the following steps
+ * going on in the calling thread until a step which depends on them.
+ */
 public final class ComputationStepExecutor {
   private static final Logger LOGGER = Loggers.get(ComputationStepExecutor.class);
+  private static final String BACKGROUND_THREAD_NAME_PREFIX = "CE_Background_Step_";
 
   private final ComputationSteps steps;
   @CheckForNull
@@ -48,8 +64,8 @@ public final class ComputationStepExecutor {
   public void execute() {
     Profiler stepProfiler = Profiler.create(LOGGER);
     boolean allStepsExecuted = false;
-    try {
-      executeSteps(stepProfiler);
+    try (BackgroundSteps backgroundSteps = new BackgroundSteps(steps.backgroundSteps())) {
+      executeSteps(stepProfiler, backgroundSteps);
       allStepsExecuted = true;
     } finally {
       if (listener != null) {
@@ -58,12 +74,16 @@ public final class ComputationStepExecutor {
     }
   }
 
-  private void executeSteps(Profiler stepProfiler) {
+  private void executeSteps(Profiler stepProfiler, BackgroundSteps backgroundSteps) {
     for (ComputationStep step : steps.instances()) {
-      stepProfiler.start();
-      step.execute();
-      stepProfiler.stopDebug(step.getDescription());
+      backgroundSteps.waitForDependenciesOf(step);
+      if (!backgroundSteps.submit(step)) {
+        stepProfiler.start();
+        step.execute();
+        stepProfiler.stopDebug(step.getDescription());
+      }
     }
+    backgroundSteps.waitForAll();
   }
 
   private void executeListener(boolean allStepsExecuted) {
@@ -76,6 +96,123 @@ public final class ComputationStepExecutor {
     }
   }
 
+  private static final class BackgroundSteps implements AutoCloseable {
+    private final Map<Class<? extends ComputationStep>, Class<? extends ComputationStep>> dependentStepsByBackgroundStep;
+    private final List<RunningStep> runningSteps = new ArrayList<>();
+    @CheckForNull
+    private ExecutorService executorService;
+
+    private BackgroundSteps(Map<Class<? extends ComputationStep>, Class<? extends ComputationStep>> dependentStepsByBackgroundStep) {
+      this.dependentStepsByBackgroundStep = dependentStepsByBackgroundStep;
+    }
+
+    /**
+     * @return {@code false} if the step must be executed in the calling thread
+     */
+    private boolean submit(ComputationStep step) {
+      Class<? extends ComputationStep> dependentStep = dependentStepsByBackgroundStep.get(step.getClass());
+      if (dependentStep == null) {
+        return false;
+      }
+      if (executorService == null) {
+        executorService = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+          .setNameFormat(BACKGROUND_THREAD_NAME_PREFIX + "%d")
+          .setDaemon(true)
+          .build());
+      }
+      Map<String, String> loggingContext = MDC.getCopyOfContextMap();
+      Future<?> future = executorService.submit(() -> execute(step, loggingContext));
+      runningSteps.add(new RunningStep(step, dependentStep, future));
+      return true;
+    }
+
+    private static void execute(ComputationStep step, @Nullable Map<String, String> loggingContext) {
+      if (loggingContext != null) {
+        MDC.setContextMap(loggingContext);
+      }
+      try {
+        Profiler stepProfiler = Profiler.create(LOGGER).start();
+        step.execute();
+        stepProfiler.stopDebug(step.getDescription() + " (background)");
+      } finally {
+        MDC.clear();
+      }
+    }
+
+    private void waitForDependenciesOf(ComputationStep step) {
+      Iterator<RunningStep> it = runningSteps.iterator();
+      while (it.hasNext()) {
+        RunningStep runningStep = it.next();
+        if (runningStep.dependentStep == step.getClass()) {
+          it.remove();
+          runningStep.waitFor();
+        }
+      }
+    }
+
+    private void waitForAll() {
+      Iterator<RunningStep> it = runningSteps.iterator();
+      while (it.hasNext()) {
+        RunningStep runningStep = it.next();
+        it.remove();
+        runningStep.waitFor();
+      }
+    }
+
+    /**
+     * Background steps still running are not interrupted but are waited for, so that no step is
+     * running when the task is considered as finished. Their failures are only logged, as an
+     * exception is already going up the stack.
+     */
+    @Override
+    public void close() {
+      for (RunningStep runningStep : runningSteps) {
+        try {
+          runningStep.waitFor();
+        } catch (RuntimeException | Error e) {
+          LOGGER.error("Execution of step '{}' failed", runningStep.step.getDescription(), e);
+        }
+      }
+      runningSteps.clear();
+      if (executorService != null) {
+        executorService.shutdown();
+      }
+    }
+  }
+
+  private static final class RunningStep {
+    private final ComputationStep step;
+    private final Class<? extends ComputationStep> dependentStep;
+    private final Future<?> future;
+
+    private RunningStep(ComputationStep step, Class<? extends ComputationStep> dependentStep, Future<?> future) {
+      this.step = step;
+      this.dependentStep = dependentStep;
+      this.future = future;
+    }
+
+    /**
+     * Exception or Error thrown by the step goes up the stack as is.
+     */
+    private void waitFor() {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for step '" + step.getDescription() + "'", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IllegalStateException("Execution of step '" + step.getDescription() + "' failed", cause);
+      }
+    }
+  }
+
   @FunctionalInterface
   public interface Listener {
     void finished(boolean allStepsExecuted);
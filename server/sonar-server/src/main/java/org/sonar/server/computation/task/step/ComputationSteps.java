@@ -19,7 +19,9 @@
  */
 package org.sonar.server.computation.task.step;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Ordered list of steps classes and instances to be executed in a Compute Engine process.
@@ -36,4 +38,18 @@ public interface ComputationSteps {
    * ordered by execution sequence.
    */
   Iterable<ComputationStep> instances();
+
+  /**
+   * Steps of {@link #orderedStepClasses()} which are executed in background, concurrently with the steps which follow
+   * them, mapped to the first step which depends on them. This step is not executed before the background step is
+   * finished.
+   * <p>
+   * A step can be executed in background only if the data it reads are final when it is started, if it does not
+   * share any non thread-safe component with the steps executed concurrently and if it does not write the same
+   * tables as these steps.
+   * </p>
+   */
+  default Map<Class<? extends ComputationStep>, Class<? extends ComputationStep>> backgroundSteps() {
+    return Collections.emptyMap();
+  }
 }
@@ -20,19 +20,23 @@
 package org.sonar.server.es;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
 import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequestBuilder;
 import org.elasticsearch.action.bulk.BackoffPolicy;
 import org.elasticsearch.action.bulk.BulkItemResponse;
-import org.elasticsearch.action.bulk.BulkProcessor;
-import org.elasticsearch.action.bulk.BulkProcessor.Listener;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
@@ -44,6 +48,7 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.sort.SortOrder;
@@ -52,45 +57,65 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.ProgressLogger;
 
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
  * Helper to bulk requests in an efficient way :
  * <ul>
- *   <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
+ *   <li>bulk request is sent on the wire when its size is higher than a threshold, adapted to the latency
+ *   of Elasticsearch (see {@link AdaptiveBulkSize})</li>
+ *   <li>bulk requests can be sent by background threads while next requests are being prepared. The number of
+ *   pending bulk requests is bounded, so that preparation of requests waits for Elasticsearch when it is slower.</li>
+ *   <li>requests rejected by Elasticsearch because its queues are full are retried with an exponential backoff</li>
  *   <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
  * </ul>
  */
 public class BulkIndexer {
 
   private static final Logger LOGGER = Loggers.get(BulkIndexer.class);
-  private static final ByteSizeValue FLUSH_BYTE_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB);
-  private static final int FLUSH_ACTIONS = -1;
   private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
   private static final int DEFAULT_NUMBER_OF_SHARDS = 5;
 
   private final EsClient client;
   private final IndexType indexType;
-  private final BulkProcessor bulkProcessor;
   private final IndexingResult result = new IndexingResult();
   private final IndexingListener indexingListener;
   private final SizeHandler sizeHandler;
+  private final AdaptiveBulkSize bulkSize = new AdaptiveBulkSize();
+  private final int concurrentRequests;
+  // null if bulk requests are executed in the calling thread
+  @CheckForNull
+  private final ThreadPoolExecutor executor;
+  private final Semaphore pendingBulkRequests;
+  private BulkRequest bulkRequest = new BulkRequest();
+  private long startedAt;
 
   public BulkIndexer(EsClient client, IndexType indexType, Size size) {
     this(client, indexType, size, IndexingListener.FAIL_ON_ERROR);
   }
 
   public BulkIndexer(EsClient client, IndexType indexType, Size size, IndexingListener indexingListener) {
+    this(client, indexType, size.createHandler(Runtime2.INSTANCE), indexingListener);
+  }
+
+  @VisibleForTesting
+  BulkIndexer(EsClient client, IndexType indexType, SizeHandler sizeHandler, IndexingListener indexingListener) {
     this.client = client;
     this.indexType = indexType;
-    this.sizeHandler = size.createHandler(Runtime2.INSTANCE);
+    this.sizeHandler = sizeHandler;
     this.indexingListener = indexingListener;
-    BulkProcessorListener bulkProcessorListener = new BulkProcessorListener();
-    this.bulkProcessor = BulkProcessor.builder(client.nativeClient(), bulkProcessorListener)
-      .setBackoffPolicy(BackoffPolicy.exponentialBackoff())
-      .setBulkSize(FLUSH_BYTE_SIZE)
-      .setBulkActions(FLUSH_ACTIONS)
-      .setConcurrentRequests(sizeHandler.getConcurrentRequests())
-      .build();
+    this.concurrentRequests = sizeHandler.getConcurrentRequests();
+    this.pendingBulkRequests = new Semaphore(Math.max(1, concurrentRequests));
+    if (concurrentRequests > 0) {
+      this.executor = new ThreadPoolExecutor(concurrentRequests, concurrentRequests, 1L, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder()
+          .setNameFormat("BulkIndexer[" + indexType.getIndex() + "]-%d")
+          .setDaemon(true)
+          .build());
+      this.executor.allowCoreThreadTimeOut(true);
+    } else {
+      this.executor = null;
+    }
   }
 
   public IndexType getIndexType() {
@@ -99,6 +124,7 @@ public class BulkIndexer {
 
   public void start() {
     result.clear();
+    startedAt = System.nanoTime();
     sizeHandler.beforeStart(this);
   }
 
@@ -106,31 +132,135 @@ public class BulkIndexer {
    * @return the number of documents successfully indexed
    */
   public IndexingResult stop() {
-    try {
-      bulkProcessor.awaitClose(1, TimeUnit.MINUTES);
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      throw new IllegalStateException("Elasticsearch bulk requests still being executed after 1 minute", e);
+    synchronized (this) {
+      flush();
+    }
+    awaitBulkRequests();
+    if (sizeHandler.refreshOnStop()) {
+      client.prepareRefresh(indexType.getIndex()).get();
     }
-    client.prepareRefresh(indexType.getIndex()).get();
+    result.setDurationMs(NANOSECONDS.toMillis(System.nanoTime() - startedAt));
     sizeHandler.afterStop(this);
     indexingListener.onFinish(result);
     return result;
   }
 
   public void add(IndexRequest request) {
-    result.incrementRequests();
-    bulkProcessor.add(request);
+    add((DocWriteRequest) request);
   }
 
   public void add(DeleteRequest request) {
-    result.incrementRequests();
-    bulkProcessor.add(request);
+    add((DocWriteRequest) request);
   }
 
-  public void add(DocWriteRequest request) {
+  public synchronized void add(DocWriteRequest request) {
     result.incrementRequests();
-    bulkProcessor.add(request);
+    bulkRequest.add(request);
+    if (bulkRequest.estimatedSizeInBytes() >= bulkSize.getBytes()) {
+      flush();
+    }
+  }
+
+  private void flush() {
+    if (bulkRequest.numberOfActions() == 0) {
+      return;
+    }
+    BulkRequest request = this.bulkRequest;
+    this.bulkRequest = new BulkRequest();
+    try {
+      // blocks as long as the maximum number of bulk requests are being executed
+      pendingBulkRequests.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for Elasticsearch bulk requests", e);
+    }
+    if (executor == null) {
+      try {
+        execute(request);
+      } finally {
+        pendingBulkRequests.release();
+      }
+    } else {
+      executor.execute(() -> {
+        try {
+          execute(request);
+        } finally {
+          pendingBulkRequests.release();
+        }
+      });
+    }
+  }
+
+  private void awaitBulkRequests() {
+    try {
+      if (!pendingBulkRequests.tryAcquire(Math.max(1, concurrentRequests), 1, TimeUnit.MINUTES)) {
+        throw new IllegalStateException("Elasticsearch bulk requests still being executed after 1 minute");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Elasticsearch bulk requests still being executed after 1 minute", e);
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+  }
+
+  private void execute(BulkRequest request) {
+    Iterator<TimeValue> backoff = BackoffPolicy.exponentialBackoff().iterator();
+    BulkRequest pending = request;
+    while (pending.numberOfActions() > 0) {
+      long start = System.nanoTime();
+      BulkResponse response;
+      try {
+        response = client.nativeClient().bulk(pending).actionGet();
+      } catch (RuntimeException e) {
+        LOGGER.error("Fail to execute bulk index request: " + pending, e);
+        return;
+      }
+      long durationMs = NANOSECONDS.toMillis(System.nanoTime() - start);
+      result.incrementBulkRequests(durationMs);
+      bulkSize.onResponse(durationMs);
+
+      pending = processResponse(pending, response, backoff.hasNext());
+      if (pending.numberOfActions() > 0) {
+        result.incrementRejections(pending.numberOfActions());
+        bulkSize.onRejection();
+        if (!sleep(backoff.next())) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the requests rejected by Elasticsearch that should be retried
+   */
+  private BulkRequest processResponse(BulkRequest request, BulkResponse response, boolean retryRejections) {
+    BulkRequest rejected = new BulkRequest();
+    List<DocId> successDocIds = new ArrayList<>();
+    for (BulkItemResponse item : response.getItems()) {
+      if (!item.isFailed()) {
+        result.incrementSuccess();
+        successDocIds.add(new DocId(item.getIndex(), item.getType(), item.getId()));
+      } else if (retryRejections && item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+        rejected.add(request.requests().get(item.getItemId()));
+      } else {
+        LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
+      }
+    }
+    indexingListener.onSuccess(successDocIds);
+    return rejected;
+  }
+
+  private static boolean sleep(TimeValue delay) {
+    try {
+      Thread.sleep(delay.millis());
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
   }
 
   public void addDeletion(SearchRequestBuilder searchRequest) {
@@ -189,29 +319,35 @@ public class BulkIndexer {
     return bulk.stop();
   }
 
-  private final class BulkProcessorListener implements Listener {
-    @Override
-    public void beforeBulk(long executionId, BulkRequest request) {
-      // no action required
+  /**
+   * Size of bulk requests, adapted to the latency of Elasticsearch. Size is increased by steps as long as bulk
+   * requests are executed in less than {@link #TARGET_DURATION_MS}, and it is halved when they are twice slower
+   * or when Elasticsearch rejects requests.
+   */
+  @VisibleForTesting
+  static class AdaptiveBulkSize {
+    static final long INITIAL_BYTES = new ByteSizeValue(1, ByteSizeUnit.MB).getBytes();
+    static final long MIN_BYTES = new ByteSizeValue(256, ByteSizeUnit.KB).getBytes();
+    static final long MAX_BYTES = new ByteSizeValue(16, ByteSizeUnit.MB).getBytes();
+    static final long STEP_BYTES = new ByteSizeValue(512, ByteSizeUnit.KB).getBytes();
+    static final long TARGET_DURATION_MS = 1_000L;
+
+    private long bytes = INITIAL_BYTES;
+
+    synchronized long getBytes() {
+      return bytes;
     }
 
-    @Override
-    public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
-      List<DocId> successDocIds = new ArrayList<>();
-      for (BulkItemResponse item : response.getItems()) {
-        if (item.isFailed()) {
-          LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
-        } else {
-          result.incrementSuccess();
-          successDocIds.add(new DocId(item.getIndex(), item.getType(), item.getId()));
-        }
+    synchronized void onResponse(long durationMs) {
+      if (durationMs > 2 * TARGET_DURATION_MS) {
+        bytes = Math.max(MIN_BYTES, bytes / 2);
+      } else if (durationMs < TARGET_DURATION_MS) {
+        bytes = Math.min(MAX_BYTES, bytes + STEP_BYTES);
       }
-      indexingListener.onSuccess(successDocIds);
     }
 
-    @Override
-    public void afterBulk(long executionId, BulkRequest req, Throwable e) {
-      LOGGER.error("Fail to execute bulk index request: " + req, e);
+    synchronized void onRejection() {
+      bytes = Math.max(MIN_BYTES, bytes / 2);
     }
   }
 
@@ -234,6 +370,18 @@ public class BulkIndexer {
       SizeHandler createHandler(Runtime2 runtime2) {
         return new LargeSizeHandler(runtime2);
       }
+    },
+
+    /**
+     * Use this size for the indexers that populate the same index in parallel, while the settings of
+     * {@link #LARGE} are applied once by the caller with {@link LargeIndexSettings}. Index is not refreshed
+     * when an indexer is stopped, it's refreshed when settings are restored.
+     */
+    PARTITION {
+      @Override
+      SizeHandler createHandler(Runtime2 runtime2) {
+        return new PartitionSizeHandler();
+      }
     };
 
     abstract SizeHandler createHandler(Runtime2 runtime2);
@@ -250,7 +398,8 @@ public class BulkIndexer {
 
   static class SizeHandler {
     /**
-     * @see BulkProcessor.Builder#setConcurrentRequests(int)
+     * Maximum number of bulk requests executed in background threads. Zero means that bulk requests are
+     * executed in the calling thread.
      */
     int getConcurrentRequests() {
       // in the same thread by default
@@ -264,12 +413,23 @@ public class BulkIndexer {
     void afterStop(BulkIndexer bulkIndexer) {
       // nothing to do, to be overridden if needed
     }
+
+    boolean refreshOnStop() {
+      return true;
+    }
+  }
+
+  static class PartitionSizeHandler extends SizeHandler {
+    @Override
+    boolean refreshOnStop() {
+      return false;
+    }
   }
 
   static class LargeSizeHandler extends SizeHandler {
 
-    private final Map<String, Object> initialSettings = new HashMap<>();
     private final Runtime2 runtime2;
+    private LargeIndexSettings settings;
     private ProgressLogger progress;
 
     LargeSizeHandler(Runtime2 runtime2) {
@@ -289,37 +449,76 @@ public class BulkIndexer {
       this.progress = new ProgressLogger(format("Progress[BulkIndexer[%s]]", bulkIndexer.indexType.getIndex()), bulkIndexer.result.total, LOGGER)
         .setPluralLabel("requests");
       this.progress.start();
+      this.settings = LargeIndexSettings.apply(bulkIndexer.client, bulkIndexer.indexType);
+    }
+
+    @Override
+    void afterStop(BulkIndexer bulkIndexer) {
+      // index has already been refreshed by stop()
+      settings.optimizeAndRestore();
+      this.progress.stop();
+    }
+  }
+
+  /**
+   * Settings of {@link Size#LARGE}: replicas and periodical refresh of the index are disabled until
+   * {@link #restore()} is called. It allows to apply these settings once when an index is populated
+   * by several {@link BulkIndexer} of size {@link Size#PARTITION} executed in parallel.
+   */
+  public static class LargeIndexSettings {
+    private final EsClient client;
+    private final String index;
+    private final Map<String, Object> initialSettings = new HashMap<>();
+
+    private LargeIndexSettings(EsClient client, String index) {
+      this.client = client;
+      this.index = index;
+    }
+
+    public static LargeIndexSettings apply(EsClient client, IndexType indexType) {
+      LargeIndexSettings settings = new LargeIndexSettings(client, indexType.getIndex());
+      settings.disableReplicasAndRefresh();
+      return settings;
+    }
+
+    private void disableReplicasAndRefresh() {
       Map<String, Object> temporarySettings = new HashMap<>();
-      GetSettingsResponse settingsResp = bulkIndexer.client.nativeClient().admin().indices().prepareGetSettings(bulkIndexer.indexType.getIndex()).get();
+      GetSettingsResponse settingsResp = client.nativeClient().admin().indices().prepareGetSettings(index).get();
 
       // deactivate replicas
-      int initialReplicas = Integer.parseInt(settingsResp.getSetting(bulkIndexer.indexType.getIndex(), IndexMetaData.SETTING_NUMBER_OF_REPLICAS));
+      int initialReplicas = Integer.parseInt(settingsResp.getSetting(index, IndexMetaData.SETTING_NUMBER_OF_REPLICAS));
       if (initialReplicas > 0) {
         initialSettings.put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, initialReplicas);
         temporarySettings.put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0);
       }
 
       // deactivate periodical refresh
-      String refreshInterval = settingsResp.getSetting(bulkIndexer.indexType.getIndex(), REFRESH_INTERVAL_SETTING);
+      String refreshInterval = settingsResp.getSetting(index, REFRESH_INTERVAL_SETTING);
       initialSettings.put(REFRESH_INTERVAL_SETTING, refreshInterval);
       temporarySettings.put(REFRESH_INTERVAL_SETTING, "-1");
 
-      updateSettings(bulkIndexer, temporarySettings);
+      updateSettings(temporarySettings);
     }
 
-    @Override
-    void afterStop(BulkIndexer bulkIndexer) {
+    /**
+     * Refreshes the index, then optimizes lucene segments and reverts index settings.
+     */
+    public void restore() {
+      client.prepareRefresh(index).get();
+      optimizeAndRestore();
+    }
+
+    private void optimizeAndRestore() {
       // optimize lucene segments and revert index settings
       // Optimization must be done before re-applying replicas:
       // http://www.elasticsearch.org/blog/performance-considerations-elasticsearch-indexing/
-      bulkIndexer.client.prepareForceMerge(bulkIndexer.indexType.getIndex()).get();
+      client.prepareForceMerge(index).get();
 
-      updateSettings(bulkIndexer, initialSettings);
-      this.progress.stop();
+      updateSettings(initialSettings);
     }
 
-    private static void updateSettings(BulkIndexer bulkIndexer, Map<String, Object> settings) {
-      UpdateSettingsRequestBuilder req = bulkIndexer.client.nativeClient().admin().indices().prepareUpdateSettings(bulkIndexer.indexType.getIndex());
+    private void updateSettings(Map<String, Object> settings) {
+      UpdateSettingsRequestBuilder req = client.nativeClient().admin().indices().prepareUpdateSettings(index);
       req.setSettings(settings);
       req.get();
     }
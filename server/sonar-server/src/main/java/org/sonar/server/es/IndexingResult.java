@@ -25,11 +25,19 @@ public class IndexingResult {
 
   // FIXME should be private
   AtomicLong total = new AtomicLong(0L);
-  private long successes = 0L;
+  private final AtomicLong successes = new AtomicLong(0L);
+  private final AtomicLong bulkRequests = new AtomicLong(0L);
+  private final AtomicLong bulkDurationMs = new AtomicLong(0L);
+  private final AtomicLong rejections = new AtomicLong(0L);
+  private long durationMs = 0L;
 
   IndexingResult clear() {
     total.set(0L);
-    successes = 0L;
+    successes.set(0L);
+    bulkRequests.set(0L);
+    bulkDurationMs.set(0L);
+    rejections.set(0L);
+    durationMs = 0L;
     return this;
   }
 
@@ -38,17 +46,43 @@ public class IndexingResult {
   }
 
   public IndexingResult incrementSuccess() {
-    successes += 1;
+    successes.incrementAndGet();
+    return this;
+  }
+
+  /**
+   * Records the execution of a bulk request by Elasticsearch
+   */
+  public IndexingResult incrementBulkRequests(long bulkDurationMs) {
+    bulkRequests.incrementAndGet();
+    this.bulkDurationMs.addAndGet(bulkDurationMs);
+    return this;
+  }
+
+  /**
+   * Records requests rejected by Elasticsearch because of saturated queues. They are retried.
+   */
+  public IndexingResult incrementRejections(long rejections) {
+    this.rejections.addAndGet(rejections);
+    return this;
+  }
+
+  IndexingResult setDurationMs(long durationMs) {
+    this.durationMs = durationMs;
     return this;
   }
 
   public void add(IndexingResult other) {
     total.addAndGet(other.total.get());
-    successes += other.successes;
+    successes.addAndGet(other.successes.get());
+    bulkRequests.addAndGet(other.bulkRequests.get());
+    bulkDurationMs.addAndGet(other.bulkDurationMs.get());
+    rejections.addAndGet(other.rejections.get());
+    durationMs += other.durationMs;
   }
 
   public long getFailures() {
-    return total.get() - successes;
+    return total.get() - successes.get();
   }
 
   public long getTotal() {
@@ -56,14 +90,44 @@ public class IndexingResult {
   }
 
   public long getSuccess() {
-    return successes;
+    return successes.get();
   }
 
   public double getSuccessRatio() {
-    return total.get() == 0 ? 1.0 : ((1.0 * successes) / total.get());
+    return total.get() == 0 ? 1.0 : ((1.0 * successes.get()) / total.get());
   }
 
   public boolean isSuccess() {
-    return total.get() == successes;
+    return total.get() == successes.get();
+  }
+
+  public long getBulkRequests() {
+    return bulkRequests.get();
+  }
+
+  /**
+   * Sum of the durations of the bulk requests executed by Elasticsearch. It can be greater than
+   * {@link #getDurationMs()} when bulk requests are executed concurrently.
+   */
+  public long getBulkDurationMs() {
+    return bulkDurationMs.get();
+  }
+
+  public long getRejections() {
+    return rejections.get();
+  }
+
+  /**
+   * Elapsed time between start and end of indexing
+   */
+  public long getDurationMs() {
+    return durationMs;
+  }
+
+  /**
+   * Number of documents successfully indexed per second
+   */
+  public double getThroughput() {
+    return durationMs == 0L ? 0.0 : ((1000.0 * successes.get()) / durationMs);
   }
 }
@@ -23,21 +23,34 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.ProgressLogger;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.es.EsQueueDao;
 import org.sonar.db.es.EsQueueDto;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.server.es.BulkIndexer;
+import org.sonar.server.es.BulkIndexer.LargeIndexSettings;
 import org.sonar.server.es.BulkIndexer.Size;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.IndexType;
@@ -65,18 +78,38 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
    * Indicates that es_queue.doc_id references a project. All the issues of the project must be indexed.
    */
   private static final String ID_TYPE_PROJECT_UUID = "projectUuid";
+  /**
+   * Doc type of the es_queue items referencing the projects that remain to be indexed at startup. These items
+   * are ignored by {@link org.sonar.server.es.RecoveryIndexer}.
+   */
+  private static final String STARTUP_DOC_TYPE = EsQueueDao.STARTUP_DOC_TYPE_PREFIX + INDEX_TYPE_ISSUE.format();
   private static final Logger LOGGER = Loggers.get(IssueIndexer.class);
   private static final AuthorizationScope AUTHORIZATION_SCOPE = new AuthorizationScope(INDEX_TYPE_ISSUE, project -> Qualifiers.PROJECT.equals(project.getQualifier()));
   private static final ImmutableSet<IndexType> INDEX_TYPES = ImmutableSet.of(INDEX_TYPE_ISSUE);
+  /**
+   * Number of threads reading issues from DB when index is initialized at startup. When greater than 1,
+   * issues are indexed project by project, so that indexing can be resumed if server is stopped.
+   */
+  static final String STARTUP_THREADS_PROPERTY = "sonar.search.issues.startupIndexingThreads";
+  static final int PROJECTS_PER_PARTITION = 10;
 
   private final EsClient esClient;
   private final DbClient dbClient;
   private final IssueIteratorFactory issueIteratorFactory;
+  private final int startupThreads;
 
   public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory) {
     this.esClient = esClient;
     this.dbClient = dbClient;
     this.issueIteratorFactory = issueIteratorFactory;
+    this.startupThreads = 1;
+  }
+
+  public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory, Configuration config) {
+    this.esClient = esClient;
+    this.dbClient = dbClient;
+    this.issueIteratorFactory = issueIteratorFactory;
+    this.startupThreads = config.getInt(STARTUP_THREADS_PROPERTY).orElse(1);
   }
 
   @Override
@@ -91,11 +124,109 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
 
   @Override
   public void indexOnStartup(Set<IndexType> uninitializedIndexTypes) {
+    if (startupThreads > 1) {
+      indexOnStartupByProjects();
+      return;
+    }
     try (IssueIterator issues = issueIteratorFactory.createForAll()) {
       doIndex(issues, Size.LARGE, IndexingListener.FAIL_ON_ERROR);
     }
   }
 
+  /**
+   * Projects are indexed in parallel by partitions of {@link #PROJECTS_PER_PARTITION} projects. Each project is
+   * referenced by a row of es_queue of type {@link #STARTUP_DOC_TYPE}, deleted when the issues of its partition are
+   * indexed. If server is stopped, then next startup indexes only the projects remaining in es_queue.
+   * <p>
+   * As for {@link Size#LARGE}, replicas and periodical refresh are disabled during the whole indexing. Index
+   * is refreshed once at the end.
+   */
+  private void indexOnStartupByProjects() {
+    List<EsQueueDto> items;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      items = selectOrInsertProjectItems(dbSession);
+    }
+
+    AtomicLong indexedIssues = new AtomicLong();
+    ProgressLogger progress = new ProgressLogger("Progress[IssueIndexer]", indexedIssues, LOGGER).setPluralLabel("issues");
+    progress.start();
+    LargeIndexSettings largeIndexSettings = LargeIndexSettings.apply(esClient, INDEX_TYPE_ISSUE);
+    ExecutorService executor = Executors.newFixedThreadPool(startupThreads, new ThreadFactoryBuilder()
+      .setNameFormat("IssueIndexer-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      List<Future<IndexingResult>> futures = new ArrayList<>();
+      Lists.partition(items, PROJECTS_PER_PARTITION)
+        .forEach(partition -> futures.add(executor.submit(() -> indexPartition(partition, indexedIssues))));
+      IndexingResult result = new IndexingResult();
+      for (Future<IndexingResult> future : futures) {
+        result.add(future.get());
+      }
+      IndexingListener.FAIL_ON_ERROR.onFinish(result);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while indexing issues", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to index issues", e.getCause());
+    } finally {
+      executor.shutdownNow();
+      largeIndexSettings.restore();
+      progress.stop();
+    }
+  }
+
+  private List<EsQueueDto> selectOrInsertProjectItems(DbSession dbSession) {
+    List<EsQueueDto> items = selectStartupItems(dbSession);
+    // index is not initialized but contains documents: previous indexing has been interrupted.
+    // Refresh is disabled during indexing, so documents may not be searchable yet.
+    esClient.prepareRefresh(INDEX_TYPE_ISSUE.getIndex()).get();
+    if (!items.isEmpty() && esClient.prepareSearch(INDEX_TYPE_ISSUE).setSize(0).get().getHits().getTotalHits() > 0) {
+      LOGGER.info("Resume indexing of issues of {} projects", items.size());
+      return items;
+    }
+    Set<String> projectUuidsWithItem = items.stream().map(EsQueueDto::getDocId).collect(MoreCollectors.toSet());
+    List<EsQueueDto> newItems = dbClient.issueDao().selectProjectUuids(dbSession).stream()
+      .filter(projectUuid -> !projectUuidsWithItem.contains(projectUuid))
+      .map(projectUuid -> EsQueueDto.create(STARTUP_DOC_TYPE, projectUuid, ID_TYPE_PROJECT_UUID, projectUuid))
+      .collect(MoreCollectors.toList());
+    dbClient.esQueueDao().insert(dbSession, newItems);
+    dbSession.commit();
+    items.addAll(newItems);
+    return items;
+  }
+
+  /**
+   * @return the items of projects remaining from a previous indexing, one per project. Duplicated items are deleted.
+   */
+  private List<EsQueueDto> selectStartupItems(DbSession dbSession) {
+    List<EsQueueDto> items = new ArrayList<>();
+    List<EsQueueDto> duplicates = new ArrayList<>();
+    Set<String> projectUuids = new HashSet<>();
+    for (EsQueueDto item : dbClient.esQueueDao().selectByDocType(dbSession, STARTUP_DOC_TYPE)) {
+      if (projectUuids.add(item.getDocId())) {
+        items.add(item);
+      } else {
+        duplicates.add(item);
+      }
+    }
+    if (!duplicates.isEmpty()) {
+      dbClient.esQueueDao().delete(dbSession, duplicates);
+      dbSession.commit();
+    }
+    return items;
+  }
+
+  private IndexingResult indexPartition(List<EsQueueDto> items, AtomicLong indexedIssues) {
+    ListMultimap<String, EsQueueDto> itemsByProjectUuid = ArrayListMultimap.create();
+    items.forEach(item -> itemsByProjectUuid.put(item.getDocId(), item));
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      IndexingResult result = doIndexProjectItems(dbSession, itemsByProjectUuid, Size.PARTITION);
+      indexedIssues.addAndGet(result.getSuccess());
+      return result;
+    }
+  }
+
   @Override
   public void indexOnAnalysis(String branchUuid) {
     try (IssueIterator issues = issueIteratorFactory.createForProject(branchUuid)) {
@@ -164,7 +295,7 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
 
     IndexingResult result = new IndexingResult();
     result.add(doIndexIssueItems(dbSession, itemsByIssueKey));
-    result.add(doIndexProjectItems(dbSession, itemsByProjectKey));
+    result.add(doIndexProjectItems(dbSession, itemsByProjectKey, Size.REGULAR));
     return result;
   }
 
@@ -192,14 +323,14 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
     return bulkIndexer.stop();
   }
 
-  private IndexingResult doIndexProjectItems(DbSession dbSession, ListMultimap<String, EsQueueDto> itemsByProjectUuid) {
+  private IndexingResult doIndexProjectItems(DbSession dbSession, ListMultimap<String, EsQueueDto> itemsByProjectUuid, Size size) {
     if (itemsByProjectUuid.isEmpty()) {
       return new IndexingResult();
     }
 
     // one project, referenced by es_queue.doc_id = many issues
     IndexingListener listener = new OneToManyResilientIndexingListener(dbClient, dbSession, itemsByProjectUuid.values());
-    BulkIndexer bulkIndexer = createBulkIndexer(Size.REGULAR, listener);
+    BulkIndexer bulkIndexer = createBulkIndexer(size, listener);
     bulkIndexer.start();
 
     for (String projectUuid : itemsByProjectUuid.keySet()) {
@@ -315,11 +315,10 @@ public class SearchAction implements IssuesWsAction {
 
   @Override
   public final void handle(Request request, Response response) {
-    SearchWsResponse searchWsResponse = doHandle(toSearchWsRequest(request), request);
-    writeProtobuf(searchWsResponse, request, response);
+    doHandle(toSearchWsRequest(request), request, response);
   }
 
-  private SearchWsResponse doHandle(SearchRequest request, Request wsRequest) {
+  private void doHandle(SearchRequest request, Request wsRequest, Response wsResponse) {
     // prepare the Elasticsearch request
     SearchOptions options = createSearchOptionsFromRequest(request);
     EnumSet<SearchAdditionalField> additionalFields = SearchAdditionalField.getFromRequest(request);
@@ -363,7 +362,10 @@ public class SearchAction implements IssuesWsAction {
     // FIXME allow long in Paging
     Paging paging = forPageIndex(options.getPage()).withPageSize(options.getLimit()).andTotal((int) result.getHits().getTotalHits());
 
-    return searchResponseFormat.formatSearch(additionalFields, data, paging, facets);
+    SearchWsResponse searchWsResponse = searchResponseFormat.formatSearch(additionalFields, data, paging, facets);
+    // issues are streamed, so that the formatted issues of large pages are not kept in memory
+    writeProtobuf(searchWsResponse, SearchWsResponse.ISSUES_FIELD_NUMBER,
+      issues -> searchResponseFormat.formatIssues(additionalFields, data, issues::write), wsRequest, wsResponse);
   }
 
   private static SearchOptions createSearchOptionsFromRequest(SearchRequest request) {
@@ -35,6 +35,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -57,7 +58,9 @@ import org.sonar.api.web.UserRole;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.Pagination;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTreeOrder;
 import org.sonar.db.component.ComponentTreeQuery;
 import org.sonar.db.component.ComponentTreeQuery.Strategy;
 import org.sonar.db.component.SnapshotDto;
@@ -403,8 +406,13 @@ public class ComponentTreeAction implements MeasuresWsAction {
       }
 
       ComponentTreeQuery componentTreeQuery = toComponentTreeQuery(wsRequest, baseComponent);
-      List<ComponentDto> components = searchComponents(dbSession, componentTreeQuery);
       List<MetricDto> metrics = searchMetrics(dbSession, wsRequest);
+      Optional<ComponentTreeOrder> dbOrder = ComponentTreeSort.toDbOrder(wsRequest, metrics);
+      if (dbOrder.isPresent()) {
+        return loadPage(dbSession, wsRequest, baseComponent, baseSnapshot.get(), componentTreeQuery, metrics, dbOrder.get());
+      }
+
+      List<ComponentDto> components = searchComponents(dbSession, componentTreeQuery);
       Table<String, MetricDto, ComponentTreeData.Measure> measuresByComponentUuidAndMetric = searchMeasuresByComponentUuidAndMetric(dbSession, baseComponent, componentTreeQuery,
               components,
               metrics);
@@ -427,6 +435,32 @@ public class ComponentTreeAction implements MeasuresWsAction {
     }
   }
 
+  /**
+   * Components are sorted, filtered and paginated in database, so that only the components of the requested page and
+   * their measures are loaded
+   */
+  private ComponentTreeData loadPage(DbSession dbSession, ComponentTreeRequest wsRequest, ComponentDto baseComponent, SnapshotDto baseSnapshot,
+    ComponentTreeQuery componentTreeQuery, List<MetricDto> metrics, ComponentTreeOrder order) {
+    List<ComponentDto> components = emptyList();
+    int componentCount = 0;
+    Collection<String> qualifiers = componentTreeQuery.getQualifiers();
+    if (qualifiers == null || !qualifiers.isEmpty()) {
+      componentCount = dbClient.componentDao().countDescendants(dbSession, componentTreeQuery, order);
+      components = dbClient.componentDao().selectDescendants(dbSession, componentTreeQuery, order,
+        Pagination.forPage(wsRequest.getPage()).andSize(wsRequest.getPageSize()));
+    }
+
+    return ComponentTreeData.builder()
+      .setBaseComponent(baseComponent)
+      .setComponentsFromDb(components)
+      .setComponentCount(componentCount)
+      .setMeasuresByComponentUuidAndMetric(searchMeasuresOfPage(dbSession, baseComponent, componentTreeQuery, components, metrics))
+      .setMetrics(metrics)
+      .setPeriods(snapshotToWsPeriods(baseSnapshot))
+      .setReferenceComponentsByUuid(searchReferenceComponentsById(dbSession, components))
+      .build();
+  }
+
   private ComponentDto loadComponent(DbSession dbSession, ComponentTreeRequest request) {
     String componentKey = request.getComponent();
     String componentId = request.getBaseComponentId();
@@ -503,6 +537,39 @@ public class ComponentTreeAction implements MeasuresWsAction {
     return measuresByComponentUuidAndMetric;
   }
 
+  private Table<String, MetricDto, ComponentTreeData.Measure> searchMeasuresOfPage(DbSession dbSession, ComponentDto baseComponent,
+    ComponentTreeQuery componentTreeQuery, List<ComponentDto> components, List<MetricDto> metrics) {
+    List<String> componentUuids = components.stream().map(ComponentDto::uuid).collect(MoreCollectors.toArrayList(components.size() + 1));
+    if (matchesQuery(baseComponent, componentTreeQuery)) {
+      componentUuids.add(baseComponent.uuid());
+    }
+
+    Map<Integer, MetricDto> metricsById = Maps.uniqueIndex(metrics, MetricDto::getId);
+    Table<String, MetricDto, ComponentTreeData.Measure> measuresByComponentUuidAndMetric = HashBasedTable.create(componentUuids.size(), metrics.size());
+    dbClient.liveMeasureDao().selectByComponentUuidsAndMetricIds(dbSession, componentUuids, metricsById.keySet())
+      .forEach(measureDto -> measuresByComponentUuidAndMetric.put(
+        measureDto.getComponentUuid(),
+        metricsById.get(measureDto.getMetricId()),
+        ComponentTreeData.Measure.createFromMeasureDto(measureDto)));
+
+    addBestValuesToMeasures(measuresByComponentUuidAndMetric, components, metrics);
+
+    return measuresByComponentUuidAndMetric;
+  }
+
+  /**
+   * Measures of base component are returned only if it matches the filters of the tree, as when measures are loaded
+   * by {@link org.sonar.db.measure.LiveMeasureDao#selectTreeByQuery}
+   */
+  private static boolean matchesQuery(ComponentDto component, ComponentTreeQuery componentTreeQuery) {
+    Collection<String> qualifiers = componentTreeQuery.getQualifiers();
+    String nameOrKeyQuery = componentTreeQuery.getNameOrKeyQuery();
+    return (qualifiers == null || qualifiers.contains(component.qualifier()))
+      && (nameOrKeyQuery == null
+        || nameOrKeyQuery.equals(component.getDbKey())
+        || (component.name() != null && component.name().toUpperCase(Locale.ENGLISH).contains(nameOrKeyQuery.toUpperCase(Locale.ENGLISH))));
+  }
+
   /**
    * Conditions for best value measure:
    * <ul>
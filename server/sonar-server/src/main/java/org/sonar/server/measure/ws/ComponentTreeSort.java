@@ -27,13 +27,17 @@ import com.google.common.collect.Table;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.measures.Metric.ValueType;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTreeOrder;
+import org.sonar.db.measure.LiveMeasureDto;
 import org.sonar.db.metric.MetricDto;
+import org.sonar.db.metric.MetricDtoFunctions;
 import org.sonar.server.exceptions.BadRequestException;
 
 import static java.lang.String.CASE_INSENSITIVE_ORDER;
@@ -51,6 +55,7 @@ import static org.sonar.server.measure.ws.ComponentTreeAction.METRIC_SORT;
 import static org.sonar.server.measure.ws.ComponentTreeAction.NAME_SORT;
 import static org.sonar.server.measure.ws.ComponentTreeAction.PATH_SORT;
 import static org.sonar.server.measure.ws.ComponentTreeAction.QUALIFIER_SORT;
+import static org.sonar.server.measure.ws.ComponentTreeAction.WITH_MEASURES_ONLY_METRIC_SORT_FILTER;
 
 public class ComponentTreeSort {
 
@@ -90,6 +95,58 @@ public class ComponentTreeSort {
     return primaryOrdering.immutableSortedCopy(components);
   }
 
+  /**
+   * Same sort and filter as {@link #sortComponents} and {@link HasMeasure}, to be applied in database. Empty if they can't
+   * be applied in database, for example when sorting on a textual or level metric.
+   */
+  public static Optional<ComponentTreeOrder> toDbOrder(ComponentTreeRequest wsRequest, List<MetricDto> metrics) {
+    List<String> sortParameters = wsRequest.getSort();
+    if (sortParameters == null || sortParameters.isEmpty()) {
+      return Optional.empty();
+    }
+    MetricDto metric = wsRequest.getMetricSort() == null ? null : Maps.uniqueIndex(metrics, MetricDto::getKey).get(wsRequest.getMetricSort());
+    if (metric != null && !NUMERIC_VALUE_TYPES.contains(ValueType.valueOf(metric.getValueType()))) {
+      return Optional.empty();
+    }
+
+    boolean isAscending = wsRequest.getAsc();
+    ComponentTreeOrder.Builder order = ComponentTreeOrder.builder();
+    for (String sortParameter : sortParameters) {
+      switch (sortParameter) {
+        case NAME_SORT:
+          order.addSort(ComponentTreeOrder.Field.NAME, isAscending);
+          break;
+        case QUALIFIER_SORT:
+          order.addSort(ComponentTreeOrder.Field.QUALIFIER, isAscending);
+          break;
+        case PATH_SORT:
+          order.addSort(ComponentTreeOrder.Field.PATH, isAscending);
+          break;
+        case METRIC_SORT:
+          order.addSort(metric == null ? ComponentTreeOrder.Field.NAME : ComponentTreeOrder.Field.MEASURE_VALUE, isAscending);
+          break;
+        case METRIC_PERIOD_SORT:
+          order.addSort(metric == null || wsRequest.getMetricPeriodSort() == null ? ComponentTreeOrder.Field.NAME : ComponentTreeOrder.Field.MEASURE_VARIATION,
+            isAscending);
+          break;
+        default:
+          return Optional.empty();
+      }
+    }
+
+    if (metric != null) {
+      order.setMetricId(metric.getId());
+      if (MetricDtoFunctions.isOptimizedForBestValue().test(metric)) {
+        LiveMeasureDto bestValue = new MetricDtoWithBestValue(metric).getBestValue();
+        order.setValueBestValue(bestValue.getValue()).setVariationBestValue(bestValue.getVariation());
+      }
+      if (WITH_MEASURES_ONLY_METRIC_SORT_FILTER.equals(wsRequest.getMetricSortFilter())) {
+        order.setWithMeasureOnly(wsRequest.getMetricPeriodSort() == null ? ComponentTreeOrder.Field.MEASURE_VALUE : ComponentTreeOrder.Field.MEASURE_VARIATION);
+      }
+    }
+    return Optional.of(order.build());
+  }
+
   private static Ordering<ComponentDto> componentNameOrdering(boolean isAscending) {
     return stringOrdering(isAscending, ComponentDto::name);
   }
@@ -37,6 +37,7 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.db.measure.LiveMeasureDto;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.server.user.UserSession;
+import org.sonar.server.ws.ProtobufStreamWriter;
 import org.sonarqube.ws.Measures.Measure;
 import org.sonarqube.ws.Measures.SearchWsResponse;
 
@@ -94,8 +95,7 @@ public class SearchAction implements MeasuresWsAction {
   @Override
   public void handle(Request httpRequest, Response httpResponse) throws Exception {
     try (DbSession dbSession = dbClient.openSession(false)) {
-      SearchWsResponse response = new ResponseBuilder(httpRequest, dbSession).build();
-      writeProtobuf(response, httpRequest, httpResponse);
+      new ResponseBuilder(httpRequest, dbSession).write(httpResponse);
     }
   }
 
@@ -112,12 +112,13 @@ public class SearchAction implements MeasuresWsAction {
       this.httpRequest = httpRequest;
     }
 
-    SearchWsResponse build() {
+    void write(Response httpResponse) {
       this.request = createRequest();
       this.projects = searchProjects();
       this.metrics = searchMetrics();
       this.measures = searchMeasures();
-      return buildResponse();
+      // measures are streamed, so that the formatted measures of many projects are not kept in memory
+      writeProtobuf(SearchWsResponse.getDefaultInstance(), SearchWsResponse.MEASURES_FIELD_NUMBER, this::writeMeasures, httpRequest, httpResponse);
     }
 
     private SearchRequest createRequest() {
@@ -167,33 +168,23 @@ public class SearchAction implements MeasuresWsAction {
         metrics.stream().map(MetricDto::getId).collect(MoreCollectors.toArrayList(metrics.size())));
     }
 
-    private SearchWsResponse buildResponse() {
-      List<Measure> wsMeasures = buildWsMeasures();
-      return SearchWsResponse.newBuilder()
-        .addAllMeasures(wsMeasures)
-        .build();
-    }
-
-    private List<Measure> buildWsMeasures() {
+    private void writeMeasures(ProtobufStreamWriter writer) {
       Map<String, ComponentDto> componentsByUuid = projects.stream().collect(toMap(ComponentDto::uuid, Function.identity()));
-      Map<String, String> componentNamesByKey = projects.stream().collect(toMap(ComponentDto::getDbKey, ComponentDto::name));
       Map<Integer, MetricDto> metricsById = metrics.stream().collect(toMap(MetricDto::getId, identity()));
 
       Function<LiveMeasureDto, MetricDto> dbMeasureToDbMetric = dbMeasure -> metricsById.get(dbMeasure.getMetricId());
-      Function<Measure, String> byMetricKey = Measure::getMetric;
-      Function<Measure, String> byComponentName = wsMeasure -> componentNamesByKey.get(wsMeasure.getComponent());
+      Function<LiveMeasureDto, String> byMetricKey = dbMeasure -> dbMeasureToDbMetric.apply(dbMeasure).getKey();
+      Function<LiveMeasureDto, String> byComponentName = dbMeasure -> componentsByUuid.get(dbMeasure.getComponentUuid()).name();
 
       Measure.Builder measureBuilder = Measure.newBuilder();
-      return measures.stream()
-        .map(dbMeasure -> {
+      measures.stream()
+        .sorted(comparing(byMetricKey).thenComparing(byComponentName))
+        .forEach(dbMeasure -> {
           updateMeasureBuilder(measureBuilder, dbMeasureToDbMetric.apply(dbMeasure), dbMeasure);
           measureBuilder.setComponent(componentsByUuid.get(dbMeasure.getComponentUuid()).getDbKey());
-          Measure measure = measureBuilder.build();
+          writer.write(measureBuilder.build());
           measureBuilder.clear();
-          return measure;
-        })
-        .sorted(comparing(byMetricKey).thenComparing(byComponentName))
-        .collect(toList());
+        });
     }
   }
 
@@ -132,13 +132,14 @@ public class SearchHistoryAction implements MeasuresWsAction {
 
   @Override
   public void handle(Request request, Response response) throws Exception {
-    SearchHistoryResponse searchHistoryResponse = Stream.of(request)
+    SearchHistoryResponseFactory responseFactory = Stream.of(request)
       .map(SearchHistoryAction::toWsRequest)
       .map(search())
-      .map(result -> new SearchHistoryResponseFactory(result).apply())
+      .map(SearchHistoryResponseFactory::new)
       .collect(MoreCollectors.toOneElement());
 
-    writeProtobuf(searchHistoryResponse, request, response);
+    writeProtobuf(responseFactory.apply(), SearchHistoryResponse.MEASURES_FIELD_NUMBER, measures -> responseFactory.applyMeasures(measures::write),
+      request, response);
   }
 
   private Function<SearchHistoryRequest, SearchHistoryResult> search() {
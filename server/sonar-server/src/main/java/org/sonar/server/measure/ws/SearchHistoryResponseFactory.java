@@ -22,6 +22,7 @@ package org.sonar.server.measure.ws;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
@@ -48,10 +49,12 @@ class SearchHistoryResponseFactory {
     this.value = HistoryValue.newBuilder();
   }
 
+  /**
+   * @return the response without measures, which are streamed by {@link #applyMeasures(Consumer)}
+   */
   public SearchHistoryResponse apply() {
     return Stream.of(SearchHistoryResponse.newBuilder())
       .map(addPaging())
-      .map(addMeasures())
       .map(SearchHistoryResponse.Builder::build)
       .collect(MoreCollectors.toOneElement());
   }
@@ -60,21 +63,17 @@ class SearchHistoryResponseFactory {
     return response -> response.setPaging(result.getPaging());
   }
 
-  private UnaryOperator<SearchHistoryResponse.Builder> addMeasures() {
+  public void applyMeasures(Consumer<HistoryMeasure> consumer) {
     Map<Integer, MetricDto> metricsById = result.getMetrics().stream().collect(MoreCollectors.uniqueIndex(MetricDto::getId));
     Map<String, SnapshotDto> analysesByUuid = result.getAnalyses().stream().collect(MoreCollectors.uniqueIndex(SnapshotDto::getUuid));
     Table<MetricDto, SnapshotDto, MeasureDto> measuresByMetricByAnalysis = HashBasedTable.create(result.getMetrics().size(), result.getAnalyses().size());
     result.getMeasures().forEach(m -> measuresByMetricByAnalysis.put(metricsById.get(m.getMetricId()), analysesByUuid.get(m.getAnalysisUuid()), m));
 
-    return response -> {
-      result.getMetrics().stream()
-        .map(clearMetric())
-        .map(addMetric())
-        .map(metric -> addValues(measuresByMetricByAnalysis.row(metric)).apply(metric))
-        .forEach(metric -> response.addMeasures(measure));
-
-      return response;
-    };
+    result.getMetrics().stream()
+      .map(clearMetric())
+      .map(addMetric())
+      .map(metric -> addValues(measuresByMetricByAnalysis.row(metric)).apply(metric))
+      .forEach(metric -> consumer.accept(measure.build()));
   }
 
   private UnaryOperator<MetricDto> addMetric() {
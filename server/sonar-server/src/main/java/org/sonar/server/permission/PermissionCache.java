@@ -0,0 +1,132 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.server.ServerSide;
+import org.sonar.db.permission.OrganizationPermission;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Permissions of users, shared by the requests of the web server so that permissions of a user
+ * are loaded from database at most once per expiration period. Entries are invalidated as soon as
+ * permissions, group memberships or permission templates are changed through the web server. Changes made
+ * by other nodes of a cluster are visible when the entries expire.
+ */
+@ServerSide
+public class PermissionCache {
+
+  static final String EXPIRATION_PROPERTY = "sonar.web.permissionCache.expirationInSeconds";
+  private static final long DEFAULT_EXPIRATION_IN_SECONDS = 30L;
+  private static final long MAX_USERS = 10_000L;
+
+  /**
+   * Key of anonymous in cache. Ids of users are positive.
+   */
+  private static final int ANONYMOUS = -1;
+
+  @CheckForNull
+  private final Cache<Integer, UserPermissions> cache;
+
+  public PermissionCache(Configuration config) {
+    long expiration = config.getLong(EXPIRATION_PROPERTY).orElse(DEFAULT_EXPIRATION_IN_SECONDS);
+    if (expiration > 0) {
+      this.cache = CacheBuilder.newBuilder()
+        .expireAfterWrite(expiration, SECONDS)
+        .maximumSize(MAX_USERS)
+        .build();
+    } else {
+      // cache is disabled, permissions are loaded once per request
+      this.cache = null;
+    }
+  }
+
+  /**
+   * @param userId id of logged-in user, or {@code null} for anonymous
+   */
+  public UserPermissions get(@Nullable Integer userId) {
+    if (cache == null) {
+      return new UserPermissions();
+    }
+    int key = userId == null ? ANONYMOUS : userId;
+    UserPermissions permissions = cache.getIfPresent(key);
+    if (permissions == null) {
+      UserPermissions created = new UserPermissions();
+      permissions = cache.asMap().putIfAbsent(key, created);
+      if (permissions == null) {
+        permissions = created;
+      }
+    }
+    return permissions;
+  }
+
+  public void invalidate(int userId) {
+    if (cache != null) {
+      cache.invalidate(userId);
+    }
+  }
+
+  public void invalidateAll() {
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+  }
+
+  public static class UserPermissions {
+    private final Map<String, Set<OrganizationPermission>> permissionsByOrganizationUuid = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> permissionsByProjectUuid = new ConcurrentHashMap<>();
+
+    private UserPermissions() {
+      // created by PermissionCache
+    }
+
+    /**
+     * @return the permissions on organization, or {@code null} if they are not loaded yet
+     */
+    @CheckForNull
+    public Set<OrganizationPermission> getOrganizationPermissions(String organizationUuid) {
+      return permissionsByOrganizationUuid.get(organizationUuid);
+    }
+
+    public void putOrganizationPermissions(String organizationUuid, Set<OrganizationPermission> permissions) {
+      permissionsByOrganizationUuid.put(organizationUuid, permissions);
+    }
+
+    /**
+     * @return the permissions on project, or {@code null} if they are not loaded yet
+     */
+    @CheckForNull
+    public Set<String> getProjectPermissions(String projectUuid) {
+      return permissionsByProjectUuid.get(projectUuid);
+    }
+
+    public void putProjectPermissions(String projectUuid, Set<String> permissions) {
+      permissionsByProjectUuid.put(projectUuid, permissions);
+    }
+  }
+}
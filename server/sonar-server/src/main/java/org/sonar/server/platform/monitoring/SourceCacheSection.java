@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.sonar.api.server.ServerSide;
+import org.sonar.process.systeminfo.SystemInfoSection;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.source.SourceCache;
+
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
+import static org.sonar.process.systeminfo.SystemInfoUtils.setAttribute;
+
+/**
+ * Usage of the cache of decoded file sources of the web server
+ */
+@ServerSide
+public class SourceCacheSection implements SystemInfoSection {
+
+  private final SourceCache sourceCache;
+
+  public SourceCacheSection(SourceCache sourceCache) {
+    this.sourceCache = sourceCache;
+  }
+
+  @Override
+  public ProtobufSystemInfo.Section toProtobuf() {
+    ProtobufSystemInfo.Section.Builder protobuf = ProtobufSystemInfo.Section.newBuilder();
+    protobuf.setName("Web Source Cache");
+    setAttribute(protobuf, "Max Size", byteCountToDisplaySize(sourceCache.getMaxSize()));
+    setAttribute(protobuf, "Size", byteCountToDisplaySize(sourceCache.getSize()));
+    setAttribute(protobuf, "Files", sourceCache.getEntries());
+    setAttribute(protobuf, "Hits", sourceCache.getHits());
+    setAttribute(protobuf, "Misses", sourceCache.getMisses());
+    setAttribute(protobuf, "Evictions", sourceCache.getEvictions());
+    setAttribute(protobuf, "Invalidations", sourceCache.getInvalidations());
+    return protobuf.build();
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.server.ServerSide;
+import org.sonar.db.protobuf.DbFileSources;
+
+/**
+ * Decoded source data of the files recently displayed, shared by all the requests of the web server.
+ * Size of cache is bounded by an estimate of the heap used by decoded data, least recently used files being evicted first.
+ * Entries are identified by the uuid of file and the hash of its data, so that the entry of a file is invalidated
+ * as soon as the Compute Engine persists a new version of its data.
+ */
+@ServerSide
+public class SourceCache {
+
+  static final String MAX_SIZE_PROPERTY = "sonar.web.sourceCache.maxSizeInMb";
+  private static final long DEFAULT_MAX_SIZE_IN_MB = 50L;
+
+  /**
+   * Files whose compressed data is bigger than this fraction of the cache are not cached, only the requested lines are
+   * decoded
+   */
+  private static final int MAX_FILE_SIZE_RATIO = 16;
+
+  /**
+   * Characters of decoded strings take two bytes in heap, whereas serialized sources are mostly ASCII
+   */
+  private static final int HEAP_BYTES_PER_SERIALIZED_BYTE = 2;
+
+  /**
+   * Headers of the message of line, of its strings and of its list of duplications
+   */
+  private static final int HEAP_BYTES_PER_LINE = 300;
+
+  private final long maxSize;
+  private final Cache<String, Entry> cache;
+  private final AtomicLong size = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public SourceCache(Configuration config) {
+    this.maxSize = config.getLong(MAX_SIZE_PROPERTY).orElse(DEFAULT_MAX_SIZE_IN_MB) * 1024L * 1024L;
+    this.cache = CacheBuilder.newBuilder()
+      .maximumWeight(maxSize)
+      .<String, Entry>weigher((fileUuid, entry) -> (int) Math.min(entry.size, Integer.MAX_VALUE))
+      .removalListener(notification -> {
+        size.addAndGet(-notification.getValue().size);
+        if (notification.getCause() == RemovalCause.EXPLICIT) {
+          invalidations.incrementAndGet();
+        }
+      })
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * @return the decoded data of file, or {@code null} if it is not in cache or if it has changed since it was cached
+   */
+  @CheckForNull
+  public DbFileSources.Data get(String fileUuid, String dataHash) {
+    Entry entry = cache.getIfPresent(fileUuid);
+    if (entry != null && !entry.dataHash.equals(dataHash)) {
+      cache.invalidate(fileUuid);
+      entry = null;
+    }
+    if (entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return entry.data;
+  }
+
+  /**
+   * Checked before decoding data. Compressed data is smaller than decoded data, so data accepted here
+   * may still be too big to be put in cache.
+   */
+  public boolean isCacheable(int compressedSize) {
+    return compressedSize <= maxSize / MAX_FILE_SIZE_RATIO;
+  }
+
+  /**
+   * Data whose estimated size in heap is bigger than a fraction of the cache is ignored
+   */
+  public void put(String fileUuid, String dataHash, DbFileSources.Data data) {
+    Entry entry = new Entry(dataHash, data);
+    if (entry.size > maxSize / MAX_FILE_SIZE_RATIO) {
+      return;
+    }
+    size.addAndGet(entry.size);
+    cache.put(fileUuid, entry);
+  }
+
+  static long estimateHeapSize(DbFileSources.Data data) {
+    return (long) HEAP_BYTES_PER_SERIALIZED_BYTE * data.getSerializedSize() + (long) HEAP_BYTES_PER_LINE * data.getLinesCount();
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Estimated size in heap of the data in cache, in bytes
+   */
+  public long getSize() {
+    return size.get();
+  }
+
+  public long getEntries() {
+    return cache.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Number of entries removed to keep the size of cache under its maximum
+   */
+  public long getEvictions() {
+    return cache.stats().evictionCount();
+  }
+
+  /**
+   * Number of entries removed because the data of file changed
+   */
+  public long getInvalidations() {
+    return invalidations.get();
+  }
+
+  private static class Entry {
+    private final String dataHash;
+    private final DbFileSources.Data data;
+    private final long size;
+
+    private Entry(String dataHash, DbFileSources.Data data) {
+      this.dataHash = dataHash;
+      this.data = data;
+      this.size = estimateHeapSize(data);
+    }
+  }
+}
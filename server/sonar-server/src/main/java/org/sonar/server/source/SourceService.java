@@ -33,10 +33,12 @@ public class SourceService {
 
   private final DbClient dbClient;
   private final HtmlSourceDecorator htmlDecorator;
+  private final SourceCache cache;
 
-  public SourceService(DbClient dbClient, HtmlSourceDecorator htmlDecorator) {
+  public SourceService(DbClient dbClient, HtmlSourceDecorator htmlDecorator, SourceCache cache) {
     this.dbClient = dbClient;
     this.htmlDecorator = htmlDecorator;
+    this.cache = cache;
   }
 
   /**
@@ -63,17 +65,35 @@ public class SourceService {
   private <E> Optional<Iterable<E>> getLines(DbSession dbSession, String fileUuid, int from, int toInclusive, Function<DbFileSources.Line, E> function) {
     verifyLine(from);
     checkArgument(toInclusive >= from, String.format("Line number must greater than or equal to %d, got %d", from, toInclusive));
-    FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, fileUuid);
-    if (dto == null) {
+    Optional<DbFileSources.Data> data = getSourceData(dbSession, fileUuid, from, toInclusive);
+    if (!data.isPresent()) {
       return Optional.empty();
     }
-    return Optional.of(dto.getSourceData().getLinesList().stream()
+    return Optional.of(data.get().getLinesList().stream()
       .filter(line -> line.hasLine() && line.getLine() >= from)
       .limit((toInclusive - from) + 1L)
       .map(function)
       .collect(MoreCollectors.toList()));
   }
 
+  private Optional<DbFileSources.Data> getSourceData(DbSession dbSession, String fileUuid, int from, int toInclusive) {
+    String dataHash = dbClient.fileSourceDao().selectSourceDataHashByFileUuid(dbSession, fileUuid);
+    DbFileSources.Data data = dataHash == null ? null : cache.get(fileUuid, dataHash);
+    if (data != null) {
+      return Optional.of(data);
+    }
+    FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, fileUuid);
+    if (dto == null) {
+      return Optional.empty();
+    }
+    if (dto.getDataHash() == null || !cache.isCacheable(dto.getBinaryData().length)) {
+      return Optional.of(dto.getSourceData(from, toInclusive));
+    }
+    data = dto.getSourceData();
+    cache.put(fileUuid, dto.getDataHash(), data);
+    return Optional.of(data);
+  }
+
   private static void verifyLine(int line) {
     checkArgument(line >= 1, String.format("Line number must start at 1, got %d", line));
   }
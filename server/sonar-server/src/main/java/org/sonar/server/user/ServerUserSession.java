@@ -25,6 +25,7 @@ import com.google.common.collect.ImmutableSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -37,12 +38,16 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.permission.OrganizationPermission;
+import org.sonar.db.permission.ProjectPermissionDto;
 import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.OrganizationFlags;
+import org.sonar.server.permission.PermissionCache;
+import org.sonar.server.permission.PermissionCache.UserPermissions;
 
 import static com.google.common.collect.Maps.newHashMap;
+import static java.util.Collections.singleton;
 import static org.apache.commons.lang.StringUtils.defaultIfEmpty;
 
 /**
@@ -56,16 +61,16 @@ public class ServerUserSession extends AbstractUserSession {
   private final DefaultOrganizationProvider defaultOrganizationProvider;
   private final Supplier<Collection<GroupDto>> groups = Suppliers.memoize(this::loadGroups);
   private final Supplier<Boolean> isSystemAdministratorSupplier = Suppliers.memoize(this::loadIsSystemAdministrator);
+  private final Supplier<UserPermissions> permissions;
   private final Map<String, String> projectUuidByComponentUuid = newHashMap();
-  private Map<String, Set<OrganizationPermission>> permissionsByOrganizationUuid;
-  private Map<String, Set<String>> permissionsByProjectUuid;
 
   ServerUserSession(DbClient dbClient, OrganizationFlags organizationFlags,
-    DefaultOrganizationProvider defaultOrganizationProvider, @Nullable UserDto userDto) {
+    DefaultOrganizationProvider defaultOrganizationProvider, PermissionCache permissionCache, @Nullable UserDto userDto) {
     this.dbClient = dbClient;
     this.organizationFlags = organizationFlags;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
     this.userDto = userDto;
+    this.permissions = Suppliers.memoize(() -> permissionCache.get(getUserId()));
   }
 
   private Collection<GroupDto> loadGroups() {
@@ -112,11 +117,12 @@ public class ServerUserSession extends AbstractUserSession {
 
   @Override
   protected boolean hasPermissionImpl(OrganizationPermission permission, String organizationUuid) {
-    if (permissionsByOrganizationUuid == null) {
-      permissionsByOrganizationUuid = new HashMap<>();
+    Set<OrganizationPermission> organizationPermissions = permissions.get().getOrganizationPermissions(organizationUuid);
+    if (organizationPermissions == null) {
+      organizationPermissions = loadOrganizationPermissions(organizationUuid);
+      permissions.get().putOrganizationPermissions(organizationUuid, organizationPermissions);
     }
-    Set<OrganizationPermission> permissions = permissionsByOrganizationUuid.computeIfAbsent(organizationUuid, this::loadOrganizationPermissions);
-    return permissions.contains(permission);
+    return organizationPermissions.contains(permission);
   }
 
   private Set<OrganizationPermission> loadOrganizationPermissions(String organizationUuid) {
@@ -144,9 +150,7 @@ public class ServerUserSession extends AbstractUserSession {
       if (!component.isPresent()) {
         return Optional.empty();
       }
-      // if component is part of a branch, then permissions must be
-      // checked on the project (represented by its main branch)
-      projectUuid = defaultIfEmpty(component.get().getMainBranchProjectUuid(), component.get().projectUuid());
+      projectUuid = projectUuidOf(component.get());
       projectUuidByComponentUuid.put(componentUuid, projectUuid);
       return Optional.of(projectUuid);
     }
@@ -154,48 +158,71 @@ public class ServerUserSession extends AbstractUserSession {
 
   @Override
   protected boolean hasProjectUuidPermission(String permission, String projectUuid) {
-    if (permissionsByProjectUuid == null) {
-      permissionsByProjectUuid = new HashMap<>();
-    }
-    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid, this::loadProjectPermissions);
-    return permissions.contains(permission);
+    return loadProjectPermissions(singleton(projectUuid)).get(projectUuid).contains(permission);
   }
 
-  private Set<String> loadProjectPermissions(String projectUuid) {
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      com.google.common.base.Optional<ComponentDto> component = dbClient.componentDao().selectByUuid(dbSession, projectUuid);
-      if (!component.isPresent()) {
-        return Collections.emptySet();
-      }
-      if (component.get().isPrivate()) {
-        return loadDbPermissions(dbSession, projectUuid);
+  @Override
+  protected List<ComponentDto> doKeepAuthorizedComponents(String permission, Collection<ComponentDto> components) {
+    Set<String> projectUuids = components.stream()
+      .map(ServerUserSession::projectUuidOf)
+      .collect(MoreCollectors.toSet(components.size()));
+    Map<String, Set<String>> permissionsByProjectUuid = loadProjectPermissions(projectUuids);
+
+    return components.stream()
+      .filter(c -> permissionsByProjectUuid.get(projectUuidOf(c)).contains(permission))
+      .collect(MoreCollectors.toList(components.size()));
+  }
+
+  private static String projectUuidOf(ComponentDto component) {
+    // if component is part of a branch, then permissions must be
+    // checked on the project (represented by its main branch)
+    return defaultIfEmpty(component.getMainBranchProjectUuid(), component.projectUuid());
+  }
+
+  /**
+   * Permissions on the given projects, loaded in bulk from database when they are not in cache.
+   * Projects which don't exist have no permissions.
+   */
+  private Map<String, Set<String>> loadProjectPermissions(Collection<String> projectUuids) {
+    Map<String, Set<String>> permissionsByProjectUuid = new HashMap<>();
+    Set<String> missingProjectUuids = new HashSet<>();
+    for (String projectUuid : projectUuids) {
+      Set<String> projectPermissions = permissions.get().getProjectPermissions(projectUuid);
+      if (projectPermissions == null) {
+        missingProjectUuids.add(projectUuid);
+      } else {
+        permissionsByProjectUuid.put(projectUuid, projectPermissions);
       }
-      ImmutableSet.Builder<String> builder = ImmutableSet.builder();
-      builder.addAll(ProjectPermissions.PUBLIC_PERMISSIONS);
-      builder.addAll(loadDbPermissions(dbSession, projectUuid));
-      return builder.build();
     }
-  }
-
-  private Set<String> loadDbPermissions(DbSession dbSession, String projectUuid) {
-    if (userDto != null && userDto.getId() != null) {
-      return dbClient.authorizationDao().selectProjectPermissions(dbSession, projectUuid, userDto.getId());
+    if (!missingProjectUuids.isEmpty()) {
+      loadDbPermissions(missingProjectUuids).forEach((projectUuid, projectPermissions) -> {
+        permissions.get().putProjectPermissions(projectUuid, projectPermissions);
+        permissionsByProjectUuid.put(projectUuid, projectPermissions);
+      });
     }
-    return dbClient.authorizationDao().selectProjectPermissionsOfAnonymous(dbSession, projectUuid);
+    return permissionsByProjectUuid;
   }
 
-  @Override
-  protected List<ComponentDto> doKeepAuthorizedComponents(String permission, Collection<ComponentDto> components) {
+  private Map<String, Set<String>> loadDbPermissions(Set<String> projectUuids) {
+    Map<String, ImmutableSet.Builder<String>> builders = new HashMap<>();
     try (DbSession dbSession = dbClient.openSession(false)) {
-      Set<String> projectUuids = components.stream()
-        .map(c -> defaultIfEmpty(c.getMainBranchProjectUuid(), c.projectUuid()))
-        .collect(MoreCollectors.toSet(components.size()));
-      Set<String> authorizedProjectUuids = dbClient.authorizationDao().keepAuthorizedProjectUuids(dbSession, projectUuids, getUserId(), permission);
-
-      return components.stream()
-        .filter(c -> authorizedProjectUuids.contains(c.projectUuid()) || authorizedProjectUuids.contains(c.getMainBranchProjectUuid()))
-        .collect(MoreCollectors.toList(components.size()));
+      for (ComponentDto project : dbClient.componentDao().selectByUuids(dbSession, projectUuids)) {
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        if (!project.isPrivate()) {
+          builder.addAll(ProjectPermissions.PUBLIC_PERMISSIONS);
+        }
+        builders.put(project.uuid(), builder);
+      }
+      for (ProjectPermissionDto dto : dbClient.authorizationDao().selectProjectPermissions(dbSession, builders.keySet(), getUserId())) {
+        builders.get(dto.getProjectUuid()).add(dto.getPermission());
+      }
     }
+    Map<String, Set<String>> result = new HashMap<>();
+    projectUuids.forEach(projectUuid -> {
+      ImmutableSet.Builder<String> builder = builders.get(projectUuid);
+      result.put(projectUuid, builder == null ? Collections.emptySet() : builder.build());
+    });
+    return result;
   }
 
   @Override
@@ -0,0 +1,139 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Message;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.core.util.ProtobufJsonFormat;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.sonarqube.ws.MediaTypes.JSON;
+import static org.sonarqube.ws.MediaTypes.PROTOBUF;
+
+/**
+ * Writes a protobuf response whose elements of a repeated field are streamed one by one, so that
+ * the complete response message does not have to be built in memory. The other fields are
+ * written from a message without elements in the repeated field, before the elements.
+ * <p>
+ * The Protobuf output is equivalent to the serialization of the complete message, as elements of a repeated field
+ * are serialized independently. In JSON, the streamed field is the last field of the object.
+ *
+ * <pre>
+ *   writeProtobuf(header, SearchWsResponse.ISSUES_FIELD_NUMBER, writer -&gt; issues.forEach(issue -&gt; writer.write(format(issue))),
+ *     request, response);
+ * </pre>
+ *
+ * @see WsUtils#writeProtobuf(Message, int, Consumer, Request, Response)
+ */
+public class ProtobufStreamWriter {
+
+  private final OutputStream output;
+  private final int fieldNumber;
+  @CheckForNull
+  private final CodedOutputStream protobufOutput;
+  @CheckForNull
+  private final JsonWriter jsonWriter;
+
+  private ProtobufStreamWriter(OutputStream output, int fieldNumber, CodedOutputStream protobufOutput) {
+    this.output = output;
+    this.fieldNumber = fieldNumber;
+    this.protobufOutput = protobufOutput;
+    this.jsonWriter = null;
+  }
+
+  private ProtobufStreamWriter(OutputStream output, int fieldNumber, JsonWriter jsonWriter) {
+    this.output = output;
+    this.fieldNumber = fieldNumber;
+    this.protobufOutput = null;
+    this.jsonWriter = jsonWriter;
+  }
+
+  /**
+   * Writes the fields of {@code header} and starts the streaming of the repeated field {@code fieldNumber}.
+   * If writing of elements fails, then the response is left incomplete.
+   */
+  static void write(Message header, int fieldNumber, Consumer<ProtobufStreamWriter> elementsWriter, Request request, Response response) {
+    ProtobufStreamWriter writer = start(header, fieldNumber, request, response);
+    elementsWriter.accept(writer);
+    writer.finish();
+  }
+
+  private static ProtobufStreamWriter start(Message header, int fieldNumber, Request request, Response response) {
+    Descriptors.FieldDescriptor field = header.getDescriptorForType().findFieldByNumber(fieldNumber);
+    checkArgument(field != null && field.isRepeated() && field.getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE && !field.isMapField(),
+      "Field %s of %s is not a repeated field of messages", fieldNumber, header.getDescriptorForType().getName());
+    checkArgument(header.getRepeatedFieldCount(field) == 0, "Elements of field '%s' must be streamed", field.getName());
+
+    OutputStream output = response.stream().output();
+    try {
+      if (request.getMediaType().equals(PROTOBUF)) {
+        response.stream().setMediaType(PROTOBUF);
+        CodedOutputStream protobufOutput = CodedOutputStream.newInstance(output);
+        header.writeTo(protobufOutput);
+        return new ProtobufStreamWriter(output, fieldNumber, protobufOutput);
+      }
+      response.stream().setMediaType(JSON);
+      JsonWriter jsonWriter = JsonWriter.of(new OutputStreamWriter(output, UTF_8));
+      jsonWriter.beginObject();
+      ProtobufJsonFormat.writeFields(header, jsonWriter, field);
+      jsonWriter.name(field.getName()).beginArray();
+      return new ProtobufStreamWriter(output, fieldNumber, jsonWriter);
+    } catch (Exception e) {
+      throw new IllegalStateException("Error while writing protobuf message", e);
+    }
+  }
+
+  public ProtobufStreamWriter write(Message element) {
+    try {
+      if (protobufOutput != null) {
+        protobufOutput.writeMessage(fieldNumber, element);
+      } else {
+        ProtobufJsonFormat.write(element, jsonWriter);
+      }
+      return this;
+    } catch (Exception e) {
+      throw new IllegalStateException("Error while writing protobuf message", e);
+    }
+  }
+
+  private void finish() {
+    try {
+      if (protobufOutput != null) {
+        protobufOutput.flush();
+        output.close();
+      } else {
+        jsonWriter.endArray().endObject();
+        jsonWriter.close();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Error while writing protobuf message", e);
+    }
+  }
+}
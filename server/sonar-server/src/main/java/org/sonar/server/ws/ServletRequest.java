@@ -22,12 +22,15 @@ package org.sonar.server.ws;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.net.HttpHeaders;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import javax.annotation.CheckForNull;
 import javax.servlet.http.HttpServletRequest;
+import org.apache.tomcat.util.http.fileupload.ParameterParser;
+import org.sonar.api.server.ws.WebService;
 import org.sonar.api.server.ws.internal.PartImpl;
 import org.sonar.api.server.ws.internal.ValidatingRequest;
 import org.sonar.api.utils.log.Loggers;
@@ -37,6 +40,7 @@ import static com.google.common.base.MoreObjects.firstNonNull;
 import static java.util.Collections.emptyList;
 import static java.util.Locale.ENGLISH;
 import static org.apache.commons.lang.StringUtils.substringAfterLast;
+import static org.apache.tomcat.util.http.fileupload.FileUploadBase.FORM_DATA;
 import static org.apache.tomcat.util.http.fileupload.FileUploadBase.MULTIPART;
 
 public class ServletRequest extends ValidatingRequest {
@@ -93,7 +97,7 @@ public class ServletRequest extends ValidatingRequest {
   public Part readPart(String key) {
     try {
       if (!isMultipartContent()) {
-        return null;
+        return acceptsBodyPart() ? readBodyPart(key) : null;
       }
       javax.servlet.http.Part part = source.getPart(key);
       if (part == null || part.getSize() == 0) {
@@ -106,6 +110,31 @@ public class ServletRequest extends ValidatingRequest {
     }
   }
 
+  private boolean acceptsBodyPart() {
+    WebService.Action action = action();
+    return action != null && action.handler() instanceof BodyPartAction;
+  }
+
+  /**
+   * For the actions implementing {@link BodyPartAction}, a single part can be streamed as the body of the request,
+   * its name being defined by the header "Content-Disposition" (for example {@code form-data; name="report"; filename="report.zip"}).
+   * Contrary to multipart requests, the body is not buffered by the servlet container before being read.
+   */
+  @CheckForNull
+  private Part readBodyPart(String key) throws IOException {
+    String contentDisposition = source.getHeader(HttpHeaders.CONTENT_DISPOSITION);
+    if (contentDisposition == null || !contentDisposition.toLowerCase(ENGLISH).startsWith(FORM_DATA)) {
+      return null;
+    }
+    ParameterParser parser = new ParameterParser();
+    parser.setLowerCaseNames(true);
+    Map<String, String> params = parser.parse(contentDisposition, ';');
+    if (!key.equals(params.get("name"))) {
+      return null;
+    }
+    return new PartImpl(source.getInputStream(), params.get("filename"));
+  }
+
   private boolean isMultipartContent() {
     String contentType = source.getContentType();
     return contentType != null && contentType.toLowerCase(ENGLISH).startsWith(MULTIPART);
@@ -24,6 +24,7 @@ import com.google.protobuf.Message;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.List;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.server.ws.Request;
@@ -63,6 +64,18 @@ public class WsUtils {
     }
   }
 
+  /**
+   * Writes a response whose elements of the repeated field {@code fieldNumber} are streamed by {@code elementsWriter},
+   * instead of being loaded in memory before being serialized.
+   *
+   * @param header the response without elements in field {@code fieldNumber}
+   * @param fieldNumber the number of a repeated field of messages, for example {@code SearchWsResponse.ISSUES_FIELD_NUMBER}
+   * @see ProtobufStreamWriter
+   */
+  public static void writeProtobuf(Message header, int fieldNumber, Consumer<ProtobufStreamWriter> elementsWriter, Request request, Response response) {
+    ProtobufStreamWriter.write(header, fieldNumber, elementsWriter, request, response);
+  }
+
   /**
    * @throws BadRequestException
    */
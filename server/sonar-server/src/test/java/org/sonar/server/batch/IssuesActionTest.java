@@ -198,6 +198,48 @@ public class IssuesActionTest {
     }
   }
 
+  @Test
+  public void return_issues_of_project_changed_since_date() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto module = db.components().insertComponent(newModuleDto(project));
+    ComponentDto file = db.components().insertComponent(newFileDto(module, null));
+    db.issues().insert(rule, project, file, i -> i.setKee("OLD").setUpdatedAt(1_000L));
+    IssueDto changedIssue = db.issues().insert(rule, project, file, i -> i.setKee("CHANGED").setUpdatedAt(2_000L));
+    IssueDto closedIssue = db.issues().insert(rule, project, module, i -> i.setKee("CLOSED").setStatus("CLOSED").setResolution("FIXED").setUpdatedAt(3_000L));
+
+    addPermissionTo(project);
+    TestRequest request = tester.newRequest()
+      .setParam("key", project.getKey())
+      .setParam("changedSince", "2000");
+    try (CloseableIterator<ServerIssue> result = Protobuf.readStream(request.execute().getInputStream(), ServerIssue.parser())) {
+      assertThat(result)
+        .extracting(ServerIssue::getKey, ServerIssue::getStatus, ServerIssue::getUpdatedAt)
+        .containsExactlyInAnyOrder(
+          tuple(changedIssue.getKey(), changedIssue.getStatus(), 2_000L),
+          tuple(closedIssue.getKey(), "CLOSED", 3_000L));
+    }
+  }
+
+  @Test
+  public void return_issues_of_file_changed_since_date() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project, null));
+    db.issues().insert(rule, project, file, i -> i.setKee("OLD").setUpdatedAt(1_000L));
+    IssueDto changedIssue = db.issues().insert(rule, project, file, i -> i.setKee("CHANGED").setUpdatedAt(2_000L));
+
+    addPermissionTo(project);
+    TestRequest request = tester.newRequest()
+      .setParam("key", file.getKey())
+      .setParam("changedSince", "1500");
+    try (CloseableIterator<ServerIssue> result = Protobuf.readStream(request.execute().getInputStream(), ServerIssue.parser())) {
+      assertThat(result)
+        .extracting(ServerIssue::getKey)
+        .containsExactly(changedIssue.getKey());
+    }
+  }
+
   @Test
   public void return_issues_by_project_and_branch() {
     RuleDefinitionDto rule = db.rules().insert();
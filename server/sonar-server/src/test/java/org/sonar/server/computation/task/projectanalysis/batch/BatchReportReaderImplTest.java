@@ -21,12 +21,18 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 
 import java.io.File;
 import java.io.IOException;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 
@@ -53,15 +59,39 @@ public class BatchReportReaderImplTest {
 
   @Rule
   public JUnitTempFolder tempFolder = new JUnitTempFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
 
   private ScannerReportWriter writer;
-  private BatchReportReaderImpl underTest;
+  protected BatchReportReaderImpl underTest;
 
   @Before
   public void setUp() {
-    BatchReportDirectoryHolder holder = new ImmutableBatchReportDirectoryHolder(tempFolder.newDir());
-    underTest = new BatchReportReaderImpl(holder);
-    writer = new ScannerReportWriter(holder.getDirectory());
+    File reportDir = tempFolder.newDir();
+    writer = new ScannerReportWriter(reportDir);
+    // report is zipped when it is opened by the reader, ie. after it has been written by tests
+    underTest = new BatchReportReaderImpl(() -> {
+      File zipFile = tempFolder.newFile("report", ".zip");
+      try {
+        zipReport(reportDir, zipFile);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      return zipFile;
+    }, system2());
+  }
+
+  protected System2 system2() {
+    return System2.INSTANCE;
+  }
+
+  protected void zipReport(File reportDir, File zipFile) throws IOException {
+    ZipUtils.zipDir(reportDir, zipFile);
+  }
+
+  @After
+  public void tearDown() {
+    underTest.stop();
   }
 
   @Test(expected = IllegalStateException.class)
@@ -287,6 +317,20 @@ public class BatchReportReaderImplTest {
     res.close();
   }
 
+  @Test
+  public void readHash_returns_absent_optional_when_file_does_not_exist() {
+    assertThat(underTest.readHash(Domain.SOURCE, COMPONENT_REF)).isEmpty();
+  }
+
+  @Test
+  public void verify_readHash() throws IOException {
+    File file = writer.getSourceFile(COMPONENT_REF);
+    FileUtils.write(file, "1\n2\n3");
+
+    assertThat(underTest.readHash(Domain.SOURCE, COMPONENT_REF)).contains(DigestUtils.md5Hex("1\n2\n3"));
+    assertThat(underTest.readHash(Domain.COVERAGES, COMPONENT_REF)).isEmpty();
+  }
+
   @Test
   public void readTests_returns_empty_CloseableIterator_when_file_does_not_exist() {
     assertThat(underTest.readTests(COMPONENT_REF)).isEmpty();
@@ -314,4 +358,16 @@ public class BatchReportReaderImplTest {
     assertThat(res).containsExactly(COVERAGE_DETAIL_1, COVERAGE_DETAIL_2);
     res.close();
   }
+
+  @Test
+  public void fail_with_ISE_if_report_is_not_a_zip_file() throws IOException {
+    File notAZip = tempFolder.newFile();
+    FileUtils.write(notAZip, "not a zip");
+    BatchReportReaderImpl reader = new BatchReportReaderImpl(() -> notAZip, System2.INSTANCE);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to open analysis report " + notAZip);
+
+    reader.readMetadata();
+  }
 }
@@ -19,23 +19,21 @@
  */
 package org.sonar.server.computation.task.projectanalysis.batch;
 
-import java.io.File;
-import java.util.Objects;
+import org.sonar.api.utils.System2;
 
-public class BatchReportDirectoryHolderImpl implements MutableBatchReportDirectoryHolder {
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
-  private File directory;
-
-  @Override
-  public void setDirectory(File newDirectory) {
-    this.directory = Objects.requireNonNull(newDirectory);
-  }
+/**
+ * Same tests as {@link BatchReportReaderImplWithContainerTest}, with data of the container read from the zip file
+ * instead of being memory mapped
+ */
+public class BatchReportReaderImplWithContainerOnWindowsTest extends BatchReportReaderImplWithContainerTest {
 
   @Override
-  public File getDirectory() {
-    if (this.directory == null) {
-      throw new IllegalStateException("Directory has not been set yet");
-    }
-    return this.directory;
+  protected System2 system2() {
+    System2 system2 = mock(System2.class);
+    when(system2.isOsWindows()).thenReturn(true);
+    return system2;
   }
 }
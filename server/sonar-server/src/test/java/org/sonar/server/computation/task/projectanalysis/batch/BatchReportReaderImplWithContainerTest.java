@@ -0,0 +1,52 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.sonar.scanner.protocol.output.ReportContainer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Same tests as {@link BatchReportReaderImplTest}, with data of components packed in a {@link ReportContainer}
+ */
+public class BatchReportReaderImplWithContainerTest extends BatchReportReaderImplTest {
+
+  private File zipDir;
+
+  @Override
+  protected void zipReport(File reportDir, File zipFile) throws IOException {
+    try (OutputStream output = FileUtils.openOutputStream(zipFile)) {
+      ReportContainer.zip(reportDir, output);
+    }
+    zipDir = zipFile.getParentFile();
+  }
+
+  @Test
+  public void container_is_read_in_place_without_extracting_files() {
+    underTest.readComponentIssues(1);
+
+    assertThat(zipDir.list((dir, name) -> name.endsWith(".data") || name.endsWith(".idx"))).isEmpty();
+  }
+}
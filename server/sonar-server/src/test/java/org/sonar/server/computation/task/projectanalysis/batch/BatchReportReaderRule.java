@@ -29,10 +29,12 @@ import java.util.Objects;
 import java.util.Optional;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
 public class BatchReportReaderRule implements TestRule, BatchReportReader {
@@ -263,6 +265,31 @@ public class BatchReportReaderRule implements TestRule, BatchReportReader {
     return this;
   }
 
+  @Override
+  public Optional<String> readHash(FileStructure.Domain domain, int componentRef) {
+    Object content;
+    switch (domain) {
+      case SOURCE:
+        content = fileSources.get(componentRef);
+        break;
+      case CHANGESETS:
+        content = changesets.get(componentRef);
+        break;
+      case SYNTAX_HIGHLIGHTINGS:
+        content = syntaxHighlightings.get(componentRef);
+        break;
+      case SYMBOLS:
+        content = symbols.get(componentRef);
+        break;
+      case COVERAGES:
+        content = coverages.get(componentRef);
+        break;
+      default:
+        throw new UnsupportedOperationException("Hash of domain " + domain + " is not supported");
+    }
+    return content == null ? Optional.empty() : Optional.of(DigestUtils.md5Hex(content.toString()));
+  }
+
   @Override
   public CloseableIterator<ScannerReport.Test> readTests(int testFileRef) {
     List<ScannerReport.Test> res = this.tests.get(testFileRef);
@@ -0,0 +1,125 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import org.sonar.server.computation.task.projectanalysis.filemove.FileSimilarity.File;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.filemove.FileMoveDetectionStep.MIN_REQUIRED_SCORE;
+
+public class AddedFileIndexTest {
+
+  private static final List<String> CONTENT = asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m", "n", "o", "p", "q", "r", "s", "t");
+
+  private FileSimilarity fileSimilarity = new FileSimilarityImpl(new SourceSimilarityImpl());
+
+  @Test
+  public void getCandidates_returns_files_with_same_content() {
+    AddedFileIndex underTest = AddedFileIndex.create(ImmutableMap.of(
+      "1", file(CONTENT),
+      "2", file(asList("x", "y", "z")),
+      "3", file(CONTENT)));
+
+    assertThat(underTest.getCandidates(file(CONTENT))).containsExactly("1", "3");
+    assertThat(underTest.getFile("2").getLineHashes()).containsExactly("x", "y", "z");
+  }
+
+  @Test
+  public void getCandidates_ignores_files_with_too_different_number_of_lines() {
+    List<String> truncated = CONTENT.subList(0, 10);
+    AddedFileIndex underTest = AddedFileIndex.create(ImmutableMap.of("1", file(truncated)));
+
+    assertThat(underTest.getCandidates(file(CONTENT))).isEmpty();
+  }
+
+  @Test
+  public void getCandidates_ignores_files_without_common_lines() {
+    AddedFileIndex underTest = AddedFileIndex.create(ImmutableMap.of("1", file(asList("x", "y", "z"))));
+
+    assertThat(underTest.getCandidates(file(asList("a", "b", "c")))).isEmpty();
+  }
+
+  @Test
+  public void getCandidates_ignores_empty_files() {
+    AddedFileIndex underTest = AddedFileIndex.create(ImmutableMap.of("1", file(emptyList())));
+
+    assertThat(underTest.getCandidates(file(emptyList()))).isEmpty();
+    assertThat(underTest.getCandidates(file(CONTENT))).isEmpty();
+  }
+
+  @Test
+  public void getCandidates_returns_all_files_which_score_is_greater_or_equal_to_min_required_score() {
+    Random random = new Random(42);
+    List<File> removedFiles = new ArrayList<>();
+    Map<String, File> addedFiles = new LinkedHashMap<>();
+    for (int i = 0; i < 50; i++) {
+      List<String> lines = randomLines(random, 20 + random.nextInt(40));
+      removedFiles.add(file(lines));
+      addedFiles.put("original" + i, file(lines));
+      addedFiles.put("modified" + i, file(modify(random, lines)));
+    }
+    AddedFileIndex underTest = AddedFileIndex.create(addedFiles);
+
+    int similarFiles = 0;
+    for (File removedFile : removedFiles) {
+      List<String> candidates = underTest.getCandidates(removedFile);
+      for (Map.Entry<String, File> addedFile : addedFiles.entrySet()) {
+        if (fileSimilarity.score(removedFile, addedFile.getValue()) >= MIN_REQUIRED_SCORE) {
+          assertThat(candidates).contains(addedFile.getKey());
+          similarFiles++;
+        }
+      }
+    }
+    assertThat(similarFiles).isGreaterThan(removedFiles.size());
+  }
+
+  private static List<String> randomLines(Random random, int count) {
+    List<String> lines = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      // few distinct lines, so that files share many lines
+      lines.add(String.valueOf(random.nextInt(8)));
+    }
+    return lines;
+  }
+
+  private static List<String> modify(Random random, List<String> lines) {
+    List<String> res = new ArrayList<>(lines);
+    for (int i = 0; i < 1 + random.nextInt(3); i++) {
+      res.set(random.nextInt(res.size()), "modified" + i);
+    }
+    if (random.nextBoolean()) {
+      res.remove(0);
+    }
+    return res;
+  }
+
+  private static File file(List<String> lineHashes) {
+    return new File("path", lineHashes);
+  }
+}
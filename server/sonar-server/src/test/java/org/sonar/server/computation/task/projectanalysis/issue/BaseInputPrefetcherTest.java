@@ -0,0 +1,155 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
+import org.sonar.core.issue.tracking.LazyInput;
+import org.sonar.core.issue.tracking.LineHashSequence;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
+
+public class BaseInputPrefetcherTest {
+  private static final Component FILE_1 = builder(Component.Type.FILE, 3).setUuid("FILE_1").setKey("FILE_KEY_1").build();
+  private static final Component FILE_2 = builder(Component.Type.FILE, 4).setUuid("FILE_2").setKey("FILE_KEY_2").build();
+  private static final Component FILE_3 = builder(Component.Type.FILE, 5).setUuid("FILE_3").setKey("FILE_KEY_3").build();
+  private static final Component ROOT = builder(Component.Type.PROJECT, 1)
+    .addChildren(builder(Component.Type.DIRECTORY, 2).addChildren(FILE_1, FILE_2, FILE_3).build())
+    .build();
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private Map<String, String> loadingThreadByFileUuid = new ConcurrentHashMap<>();
+  private BaseInputPrefetcher underTest;
+
+  @After
+  public void tearDown() {
+    if (underTest != null) {
+      underTest.close();
+    }
+  }
+
+  @Test
+  public void fail_if_thread_count_is_not_positive() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Thread count must be strictly positive");
+
+    new BaseInputPrefetcher(ROOT, 0, this::newInput);
+  }
+
+  @Test
+  public void take_returns_input_loaded_by_pool_and_loads_line_hashes_only_when_there_are_issues() {
+    underTest = new BaseInputPrefetcher(ROOT, 2, this::newInput);
+
+    TestInput input1 = (TestInput) underTest.take(FILE_1);
+    TestInput input2 = (TestInput) underTest.take(FILE_2);
+    TestInput input3 = (TestInput) underTest.take(FILE_3);
+
+    assertThat(input1.file).isSameAs(FILE_1);
+    assertThat(input2.file).isSameAs(FILE_2);
+    assertThat(input3.file).isSameAs(FILE_3);
+    assertThat(input1.lineHashesLoaded).isTrue();
+    assertThat(input2.lineHashesLoaded).isFalse();
+    assertThat(loadingThreadByFileUuid.values())
+      .hasSize(3)
+      .allMatch(threadName -> threadName.startsWith("CE_IssueTracking_"));
+  }
+
+  @Test
+  public void take_loads_input_in_calling_thread_when_file_is_not_prefetched() {
+    Component otherFile = builder(Component.Type.FILE, 12).setUuid("OTHER").build();
+    underTest = new BaseInputPrefetcher(ROOT, 2, this::newInput);
+
+    TestInput input = (TestInput) underTest.take(otherFile);
+
+    assertThat(input.file).isSameAs(otherFile);
+    assertThat(loadingThreadByFileUuid.get("OTHER")).isEqualTo(Thread.currentThread().getName());
+  }
+
+  @Test
+  public void inputs_of_files_skipped_by_crawler_do_not_prevent_prefetching_of_next_files() {
+    Component file4 = builder(Component.Type.FILE, 6).setUuid("FILE_4").build();
+    Component file5 = builder(Component.Type.FILE, 7).setUuid("FILE_5").build();
+    Component root = builder(Component.Type.PROJECT, 1)
+      .addChildren(builder(Component.Type.DIRECTORY, 2).addChildren(FILE_1, FILE_2, FILE_3, file4, file5).build())
+      .build();
+    underTest = new BaseInputPrefetcher(root, 1, this::newInput);
+
+    underTest.take(FILE_2);
+    underTest.take(file4);
+    underTest.take(file5);
+
+    assertThat(loadingThreadByFileUuid.get("FILE_2")).startsWith("CE_IssueTracking_");
+    assertThat(loadingThreadByFileUuid.get("FILE_4")).startsWith("CE_IssueTracking_");
+    assertThat(loadingThreadByFileUuid.get("FILE_5")).startsWith("CE_IssueTracking_");
+  }
+
+  @Test
+  public void take_fails_with_ISE_when_input_can_not_be_loaded() {
+    underTest = new BaseInputPrefetcher(ROOT, 2, file -> {
+      throw new IllegalArgumentException("DB is down");
+    });
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to load base issues of file FILE_KEY_1");
+
+    underTest.take(FILE_1);
+  }
+
+  private Input<DefaultIssue> newInput(Component file) {
+    loadingThreadByFileUuid.put(file.getUuid(), Thread.currentThread().getName());
+    return new TestInput(file);
+  }
+
+  private static class TestInput extends LazyInput<DefaultIssue> {
+    private final Component file;
+    private volatile boolean lineHashesLoaded = false;
+
+    private TestInput(Component file) {
+      this.file = file;
+    }
+
+    @Override
+    protected LineHashSequence loadLineHashSequence() {
+      lineHashesLoaded = true;
+      return new LineHashSequence(Collections.emptyList());
+    }
+
+    @Override
+    protected List<DefaultIssue> loadIssues() {
+      if (file == FILE_1) {
+        return singletonList(new DefaultIssue());
+      }
+      return Collections.emptyList();
+    }
+  }
+}
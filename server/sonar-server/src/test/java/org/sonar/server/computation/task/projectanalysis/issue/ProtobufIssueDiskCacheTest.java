@@ -0,0 +1,240 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.io.File;
+import java.util.Date;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.util.cache.DiskCache;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class ProtobufIssueDiskCacheTest {
+
+  private static final Date SOME_DATE = new Date(1_500_000_000_000L);
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private ProtobufIssueDiskCache underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new ProtobufIssueDiskCache(temp.newFile(), System2.INSTANCE);
+  }
+
+  @Test
+  public void traverse_empty_cache() {
+    try (CloseableIterator<DefaultIssue> traverse = underTest.traverse()) {
+      assertThat(traverse).isEmpty();
+    }
+  }
+
+  @Test
+  public void traverse_issues_in_order_of_appending() {
+    try (DiskCache.DiskAppender<DefaultIssue> appender = underTest.newAppender()) {
+      appender.append(new DefaultIssue().setKey("ISSUE1")).append(new DefaultIssue().setKey("ISSUE2"));
+    }
+    try (DiskCache.DiskAppender<DefaultIssue> appender = underTest.newAppender()) {
+      appender.append(new DefaultIssue().setKey("ISSUE3"));
+    }
+
+    try (CloseableIterator<DefaultIssue> traverse = underTest.traverse()) {
+      assertThat(newArrayList(traverse)).extracting(DefaultIssue::key).containsExactly("ISSUE1", "ISSUE2", "ISSUE3");
+    }
+  }
+
+  @Test
+  public void constructor_truncates_existing_file() throws Exception {
+    File file = temp.newFile();
+    try (DiskCache.DiskAppender<DefaultIssue> appender = new ProtobufIssueDiskCache(file, System2.INSTANCE).newAppender()) {
+      appender.append(new DefaultIssue().setKey("ISSUE1"));
+    }
+
+    try (CloseableIterator<DefaultIssue> traverse = new ProtobufIssueDiskCache(file, System2.INSTANCE).traverse()) {
+      assertThat(traverse).isEmpty();
+    }
+  }
+
+  @Test
+  public void fail_if_file_is_not_writable() throws Exception {
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to write into file");
+
+    new ProtobufIssueDiskCache(temp.newFolder(), System2.INSTANCE);
+  }
+
+  @Test
+  public void read_back_all_fields() {
+    DbIssues.Locations locations = DbIssues.Locations.newBuilder()
+      .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(3).setEndLine(4))
+      .build();
+    FieldDiffs previousChange = new FieldDiffs().setIssueKey("ISSUE1").setUserLogin("john").setCreationDate(SOME_DATE)
+      .setDiff("severity", "MINOR", "MAJOR");
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE1")
+      .setType(RuleType.VULNERABILITY)
+      .setComponentUuid("FILE_UUID")
+      .setComponentKey("FILE_KEY")
+      .setModuleUuid("MODULE_UUID")
+      .setModuleUuidPath(".MODULE_UUID.")
+      .setProjectUuid("PROJECT_UUID")
+      .setProjectKey("PROJECT_KEY")
+      .setRuleKey(RuleKey.of("xoo", "S001"))
+      .setLanguage("xoo")
+      .setSeverity("MAJOR")
+      .setManualSeverity(true)
+      .setMessage("the message")
+      .setLine(42)
+      .setGap(1.5)
+      .setEffort(Duration.create(10L))
+      .setStatus("RESOLVED")
+      .setResolution("FIXED")
+      .setAssignee("simon")
+      .setChecksum("abcde")
+      .setAttribute("jira", "SONAR-1")
+      .setAuthorLogin("julien")
+      .setTags(newArrayList("tag1", "tag2"))
+      .setLocations(locations)
+      .setCreationDate(SOME_DATE)
+      .setUpdateDate(SOME_DATE)
+      .setCloseDate(SOME_DATE)
+      .setNew(false)
+      .setCopied(true)
+      .setBeingClosed(true)
+      .setOnDisabledRule(true)
+      .setChanged(true)
+      .setSendNotifications(true)
+      .setSelectedAt(1_000L)
+      .addChange(previousChange)
+      .setCurrentChange(new FieldDiffs().setUserLogin("simon").setCreationDate(SOME_DATE)
+        .setDiff("status", "OPEN", "RESOLVED")
+        .setDiff("effort", null, 10L))
+      .addComment(new DefaultIssueComment().setKey("COMMENT1").setIssueKey("ISSUE1").setUserLogin("john")
+        .setMarkdownText("a comment").setCreatedAt(SOME_DATE).setUpdatedAt(SOME_DATE).setNew(true));
+
+    DefaultIssue read = writeAndRead(issue);
+
+    assertThat(read.key()).isEqualTo("ISSUE1");
+    assertThat(read.type()).isEqualTo(RuleType.VULNERABILITY);
+    assertThat(read.componentUuid()).isEqualTo("FILE_UUID");
+    assertThat(read.componentKey()).isEqualTo("FILE_KEY");
+    assertThat(read.moduleUuid()).isEqualTo("MODULE_UUID");
+    assertThat(read.moduleUuidPath()).isEqualTo(".MODULE_UUID.");
+    assertThat(read.projectUuid()).isEqualTo("PROJECT_UUID");
+    assertThat(read.projectKey()).isEqualTo("PROJECT_KEY");
+    assertThat(read.ruleKey()).isEqualTo(RuleKey.of("xoo", "S001"));
+    assertThat(read.language()).isEqualTo("xoo");
+    assertThat(read.severity()).isEqualTo("MAJOR");
+    assertThat(read.manualSeverity()).isTrue();
+    assertThat(read.message()).isEqualTo("the message");
+    assertThat(read.line()).isEqualTo(42);
+    assertThat(read.gap()).isEqualTo(1.5);
+    assertThat(read.effortInMinutes()).isEqualTo(10L);
+    assertThat(read.status()).isEqualTo("RESOLVED");
+    assertThat(read.resolution()).isEqualTo("FIXED");
+    assertThat(read.assignee()).isEqualTo("simon");
+    assertThat(read.checksum()).isEqualTo("abcde");
+    assertThat(read.attributes()).containsOnly(entry("jira", "SONAR-1"));
+    assertThat(read.authorLogin()).isEqualTo("julien");
+    assertThat(read.tags()).containsExactly("tag1", "tag2");
+    assertThat((DbIssues.Locations) read.getLocations()).isEqualTo(locations);
+    assertThat(read.creationDate()).isEqualTo(SOME_DATE);
+    assertThat(read.updateDate()).isEqualTo(SOME_DATE);
+    assertThat(read.closeDate()).isEqualTo(SOME_DATE);
+    assertThat(read.isNew()).isFalse();
+    assertThat(read.isCopied()).isTrue();
+    assertThat(read.isBeingClosed()).isTrue();
+    assertThat(read.isOnDisabledRule()).isTrue();
+    assertThat(read.isChanged()).isTrue();
+    assertThat(read.mustSendNotifications()).isTrue();
+    assertThat(read.selectedAt()).isEqualTo(1_000L);
+
+    assertThat(read.currentChange().toString()).isEqualTo("status=OPEN|RESOLVED,effort=10");
+    assertThat(read.currentChange().userLogin()).isEqualTo("simon");
+    assertThat(read.currentChange().creationDate()).isEqualTo(SOME_DATE);
+    assertThat(read.currentChange().get("effort").newValueLong()).isEqualTo(10L);
+    assertThat(read.currentChange().get("effort").oldValue()).isNull();
+    assertThat(read.changes()).extracting(FieldDiffs::toString).containsExactly("severity=MINOR|MAJOR", "status=OPEN|RESOLVED,effort=10");
+    assertThat(read.changes().get(0).issueKey()).isEqualTo("ISSUE1");
+
+    assertThat(read.comments()).hasSize(1);
+    DefaultIssueComment comment = (DefaultIssueComment) read.comments().get(0);
+    assertThat(comment.key()).isEqualTo("COMMENT1");
+    assertThat(comment.issueKey()).isEqualTo("ISSUE1");
+    assertThat(comment.userLogin()).isEqualTo("john");
+    assertThat(comment.markdownText()).isEqualTo("a comment");
+    assertThat(comment.createdAt()).isEqualTo(SOME_DATE);
+    assertThat(comment.updatedAt()).isEqualTo(SOME_DATE);
+    assertThat(comment.isNew()).isTrue();
+  }
+
+  @Test
+  public void read_back_issue_with_only_mandatory_fields() {
+    DefaultIssue read = writeAndRead(new DefaultIssue().setKey("ISSUE1"));
+
+    assertThat(read.key()).isEqualTo("ISSUE1");
+    assertThat(read.type()).isNull();
+    assertThat(read.ruleKey()).isNull();
+    assertThat(read.line()).isNull();
+    assertThat(read.gap()).isNull();
+    assertThat(read.effort()).isNull();
+    assertThat(read.creationDate()).isNull();
+    assertThat(read.updateDate()).isNull();
+    assertThat(read.closeDate()).isNull();
+    assertThat(read.selectedAt()).isNull();
+    assertThat((Object) read.getLocations()).isNull();
+    assertThat(read.currentChange()).isNull();
+    assertThat(read.changes()).isEmpty();
+    assertThat(read.comments()).isEmpty();
+    assertThat(read.tags()).isEmpty();
+    assertThat(read.attributes()).isEmpty();
+    assertThat(read.isNew()).isTrue();
+  }
+
+  private DefaultIssue writeAndRead(DefaultIssue issue) {
+    try (DiskCache.DiskAppender<DefaultIssue> appender = underTest.newAppender()) {
+      appender.append(issue);
+    }
+    try (CloseableIterator<DefaultIssue> traverse = underTest.traverse()) {
+      DefaultIssue read = traverse.next();
+      assertThat(traverse.hasNext()).isFalse();
+      return read;
+    }
+  }
+}
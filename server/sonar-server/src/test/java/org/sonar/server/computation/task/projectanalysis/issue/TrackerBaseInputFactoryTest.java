@@ -21,14 +21,18 @@ package org.sonar.server.computation.task.projectanalysis.issue;
 
 import com.google.common.base.Optional;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.source.FileSourceDao;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -46,6 +50,9 @@ public class TrackerBaseInputFactoryTest {
 
   private MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
 
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
+
   private TrackerBaseInputFactory underTest = new TrackerBaseInputFactory(issuesLoader, dbClient, movedFilesRepository);
 
   @Before
@@ -95,4 +102,20 @@ public class TrackerBaseInputFactoryTest {
     verify(issuesLoader).loadForComponentUuid(originalUuid);
     verify(issuesLoader, times(0)).loadForComponentUuid(FILE_UUID);
   }
+
+  @Test
+  public void create_returns_Input_loaded_in_advance_when_loader_thread_count_is_greater_than_one() {
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 2).addChildren(FILE).build());
+    MapSettings settings = new MapSettings().setProperty(TrackerBaseInputFactory.LOADER_THREAD_COUNT_PROPERTY, 2);
+    TrackerBaseInputFactory prefetchingUnderTest = new TrackerBaseInputFactory(issuesLoader, dbClient, movedFilesRepository, treeRootHolder,
+      settings.asConfig());
+
+    try {
+      assertThat(prefetchingUnderTest.create(FILE).getIssues()).isEmpty();
+
+      verify(issuesLoader).loadForComponentUuid(FILE_UUID);
+    } finally {
+      prefetchingUnderTest.stop();
+    }
+  }
 }
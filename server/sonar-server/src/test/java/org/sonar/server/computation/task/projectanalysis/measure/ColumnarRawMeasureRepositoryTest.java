@@ -23,6 +23,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.SetMultimap;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
@@ -60,7 +61,7 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(DataProviderRunner.class)
-public class MapBasedRawMeasureRepositoryTest {
+public class ColumnarRawMeasureRepositoryTest {
   @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
   @Rule
@@ -83,12 +84,7 @@ public class MapBasedRawMeasureRepositoryTest {
   private ReportMetricValidator reportMetricValidator = mock(ReportMetricValidator.class);
 
   private MetricRepository metricRepository = mock(MetricRepository.class);
-  private MapBasedRawMeasureRepository<Integer> underTest = new MapBasedRawMeasureRepository<>(new Function<Component, Integer>() {
-    @Override
-    public Integer apply(Component component) {
-      return component.getReportAttributes().getRef();
-    }
-  });
+  private ColumnarRawMeasureRepository underTest = new ColumnarRawMeasureRepository();
 
   private DbClient mockedDbClient = mock(DbClient.class);
   private BatchReportReader mockBatchReportReader = mock(BatchReportReader.class);
@@ -291,4 +287,87 @@ public class MapBasedRawMeasureRepositoryTest {
     assertThat(measures.iterator().next()).isSameAs(devMeasure);
   }
 
+  @Test
+  @UseDataProvider("measures")
+  public void getRawMeasure_returns_measure_with_same_value_as_added_one(Measure measure) {
+    Metric metric = new MetricImpl(1, "key", "name", metricTypeOf(measure));
+
+    underTest.add(FILE_COMPONENT, metric, measure);
+
+    Measure res = underTest.getRawMeasure(FILE_COMPONENT, metric).get();
+    assertThat(res.toString()).isEqualTo(measure.toString());
+  }
+
+  @Test
+  public void getRawMeasure_returns_numerical_measure_with_variation() {
+    Metric metric = new MetricImpl(1, "key", "name", Metric.MetricType.INT);
+    Measure measure = Measure.newMeasureBuilder().setVariation(-5.2d).create(12);
+
+    underTest.add(FILE_COMPONENT, metric, measure);
+    underTest.add(OTHER_COMPONENT, metric, Measure.newMeasureBuilder().create(3));
+
+    Measure res = underTest.getRawMeasure(FILE_COMPONENT, metric).get();
+    assertThat(res.getIntValue()).isEqualTo(12);
+    assertThat(res.getVariation()).isEqualTo(-5.2d);
+    assertThat(underTest.getRawMeasure(OTHER_COMPONENT, metric).get().hasVariation()).isFalse();
+  }
+
+  @Test
+  public void getRawMeasure_returns_measures_of_components_with_large_refs() {
+    Metric metric = new MetricImpl(1, "key", "name", Metric.MetricType.FLOAT);
+    ReportComponent file = ReportComponent.builder(Component.Type.FILE, 10_000).setKey("large ref").build();
+
+    underTest.add(FILE_COMPONENT, metric, Measure.newMeasureBuilder().create(1.5d, 1));
+    underTest.add(file, metric, Measure.newMeasureBuilder().setVariation(2d).create(2.5d, 1));
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric).get().getDoubleValue()).isEqualTo(1.5d);
+    assertThat(underTest.getRawMeasure(file, metric).get().getDoubleValue()).isEqualTo(2.5d);
+    assertThat(underTest.getRawMeasure(file, metric).get().getVariation()).isEqualTo(2d);
+  }
+
+  @Test
+  public void update_replaces_data_measure_by_numerical_measure() {
+    Metric metric = new MetricImpl(1, "key", "name", Metric.MetricType.INT);
+
+    underTest.add(FILE_COMPONENT, metric, Measure.newMeasureBuilder().create(1, "some data"));
+    underTest.update(FILE_COMPONENT, metric, Measure.newMeasureBuilder().create(2));
+
+    Measure res = underTest.getRawMeasure(FILE_COMPONENT, metric).get();
+    assertThat(res.getIntValue()).isEqualTo(2);
+    assertThat(res.getData()).isNull();
+  }
+
+  @Test
+  public void getRawMeasures_returns_measures_of_all_metrics_including_developer_ones() {
+    Measure devMeasure = Measure.newMeasureBuilder().forDeveloper(SOME_DEVELOPER).createNoValue();
+    underTest.add(FILE_COMPONENT, metric1, SOME_MEASURE);
+    underTest.add(FILE_COMPONENT, metric1, devMeasure);
+    underTest.add(FILE_COMPONENT, metric2, Measure.newMeasureBuilder().create("other value"));
+    underTest.add(OTHER_COMPONENT, metric2, Measure.newMeasureBuilder().create("value of other component"));
+
+    SetMultimap<String, Measure> measures = underTest.getRawMeasures(FILE_COMPONENT);
+
+    assertThat(measures.keySet()).containsOnly(METRIC_KEY_1, METRIC_KEY_2);
+    assertThat(measures.get(METRIC_KEY_1)).containsOnly(SOME_MEASURE, devMeasure);
+    assertThat(measures.get(METRIC_KEY_2)).extracting(Measure::getStringValue).containsOnly("other value");
+  }
+
+  @Test
+  public void add_with_DO_NOT_OVERRIDE_policy_keeps_existing_measure() {
+    Metric metric = new MetricImpl(1, "key", "name", Metric.MetricType.INT);
+    underTest.add(FILE_COMPONENT, metric, Measure.newMeasureBuilder().create(1));
+
+    underTest.add(FILE_COMPONENT, metric, Measure.newMeasureBuilder().create(2), ColumnarRawMeasureRepository.OverridePolicy.DO_NOT_OVERRIDE);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric).get().getIntValue()).isEqualTo(1);
+  }
+
+  private static Metric.MetricType metricTypeOf(Measure measure) {
+    for (Metric.MetricType metricType : Metric.MetricType.values()) {
+      if (metricType.getValueType() == measure.getValueType()) {
+        return metricType;
+      }
+    }
+    return Metric.MetricType.INT;
+  }
 }
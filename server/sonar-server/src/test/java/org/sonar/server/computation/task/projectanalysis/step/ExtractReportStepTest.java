@@ -35,8 +35,8 @@ import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeTaskTypes;
-import org.sonar.server.computation.task.projectanalysis.batch.BatchReportDirectoryHolderImpl;
-import org.sonar.server.computation.task.projectanalysis.batch.MutableBatchReportDirectoryHolder;
+import org.sonar.server.computation.task.projectanalysis.batch.BatchReportFileHolderImpl;
+import org.sonar.server.computation.task.projectanalysis.batch.MutableBatchReportFileHolder;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -56,10 +56,10 @@ public class ExtractReportStepTest {
   @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
 
-  private MutableBatchReportDirectoryHolder reportDirectoryHolder = new BatchReportDirectoryHolderImpl();
+  private MutableBatchReportFileHolder reportFileHolder = new BatchReportFileHolderImpl();
   private CeTask ceTask = new CeTask.Builder().setOrganizationUuid("org1").setType(CeTaskTypes.REPORT).setUuid(TASK_UUID).build();
 
-  private ExtractReportStep underTest = new ExtractReportStep(dbTester.getDbClient(), ceTask, tempFolder, reportDirectoryHolder);
+  private ExtractReportStep underTest = new ExtractReportStep(dbTester.getDbClient(), ceTask, tempFolder, reportFileHolder);
 
   @Test
   public void fail_if_report_zip_does_not_exist() {
@@ -70,7 +70,7 @@ public class ExtractReportStepTest {
   }
 
   @Test
-  public void unzip_report() throws Exception {
+  public void copy_report_zip_without_extracting_it() throws Exception {
     File reportFile = generateReport();
     try (InputStream input = FileUtils.openInputStream(reportFile)) {
       dbTester.getDbClient().ceTaskInputDao().insert(dbTester.getSession(), TASK_UUID, input);
@@ -80,11 +80,9 @@ public class ExtractReportStepTest {
 
     underTest.execute();
 
-    // directory contains the uncompressed report (which contains only metadata.pb in this test)
-    File unzippedDir = reportDirectoryHolder.getDirectory();
-    assertThat(unzippedDir).isDirectory().exists();
-    assertThat(unzippedDir.listFiles()).hasSize(1);
-    assertThat(new File(unzippedDir, "metadata.pb")).hasContent("{metadata}");
+    File zipFile = reportFileHolder.getZipFile();
+    assertThat(zipFile).isFile().exists();
+    assertThat(FileUtils.contentEquals(zipFile, reportFile)).isTrue();
   }
 
   private File generateReport() throws IOException {
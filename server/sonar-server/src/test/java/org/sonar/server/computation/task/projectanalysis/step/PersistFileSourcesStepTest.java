@@ -45,12 +45,16 @@ import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplic
 import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
 import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepository;
+import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepositoryImpl;
+import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryRule;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class PersistFileSourcesStepTest extends BaseStepTest {
@@ -81,6 +85,9 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   @Rule
   public DuplicationRepositoryRule duplicationRepository = DuplicationRepositoryRule.create(treeRootHolder);
 
+  // hashes are not cached, as tests change sources between executions of the step
+  private SourceHashRepository sourceHashRepository = file -> new SourceHashRepositoryImpl(fileSourceRepository).getRawSourceHash(file);
+
   private DbClient dbClient = dbTester.getDbClient();
   private DbSession session = dbTester.getSession();
 
@@ -89,8 +96,8 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   @Before
   public void setup() {
     when(system2.now()).thenReturn(NOW);
-    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, fileSourceRepository, scmInfoRepository,
-      duplicationRepository);
+    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, fileSourceRepository, sourceHashRepository,
+      scmInfoRepository, duplicationRepository);
   }
 
   @Override
@@ -283,7 +290,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     long past = 150000L;
     String srcHash = "137f72c3708c6bd0de00a0e5a69c699b";
     String lineHashes = "137f72c3708c6bd0de00a0e5a69c699b";
-    String dataHash = "29f25900140c94db38035128cb6de6a2";
+    String dataHash = "8e625978eb1e868316ae9761be6396ce";
 
     dbClient.fileSourceDao().insert(dbTester.getSession(), new FileSourceDto()
       .setProjectUuid(PROJECT_UUID)
@@ -313,6 +320,8 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getDataHash()).isEqualTo(dataHash);
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(past);
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(past);
+    // missing inputs hash is set without changing the date of update
+    assertThat(fileSourceDto.getInputsHash()).isNotNull();
   }
 
   @Test
@@ -458,6 +467,83 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getRevision()).isNull();
   }
 
+  @Test
+  public void persist_inputs_hash() {
+    initBasicReport(1);
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getInputsHash()).hasSize(32);
+  }
+
+  @Test
+  public void do_not_read_sources_when_inputs_hash_has_not_changed() {
+    initBasicReport(1);
+    underTest.execute();
+    FileSourceDto before = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+
+    SourceLinesRepository sourceLinesRepository = mock(SourceLinesRepository.class);
+    when(system2.now()).thenReturn(NOW + 1);
+    new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, sourceLinesRepository, sourceHashRepository, scmInfoRepository,
+      duplicationRepository).execute();
+
+    verifyZeroInteractions(sourceLinesRepository);
+    FileSourceDto after = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+    assertThat(after.getUpdatedAt()).isEqualTo(NOW);
+    assertThat(after.getDataHash()).isEqualTo(before.getDataHash());
+  }
+
+  @Test
+  public void update_sources_when_source_changed_with_same_number_of_lines() {
+    initBasicReport(1);
+    underTest.execute();
+    String inputsHash = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID).getInputsHash();
+
+    SourceLinesRepositoryRule changedSources = new SourceLinesRepositoryRule().addLine(FILE1_REF, "changed");
+    when(system2.now()).thenReturn(NOW + 1);
+    new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, changedSources, new SourceHashRepositoryImpl(changedSources), scmInfoRepository,
+      duplicationRepository).execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW + 1);
+    assertThat(fileSourceDto.getInputsHash()).isNotEqualTo(inputsHash);
+    assertThat(fileSourceDto.getSourceData().getLines(0).getSource()).isEqualTo("changed");
+  }
+
+  @Test
+  public void update_sources_when_coverage_changed_with_same_source() {
+    initBasicReport(1);
+    underTest.execute();
+    String inputsHash = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID).getInputsHash();
+
+    reportReader.putCoverage(FILE1_REF, newArrayList(ScannerReport.LineCoverage.newBuilder()
+      .setLine(1)
+      .setHits(true)
+      .build()));
+    when(system2.now()).thenReturn(NOW + 1);
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW + 1);
+    assertThat(fileSourceDto.getInputsHash()).isNotEqualTo(inputsHash);
+    assertThat(fileSourceDto.getSourceData().getLines(0).getLineHits()).isEqualTo(1);
+  }
+
+  @Test
+  public void update_sources_when_duplications_changed_with_same_source() {
+    initBasicReport(2);
+    underTest.execute();
+
+    duplicationRepository.add(FILE1_REF, new Duplication(new TextBlock(1, 1), Arrays.asList(new InnerDuplicate(new TextBlock(2, 2)))));
+    when(system2.now()).thenReturn(NOW + 1);
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW + 1);
+    assertThat(fileSourceDto.getSourceData().getLines(0).getDuplicationList()).containsExactly(1);
+  }
+
   private void initBasicReport(int numberOfLines) {
     treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(
       ReportComponent.builder(Component.Type.MODULE, 2).setUuid("MODULE").setKey("MODULE_KEY").addChildren(
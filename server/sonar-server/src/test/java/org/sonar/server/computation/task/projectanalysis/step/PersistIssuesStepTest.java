@@ -33,6 +33,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.DefaultIssueComment;
 import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.BatchSession;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
@@ -248,7 +249,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
         .setResolution(null)
         .setCreatedAt(NOW - 1_000_000_000L)
         .setUpdatedAt(NOW - 1_000_000_000L));
-    DiskCache<DefaultIssue>.DiskAppender issueCacheAppender = issueCache.newAppender();
+    DiskCache.DiskAppender<DefaultIssue> issueCacheAppender = issueCache.newAppender();
 
     issueCacheAppender.append(
       issue.toDefaultIssue()
@@ -265,6 +266,78 @@ public class PersistIssuesStepTest extends BaseStepTest {
     assertThat(issueReloaded.getResolution()).isEqualTo(RESOLUTION_FIXED);
   }
 
+  @Test
+  public void resolve_conflict_when_issue_has_been_changed_by_user_during_analysis() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    RuleDefinitionDto rule = db.rules().insert();
+    IssueDto issue = db.issues().insert(rule, project, file,
+      i -> i.setStatus(STATUS_OPEN)
+        .setResolution(null)
+        .setAssignee(null)
+        .setCreatedAt(NOW - 1_000_000_000L)
+        // updated by user after issue has been loaded by analysis
+        .setUpdatedAt(NOW - 1_000L));
+    IssueDto issueNotChangedByUser = db.issues().insert(rule, project, file,
+      i -> i.setStatus(STATUS_OPEN)
+        .setResolution(null)
+        .setCreatedAt(NOW - 1_000_000_000L)
+        .setUpdatedAt(NOW - 1_000_000_000L));
+    db.getDbClient().issueDao().update(db.getSession(), issue.setAssignee("arthur"));
+    db.commit();
+
+    issueCache.newAppender()
+      .append(issue.toDefaultIssue()
+        .setAssignee(null)
+        .setStatus(STATUS_CLOSED)
+        .setResolution(RESOLUTION_FIXED)
+        .setSelectedAt(NOW - 10_000L)
+        .setNew(false)
+        .setChanged(true))
+      .append(issueNotChangedByUser.toDefaultIssue()
+        .setStatus(STATUS_CLOSED)
+        .setResolution(RESOLUTION_FIXED)
+        .setSelectedAt(NOW - 10_000L)
+        .setNew(false)
+        .setChanged(true))
+      .close();
+    step.execute();
+
+    IssueDto issueReloaded = db.getDbClient().issueDao().selectByKey(db.getSession(), issue.getKey()).get();
+    // status is overridden by the one in db, assignee changed by user is kept
+    assertThat(issueReloaded.getStatus()).isEqualTo(STATUS_OPEN);
+    assertThat(issueReloaded.getAssignee()).isEqualTo("arthur");
+    IssueDto otherIssueReloaded = db.getDbClient().issueDao().selectByKey(db.getSession(), issueNotChangedByUser.getKey()).get();
+    assertThat(otherIssueReloaded.getStatus()).isEqualTo(STATUS_CLOSED);
+    assertThat(otherIssueReloaded.getUpdatedAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void persist_more_issues_than_batch_size() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    RuleDefinitionDto rule = db.rules().insert();
+    int nbIssues = 2 * BatchSession.MAX_BATCH_SIZE + 10;
+
+    try (DiskCache.DiskAppender<DefaultIssue> appender = issueCache.newAppender()) {
+      for (int i = 0; i < nbIssues; i++) {
+        appender.append(new DefaultIssue()
+          .setKey("ISSUE_" + i)
+          .setType(RuleType.CODE_SMELL)
+          .setRuleKey(rule.getKey())
+          .setComponentUuid(file.uuid())
+          .setProjectUuid(project.uuid())
+          .setSeverity(BLOCKER)
+          .setStatus(STATUS_OPEN)
+          .setCreationDate(new Date(NOW))
+          .setNew(true));
+      }
+    }
+    step.execute();
+
+    assertThat(db.countRowsOfTable("issues")).isEqualTo(nbIssues);
+  }
+
   @Test
   public void add_comment() {
     ComponentDto project = db.components().insertPrivateProject();
@@ -275,7 +348,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
         .setResolution(null)
         .setCreatedAt(NOW - 1_000_000_000L)
         .setUpdatedAt(NOW - 1_000_000_000L));
-    DiskCache<DefaultIssue>.DiskAppender issueCacheAppender = issueCache.newAppender();
+    DiskCache.DiskAppender<DefaultIssue> issueCacheAppender = issueCache.newAppender();
 
     issueCacheAppender.append(
       issue.toDefaultIssue()
@@ -311,7 +384,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
         .setResolution(null)
         .setCreatedAt(NOW - 1_000_000_000L)
         .setUpdatedAt(NOW - 1_000_000_000L));
-    DiskCache<DefaultIssue>.DiskAppender issueCacheAppender = issueCache.newAppender();
+    DiskCache.DiskAppender<DefaultIssue> issueCacheAppender = issueCache.newAppender();
 
     issueCacheAppender.append(
       issue.toDefaultIssue()
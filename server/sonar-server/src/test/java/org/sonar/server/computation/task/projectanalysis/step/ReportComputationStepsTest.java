@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.collect.Lists;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -27,7 +28,9 @@ import org.sonar.core.platform.ComponentContainer;
 import org.sonar.core.platform.ContainerPopulator;
 import org.sonar.server.computation.task.container.TaskContainer;
 import org.sonar.server.computation.task.container.TaskContainerImpl;
+import org.sonar.server.computation.task.step.ComputationStep;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 
 public class ReportComputationStepsTest {
@@ -69,4 +72,24 @@ public class ReportComputationStepsTest {
 
     Lists.newArrayList(new ReportComputationSteps(computeEngineContainer).instances());
   }
+
+  @Test
+  public void background_steps_precede_the_step_depending_on_them() {
+    ReportComputationSteps underTest = new ReportComputationSteps(mock(TaskContainer.class));
+    List<Class<? extends ComputationStep>> steps = underTest.orderedStepClasses();
+
+    underTest.backgroundSteps().forEach((backgroundStep, dependentStep) -> {
+      assertThat(steps).contains(backgroundStep, dependentStep);
+      assertThat(steps.indexOf(backgroundStep)).isLessThan(steps.indexOf(dependentStep));
+    });
+  }
+
+  @Test
+  public void file_sources_are_not_persisted_concurrently_with_tests() {
+    ReportComputationSteps underTest = new ReportComputationSteps(mock(TaskContainer.class));
+    List<Class<? extends ComputationStep>> steps = underTest.orderedStepClasses();
+
+    assertThat(underTest.backgroundSteps()).containsKey(PersistFileSourcesStep.class);
+    assertThat(steps.indexOf(PersistTestsStep.class)).isLessThan(steps.indexOf(PersistFileSourcesStep.class));
+  }
 }
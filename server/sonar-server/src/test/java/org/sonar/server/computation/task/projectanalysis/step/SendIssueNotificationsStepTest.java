@@ -163,8 +163,9 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
           .setCreationDate(new Date(ANALYSE_DATE - FIVE_MINUTES_IN_MS))))
       .collect(Collectors.toList());
     Collections.shuffle(issues);
-    DiskCache<DefaultIssue>.DiskAppender issueCache = this.issueCache.newAppender();
+    DiskCache.DiskAppender<DefaultIssue> issueCache = this.issueCache.newAppender();
     issues.forEach(issueCache::append);
+    issueCache.close();
     when(notificationService.hasProjectSubscribersForTypes(PROJECT.getUuid(), SendIssueNotificationsStep.NOTIF_TYPES)).thenReturn(true);
 
     underTest.execute();
@@ -262,8 +263,9 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
           .setCreationDate(new Date(ANALYSE_DATE))))
       .collect(Collectors.toList());
     Collections.shuffle(issues);
-    DiskCache<DefaultIssue>.DiskAppender issueCache = this.issueCache.newAppender();
+    DiskCache.DiskAppender<DefaultIssue> issueCache = this.issueCache.newAppender();
     issues.forEach(issueCache::append);
+    issueCache.close();
     when(notificationService.hasProjectSubscribersForTypes(PROJECT.getUuid(), SendIssueNotificationsStep.NOTIF_TYPES)).thenReturn(true);
     MyNewIssuesNotification myNewIssuesNotificationMock2 = createMyNewIssuesNotificationMock();
     when(newIssuesNotificationFactory.newMyNewIssuesNotification())
@@ -314,8 +316,9 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
           .setCreationDate(new Date(ANALYSE_DATE - FIVE_MINUTES_IN_MS))))
       .collect(Collectors.toList());
     Collections.shuffle(issues);
-    DiskCache<DefaultIssue>.DiskAppender issueCache = this.issueCache.newAppender();
+    DiskCache.DiskAppender<DefaultIssue> issueCache = this.issueCache.newAppender();
     issues.forEach(issueCache::append);
+    issueCache.close();
     when(notificationService.hasProjectSubscribersForTypes(PROJECT.getUuid(), SendIssueNotificationsStep.NOTIF_TYPES)).thenReturn(true);
 
     underTest.execute();
@@ -19,8 +19,11 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.collect.ImmutableMap;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -35,6 +38,7 @@ import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -152,6 +156,119 @@ public class ComputationStepExecutorTest {
     new ComputationStepExecutor(mockComputationSteps(computationStep1), listener).execute();
   }
 
+  @Test
+  public void execute_runs_background_step_concurrently_with_next_steps_until_dependent_step() {
+    CountDownLatch nextStepExecuted = new CountDownLatch(1);
+    BackgroundStep backgroundStep = new BackgroundStep(nextStepExecuted);
+    ComputationStep nextStep = new TestStep(nextStepExecuted::countDown);
+    DependentStep dependentStep = new DependentStep(backgroundStep);
+    ComputationSteps steps = mockComputationSteps(backgroundStep, nextStep, dependentStep);
+    when(steps.backgroundSteps()).thenReturn(ImmutableMap.of(BackgroundStep.class, DependentStep.class));
+
+    new ComputationStepExecutor(steps, listener).execute();
+
+    assertThat(backgroundStep.threadName).startsWith("CE_Background_Step_");
+    assertThat(dependentStep.backgroundStepWasFinished).isTrue();
+    verify(listener).finished(true);
+  }
+
+  @Test
+  public void execute_waits_for_background_step_which_has_no_dependent_step_in_instances() {
+    BackgroundStep backgroundStep = new BackgroundStep(new CountDownLatch(0));
+    ComputationSteps steps = mockComputationSteps(computationStep1, backgroundStep, computationStep2);
+    when(steps.backgroundSteps()).thenReturn(ImmutableMap.of(BackgroundStep.class, DependentStep.class));
+
+    new ComputationStepExecutor(steps).execute();
+
+    assertThat(backgroundStep.finished).isTrue();
+  }
+
+  @Test
+  public void execute_let_exception_thrown_by_background_step_go_up_as_is() {
+    RuntimeException toBeThrown = new RuntimeException("simulating failing background step");
+    ComputationStep failingStep = new BackgroundStep(new CountDownLatch(0)) {
+      @Override
+      public void execute() {
+        throw toBeThrown;
+      }
+    };
+    ComputationSteps steps = mockComputationSteps(failingStep, computationStep1);
+    when(steps.backgroundSteps()).thenReturn(ImmutableMap.of(failingStep.getClass(), computationStep1.getClass()));
+
+    try {
+      new ComputationStepExecutor(steps, listener).execute();
+      fail("exception toBeThrown should have been raised");
+    } catch (RuntimeException e) {
+      assertThat(e).isSameAs(toBeThrown);
+      verify(computationStep1, never()).execute();
+      verify(listener).finished(false);
+    }
+  }
+
+  private static class TestStep implements ComputationStep {
+    private final Runnable runnable;
+
+    private TestStep(Runnable runnable) {
+      this.runnable = runnable;
+    }
+
+    @Override
+    public void execute() {
+      runnable.run();
+    }
+
+    @Override
+    public String getDescription() {
+      return getClass().getSimpleName();
+    }
+  }
+
+  private static class BackgroundStep implements ComputationStep {
+    private final CountDownLatch latch;
+    private volatile String threadName;
+    private volatile boolean finished = false;
+
+    private BackgroundStep(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public void execute() {
+      threadName = Thread.currentThread().getName();
+      try {
+        // fails if the step following this one is not executed concurrently
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      finished = true;
+    }
+
+    @Override
+    public String getDescription() {
+      return "background step";
+    }
+  }
+
+  private static class DependentStep implements ComputationStep {
+    private final BackgroundStep backgroundStep;
+    private boolean backgroundStepWasFinished = false;
+
+    private DependentStep(BackgroundStep backgroundStep) {
+      this.backgroundStep = backgroundStep;
+    }
+
+    @Override
+    public void execute() {
+      backgroundStepWasFinished = backgroundStep.finished;
+    }
+
+    @Override
+    public String getDescription() {
+      return "dependent step";
+    }
+  }
+
   private static ComputationSteps mockComputationSteps(ComputationStep... computationSteps) {
     ComputationSteps steps = mock(ComputationSteps.class);
     when(steps.instances()).thenReturn(Arrays.asList(computationSteps));
@@ -0,0 +1,75 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Test;
+import org.sonar.server.es.BulkIndexer.AdaptiveBulkSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.es.BulkIndexer.AdaptiveBulkSize.INITIAL_BYTES;
+import static org.sonar.server.es.BulkIndexer.AdaptiveBulkSize.MAX_BYTES;
+import static org.sonar.server.es.BulkIndexer.AdaptiveBulkSize.MIN_BYTES;
+import static org.sonar.server.es.BulkIndexer.AdaptiveBulkSize.STEP_BYTES;
+
+public class BulkIndexerAdaptiveBulkSizeTest {
+
+  private AdaptiveBulkSize underTest = new AdaptiveBulkSize();
+
+  @Test
+  public void increase_size_when_bulk_requests_are_fast() {
+    underTest.onResponse(10L);
+
+    assertThat(underTest.getBytes()).isEqualTo(INITIAL_BYTES + STEP_BYTES);
+  }
+
+  @Test
+  public void keep_size_when_duration_of_bulk_requests_is_close_to_target() {
+    underTest.onResponse(1_500L);
+
+    assertThat(underTest.getBytes()).isEqualTo(INITIAL_BYTES);
+  }
+
+  @Test
+  public void halve_size_when_bulk_requests_are_slow() {
+    underTest.onResponse(5_000L);
+
+    assertThat(underTest.getBytes()).isEqualTo(INITIAL_BYTES / 2);
+  }
+
+  @Test
+  public void halve_size_when_requests_are_rejected() {
+    underTest.onRejection();
+
+    assertThat(underTest.getBytes()).isEqualTo(INITIAL_BYTES / 2);
+  }
+
+  @Test
+  public void size_is_bounded() {
+    for (int i = 0; i < 100; i++) {
+      underTest.onResponse(10L);
+    }
+    assertThat(underTest.getBytes()).isEqualTo(MAX_BYTES);
+
+    for (int i = 0; i < 100; i++) {
+      underTest.onRejection();
+    }
+    assertThat(underTest.getBytes()).isEqualTo(MIN_BYTES);
+  }
+}
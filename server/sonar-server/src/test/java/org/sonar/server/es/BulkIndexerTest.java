@@ -96,6 +96,63 @@ public class BulkIndexerTest {
     assertThat(replicas()).isEqualTo(1);
   }
 
+  @Test
+  public void large_index_settings_are_applied_once_around_partition_indexers() {
+    assertThat(replicas()).isEqualTo(1);
+
+    BulkIndexer.LargeIndexSettings settings = BulkIndexer.LargeIndexSettings.apply(esTester.client(), INDEX_TYPE_FAKE);
+    assertThat(replicas()).isEqualTo(0);
+
+    for (int partition = 0; partition < 2; partition++) {
+      BulkIndexer indexer = new BulkIndexer(esTester.client(), INDEX_TYPE_FAKE, Size.PARTITION);
+      indexer.start();
+      for (int i = 0; i < 5; i++) {
+        indexer.add(newIndexRequest(i));
+      }
+      assertThat(indexer.stop().getSuccess()).isEqualTo(5);
+      // settings are not restored by the indexer
+      assertThat(replicas()).isEqualTo(0);
+    }
+
+    settings.restore();
+
+    assertThat(count()).isEqualTo(10);
+    assertThat(replicas()).isEqualTo(1);
+  }
+
+  @Test
+  public void execute_bulk_requests_in_background_threads() {
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), INDEX_TYPE_FAKE, new BulkIndexer.SizeHandler() {
+      @Override
+      int getConcurrentRequests() {
+        return 2;
+      }
+    }, IndexingListener.FAIL_ON_ERROR);
+    indexer.start();
+    for (int i = 0; i < 100; i++) {
+      indexer.add(newIndexRequest(i));
+    }
+    IndexingResult result = indexer.stop();
+
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(result.getSuccess()).isEqualTo(100);
+    assertThat(count()).isEqualTo(100);
+  }
+
+  @Test
+  public void stop_returns_metrics_of_bulk_requests() {
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), INDEX_TYPE_FAKE, Size.REGULAR);
+    indexer.start();
+    indexer.add(newIndexRequest(42));
+    indexer.add(newIndexRequest(78));
+    IndexingResult result = indexer.stop();
+
+    assertThat(result.getBulkRequests()).isEqualTo(1);
+    assertThat(result.getBulkDurationMs()).isGreaterThanOrEqualTo(0L);
+    assertThat(result.getRejections()).isEqualTo(0);
+    assertThat(result.getDurationMs()).isGreaterThanOrEqualTo(result.getBulkDurationMs());
+  }
+
   @Test
   public void bulk_delete() {
     int max = 500;
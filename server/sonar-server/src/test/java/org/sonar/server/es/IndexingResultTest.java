@@ -37,6 +37,8 @@ public class IndexingResultTest {
     assertThat(underTest.getTotal()).isEqualTo(0);
     assertThat(underTest.getSuccessRatio()).isEqualTo(1.0, DOUBLE_OFFSET);
     assertThat(underTest.isSuccess()).isTrue();
+    assertThat(underTest.getBulkRequests()).isEqualTo(0);
+    assertThat(underTest.getThroughput()).isEqualTo(0.0, DOUBLE_OFFSET);
   }
 
   @Test
@@ -80,6 +82,41 @@ public class IndexingResultTest {
     assertThat(underTest.isSuccess()).isFalse();
   }
 
+  @Test
+  public void test_bulk_metrics() {
+    underTest.incrementRequests();
+    underTest.incrementRequests();
+    underTest.incrementSuccess();
+    underTest.incrementSuccess();
+    underTest.incrementBulkRequests(30L);
+    underTest.incrementBulkRequests(20L);
+    underTest.incrementRejections(3L);
+    underTest.setDurationMs(500L);
+
+    assertThat(underTest.getBulkRequests()).isEqualTo(2);
+    assertThat(underTest.getBulkDurationMs()).isEqualTo(50L);
+    assertThat(underTest.getRejections()).isEqualTo(3L);
+    assertThat(underTest.getDurationMs()).isEqualTo(500L);
+    assertThat(underTest.getThroughput()).isEqualTo(4.0, DOUBLE_OFFSET);
+  }
+
+  @Test
+  public void add_merges_bulk_metrics() {
+    underTest.incrementBulkRequests(30L);
+    underTest.setDurationMs(100L);
+    IndexingResult other = new IndexingResult()
+      .incrementBulkRequests(20L)
+      .incrementRejections(1L)
+      .setDurationMs(200L);
+
+    underTest.add(other);
+
+    assertThat(underTest.getBulkRequests()).isEqualTo(2);
+    assertThat(underTest.getBulkDurationMs()).isEqualTo(50L);
+    assertThat(underTest.getRejections()).isEqualTo(1L);
+    assertThat(underTest.getDurationMs()).isEqualTo(300L);
+  }
+
   @Test
   public void correctness_even_with_no_data() {
     assertThat(underTest.getFailures()).isEqualTo(0);
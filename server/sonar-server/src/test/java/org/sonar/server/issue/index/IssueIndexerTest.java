@@ -38,6 +38,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.es.EsQueueDao;
 import org.sonar.db.es.EsQueueDto;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.issue.IssueTesting;
@@ -151,6 +152,80 @@ public class IssueIndexerTest {
     }
   }
 
+  @Test
+  public void indexOnStartup_with_many_threads_indexes_issues_by_partitions_of_projects() {
+    IssueDto[] issues = new IssueDto[IssueIndexer.PROJECTS_PER_PARTITION + 2];
+    for (int i = 0; i < issues.length; i++) {
+      issues[i] = db.issues().insertIssue(organization);
+    }
+
+    newIndexerWithStartupThreads(3).indexOnStartup(emptySet());
+
+    assertThatIndexHasOnly(issues);
+    assertThatEsQueueTableHasSize(0);
+  }
+
+  @Test
+  public void indexOnStartup_with_many_threads_keeps_projects_to_index_in_recovery_table_on_errors() {
+    es.lockWrites(INDEX_TYPE_ISSUE);
+    db.issues().insertIssue(organization);
+    db.issues().insertIssue(organization);
+
+    try {
+      expectedException.expect(IllegalStateException.class);
+      newIndexerWithStartupThreads(2).indexOnStartup(emptySet());
+    } finally {
+      assertThatIndexHasSize(0);
+      assertThatEsQueueTableHasSize(2);
+    }
+  }
+
+  @Test
+  public void indexOnStartup_with_many_threads_resumes_interrupted_indexing() {
+    IssueDto issue1 = db.issues().insertIssue(organization);
+    IssueDto issue2 = db.issues().insertIssue(organization);
+    // issues of first project have been indexed, second project remains in recovery table
+    underTest.commitAndIndexIssues(db.getSession(), asList(issue1));
+    insertStartupItem(issue2.getProjectUuid());
+    insertStartupItem(issue2.getProjectUuid());
+    db.commit();
+
+    newIndexerWithStartupThreads(2).indexOnStartup(emptySet());
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Resume indexing of issues of 1 projects");
+    assertThatIndexHasOnly(issue1, issue2);
+    assertThatEsQueueTableHasSize(0);
+  }
+
+  @Test
+  public void indexOnStartup_with_many_threads_does_not_duplicate_items_of_failed_indexing() {
+    IssueDto issue1 = db.issues().insertIssue(organization);
+    IssueDto issue2 = db.issues().insertIssue(organization);
+    // previous indexing failed before indexing any issue
+    insertStartupItem(issue1.getProjectUuid());
+    db.commit();
+    es.lockWrites(INDEX_TYPE_ISSUE);
+
+    try {
+      expectedException.expect(IllegalStateException.class);
+      newIndexerWithStartupThreads(2).indexOnStartup(emptySet());
+    } finally {
+      assertThatEsQueueTableHasSize(2);
+      assertThat(db.getDbClient().esQueueDao().selectByDocType(db.getSession(), EsQueueDao.STARTUP_DOC_TYPE_PREFIX + INDEX_TYPE_ISSUE.format()))
+        .extracting(EsQueueDto::getDocId)
+        .containsExactlyInAnyOrder(issue1.getProjectUuid(), issue2.getProjectUuid());
+    }
+  }
+
+  @Test
+  public void items_of_indexing_with_many_threads_are_not_recovered() {
+    IssueDto issue = db.issues().insertIssue(organization);
+    insertStartupItem(issue.getProjectUuid());
+    db.commit();
+
+    assertThat(db.getDbClient().esQueueDao().selectForRecovery(db.getSession(), System.currentTimeMillis() + 1_000L, 10)).isEmpty();
+  }
+
   @Test
   public void indexOnAnalysis_indexes_the_issues_of_project() {
     RuleDefinitionDto rule = db.rules().insert();
@@ -499,6 +574,11 @@ public class IssueIndexerTest {
     assertThat(issues).extracting(IssueDoc::key).containsOnly(expectedKeys);
   }
 
+  private IssueIndexer newIndexerWithStartupThreads(int threads) {
+    return new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()),
+      new MapSettings().setProperty(IssueIndexer.STARTUP_THREADS_PROPERTY, threads).asConfig());
+  }
+
   private void assertThatEsQueueTableHasSize(int expectedSize) {
     assertThat(db.countRowsOfTable("es_queue")).isEqualTo(expectedSize);
   }
@@ -514,4 +594,9 @@ public class IssueIndexerTest {
     Collection<EsQueueDto> items = db.getDbClient().esQueueDao().selectForRecovery(db.getSession(), System.currentTimeMillis() + 1_000L, 10);
     return underTest.index(db.getSession(), items);
   }
+
+  private void insertStartupItem(String projectUuid) {
+    db.getDbClient().esQueueDao().insert(db.getSession(),
+      EsQueueDto.create(EsQueueDao.STARTUP_DOC_TYPE_PREFIX + INDEX_TYPE_ISSUE.format(), projectUuid, "projectUuid", projectUuid));
+  }
 }
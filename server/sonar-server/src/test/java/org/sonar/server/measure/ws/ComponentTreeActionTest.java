@@ -357,6 +357,37 @@ public class ComponentTreeActionTest {
     assertThat(response.getPaging().getTotal()).isEqualTo(4);
   }
 
+  @Test
+  public void sort_by_metric_value_with_best_value_and_paginate() {
+    ComponentDto project = db.components().insertPrivateProject();
+    SnapshotDto projectSnapshot = db.components().insertSnapshot(project);
+    ComponentDto file1 = componentDb.insertComponent(newFileDto(project, null, "file-uuid-1").setName("file-1"));
+    ComponentDto file2 = componentDb.insertComponent(newFileDto(project, null, "file-uuid-2").setName("file-2"));
+    ComponentDto file3 = componentDb.insertComponent(newFileDto(project, null, "file-uuid-3").setName("file-3"));
+    ComponentDto file4 = componentDb.insertComponent(newFileDto(project, null, "file-uuid-4").setName("file-4"));
+    MetricDto violations = newMetricDto().setKey("violations").setValueType(INT.name()).setDirection(-1)
+      .setOptimizedBestValue(true).setBestValue(0d);
+    dbClient.metricDao().insert(dbSession, violations);
+    db.commit();
+    db.measures().insertLiveMeasure(file1, violations, m -> m.setValue(5.0d));
+    db.measures().insertLiveMeasure(file3, violations, m -> m.setValue(2.0d));
+
+    ComponentTreeWsResponse response = ws.newRequest()
+      .setParam(PARAM_COMPONENT, project.getKey())
+      .setParam(SORT, METRIC_SORT)
+      .setParam(PARAM_METRIC_SORT, "violations")
+      .setParam(PARAM_METRIC_KEYS, "violations")
+      .setParam(Param.ASCENDING, "false")
+      .setParam(Param.PAGE, "2")
+      .setParam(Param.PAGE_SIZE, "2")
+      .executeProtobuf(ComponentTreeWsResponse.class);
+
+    // file2 and file4 have no measure, so the best value 0 is used to sort them
+    assertThat(response.getComponentsList()).extracting("id").containsExactly(file2.uuid(), file4.uuid());
+    assertThat(response.getComponentsList().get(0).getMeasuresList()).extracting("value").containsExactly("0");
+    assertThat(response.getPaging().getTotal()).isEqualTo(4);
+  }
+
   @Test
   public void remove_components_without_measure_on_the_metric_sort() {
     ComponentDto project = db.components().insertPrivateProject();
@@ -30,10 +30,12 @@ import org.sonar.api.measures.Metric.ValueType;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.core.util.Uuids;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTreeOrder;
 import org.sonar.db.measure.LiveMeasureDto;
 import org.sonar.db.metric.MetricDto;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.db.metric.MetricTesting.newMetricDto;
@@ -42,6 +44,7 @@ import static org.sonar.server.measure.ws.ComponentTreeAction.METRIC_SORT;
 import static org.sonar.server.measure.ws.ComponentTreeAction.NAME_SORT;
 import static org.sonar.server.measure.ws.ComponentTreeAction.PATH_SORT;
 import static org.sonar.server.measure.ws.ComponentTreeAction.QUALIFIER_SORT;
+import static org.sonar.server.measure.ws.ComponentTreeAction.WITH_MEASURES_ONLY_METRIC_SORT_FILTER;
 import static org.sonar.server.measure.ws.ComponentTreeData.Measure.createFromMeasureDto;
 
 public class ComponentTreeSortTest {
@@ -260,6 +263,51 @@ public class ComponentTreeSortTest {
       .setPath(path);
   }
 
+  @Test
+  public void db_order_on_fields_of_components() {
+    ComponentTreeRequest wsRequest = newRequest(newArrayList(QUALIFIER_SORT, NAME_SORT, PATH_SORT), false, null);
+
+    ComponentTreeOrder order = ComponentTreeSort.toDbOrder(wsRequest, metrics).get();
+
+    assertThat(order.getSorts()).extracting(ComponentTreeOrder.Sort::getField)
+      .containsExactly(ComponentTreeOrder.Field.QUALIFIER, ComponentTreeOrder.Field.NAME, ComponentTreeOrder.Field.PATH);
+    assertThat(order.getSorts()).extracting(ComponentTreeOrder.Sort::isAsc).containsOnly(false);
+    assertThat(order.getMetricId()).isNull();
+  }
+
+  @Test
+  public void db_order_on_numerical_metric() {
+    MetricDto metric = metrics.get(0).setBestValue(0.0d).setOptimizedBestValue(true);
+    ComponentTreeRequest wsRequest = newRequest(newArrayList(METRIC_SORT, NAME_SORT), true, NUM_METRIC_KEY)
+      .setMetricSortFilter(WITH_MEASURES_ONLY_METRIC_SORT_FILTER);
+
+    ComponentTreeOrder order = ComponentTreeSort.toDbOrder(wsRequest, metrics).get();
+
+    assertThat(order.getSorts()).extracting(ComponentTreeOrder.Sort::getField)
+      .containsExactly(ComponentTreeOrder.Field.MEASURE_VALUE, ComponentTreeOrder.Field.NAME);
+    assertThat(order.getMetricId()).isEqualTo(metric.getId());
+    assertThat(order.getValueBestValue()).isEqualTo(0.0d);
+    assertThat(order.getVariationBestValue()).isNull();
+    assertThat(order.isWithMeasureValueOnly()).isTrue();
+  }
+
+  @Test
+  public void db_order_on_numerical_metric_period() {
+    ComponentTreeRequest wsRequest = newRequest(singletonList(METRIC_PERIOD_SORT), false, NUM_METRIC_KEY).setMetricPeriodSort(1);
+
+    ComponentTreeOrder order = ComponentTreeSort.toDbOrder(wsRequest, metrics).get();
+
+    assertThat(order.getSorts()).extracting(ComponentTreeOrder.Sort::getField).containsExactly(ComponentTreeOrder.Field.MEASURE_VARIATION);
+    assertThat(order.getValueBestValue()).isNull();
+    assertThat(order.isWithMeasureVariationOnly()).isFalse();
+  }
+
+  @Test
+  public void no_db_order_on_textual_metric_or_without_sort() {
+    assertThat(ComponentTreeSort.toDbOrder(newRequest(singletonList(METRIC_SORT), true, TEXT_METRIC_KEY), metrics)).isEmpty();
+    assertThat(ComponentTreeSort.toDbOrder(newRequest(emptyList(), true, null), metrics)).isEmpty();
+  }
+
   private static ComponentTreeRequest newRequest(List<String> sortFields, boolean isAscending, @Nullable String metricKey) {
     return new ComponentTreeRequest()
       .setAsc(isAscending)
@@ -0,0 +1,84 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission;
+
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+
+import static java.util.Collections.singleton;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.permission.OrganizationPermission.SCAN;
+
+public class PermissionCacheTest {
+
+  private MapSettings settings = new MapSettings();
+
+  @Test
+  public void permissions_are_shared_by_user() {
+    PermissionCache underTest = new PermissionCache(settings.asConfig());
+
+    underTest.get(1).putProjectPermissions("P1", singleton("user"));
+    underTest.get(null).putOrganizationPermissions("O1", singleton(SCAN));
+
+    assertThat(underTest.get(1)).isSameAs(underTest.get(1));
+    assertThat(underTest.get(1).getProjectPermissions("P1")).containsOnly("user");
+    assertThat(underTest.get(1).getProjectPermissions("P2")).isNull();
+    assertThat(underTest.get(1).getOrganizationPermissions("O1")).isNull();
+    assertThat(underTest.get(2).getProjectPermissions("P1")).isNull();
+    assertThat(underTest.get(null).getOrganizationPermissions("O1")).containsOnly(SCAN);
+  }
+
+  @Test
+  public void invalidate_permissions_of_user() {
+    PermissionCache underTest = new PermissionCache(settings.asConfig());
+    underTest.get(1).putProjectPermissions("P1", singleton("user"));
+    underTest.get(2).putProjectPermissions("P1", singleton("user"));
+
+    underTest.invalidate(1);
+
+    assertThat(underTest.get(1).getProjectPermissions("P1")).isNull();
+    assertThat(underTest.get(2).getProjectPermissions("P1")).containsOnly("user");
+  }
+
+  @Test
+  public void invalidate_permissions_of_all_users() {
+    PermissionCache underTest = new PermissionCache(settings.asConfig());
+    underTest.get(1).putProjectPermissions("P1", singleton("user"));
+    underTest.get(null).putProjectPermissions("P1", singleton("user"));
+
+    underTest.invalidateAll();
+
+    assertThat(underTest.get(1).getProjectPermissions("P1")).isNull();
+    assertThat(underTest.get(null).getProjectPermissions("P1")).isNull();
+  }
+
+  @Test
+  public void permissions_are_not_shared_if_cache_is_disabled() {
+    settings.setProperty(PermissionCache.EXPIRATION_PROPERTY, 0);
+    PermissionCache underTest = new PermissionCache(settings.asConfig());
+
+    underTest.get(1).putProjectPermissions("P1", singleton("user"));
+
+    assertThat(underTest.get(1).getProjectPermissions("P1")).isNull();
+    // does not fail
+    underTest.invalidate(1);
+    underTest.invalidateAll();
+  }
+}
@@ -33,6 +33,7 @@ import org.sonar.server.exceptions.ServerException;
 
 import static java.lang.String.format;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
 import static org.sonar.api.web.UserRole.CODEVIEWER;
 import static org.sonar.api.web.UserRole.ISSUE_ADMIN;
 import static org.sonar.api.web.UserRole.USER;
@@ -90,6 +91,7 @@ public class AddUserActionTest extends BasePermissionWsTest<AddUserAction> {
       .execute();
 
     assertThat(db.users().selectPermissionsOfUser(user, organization)).containsOnly(ADMINISTER);
+    verify(permissionCache).invalidateAll();
   }
 
   @Test
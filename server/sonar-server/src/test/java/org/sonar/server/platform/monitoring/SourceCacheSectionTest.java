@@ -0,0 +1,57 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+import org.sonar.server.source.SourceCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.platform.monitoring.SystemInfoTesting.assertThatAttributeIs;
+
+public class SourceCacheSectionTest {
+
+  private SourceCache sourceCache = new SourceCache(new MapSettings().setProperty("sonar.web.sourceCache.maxSizeInMb", "2").asConfig());
+  private SourceCacheSection underTest = new SourceCacheSection(sourceCache);
+
+  @Test
+  public void name() {
+    assertThat(underTest.toProtobuf().getName()).isEqualTo("Web Source Cache");
+  }
+
+  @Test
+  public void cache_attributes() {
+    sourceCache.put("FILE_UUID", "HASH", DbFileSources.Data.newBuilder().addLines(DbFileSources.Line.newBuilder().setLine(1)).build());
+    sourceCache.get("FILE_UUID", "HASH");
+    sourceCache.get("OTHER_FILE_UUID", "HASH");
+    sourceCache.get("FILE_UUID", "NEW_HASH");
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+    assertThatAttributeIs(section, "Max Size", "2 MB");
+    assertThatAttributeIs(section, "Size", "0 bytes");
+    assertThatAttributeIs(section, "Files", 0L);
+    assertThatAttributeIs(section, "Hits", 1L);
+    assertThatAttributeIs(section, "Misses", 2L);
+    assertThatAttributeIs(section, "Evictions", 0L);
+    assertThatAttributeIs(section, "Invalidations", 1L);
+  }
+}
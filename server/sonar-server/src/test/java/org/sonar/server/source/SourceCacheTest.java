@@ -0,0 +1,99 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source;
+
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.db.protobuf.DbFileSources;
+
+import static org.apache.commons.lang.StringUtils.repeat;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SourceCacheTest {
+
+  private SourceCache underTest = new SourceCache(new MapSettings().setProperty(SourceCache.MAX_SIZE_PROPERTY, "1").asConfig());
+
+  @Test
+  public void get_data_of_same_version_of_file() {
+    DbFileSources.Data data = newData(10, 10);
+    underTest.put("FILE_UUID", "HASH", data);
+
+    assertThat(underTest.get("FILE_UUID", "HASH")).isSameAs(data);
+    assertThat(underTest.get("OTHER_FILE_UUID", "HASH")).isNull();
+    assertThat(underTest.getEntries()).isEqualTo(1);
+    assertThat(underTest.getSize()).isEqualTo(SourceCache.estimateHeapSize(data));
+    assertThat(underTest.getHits()).isEqualTo(1);
+    assertThat(underTest.getMisses()).isEqualTo(1);
+  }
+
+  @Test
+  public void invalidate_data_when_file_has_changed() {
+    underTest.put("FILE_UUID", "HASH", newData(10, 10));
+
+    assertThat(underTest.get("FILE_UUID", "NEW_HASH")).isNull();
+    assertThat(underTest.get("FILE_UUID", "HASH")).isNull();
+    assertThat(underTest.getEntries()).isZero();
+    assertThat(underTest.getSize()).isZero();
+    assertThat(underTest.getInvalidations()).isEqualTo(1);
+  }
+
+  @Test
+  public void evict_least_recently_used_files_when_max_size_is_reached() {
+    for (int i = 0; i < 30; i++) {
+      underTest.put("FILE_" + i, "HASH", newData(100, 100));
+    }
+
+    assertThat(underTest.getEvictions()).isPositive();
+    assertThat(underTest.getSize()).isLessThanOrEqualTo(underTest.getMaxSize());
+    assertThat(underTest.get("FILE_29", "HASH")).isNotNull();
+    assertThat(underTest.get("FILE_0", "HASH")).isNull();
+  }
+
+  @Test
+  public void size_in_heap_of_data_is_bigger_than_serialized_size() {
+    DbFileSources.Data data = newData(10, 10);
+
+    assertThat(SourceCache.estimateHeapSize(data)).isGreaterThan(2L * data.getSerializedSize());
+  }
+
+  @Test
+  public void do_not_put_data_bigger_than_fraction_of_cache() {
+    underTest.put("FILE_UUID", "HASH", newData(100, 1_000));
+
+    assertThat(underTest.get("FILE_UUID", "HASH")).isNull();
+    assertThat(underTest.getEntries()).isZero();
+    assertThat(underTest.getSize()).isZero();
+  }
+
+  @Test
+  public void big_files_are_not_cacheable() {
+    assertThat(underTest.getMaxSize()).isEqualTo(1024L * 1024L);
+    assertThat(underTest.isCacheable(64 * 1024)).isTrue();
+    assertThat(underTest.isCacheable(64 * 1024 + 1)).isFalse();
+  }
+
+  private static DbFileSources.Data newData(int lines, int lineLength) {
+    DbFileSources.Data.Builder builder = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= lines; i++) {
+      builder.addLinesBuilder().setLine(i).setSource(repeat("a", lineLength));
+    }
+    return builder.build();
+  }
+}
@@ -27,6 +27,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.db.protobuf.DbFileSources;
@@ -49,12 +50,14 @@ public class SourceServiceTest {
 
   HtmlSourceDecorator htmlDecorator = mock(HtmlSourceDecorator.class);
 
-  SourceService underTest = new SourceService(dbTester.getDbClient(), htmlDecorator);
+  SourceCache sourceCache = new SourceCache(new MapSettings().asConfig());
+
+  SourceService underTest = new SourceService(dbTester.getDbClient(), htmlDecorator, sourceCache);
 
   @Before
   public void injectFakeLines() throws IOException {
     FileSourceDto dto = new FileSourceDto();
-    dto.setFileUuid(FILE_UUID).setProjectUuid("PROJECT_UUID");
+    dto.setFileUuid(FILE_UUID).setProjectUuid("PROJECT_UUID").setDataHash("DATA_HASH");
     dto.setSourceData(FileSourceTesting.newFakeData(10).build());
     dbTester.getDbClient().fileSourceDao().insert(dbTester.getSession(), dto);
     dbTester.commit();
@@ -91,6 +94,49 @@ public class SourceServiceTest {
     assertThat(lines).containsExactly("HTML_5", "HTML_6", "HTML_7");
   }
 
+  @Test
+  public void get_range_of_lines_spanning_chunks_of_large_file() {
+    FileSourceDto dto = new FileSourceDto().setFileUuid("LARGE_FILE_UUID").setProjectUuid("PROJECT_UUID")
+      .setSourceData(FileSourceTesting.newFakeData(2_000).build());
+    dbTester.getDbClient().fileSourceDao().insert(dbTester.getSession(), dto);
+    dbTester.commit();
+
+    Optional<Iterable<String>> linesOpt = underTest.getLinesAsRawText(dbTester.getSession(), "LARGE_FILE_UUID", 499, 501);
+    assertThat(linesOpt.isPresent()).isTrue();
+    assertThat(linesOpt.get()).containsExactly("SOURCE_499", "SOURCE_500", "SOURCE_501");
+    assertThat(underTest.getLines(dbTester.getSession(), "LARGE_FILE_UUID", 1, Integer.MAX_VALUE).get()).hasSize(2_000);
+  }
+
+  @Test
+  public void get_lines_from_cache_until_file_changes() {
+    underTest.getLines(dbTester.getSession(), FILE_UUID, 1, 2);
+    assertThat(sourceCache.getMisses()).isEqualTo(1);
+    assertThat(sourceCache.getEntries()).isEqualTo(1);
+
+    assertThat(underTest.getLinesAsRawText(dbTester.getSession(), FILE_UUID, 9, 10).get()).containsExactly("SOURCE_9", "SOURCE_10");
+    assertThat(sourceCache.getHits()).isEqualTo(1);
+
+    FileSourceDto dto = dbTester.getDbClient().fileSourceDao().selectSourceByFileUuid(dbTester.getSession(), FILE_UUID);
+    dto.setSourceData(FileSourceTesting.newFakeData(3).build()).setDataHash("NEW_DATA_HASH");
+    dbTester.getDbClient().fileSourceDao().update(dbTester.getSession(), dto);
+    dbTester.commit();
+
+    assertThat(underTest.getLines(dbTester.getSession(), FILE_UUID, 1, Integer.MAX_VALUE).get()).hasSize(3);
+    assertThat(sourceCache.getInvalidations()).isEqualTo(1);
+    assertThat(sourceCache.getHits()).isEqualTo(1);
+  }
+
+  @Test
+  public void do_not_cache_lines_of_file_without_data_hash() {
+    FileSourceDto dto = new FileSourceDto().setFileUuid("NO_HASH_FILE_UUID").setProjectUuid("PROJECT_UUID")
+      .setSourceData(FileSourceTesting.newFakeData(3).build());
+    dbTester.getDbClient().fileSourceDao().insert(dbTester.getSession(), dto);
+    dbTester.commit();
+
+    assertThat(underTest.getLines(dbTester.getSession(), "NO_HASH_FILE_UUID", 1, 2).get()).hasSize(2);
+    assertThat(sourceCache.getEntries()).isZero();
+  }
+
   @Test
   public void getLines_fails_if_range_starts_at_zero() {
     expectedException.expect(IllegalArgumentException.class);
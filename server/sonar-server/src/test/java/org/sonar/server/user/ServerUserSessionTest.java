@@ -25,6 +25,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.api.web.UserRole;
 import org.sonar.db.DbClient;
@@ -38,6 +39,7 @@ import org.sonar.db.user.UserDto;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.organization.TestOrganizationFlags;
+import org.sonar.server.permission.PermissionCache;
 
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Arrays.asList;
@@ -448,6 +450,48 @@ public class ServerUserSessionTest {
       .containsExactly(privateProject, publicProject);
   }
 
+  @Test
+  public void keepAuthorizedComponents_feeds_cache_of_project_permissions() {
+    db.users().insertProjectPermissionOnUser(user, UserRole.ADMIN, privateProject);
+    UserSession underTest = newUserSession(user);
+
+    assertThat(underTest.keepAuthorizedComponents(UserRole.ADMIN, Arrays.asList(privateProject, publicProject))).containsExactly(privateProject);
+
+    // change permissions without updating the cache
+    db.users().insertProjectPermissionOnUser(user, UserRole.ISSUE_ADMIN, publicProject);
+    assertThat(underTest.hasComponentPermission(UserRole.ADMIN, privateProject)).isTrue();
+    assertThat(underTest.hasComponentPermission(UserRole.ISSUE_ADMIN, publicProject)).isFalse();
+    assertThat(underTest.hasComponentPermission(UserRole.USER, publicProject)).isTrue();
+  }
+
+  @Test
+  public void permissions_are_shared_by_sessions_of_same_user_until_cache_is_invalidated() {
+    PermissionCache permissionCache = new PermissionCache(new MapSettings().asConfig());
+    db.users().insertProjectPermissionOnUser(user, UserRole.ADMIN, privateProject);
+
+    // feed the cache
+    assertThat(newUserSession(user, permissionCache).hasComponentPermission(UserRole.ADMIN, privateProject)).isTrue();
+    assertThat(newAnonymousSession(permissionCache).hasComponentPermission(UserRole.ADMIN, privateProject)).isFalse();
+
+    db.users().insertProjectPermissionOnUser(user, UserRole.ISSUE_ADMIN, privateProject);
+    assertThat(newUserSession(user, permissionCache).hasComponentPermission(UserRole.ISSUE_ADMIN, privateProject)).isFalse();
+
+    permissionCache.invalidate(user.getId());
+    assertThat(newUserSession(user, permissionCache).hasComponentPermission(UserRole.ISSUE_ADMIN, privateProject)).isTrue();
+  }
+
+  @Test
+  public void permissions_are_not_shared_by_sessions_if_cache_is_disabled() {
+    PermissionCache permissionCache = new PermissionCache(new MapSettings().setProperty("sonar.web.permissionCache.expirationInSeconds", 0).asConfig());
+    OrganizationDto org = db.organizations().insert();
+    db.users().insertPermissionOnUser(org, user, PROVISIONING);
+
+    assertThat(newUserSession(user, permissionCache).hasPermission(PROVISION_PROJECTS, org.getUuid())).isTrue();
+
+    db.users().deletePermissionFromUser(org, user, PROVISION_PROJECTS);
+    assertThat(newUserSession(user, permissionCache).hasPermission(PROVISION_PROJECTS, org.getUuid())).isFalse();
+  }
+
   @Test
   public void keepAuthorizedComponents_on_branches() {
     user = db.users().insertUser();
@@ -559,13 +603,21 @@ public class ServerUserSessionTest {
   }
 
   private ServerUserSession newUserSession(@Nullable UserDto userDto) {
-    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, userDto);
+    return newUserSession(userDto, new PermissionCache(new MapSettings().asConfig()));
+  }
+
+  private ServerUserSession newUserSession(@Nullable UserDto userDto, PermissionCache permissionCache) {
+    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, permissionCache, userDto);
   }
 
   private ServerUserSession newAnonymousSession() {
     return newUserSession(null);
   }
 
+  private ServerUserSession newAnonymousSession(PermissionCache permissionCache) {
+    return newUserSession(null, permissionCache);
+  }
+
   private void addProjectPermissions(ComponentDto component, String... permissions) {
     addPermissions(component, permissions);
   }
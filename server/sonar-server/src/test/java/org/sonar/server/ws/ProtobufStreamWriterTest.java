@@ -0,0 +1,106 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonarqube.ws.Common;
+import org.sonarqube.ws.Issues;
+import org.sonarqube.ws.Issues.SearchWsResponse;
+import org.sonarqube.ws.MediaTypes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.ws.WsUtils.writeProtobuf;
+import static org.sonar.test.JsonAssert.assertJson;
+
+public class ProtobufStreamWriterTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private SearchWsResponse header = SearchWsResponse.newBuilder()
+    .setPaging(Common.Paging.newBuilder().setPageIndex(1).setPageSize(100).setTotal(2))
+    .addComponents(Issues.Component.newBuilder().setKey("P1"))
+    .build();
+
+  @Test
+  public void stream_elements_of_repeated_field_in_json() {
+    TestRequest request = new TestRequest();
+    DumbResponse response = new DumbResponse();
+
+    writeProtobuf(header, SearchWsResponse.ISSUES_FIELD_NUMBER,
+      writer -> writer.write(newIssue("I1")).write(newIssue("I2")), request, response);
+
+    assertThat(response.stream().mediaType()).isEqualTo(MediaTypes.JSON);
+    assertJson(response.outputAsString()).isSimilarTo("{" +
+      "\"paging\":{\"pageIndex\":1,\"pageSize\":100,\"total\":2}," +
+      "\"components\":[{\"key\":\"P1\"}]," +
+      "\"issues\":[{\"key\":\"I1\"},{\"key\":\"I2\"}]" +
+      "}");
+  }
+
+  @Test
+  public void stream_empty_repeated_field_in_json() {
+    TestRequest request = new TestRequest();
+    DumbResponse response = new DumbResponse();
+
+    writeProtobuf(header, SearchWsResponse.ISSUES_FIELD_NUMBER, writer -> {
+    }, request, response);
+
+    assertThat(response.outputAsString()).endsWith(",\"issues\":[]}");
+  }
+
+  @Test
+  public void stream_elements_of_repeated_field_in_protobuf() throws Exception {
+    TestRequest request = new TestRequest();
+    request.setMediaType(MediaTypes.PROTOBUF);
+    DumbResponse response = new DumbResponse();
+
+    writeProtobuf(header, SearchWsResponse.ISSUES_FIELD_NUMBER,
+      writer -> writer.write(newIssue("I1")).write(newIssue("I2")), request, response);
+
+    assertThat(response.stream().mediaType()).isEqualTo(MediaTypes.PROTOBUF);
+    SearchWsResponse expected = header.toBuilder().addIssues(newIssue("I1")).addIssues(newIssue("I2")).build();
+    assertThat(SearchWsResponse.parseFrom(response.getFlushedOutput())).isEqualTo(expected);
+  }
+
+  @Test
+  public void fail_if_field_is_not_a_repeated_field_of_messages() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Field 2 of SearchWsResponse is not a repeated field of messages");
+
+    writeProtobuf(header, SearchWsResponse.P_FIELD_NUMBER, writer -> {
+    }, new TestRequest(), new DumbResponse());
+  }
+
+  @Test
+  public void fail_if_header_contains_elements_of_streamed_field() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Elements of field 'components' must be streamed");
+
+    writeProtobuf(header, SearchWsResponse.COMPONENTS_FIELD_NUMBER, writer -> {
+    }, new TestRequest(), new DumbResponse());
+  }
+
+  private static Issues.Issue newIssue(String key) {
+    return Issues.Issue.newBuilder().setKey(key).build();
+  }
+}
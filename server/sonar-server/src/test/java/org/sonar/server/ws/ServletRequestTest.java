@@ -23,16 +23,21 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.net.HttpHeaders;
 import java.io.InputStream;
 import java.util.List;
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.Part;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.RequestHandler;
+import org.sonar.api.server.ws.WebService;
 import org.sonarqube.ws.MediaTypes;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -167,6 +172,46 @@ public class ServletRequestTest {
     assertThat(underTest.readInputStreamParam("param1")).isNull();
   }
 
+  @Test
+  public void read_part_streamed_as_body_of_request() throws Exception {
+    underTest.setAction(newAction(mock(BodyPartAction.class)));
+    when(source.getContentType()).thenReturn(MediaTypes.ZIP);
+    when(source.getHeader(HttpHeaders.CONTENT_DISPOSITION)).thenReturn("form-data; name=\"report\"; filename=\"report.zip\"");
+    ServletInputStream body = mock(ServletInputStream.class);
+    when(source.getInputStream()).thenReturn(body);
+
+    Request.Part part = underTest.readPart("report");
+
+    assertThat(part.getInputStream()).isSameAs(body);
+    assertThat(part.getFileName()).isEqualTo("report.zip");
+    assertThat(underTest.readPart("other")).isNull();
+  }
+
+  @Test
+  public void return_no_part_when_body_of_request_is_not_form_data() {
+    underTest.setAction(newAction(mock(BodyPartAction.class)));
+    when(source.getContentType()).thenReturn(MediaTypes.ZIP);
+    when(source.getHeader(HttpHeaders.CONTENT_DISPOSITION)).thenReturn("attachment; name=\"report\"");
+
+    assertThat(underTest.readPart("report")).isNull();
+  }
+
+  @Test
+  public void return_no_part_streamed_as_body_of_request_if_action_does_not_accept_it() throws Exception {
+    underTest.setAction(newAction(mock(WsAction.class)));
+    when(source.getContentType()).thenReturn(MediaTypes.ZIP);
+    when(source.getHeader(HttpHeaders.CONTENT_DISPOSITION)).thenReturn("form-data; name=\"report\"; filename=\"report.zip\"");
+
+    assertThat(underTest.readPart("report")).isNull();
+    verify(source, never()).getInputStream();
+  }
+
+  private static WebService.Action newAction(RequestHandler handler) {
+    WebService.Action action = mock(WebService.Action.class);
+    when(action.handler()).thenReturn(handler);
+    return action;
+  }
+
   @Test
   public void getPath() {
     when(source.getRequestURI()).thenReturn("/sonar/path/to/resource/search");
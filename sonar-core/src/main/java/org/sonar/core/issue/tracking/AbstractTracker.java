@@ -19,17 +19,20 @@
  */
 package org.sonar.core.issue.tracking;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.rule.RuleKey;
 
 import static java.util.Comparator.comparing;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsLast;
 
 public class AbstractTracker<RAW extends Trackable, BASE extends Trackable> {
 
@@ -39,27 +42,27 @@ public class AbstractTracker<RAW extends Trackable, BASE extends Trackable> {
       return;
     }
 
-    Multimap<SearchKey, BASE> baseSearch = ArrayListMultimap.create();
-    for (BASE base : tracking.getUnmatchedBases()) {
-      baseSearch.put(searchKeyFactory.apply(base), base);
-    }
+    // bases are sorted once, so that the first unmatched base of a given key is the best match
+    List<BASE> bases = new ArrayList<>();
+    tracking.getUnmatchedBases().forEach(bases::add);
+    bases.sort(comparing(this::statusRank).reversed()
+      .thenComparing(Trackable::getCreationDate, nullsLast(naturalOrder())));
 
+    BaseSearch<BASE> baseSearch = new BaseSearch<>(bases, searchKeyFactory);
     for (RAW raw : tracking.getUnmatchedRaws()) {
-      SearchKey rawKey = searchKeyFactory.apply(raw);
-      Collection<BASE> bases = baseSearch.get(rawKey);
-      bases.stream()
-        .sorted(comparing(this::statusRank).reversed()
-          .thenComparing(comparing(Trackable::getCreationDate)))
-        .findFirst()
-        .ifPresent(match -> {
-          tracking.match(raw, match);
-          baseSearch.remove(rawKey, match);
-        });
+      BASE match = baseSearch.pollFirst(searchKeyFactory.apply(raw));
+      if (match != null) {
+        tracking.match(raw, match);
+      }
     }
   }
 
   private int statusRank(BASE i) {
-    switch (i.getStatus()) {
+    String status = i.getStatus();
+    if (status == null) {
+      return 0;
+    }
+    switch (status) {
       case Issue.STATUS_RESOLVED:
         return 2;
       case Issue.STATUS_CONFIRMED:
@@ -72,15 +75,99 @@ public class AbstractTracker<RAW extends Trackable, BASE extends Trackable> {
   protected interface SearchKey {
   }
 
+  /**
+   * Open-addressing hash table of bases by search key. Bases which share the same key are chained by order of
+   * preference. It avoids creating a collection per key and copying or sorting candidates for every raw.
+   */
+  private static final class BaseSearch<BASE extends Trackable> {
+    private static final int NONE = -1;
+
+    private final List<BASE> bases;
+    private final SearchKey[] keys;
+    private final int[] hashes;
+    // index of the next base with the same key, or NONE
+    private final int[] next;
+    // index of the first base of the key owning the slot, or NONE if slot is free
+    private final int[] slotKeys;
+    // index of the first unmatched base of the key owning the slot, or NONE
+    private final int[] slotHeads;
+    private final int mask;
+
+    private BaseSearch(List<BASE> bases, Function<Trackable, SearchKey> searchKeyFactory) {
+      int size = bases.size();
+      this.bases = bases;
+      this.keys = new SearchKey[size];
+      this.hashes = new int[size];
+      this.next = new int[size];
+      int tableSize = Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1;
+      this.slotKeys = new int[tableSize];
+      this.slotHeads = new int[tableSize];
+      this.mask = tableSize - 1;
+      Arrays.fill(slotKeys, NONE);
+      Arrays.fill(next, NONE);
+      int[] slotTails = new int[tableSize];
+      for (int i = 0; i < size; i++) {
+        SearchKey key = searchKeyFactory.apply(bases.get(i));
+        keys[i] = key;
+        hashes[i] = key.hashCode();
+        int slot = findSlot(key, hashes[i]);
+        if (slotKeys[slot] == NONE) {
+          slotKeys[slot] = i;
+          slotHeads[slot] = i;
+        } else {
+          next[slotTails[slot]] = i;
+        }
+        slotTails[slot] = i;
+      }
+    }
+
+    /**
+     * Slot owned by the specified key, or the free slot where to add it.
+     */
+    private int findSlot(SearchKey key, int hash) {
+      int slot = mix(hash) & mask;
+      int owner = slotKeys[slot];
+      while (owner != NONE && (hashes[owner] != hash || !keys[owner].equals(key))) {
+        slot = (slot + 1) & mask;
+        owner = slotKeys[slot];
+      }
+      return slot;
+    }
+
+    /**
+     * Removes and returns the preferred base with the specified key, or {@code null} if there is none.
+     */
+    @CheckForNull
+    BASE pollFirst(SearchKey key) {
+      int slot = findSlot(key, key.hashCode());
+      if (slotKeys[slot] == NONE) {
+        return null;
+      }
+      int first = slotHeads[slot];
+      if (first == NONE) {
+        return null;
+      }
+      slotHeads[slot] = next[first];
+      return bases.get(first);
+    }
+
+    private static int mix(int hash) {
+      int h = hash * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+  }
+
   protected static class LineAndLineHashKey implements SearchKey {
     private final RuleKey ruleKey;
     private final String lineHash;
     private final Integer line;
+    private final int hashCode;
 
     protected LineAndLineHashKey(Trackable trackable) {
       this.ruleKey = trackable.getRuleKey();
       this.line = trackable.getLine();
       this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
+      this.hashCode = 31 * (31 * ruleKey.hashCode() + lineHash.hashCode()) + (line != null ? line : 0);
     }
 
     @Override
@@ -90,14 +177,15 @@ public class AbstractTracker<RAW extends Trackable, BASE extends Trackable> {
       }
       LineAndLineHashKey that = (LineAndLineHashKey) o;
       // start with most discriminant field
-      return Objects.equals(line, that.line)
+      return hashCode == that.hashCode
+        && Objects.equals(line, that.line)
         && lineHash.equals(that.lineHash)
         && ruleKey.equals(that.ruleKey);
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(ruleKey, lineHash, line != null ? line : 0);
+      return hashCode;
     }
   }
 
@@ -105,11 +193,13 @@ public class AbstractTracker<RAW extends Trackable, BASE extends Trackable> {
     private final RuleKey ruleKey;
     private final String message;
     private final String lineHash;
+    private final int hashCode;
 
     LineHashAndMessageKey(Trackable trackable) {
       this.ruleKey = trackable.getRuleKey();
       this.message = trackable.getMessage();
       this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
+      this.hashCode = 31 * (31 * ruleKey.hashCode() + Objects.hashCode(message)) + lineHash.hashCode();
     }
 
     @Override
@@ -119,14 +209,15 @@ public class AbstractTracker<RAW extends Trackable, BASE extends Trackable> {
       }
       LineHashAndMessageKey that = (LineHashAndMessageKey) o;
       // start with most discriminant field
-      return lineHash.equals(that.lineHash)
+      return hashCode == that.hashCode
+        && lineHash.equals(that.lineHash)
         && message.equals(that.message)
         && ruleKey.equals(that.ruleKey);
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(ruleKey, message, lineHash);
+      return hashCode;
     }
   }
 
@@ -134,11 +225,13 @@ public class AbstractTracker<RAW extends Trackable, BASE extends Trackable> {
     private final RuleKey ruleKey;
     private final String message;
     private final Integer line;
+    private final int hashCode;
 
     LineAndMessageKey(Trackable trackable) {
       this.ruleKey = trackable.getRuleKey();
       this.message = trackable.getMessage();
       this.line = trackable.getLine();
+      this.hashCode = 31 * (31 * ruleKey.hashCode() + Objects.hashCode(message)) + (line != null ? line : 0);
     }
 
     @Override
@@ -148,24 +241,27 @@ public class AbstractTracker<RAW extends Trackable, BASE extends Trackable> {
       }
       LineAndMessageKey that = (LineAndMessageKey) o;
       // start with most discriminant field
-      return Objects.equals(line, that.line)
+      return hashCode == that.hashCode
+        && Objects.equals(line, that.line)
         && message.equals(that.message)
         && ruleKey.equals(that.ruleKey);
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(ruleKey, message, line != null ? line : 0);
+      return hashCode;
     }
   }
 
   protected static class LineHashKey implements SearchKey {
     private final RuleKey ruleKey;
     private final String lineHash;
+    private final int hashCode;
 
     LineHashKey(Trackable trackable) {
       this.ruleKey = trackable.getRuleKey();
       this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
+      this.hashCode = 31 * ruleKey.hashCode() + lineHash.hashCode();
     }
 
     @Override
@@ -175,13 +271,14 @@ public class AbstractTracker<RAW extends Trackable, BASE extends Trackable> {
       }
       LineHashKey that = (LineHashKey) o;
       // start with most discriminant field
-      return lineHash.equals(that.lineHash)
+      return hashCode == that.hashCode
+        && lineHash.equals(that.lineHash)
         && ruleKey.equals(that.ruleKey);
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(ruleKey, lineHash);
+      return hashCode;
     }
   }
 
@@ -19,15 +19,11 @@
  */
 package org.sonar.core.issue.tracking;
 
-import com.google.common.collect.LinkedHashMultimap;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
 
@@ -39,50 +35,46 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
     BlockHashSequence rawHashSequence = rawInput.getBlockHashSequence();
     BlockHashSequence baseHashSequence = baseInput.getBlockHashSequence();
 
-    Multimap<Integer, RAW> rawsByLine = groupByLine(tracking.getUnmatchedRaws(), rawHashSequence);
-    Multimap<Integer, BASE> basesByLine = groupByLine(tracking.getUnmatchedBases(), baseHashSequence);
-    Map<Integer, HashOccurrence> occurrencesByHash = new HashMap<>();
+    TrackablesByLine<RAW> rawsByLine = new TrackablesByLine<>(tracking.getUnmatchedRaws(), rawHashSequence);
+    TrackablesByLine<BASE> basesByLine = new TrackablesByLine<>(tracking.getUnmatchedBases(), baseHashSequence);
+    HashOccurrences occurrences = new HashOccurrences(basesByLine.lineCount());
 
-    for (Integer line : basesByLine.keySet()) {
-      int hash = baseHashSequence.getBlockHashForLine(line);
-      HashOccurrence hashOccurrence = occurrencesByHash.get(hash);
-      if (hashOccurrence == null) {
-        // first occurrence in base
-        hashOccurrence = new HashOccurrence();
-        hashOccurrence.baseLine = line;
-        hashOccurrence.baseCount = 1;
-        occurrencesByHash.put(hash, hashOccurrence);
-      } else {
-        hashOccurrence.baseCount++;
-      }
+    for (int i = 0; i < basesByLine.lineCount(); i++) {
+      int line = basesByLine.lineAt(i);
+      occurrences.addBaseLine(baseHashSequence.getBlockHashForLine(line), line);
     }
-
-    for (Integer line : rawsByLine.keySet()) {
-      int hash = rawHashSequence.getBlockHashForLine(line);
-      HashOccurrence hashOccurrence = occurrencesByHash.get(hash);
-      if (hashOccurrence != null) {
-        hashOccurrence.rawLine = line;
-        hashOccurrence.rawCount++;
-      }
+    for (int i = 0; i < rawsByLine.lineCount(); i++) {
+      int line = rawsByLine.lineAt(i);
+      occurrences.addRawLine(rawHashSequence.getBlockHashForLine(line), line);
     }
 
-    for (HashOccurrence hashOccurrence : occurrencesByHash.values()) {
-      if (hashOccurrence.baseCount == 1 && hashOccurrence.rawCount == 1) {
+    for (int slot = 0; slot < occurrences.capacity(); slot++) {
+      if (occurrences.isUniqueInBaseAndRaw(slot)) {
         // Guaranteed that baseLine has been moved to rawLine, so we can map all issues on baseLine to all issues on rawLine
-        map(rawsByLine.get(hashOccurrence.rawLine), basesByLine.get(hashOccurrence.baseLine), tracking);
-        basesByLine.removeAll(hashOccurrence.baseLine);
-        rawsByLine.removeAll(hashOccurrence.rawLine);
+        int baseLine = occurrences.baseLines[slot];
+        int rawLine = occurrences.rawLines[slot];
+        map(rawsByLine, rawLine, basesByLine, baseLine, tracking);
+        basesByLine.remove(baseLine);
+        rawsByLine.remove(rawLine);
       }
     }
 
     // Check if remaining number of lines exceeds threshold. It avoids processing too many combinations.
-    if (basesByLine.keySet().size() * rawsByLine.keySet().size() >= 250_000) {
+    if (basesByLine.remainingLineCount() * rawsByLine.remainingLineCount() >= 250_000) {
       return;
     }
 
-    List<LinePair> possibleLinePairs = Lists.newArrayList();
-    for (Integer baseLine : basesByLine.keySet()) {
-      for (Integer rawLine : rawsByLine.keySet()) {
+    List<LinePair> possibleLinePairs = new ArrayList<>();
+    for (int i = 0; i < basesByLine.lineCount(); i++) {
+      int baseLine = basesByLine.lineAt(i);
+      if (basesByLine.isRemoved(baseLine)) {
+        continue;
+      }
+      for (int j = 0; j < rawsByLine.lineCount(); j++) {
+        int rawLine = rawsByLine.lineAt(j);
+        if (rawsByLine.isRemoved(rawLine)) {
+          continue;
+        }
         int weight = lengthOfMaximalBlock(baseInput.getLineHashSequence(), baseLine, rawInput.getLineHashSequence(), rawLine);
         if (weight > 0) {
           possibleLinePairs.add(new LinePair(baseLine, rawLine, weight));
@@ -92,7 +84,7 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
     Collections.sort(possibleLinePairs, LinePairComparator.INSTANCE);
     for (LinePair linePair : possibleLinePairs) {
       // High probability that baseLine has been moved to rawLine, so we can map all issues on baseLine to all issues on rawLine
-      map(rawsByLine.get(linePair.rawLine), basesByLine.get(linePair.baseLine), tracking);
+      map(rawsByLine, linePair.rawLine, basesByLine, linePair.baseLine, tracking);
     }
   }
 
@@ -123,9 +115,11 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
     return length - 1;
   }
 
-  private void map(Collection<RAW> raws, Collection<BASE> bases, Tracking<RAW, BASE> result) {
-    for (RAW raw : raws) {
-      for (BASE base : bases) {
+  private void map(TrackablesByLine<RAW> rawsByLine, int rawLine, TrackablesByLine<BASE> basesByLine, int baseLine, Tracking<RAW, BASE> result) {
+    for (int r = rawsByLine.first(rawLine); r != TrackablesByLine.NONE; r = rawsByLine.next(r)) {
+      RAW raw = rawsByLine.get(r);
+      for (int b = basesByLine.first(baseLine); b != TrackablesByLine.NONE; b = basesByLine.next(b)) {
+        BASE base = basesByLine.get(b);
         if (result.containsUnmatchedBase(base) && base.getRuleKey().equals(raw.getRuleKey())) {
           result.match(raw, base);
           break;
@@ -134,15 +128,149 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
     }
   }
 
-  private static <T extends Trackable> Multimap<Integer, T> groupByLine(Iterable<T> trackables, BlockHashSequence hashSequence) {
-    Multimap<Integer, T> result = LinkedHashMultimap.create();
-    for (T trackable : trackables) {
-      Integer line = trackable.getLine();
-      if (hashSequence.hasLine(line)) {
-        result.put(line, trackable);
+  /**
+   * Trackables grouped by line. Lines are the indexes of arrays, and trackables of the same line are chained
+   * by their index, so that no collection is created per line. Lines are iterated in the order they
+   * are first referenced by trackables.
+   */
+  private static final class TrackablesByLine<T extends Trackable> {
+    private static final int NONE = -1;
+
+    private final List<T> trackables = new ArrayList<>();
+    // index of the next trackable on the same line, or NONE
+    private final int[] next;
+    // index of the first trackable of line, or NONE if line has no trackables or has been removed
+    private final int[] heads;
+    private final int[] lines;
+    private final int lineCount;
+    private int remainingLineCount;
+
+    private TrackablesByLine(Iterable<T> unmatched, BlockHashSequence hashSequence) {
+      for (T trackable : unmatched) {
+        if (hashSequence.hasLine(trackable.getLine())) {
+          trackables.add(trackable);
+        }
+      }
+      this.next = new int[trackables.size()];
+      this.heads = new int[hashSequence.length() + 1];
+      this.lines = new int[trackables.size()];
+      Arrays.fill(next, NONE);
+      Arrays.fill(heads, NONE);
+      int[] tails = new int[heads.length];
+      int count = 0;
+      for (int i = 0; i < trackables.size(); i++) {
+        int line = trackables.get(i).getLine();
+        if (heads[line] == NONE) {
+          heads[line] = i;
+          lines[count] = line;
+          count++;
+        } else {
+          next[tails[line]] = i;
+        }
+        tails[line] = i;
+      }
+      this.lineCount = count;
+      this.remainingLineCount = count;
+    }
+
+    int lineCount() {
+      return lineCount;
+    }
+
+    int remainingLineCount() {
+      return remainingLineCount;
+    }
+
+    int lineAt(int index) {
+      return lines[index];
+    }
+
+    int first(int line) {
+      return heads[line];
+    }
+
+    int next(int index) {
+      return next[index];
+    }
+
+    T get(int index) {
+      return trackables.get(index);
+    }
+
+    boolean isRemoved(int line) {
+      return heads[line] == NONE;
+    }
+
+    void remove(int line) {
+      if (heads[line] != NONE) {
+        heads[line] = NONE;
+        remainingLineCount--;
       }
     }
-    return result;
+  }
+
+  /**
+   * Open-addressing hash table of the occurrences of block hashes in base and raw lines. Only the hashes
+   * of base lines are added, raw lines are counted only if their hash exists in base.
+   */
+  private static final class HashOccurrences {
+    private final boolean[] used;
+    private final int[] hashes;
+    private final int[] baseLines;
+    private final int[] rawLines;
+    private final int[] baseCounts;
+    private final int[] rawCounts;
+    private final int mask;
+
+    private HashOccurrences(int expectedBaseLines) {
+      int capacity = Integer.highestOneBit(Math.max(1, expectedBaseLines) * 2 - 1) << 1;
+      this.used = new boolean[capacity];
+      this.hashes = new int[capacity];
+      this.baseLines = new int[capacity];
+      this.rawLines = new int[capacity];
+      this.baseCounts = new int[capacity];
+      this.rawCounts = new int[capacity];
+      this.mask = capacity - 1;
+    }
+
+    int capacity() {
+      return used.length;
+    }
+
+    void addBaseLine(int hash, int line) {
+      int slot = findSlot(hash);
+      if (!used[slot]) {
+        // first occurrence in base
+        used[slot] = true;
+        hashes[slot] = hash;
+        baseLines[slot] = line;
+      }
+      baseCounts[slot]++;
+    }
+
+    void addRawLine(int hash, int line) {
+      int slot = findSlot(hash);
+      if (used[slot]) {
+        rawLines[slot] = line;
+        rawCounts[slot]++;
+      }
+    }
+
+    boolean isUniqueInBaseAndRaw(int slot) {
+      return used[slot] && baseCounts[slot] == 1 && rawCounts[slot] == 1;
+    }
+
+    /**
+     * Slot of the specified hash, or the free slot where to add it.
+     */
+    private int findSlot(int hash) {
+      int h = hash * 0x9E3779B9;
+      int slot = (h ^ (h >>> 16)) & mask;
+      while (used[slot] && hashes[slot] != hash) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
   }
 
   private static class LinePair {
@@ -157,13 +285,6 @@ class BlockRecognizer<RAW extends Trackable, BASE extends Trackable> {
     }
   }
 
-  private static class HashOccurrence {
-    int baseLine;
-    int rawLine;
-    int baseCount;
-    int rawCount;
-  }
-
   private enum LinePairComparator implements Comparator<LinePair> {
     INSTANCE;
 
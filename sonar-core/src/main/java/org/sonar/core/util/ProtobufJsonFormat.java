@@ -26,6 +26,7 @@ import java.io.StringWriter;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.sonar.api.utils.text.JsonWriter;
 
 /**
@@ -159,6 +160,16 @@ public class ProtobufJsonFormat {
     writer.endObject();
   }
 
+  /**
+   * Writes the fields of message in the JSON object being written by {@code writer}, except the repeated field
+   * {@code excludedField}. The elements of this field can then be written one by one, for example
+   * when a large response is streamed.
+   */
+  public static void writeFields(Message message, JsonWriter writer, Descriptors.FieldDescriptor excludedField) {
+    writer.setSerializeNulls(false).setSerializeEmptys(true);
+    writeMessage(message, writer, excludedField);
+  }
+
   public static String toJson(Message message) {
     StringWriter json = new StringWriter();
     try (JsonWriter jsonWriter = JsonWriter.of(json)) {
@@ -168,8 +179,15 @@ public class ProtobufJsonFormat {
   }
 
   private static void writeMessage(Message message, JsonWriter writer) {
+    writeMessage(message, writer, null);
+  }
+
+  private static void writeMessage(Message message, JsonWriter writer, @Nullable Descriptors.FieldDescriptor excludedField) {
     MessageType type = MessageType.of(message);
     for (Descriptors.FieldDescriptor fieldDescriptor : type.fieldDescriptors) {
+      if (fieldDescriptor.equals(excludedField)) {
+        continue;
+      }
       if (fieldDescriptor.isRepeated()) {
         writer.name(fieldDescriptor.getName());
         if (fieldDescriptor.isMapField()) {
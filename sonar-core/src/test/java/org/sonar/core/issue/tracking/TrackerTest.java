@@ -184,6 +184,45 @@ public class TrackerTest {
     assertThat(tracking.getUnmatchedBases()).containsOnly(base);
   }
 
+  @Test
+  public void match_resolved_then_confirmed_then_oldest_base_first() {
+    FakeInput baseInput = new FakeInput("H1");
+    Issue openOld = new Issue(1, "H1", RULE_SYSTEM_PRINT, "msg", org.sonar.api.issue.Issue.STATUS_OPEN, new Date(1_000L));
+    Issue confirmed = new Issue(1, "H1", RULE_SYSTEM_PRINT, "msg", org.sonar.api.issue.Issue.STATUS_CONFIRMED, new Date(3_000L));
+    Issue resolvedRecent = new Issue(1, "H1", RULE_SYSTEM_PRINT, "msg", org.sonar.api.issue.Issue.STATUS_RESOLVED, new Date(4_000L));
+    Issue resolvedOld = new Issue(1, "H1", RULE_SYSTEM_PRINT, "msg", org.sonar.api.issue.Issue.STATUS_RESOLVED, new Date(2_000L));
+    baseInput.addIssue(openOld).addIssue(confirmed).addIssue(resolvedRecent).addIssue(resolvedOld);
+
+    FakeInput rawInput = new FakeInput("H1");
+    Issue raw1 = rawInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+    Issue raw2 = rawInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+    Issue raw3 = rawInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+
+    Tracking<Issue, Issue> tracking = tracker.track(rawInput, baseInput);
+    assertThat(tracking.baseFor(raw1)).isSameAs(resolvedOld);
+    assertThat(tracking.baseFor(raw2)).isSameAs(resolvedRecent);
+    assertThat(tracking.baseFor(raw3)).isSameAs(confirmed);
+    assertThat(tracking.getUnmatchedBases()).containsOnly(openOld);
+  }
+
+  @Test
+  public void match_many_issues_with_same_keys() {
+    FakeInput baseInput = new FakeInput("H1", "H2", "H3");
+    FakeInput rawInput = new FakeInput("H1", "H2", "H3");
+    List<Issue> raws = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      int line = 1 + i % 3;
+      baseInput.createIssueOnLine(line, RULE_SYSTEM_PRINT, "msg" + (i % 10));
+      raws.add(rawInput.createIssueOnLine(line, RULE_SYSTEM_PRINT, "msg" + (i % 10)));
+    }
+    rawInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+
+    Tracking<Issue, Issue> tracking = tracker.track(rawInput, baseInput);
+    assertThat(tracking.getUnmatchedBases()).isEmpty();
+    assertThat(tracking.getMatchedRaws()).hasSize(1_000).containsKeys(raws.toArray(new Issue[0]));
+    assertThat(tracking.getUnmatchedRaws()).hasSize(1);
+  }
+
   @Test
   public void do_not_fail_if_raw_line_does_not_exist() {
     FakeInput baseInput = new FakeInput();
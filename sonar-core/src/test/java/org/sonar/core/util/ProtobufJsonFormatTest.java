@@ -104,6 +104,23 @@ public class ProtobufJsonFormatTest {
       .isEqualTo("{\"strings\":[\"one\",\"two\"],\"nesteds\":[{\"label\":\"nestedOne\"},{\"label\":\"nestedTwo\"}]}");
   }
 
+  @Test
+  public void write_fields_except_excluded_field() {
+    TestArray msg = TestArray.newBuilder()
+      .addStrings("one")
+      .addNesteds(NestedMsg.newBuilder().setLabel("nestedOne"))
+      .build();
+
+    StringWriter json = new StringWriter();
+    try (JsonWriter jsonWriter = JsonWriter.of(json)) {
+      jsonWriter.beginObject();
+      ProtobufJsonFormat.writeFields(msg, jsonWriter, TestArray.getDescriptor().findFieldByNumber(TestArray.NESTEDS_FIELD_NUMBER));
+      jsonWriter.endObject();
+    }
+
+    assertThat(json.toString()).isEqualTo("{\"strings\":[\"one\"]}");
+  }
+
   @Test
   public void write_empty_array() {
     TestArray msg = TestArray.newBuilder().build();
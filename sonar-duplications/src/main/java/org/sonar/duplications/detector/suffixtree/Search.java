@@ -48,6 +48,17 @@ public final class Search {
     new Search(SuffixTree.create(text), text, reporter).compute();
   }
 
+  /**
+   * Search can take minutes on some files, so it stops when its thread is interrupted, for example on timeout
+   *
+   * @throws IllegalStateException if the current thread is interrupted. Its interrupted status is not cleared.
+   */
+  static void checkInterrupted() {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new IllegalStateException("Detection of duplications was interrupted");
+    }
+  }
+
   private void compute() {
     // O(N)
     dfs();
@@ -66,6 +77,7 @@ public final class Search {
     Deque<Node> stack = new LinkedList<>();
     stack.add(tree.getRootNode());
     while (!stack.isEmpty()) {
+      checkInterrupted();
       Node node = stack.removeLast();
       node.startSize = list.size();
       if (node.getEdges().isEmpty()) {
@@ -101,6 +113,7 @@ public final class Search {
    */
   private void visitInnerNodes() {
     for (Node node : innerNodes) {
+      checkInterrupted();
       if (containsOrigin(node)) {
         report(node);
       }
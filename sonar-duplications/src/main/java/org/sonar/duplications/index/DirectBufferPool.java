@@ -0,0 +1,67 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+
+/**
+ * Direct buffers storing data of off-heap {@link PackedMemoryCloneIndex}. Memory of a direct buffer is released only
+ * when the buffer is garbage collected, so buffers are released to the pool when an index is closed and reused by the
+ * next indexes. The pool never allocates more buffers than the indexes use at the same time.
+ *
+ * @since 7.1
+ */
+public class DirectBufferPool {
+
+  static final int BUFFER_BITS = 16;
+  static final int BUFFER_INTS = 1 << BUFFER_BITS;
+
+  private final Deque<IntBuffer> freeBuffers = new ArrayDeque<>();
+  private int allocatedBuffers = 0;
+
+  synchronized IntBuffer acquire() {
+    IntBuffer buffer = freeBuffers.pollFirst();
+    if (buffer == null) {
+      buffer = ByteBuffer.allocateDirect(BUFFER_INTS * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+      allocatedBuffers++;
+    }
+    return buffer;
+  }
+
+  synchronized void release(Collection<IntBuffer> buffers) {
+    freeBuffers.addAll(buffers);
+  }
+
+  /**
+   * Number of buffers allocated since the creation of the pool, in use or not
+   */
+  public synchronized int getAllocatedBuffers() {
+    return allocatedBuffers;
+  }
+
+  public synchronized int getFreeBuffers() {
+    return freeBuffers.size();
+  }
+}
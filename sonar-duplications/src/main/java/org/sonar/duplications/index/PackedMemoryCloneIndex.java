@@ -19,6 +19,7 @@
  */
 package org.sonar.duplications.index;
 
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -42,10 +43,15 @@ import javax.annotation.Nullable;
  * however total time spent in this class less than 1 second for small projects and around 2 seconds for projects like JDK.
  * </p>
  * <p>
+ * Data of blocks can be stored off-heap (see {@link #PackedMemoryCloneIndex(int, int, DirectBufferPool)}) for indexes of
+ * millions of blocks: index then grows without copying data and blocks do not weigh on garbage collection. Buffers
+ * are returned to their pool by {@link #close()}.
+ * </p>
+ * <p>
  * Note that this implementation currently does not support deletion, however it's possible to implement.
  * </p>
  */
-public class PackedMemoryCloneIndex extends AbstractCloneIndex {
+public class PackedMemoryCloneIndex extends AbstractCloneIndex implements AutoCloseable {
 
   private static final int DEFAULT_INITIAL_CAPACITY = 1024;
 
@@ -66,7 +72,7 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
   private int size;
 
   private String[] resourceIds;
-  private int[] blockData;
+  private final BlockData blockData;
 
   private int[] resourceIdsIndex;
 
@@ -81,12 +87,22 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
    * @param initialCapacity the initial capacity
    */
   public PackedMemoryCloneIndex(int hashBytes, int initialCapacity) {
+    this(hashBytes, initialCapacity, null);
+  }
+
+  /**
+   * @param hashBytes size of hash in bytes
+   * @param initialCapacity the initial capacity
+   * @param bufferPool if not null, data of blocks is stored in direct buffers of this pool rather than in the Java heap
+   */
+  public PackedMemoryCloneIndex(int hashBytes, int initialCapacity, @Nullable DirectBufferPool bufferPool) {
     this.sorted = false;
     this.hashInts = hashBytes / 4;
     this.blockInts = hashInts + BLOCK_INTS;
     this.size = 0;
     this.resourceIds = new String[initialCapacity];
-    this.blockData = new int[initialCapacity * blockInts];
+    this.blockData = bufferPool == null ? new HeapBlockData() : new DirectBlockData(bufferPool);
+    this.blockData.ensureCapacity(initialCapacity * blockInts);
     this.resourceIdsIndex = new int[initialCapacity];
   }
 
@@ -124,7 +140,7 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     if (byteHash == null) {
       int[] hash = new int[hashInts];
       for (int j = 0; j < hashInts; j++) {
-        hash[j] = blockData[offset++];
+        hash[j] = blockData.get(offset++);
       }
       blockHash = new ByteArray(hash);
     } else {
@@ -132,11 +148,11 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
       offset += hashInts;
     }
 
-    int indexInFile = blockData[offset++];
-    int firstLineNumber = blockData[offset++];
-    int lastLineNumber = blockData[offset++];
-    int startUnit = blockData[offset++];
-    int endUnit = blockData[offset];
+    int indexInFile = blockData.get(offset++);
+    int firstLineNumber = blockData.get(offset++);
+    int lastLineNumber = blockData.get(offset++);
+    int startUnit = blockData.get(offset++);
+    int endUnit = blockData.get(offset);
 
     return blockBuilder
       .setResourceId(resourceId)
@@ -224,7 +240,7 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     }
     int offset = size * blockInts;
     for (int i = 0; i < hashInts; i++) {
-      blockData[offset++] = hash[i];
+      blockData.set(offset++, hash[i]);
     }
 
     int index = DataUtils.binarySearch(byBlockHash);
@@ -258,13 +274,13 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     }
     int offset = size * blockInts;
     for (int i = 0; i < hashInts; i++) {
-      blockData[offset++] = hash[i];
+      blockData.set(offset++, hash[i]);
     }
-    blockData[offset++] = block.getIndexInFile();
-    blockData[offset++] = block.getStartLine();
-    blockData[offset++] = block.getEndLine();
-    blockData[offset++] = block.getStartUnit();
-    blockData[offset] = block.getEndUnit();
+    blockData.set(offset++, block.getIndexInFile());
+    blockData.set(offset++, block.getStartLine());
+    blockData.set(offset++, block.getEndLine());
+    blockData.set(offset++, block.getStartUnit());
+    blockData.set(offset, block.getEndUnit());
 
     size++;
   }
@@ -282,9 +298,7 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     resourceIds = new String[newCapacity];
     System.arraycopy(oldResourceIds, 0, resourceIds, 0, oldResourceIds.length);
     // Increase size of blockData
-    int[] oldBlockData = blockData;
-    blockData = new int[newCapacity * blockInts];
-    System.arraycopy(oldBlockData, 0, blockData, 0, oldBlockData.length);
+    blockData.ensureCapacity(newCapacity * blockInts);
     // Increase size of byResourceIndices (no need to copy old, because would be restored in method ensureSorted)
     resourceIdsIndex = new int[newCapacity];
     sorted = false;
@@ -313,10 +327,12 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     int i2 = i * blockInts;
     int j2 = j * blockInts;
     for (int k = 0; k < hashInts; k++, i2++, j2++) {
-      if (blockData[i2] < blockData[j2]) {
+      int x = blockData.get(i2);
+      int y = blockData.get(j2);
+      if (x < y) {
         return true;
       }
-      if (blockData[i2] > blockData[j2]) {
+      if (x > y) {
         return false;
       }
     }
@@ -333,9 +349,9 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
       i *= blockInts;
       j *= blockInts;
       for (int k = 0; k < blockInts; k++, i++, j++) {
-        int x = blockData[i];
-        blockData[i] = blockData[j];
-        blockData[j] = x;
+        int x = blockData.get(i);
+        blockData.set(i, blockData.get(j));
+        blockData.set(j, x);
       }
     }
 
@@ -389,4 +405,94 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     }
     return count;
   }
+
+  /**
+   * Returns the direct buffers of an off-heap index to their pool. The index must not be used anymore.
+   */
+  @Override
+  public void close() {
+    blockData.release();
+  }
+
+  /**
+   * Storage of the ints describing blocks
+   */
+  private abstract static class BlockData {
+    abstract int get(int index);
+
+    abstract void set(int index, int value);
+
+    /**
+     * Ensures that ints can be stored at indexes lower than capacity
+     */
+    abstract void ensureCapacity(int capacity);
+
+    abstract void release();
+  }
+
+  private static final class HeapBlockData extends BlockData {
+    private int[] data = new int[0];
+
+    @Override
+    int get(int index) {
+      return data[index];
+    }
+
+    @Override
+    void set(int index, int value) {
+      data[index] = value;
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      if (capacity > data.length) {
+        int[] oldData = data;
+        data = new int[capacity];
+        System.arraycopy(oldData, 0, data, 0, oldData.length);
+      }
+    }
+
+    @Override
+    void release() {
+      data = new int[0];
+    }
+  }
+
+  /**
+   * Ints are stored in direct buffers of a pool, which are allocated outside of the Java heap. Existing buffers
+   * are kept when capacity increases.
+   */
+  private static final class DirectBlockData extends BlockData {
+    private static final int PAGE_MASK = DirectBufferPool.BUFFER_INTS - 1;
+
+    private final DirectBufferPool pool;
+    private final List<IntBuffer> pages = new ArrayList<>();
+
+    private DirectBlockData(DirectBufferPool pool) {
+      this.pool = pool;
+    }
+
+    @Override
+    int get(int index) {
+      return pages.get(index >>> DirectBufferPool.BUFFER_BITS).get(index & PAGE_MASK);
+    }
+
+    @Override
+    void set(int index, int value) {
+      pages.get(index >>> DirectBufferPool.BUFFER_BITS).put(index & PAGE_MASK, value);
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      while ((long) pages.size() * DirectBufferPool.BUFFER_INTS < capacity) {
+        pages.add(pool.acquire());
+      }
+    }
+
+    @Override
+    void release() {
+      pool.release(pages);
+      pages.clear();
+    }
+  }
 }
@@ -33,6 +33,7 @@ import java.util.List;
 import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.sonar.duplications.detector.CloneGroupMatcher.hasCloneGroup;
 
 public class SuffixTreeCloneDetectionAlgorithmTest extends DetectorTestCase {
@@ -73,6 +74,21 @@ public class SuffixTreeCloneDetectionAlgorithmTest extends DetectorTestCase {
     assertEquals(1, result.size());
   }
 
+  @Test
+  public void stop_when_thread_is_interrupted() {
+    CloneIndex index = createIndex();
+    Block[] fileBlocks = newBlocks("x", "a 2 b 2 c 2 2 2");
+    Thread.currentThread().interrupt();
+    try {
+      detect(index, fileBlocks);
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("Detection of duplications was interrupted", e.getMessage());
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
   /**
    * Given:
    * <pre>
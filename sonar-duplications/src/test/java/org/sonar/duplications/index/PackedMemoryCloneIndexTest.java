@@ -122,6 +122,56 @@ public class PackedMemoryCloneIndexTest {
     assertThat(index.getByResourceId("a").size(), is(2));
   }
 
+  @Test
+  public void should_increase_capacity_off_heap() {
+    CloneIndex index = new PackedMemoryCloneIndex(8, 1, new DirectBufferPool());
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("a", 2));
+    assertThat(index.getByResourceId("a").size(), is(2));
+  }
+
+  /**
+   * Given: off-heap index with more blocks than fit in a single page of storage.
+   * Expected: blocks are sorted and found like in heap index.
+   */
+  @Test
+  public void should_store_blocks_off_heap() {
+    CloneIndex offHeapIndex = new PackedMemoryCloneIndex(8, 16, new DirectBufferPool());
+    for (int i = 20_000; i > 0; i--) {
+      offHeapIndex.insert(newBlock("r" + (i % 100), i % 1_000));
+    }
+
+    assertThat(offHeapIndex.noResources()).isEqualTo(100);
+    assertThat(offHeapIndex.getByResourceId("r42").size(), is(200));
+    Collection<Block> blocks = offHeapIndex.getBySequenceHash(new ByteArray(42L));
+    assertThat(blocks.size(), is(20));
+    for (Block block : blocks) {
+      assertThat(block.getResourceId()).isEqualTo("r42");
+      assertThat(block.getStartLine()).isEqualTo(1);
+      assertThat(block.getEndLine()).isEqualTo(2);
+    }
+    assertThat(offHeapIndex.getBySequenceHash(new ByteArray(1_000L)).size(), is(0));
+  }
+
+  @Test
+  public void buffers_of_closed_off_heap_index_are_reused() {
+    DirectBufferPool pool = new DirectBufferPool();
+    try (PackedMemoryCloneIndex index = new PackedMemoryCloneIndex(8, 20_000, pool)) {
+      index.insert(newBlock("a", 1));
+    }
+    int allocatedBuffers = pool.getAllocatedBuffers();
+    assertThat(allocatedBuffers).isGreaterThan(1);
+    assertThat(pool.getFreeBuffers()).isEqualTo(allocatedBuffers);
+
+    try (PackedMemoryCloneIndex index = new PackedMemoryCloneIndex(8, 20_000, pool)) {
+      index.insert(newBlock("b", 2));
+      assertThat(index.getByResourceId("b").size(), is(1));
+      assertThat(index.getByResourceId("a").size(), is(0));
+      assertThat(pool.getFreeBuffers()).isZero();
+    }
+    assertThat(pool.getAllocatedBuffers()).isEqualTo(allocatedBuffers);
+  }
+
   /**
    * Given: index, which accepts blocks with 4-byte hash.
    * Expected: exception during insertion of block with 8-byte hash.
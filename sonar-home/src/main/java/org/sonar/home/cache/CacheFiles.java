@@ -0,0 +1,146 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.home.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import javax.annotation.CheckForNull;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Data files kept in a directory of the user cache between analyses. Files are named after the MD5 hash
+ * of their key and start with the version of their format. They are written in a temporary file that
+ * replaces the cache file on commit, so that a cache file is never read while partially written.
+ *
+ * @since 7.1
+ */
+public class CacheFiles {
+
+  /**
+   * To be incremented when the format of cache files changes
+   */
+  static final int FORMAT_VERSION = 1;
+
+  private final File dir;
+
+  public CacheFiles(FileCache fileCache, String dirName) {
+    this.dir = new File(fileCache.getDir(), dirName);
+  }
+
+  public File file(String key) {
+    return new File(dir, new FileHashes().of(new ByteArrayInputStream(key.getBytes(UTF_8))));
+  }
+
+  /**
+   * @return the content of the file, positioned after the version of format, or {@code null} if the file
+   * does not exist or was written in another format. The stream must be closed by the caller.
+   */
+  @CheckForNull
+  public static DataInputStream openInput(File file) throws IOException {
+    if (!file.exists()) {
+      return null;
+    }
+    DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      if (input.readInt() == FORMAT_VERSION) {
+        return input;
+      }
+    } catch (IOException e) {
+      input.close();
+      throw e;
+    }
+    input.close();
+    return null;
+  }
+
+  public static Writer newWriter(File file) throws IOException {
+    return new Writer(file);
+  }
+
+  static void move(File from, File to) throws IOException {
+    try {
+      Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Writes a temporary file, which replaces the cache file on commit. The temporary file is deleted
+   * on close if it was not committed.
+   */
+  public static class Writer implements Closeable {
+    private final File file;
+    private final File tempFile;
+    private final FileOutputStream fileOutput;
+    private final DataOutputStream output;
+
+    private Writer(File file) throws IOException {
+      this.file = file;
+      Files.createDirectories(file.getParentFile().toPath());
+      this.tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+      this.fileOutput = new FileOutputStream(tempFile);
+      this.output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+      output.writeInt(FORMAT_VERSION);
+    }
+
+    public DataOutputStream output() {
+      return output;
+    }
+
+    /**
+     * Overwrites a long already written at the given position. The position is relative to the content
+     * read by {@link #openInput(File)}, which does not include the version of format.
+     */
+    public void writeLongAt(long position, long value) throws IOException {
+      output.flush();
+      ByteBuffer bytes = ByteBuffer.allocate(Long.BYTES);
+      bytes.putLong(value).flip();
+      fileOutput.getChannel().write(bytes, Integer.BYTES + position);
+    }
+
+    public void commit() throws IOException {
+      output.close();
+      move(tempFile, file);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        output.close();
+      } finally {
+        Files.deleteIfExists(tempFile.toPath());
+      }
+    }
+  }
+}
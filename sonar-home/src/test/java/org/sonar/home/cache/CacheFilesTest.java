@@ -0,0 +1,107 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.home.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class CacheFilesTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private CacheFiles cacheFiles;
+
+  @Before
+  public void setUp() {
+    cacheFiles = new CacheFiles(new FileCache(temp.getRoot(), new FileHashes(), mock(Logger.class)), "foo");
+  }
+
+  @Test
+  public void files_are_named_after_hash_of_key() {
+    File file = cacheFiles.file("http://localhost:9000\nproject");
+
+    assertThat(file.getParentFile()).isEqualTo(new File(temp.getRoot(), "foo"));
+    assertThat(file.getName()).isEqualTo(DigestUtils.md5Hex("http://localhost:9000\nproject".getBytes(UTF_8)));
+  }
+
+  @Test
+  public void read_committed_file() throws IOException {
+    File file = cacheFiles.file("key");
+    try (CacheFiles.Writer writer = CacheFiles.newWriter(file)) {
+      writer.output().writeLong(0L);
+      writer.output().writeUTF("content");
+      writer.writeLongAt(0L, 42L);
+      writer.commit();
+    }
+
+    try (DataInputStream input = CacheFiles.openInput(file)) {
+      assertThat(input.readLong()).isEqualTo(42L);
+      assertThat(input.readUTF()).isEqualTo("content");
+    }
+    assertThat(file.getParentFile().list()).containsOnly(file.getName());
+  }
+
+  @Test
+  public void file_is_not_replaced_if_writer_is_not_committed() throws IOException {
+    File file = cacheFiles.file("key");
+    try (CacheFiles.Writer writer = CacheFiles.newWriter(file)) {
+      writer.output().writeUTF("first");
+      writer.commit();
+    }
+    try (CacheFiles.Writer writer = CacheFiles.newWriter(file)) {
+      writer.output().writeUTF("second");
+    }
+
+    try (DataInputStream input = CacheFiles.openInput(file)) {
+      assertThat(input.readUTF()).isEqualTo("first");
+    }
+    assertThat(file.getParentFile().list()).containsOnly(file.getName());
+  }
+
+  @Test
+  public void ignore_missing_file() throws IOException {
+    assertThat(CacheFiles.openInput(cacheFiles.file("key"))).isNull();
+  }
+
+  @Test
+  public void ignore_file_of_other_format() throws IOException {
+    File file = cacheFiles.file("key");
+    file.getParentFile().mkdirs();
+    try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+      output.writeInt(CacheFiles.FORMAT_VERSION + 1);
+      output.writeUTF("content");
+    }
+
+    assertThat(CacheFiles.openInput(file)).isNull();
+  }
+}
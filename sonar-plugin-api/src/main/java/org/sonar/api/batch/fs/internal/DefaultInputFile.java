@@ -72,7 +72,7 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
     this.contents = contents;
   }
 
-  public void checkMetadata() {
+  public synchronized void checkMetadata() {
     if (metadata == null) {
       metadataGenerator.accept(this);
     }
@@ -24,7 +24,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 
 import javax.annotation.Nullable;
@@ -47,6 +52,7 @@ import org.sonar.api.batch.fs.internal.charhandler.LineOffsetCounter;
 public class FileMetadata {
   private static final char LINE_FEED = '\n';
   private static final char CARRIAGE_RETURN = '\r';
+  private static final int BUFFER_SIZE = 8192;
 
   /**
    * Compute hash of a file ignoring line ends differences.
@@ -68,6 +74,29 @@ public class FileMetadata {
       lineOffsetCounter.getLastValidOffset());
   }
 
+  /**
+   * Same as {@link #readMetadata(InputStream, Charset, String, CharHandler)}, but bytes are decoded
+   * directly from the buffer, for example a file mapped in memory. Lines, offsets and hash are computed
+   * in a single pass, without copying the content of the file.
+   * Bytes are read from the current position of the buffer, which is left unchanged.
+   *
+   * @since 7.1
+   */
+  public Metadata readMetadata(ByteBuffer bytes, Charset encoding, String filePath, @Nullable CharHandler otherHandler) {
+    LineCounter lineCounter = new LineCounter(filePath, encoding);
+    FileHashComputer fileHashComputer = new FileHashComputer(filePath);
+    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
+    CharHandler[] handlers;
+    if (otherHandler != null) {
+      handlers = new CharHandler[] {lineCounter, fileHashComputer, lineOffsetCounter, otherHandler};
+    } else {
+      handlers = new CharHandler[] {lineCounter, fileHashComputer, lineOffsetCounter};
+    }
+    readBuffer(bytes.duplicate(), encoding, handlers);
+    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
+      lineOffsetCounter.getLastValidOffset());
+  }
+
   public Metadata readMetadata(InputStream stream, Charset encoding, String filePath) {
     return readMetadata(stream, encoding, filePath, null);
   }
@@ -99,11 +128,34 @@ public class FileMetadata {
   }
 
   private static void read(Reader reader, CharHandler[] handlers) throws IOException {
-    char c;
-    int i = reader.read();
-    boolean afterCR = false;
-    while (i != -1) {
-      c = (char) i;
+    char[] buffer = new char[BUFFER_SIZE];
+    LineDispatcher dispatcher = new LineDispatcher(handlers);
+    int read = reader.read(buffer);
+    while (read != -1) {
+      dispatcher.handle(buffer, read);
+      read = reader.read(buffer);
+    }
+    dispatcher.eof();
+  }
+
+  /**
+   * Notifies handlers of the characters of the file, with ends of lines being "\n", "\r" or "\r\n"
+   */
+  private static class LineDispatcher {
+    private final CharHandler[] handlers;
+    private boolean afterCR = false;
+
+    private LineDispatcher(CharHandler[] handlers) {
+      this.handlers = handlers;
+    }
+
+    private void handle(char[] chars, int length) {
+      for (int i = 0; i < length; i++) {
+        handle(chars[i]);
+      }
+    }
+
+    private void handle(char c) {
       if (afterCR) {
         for (CharHandler handler : handlers) {
           if (c == CARRIAGE_RETURN) {
@@ -135,16 +187,45 @@ public class FileMetadata {
           handler.handleAll(c);
         }
       }
-      i = reader.read();
     }
-    for (CharHandler handler : handlers) {
-      if (afterCR) {
-        handler.newLine();
+
+    private void eof() {
+      for (CharHandler handler : handlers) {
+        if (afterCR) {
+          handler.newLine();
+        }
+        handler.eof();
       }
-      handler.eof();
     }
   }
 
+  /**
+   * Malformed or unmappable bytes are replaced, as done by {@link InputStreamReader}
+   */
+  private static void readBuffer(ByteBuffer bytes, Charset encoding, CharHandler[] handlers) {
+    CharsetDecoder decoder = encoding.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    LineDispatcher dispatcher = new LineDispatcher(handlers);
+    CoderResult result;
+    do {
+      result = decoder.decode(bytes, chars, true);
+      dispatch(chars, dispatcher);
+    } while (result.isOverflow());
+    do {
+      result = decoder.flush(chars);
+      dispatch(chars, dispatcher);
+    } while (result.isOverflow());
+    dispatcher.eof();
+  }
+
+  private static void dispatch(CharBuffer chars, LineDispatcher dispatcher) {
+    chars.flip();
+    dispatcher.handle(chars.array(), chars.limit());
+    chars.clear();
+  }
+
   @FunctionalInterface
   public interface LineHashConsumer {
     void consume(int lineIdx, @Nullable byte[] hash);
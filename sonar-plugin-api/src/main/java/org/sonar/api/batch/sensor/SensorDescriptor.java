@@ -96,4 +96,13 @@ public interface SensorDescriptor {
    * @since 6.5
    */
   SensorDescriptor onlyWhenConfiguration(Predicate<Configuration> predicate);
+
+  /**
+   * This sensor can be executed concurrently with other thread-safe sensors. It must then not depend on the results of
+   * other sensors of the same phase, and must protect its own shared state. Data saved through the {@link SensorContext}
+   * is safely stored by the platform.
+   * Default is to execute sensor alone.
+   * @since 7.1
+   */
+  SensorDescriptor threadSafe();
 }
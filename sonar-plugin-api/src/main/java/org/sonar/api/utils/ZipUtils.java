@@ -198,6 +198,19 @@ public final class ZipUtils {
     }
   }
 
+  /**
+   * Compresses the content of a directory to a stream, which is not closed. This allows for example
+   * to send the zip through a network connection without writing it to disk.
+   *
+   * @since 7.1
+   */
+  public static void zipDir(File dir, OutputStream out) throws IOException {
+    ZipOutputStream zout = new ZipOutputStream(out);
+    doZipDir(dir, zout);
+    zout.finish();
+    zout.flush();
+  }
+
   private static void doZip(String entryName, InputStream in, ZipOutputStream out) throws IOException {
     ZipEntry entry = new ZipEntry(entryName);
     out.putNextEntry(entry);
@@ -19,8 +19,10 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
@@ -299,4 +301,42 @@ public class FileMetadataTest {
       "glyphicons-halflings-regular.woff at line 1 for encoding UTF-8. Please fix file content or configure the encoding to be used using property 'sonar.sourceEncoding'.");
   }
 
+  @Test
+  public void read_metadata_from_buffer_as_from_stream() throws Exception {
+    File woff = new File(this.getClass().getResource("glyphicons-halflings-regular.woff").toURI());
+    assertSameMetadataFromBuffer(FileUtils.readFileToByteArray(woff), StandardCharsets.UTF_8);
+    assertSameMetadataFromBuffer("foo\r\nbar\n\rbaz\r\r\n".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    assertSameMetadataFromBuffer("föo\nbàr €\n".getBytes(StandardCharsets.UTF_16), StandardCharsets.UTF_16);
+    assertSameMetadataFromBuffer(new byte[0], StandardCharsets.UTF_8);
+
+    // larger than internal buffers, with multi-bytes characters on boundaries
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      sb.append("line ").append(i).append(" é€\r\n");
+    }
+    assertSameMetadataFromBuffer(sb.toString().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void read_metadata_from_current_position_of_buffer() {
+    ByteBuffer buffer = ByteBuffer.wrap("ignored\nfoo\nbar".getBytes(StandardCharsets.UTF_8));
+    buffer.position(8);
+
+    Metadata metadata = new FileMetadata().readMetadata(buffer, StandardCharsets.UTF_8, "foo.txt", null);
+
+    assertThat(metadata.lines()).isEqualTo(2);
+    assertThat(metadata.hash()).isEqualTo(md5Hex("foo\nbar"));
+    assertThat(buffer.position()).isEqualTo(8);
+  }
+
+  private static void assertSameMetadataFromBuffer(byte[] content, Charset charset) {
+    Metadata expected = new FileMetadata().readMetadata(new ByteArrayInputStream(content), charset, "file");
+    Metadata metadata = new FileMetadata().readMetadata(ByteBuffer.wrap(content), charset, "file", null);
+
+    assertThat(metadata.lines()).isEqualTo(expected.lines());
+    assertThat(metadata.nonBlankLines()).isEqualTo(expected.nonBlankLines());
+    assertThat(metadata.hash()).isEqualTo(expected.hash());
+    assertThat(metadata.originalLineOffsets()).isEqualTo(expected.originalLineOffsets());
+    assertThat(metadata.lastValidOffset()).isEqualTo(expected.lastValidOffset());
+  }
 }
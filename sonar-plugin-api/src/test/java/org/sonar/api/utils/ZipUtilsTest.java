@@ -27,6 +27,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -35,6 +37,9 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 public class ZipUtilsTest {
 
@@ -61,6 +66,22 @@ public class ZipUtilsTest {
     assertThat(new File(unzipDir, "dir1/hello.properties")).exists().isFile();
   }
 
+  @Test
+  public void zip_directory_to_stream_without_closing_it() throws IOException {
+    File foo = FileUtils.toFile(getClass().getResource("/org/sonar/api/utils/ZipUtilsTest/shouldZipDirectory/foo.txt"));
+    File dir = foo.getParentFile();
+    ByteArrayOutputStream out = spy(new ByteArrayOutputStream());
+
+    ZipUtils.zipDir(dir, out);
+
+    verify(out, never()).close();
+    File unzipDir = temp.newFolder();
+    ZipUtils.unzip(new ByteArrayInputStream(out.toByteArray()), unzipDir);
+    assertThat(new File(unzipDir, "bar.txt")).exists().isFile();
+    assertThat(new File(unzipDir, "foo.txt")).exists().isFile();
+    assertThat(new File(unzipDir, "dir1/hello.properties")).exists().isFile();
+  }
+
   @Test
   public void unzipping_creates_target_directory_if_it_does_not_exist() throws IOException {
     File zip = FileUtils.toFile(urlToZip());
@@ -97,7 +97,7 @@ public class ScannerExtensionDictionnary {
     return sort(result);
   }
 
-  private static Phase.Name evaluatePhase(Object extension) {
+  public static Phase.Name evaluatePhase(Object extension) {
     Object extensionToEvaluate;
     if (extension instanceof SensorWrapper) {
       extensionToEvaluate = ((SensorWrapper) extension).wrappedSensor();
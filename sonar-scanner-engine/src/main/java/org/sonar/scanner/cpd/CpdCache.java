@@ -0,0 +1,301 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cpd;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.SonarRuntime;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.CloneGroup;
+import org.sonar.duplications.index.ClonePart;
+import org.sonar.home.cache.CacheFiles;
+import org.sonar.home.cache.FileCache;
+
+/**
+ * CPD data kept in the user cache between analyses of the project:
+ * <ul>
+ *   <li>blocks of files, identified by the hash of files and by the chunker that produced them</li>
+ *   <li>duplications detected in files, identified by the fingerprint of the blocks involved in the detection</li>
+ * </ul>
+ * Only the entries used by the current analysis are kept when the cache is saved. The cache is dropped
+ * when the version of the scanner changes.
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+@ScannerSide
+public class CpdCache implements Startable {
+
+  private static final Logger LOG = Loggers.get(CpdCache.class);
+
+  private final CacheFiles cacheFiles;
+  private final InputModuleHierarchy moduleHierarchy;
+  private final String runtimeVersion;
+
+  private Map<String, BlocksEntry> previousBlocks;
+  private Map<String, DuplicationsEntry> previousDuplications;
+  private final Map<String, BlocksEntry> blocks = new HashMap<>();
+  private final Map<String, DuplicationsEntry> duplications = new HashMap<>();
+  private boolean changed = false;
+
+  public CpdCache(FileCache fileCache, InputModuleHierarchy moduleHierarchy, SonarRuntime runtime) {
+    this.cacheFiles = new CacheFiles(fileCache, "cpd");
+    this.moduleHierarchy = moduleHierarchy;
+    this.runtimeVersion = runtime.getApiVersion().toString();
+  }
+
+  @Override
+  public void start() {
+    // cache is loaded when used
+  }
+
+  /**
+   * @return the blocks produced by the given chunker during the previous analysis, or {@code null}
+   * if the file was not indexed or has changed since then
+   */
+  @CheckForNull
+  public synchronized List<Block> getBlocks(DefaultInputFile inputFile, String chunker) {
+    load();
+    String key = inputFile.key();
+    BlocksEntry entry = previousBlocks.get(key);
+    if (entry == null || !entry.hash.equals(inputFile.hash()) || !entry.chunker.equals(chunker)) {
+      return null;
+    }
+    blocks.put(key, entry);
+    List<Block> result = new ArrayList<>(entry.blocks.size());
+    Block.Builder builder = Block.builder().setResourceId(key);
+    for (Block block : entry.blocks) {
+      result.add(builder
+        .setBlockHash(block.getBlockHash())
+        .setIndexInFile(block.getIndexInFile())
+        .setLines(block.getStartLine(), block.getEndLine())
+        .setUnit(block.getStartUnit(), block.getEndUnit())
+        .build());
+    }
+    return result;
+  }
+
+  public synchronized void putBlocks(DefaultInputFile inputFile, String chunker, List<Block> fileBlocks) {
+    load();
+    blocks.put(inputFile.key(), new BlocksEntry(inputFile.hash(), chunker, new ArrayList<>(fileBlocks)));
+    changed = true;
+  }
+
+  /**
+   * @return the duplications detected in the file during the previous analysis, or {@code null}
+   * if the blocks involved in the detection have changed since then
+   */
+  @CheckForNull
+  public synchronized List<CloneGroup> getDuplications(String resourceKey, byte[] fingerprint) {
+    load();
+    DuplicationsEntry entry = previousDuplications.get(resourceKey);
+    if (entry == null || !Arrays.equals(entry.fingerprint, fingerprint)) {
+      return null;
+    }
+    duplications.put(resourceKey, entry);
+    return entry.groups;
+  }
+
+  public synchronized void putDuplications(String resourceKey, byte[] fingerprint, List<CloneGroup> groups) {
+    load();
+    duplications.put(resourceKey, new DuplicationsEntry(fingerprint, new ArrayList<>(groups)));
+    changed = true;
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (previousBlocks == null || (!changed && blocks.size() == previousBlocks.size() && duplications.size() == previousDuplications.size())) {
+      // cache not used or unchanged
+      return;
+    }
+    File file = cacheFile();
+    try (CacheFiles.Writer writer = CacheFiles.newWriter(file)) {
+      write(writer.output());
+      writer.commit();
+    } catch (IOException e) {
+      LOG.warn("Unable to save CPD cache " + file, e);
+    }
+  }
+
+  private void load() {
+    if (previousBlocks != null) {
+      return;
+    }
+    previousBlocks = new HashMap<>();
+    previousDuplications = new HashMap<>();
+    File file = cacheFile();
+    try (DataInputStream input = CacheFiles.openInput(file)) {
+      if (input == null || !runtimeVersion.equals(input.readUTF())) {
+        return;
+      }
+      while (input.readBoolean()) {
+        String key = input.readUTF();
+        previousBlocks.put(key, readBlocks(input, key));
+      }
+      while (input.readBoolean()) {
+        String key = input.readUTF();
+        previousDuplications.put(key, readDuplications(input));
+      }
+    } catch (IOException e) {
+      LOG.debug("Ignore invalid CPD cache " + file, e);
+      previousBlocks.clear();
+      previousDuplications.clear();
+    }
+  }
+
+  private File cacheFile() {
+    DefaultInputModule root = moduleHierarchy.root();
+    return cacheFiles.file(root.getBaseDir().toAbsolutePath() + "\n" + root.getKeyWithBranch());
+  }
+
+  private void write(DataOutput output) throws IOException {
+    output.writeUTF(runtimeVersion);
+    for (Map.Entry<String, BlocksEntry> entry : blocks.entrySet()) {
+      output.writeBoolean(true);
+      output.writeUTF(entry.getKey());
+      writeBlocks(output, entry.getValue());
+    }
+    output.writeBoolean(false);
+    for (Map.Entry<String, DuplicationsEntry> entry : duplications.entrySet()) {
+      output.writeBoolean(true);
+      output.writeUTF(entry.getKey());
+      writeDuplications(output, entry.getValue());
+    }
+    output.writeBoolean(false);
+  }
+
+  private static BlocksEntry readBlocks(DataInput input, String resourceKey) throws IOException {
+    String hash = input.readUTF();
+    String chunker = input.readUTF();
+    int size = input.readInt();
+    List<Block> result = new ArrayList<>(size);
+    Block.Builder builder = Block.builder().setResourceId(resourceKey);
+    for (int i = 0; i < size; i++) {
+      byte[] blockHash = new byte[input.readInt()];
+      input.readFully(blockHash);
+      result.add(builder
+        .setBlockHash(new ByteArray(blockHash))
+        .setIndexInFile(input.readInt())
+        .setLines(input.readInt(), input.readInt())
+        .setUnit(input.readInt(), input.readInt())
+        .build());
+    }
+    return new BlocksEntry(hash, chunker, result);
+  }
+
+  private static void writeBlocks(DataOutput output, BlocksEntry entry) throws IOException {
+    output.writeUTF(entry.hash);
+    output.writeUTF(entry.chunker);
+    output.writeInt(entry.blocks.size());
+    for (Block block : entry.blocks) {
+      byte[] blockHash = block.getBlockHash().getBytes();
+      output.writeInt(blockHash.length);
+      output.write(blockHash);
+      output.writeInt(block.getIndexInFile());
+      output.writeInt(block.getStartLine());
+      output.writeInt(block.getEndLine());
+      output.writeInt(block.getStartUnit());
+      output.writeInt(block.getEndUnit());
+    }
+  }
+
+  private static DuplicationsEntry readDuplications(DataInput input) throws IOException {
+    byte[] fingerprint = new byte[input.readInt()];
+    input.readFully(fingerprint);
+    int size = input.readInt();
+    List<CloneGroup> groups = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      CloneGroup.Builder builder = CloneGroup.builder()
+        .setLength(input.readInt())
+        .setLengthInUnits(input.readInt())
+        .setOrigin(readPart(input));
+      int parts = input.readInt();
+      for (int j = 0; j < parts; j++) {
+        builder.addPart(readPart(input));
+      }
+      groups.add(builder.build());
+    }
+    return new DuplicationsEntry(fingerprint, groups);
+  }
+
+  private static void writeDuplications(DataOutput output, DuplicationsEntry entry) throws IOException {
+    output.writeInt(entry.fingerprint.length);
+    output.write(entry.fingerprint);
+    output.writeInt(entry.groups.size());
+    for (CloneGroup group : entry.groups) {
+      output.writeInt(group.getCloneUnitLength());
+      output.writeInt(group.getLengthInUnits());
+      writePart(output, group.getOriginPart());
+      output.writeInt(group.getCloneParts().size());
+      for (ClonePart part : group.getCloneParts()) {
+        writePart(output, part);
+      }
+    }
+  }
+
+  private static ClonePart readPart(DataInput input) throws IOException {
+    return new ClonePart(input.readUTF(), input.readInt(), input.readInt(), input.readInt());
+  }
+
+  private static void writePart(DataOutput output, ClonePart part) throws IOException {
+    output.writeUTF(part.getResourceId());
+    output.writeInt(part.getUnitStart());
+    output.writeInt(part.getStartLine());
+    output.writeInt(part.getEndLine());
+  }
+
+  private static class BlocksEntry {
+    private final String hash;
+    private final String chunker;
+    private final List<Block> blocks;
+
+    private BlocksEntry(String hash, String chunker, List<Block> blocks) {
+      this.hash = hash;
+      this.chunker = chunker;
+      this.blocks = blocks;
+    }
+  }
+
+  private static class DuplicationsEntry {
+    private final byte[] fingerprint;
+    private final List<CloneGroup> groups;
+
+    private DuplicationsEntry(byte[] fingerprint, List<CloneGroup> groups) {
+      this.fingerprint = fingerprint;
+      this.groups = groups;
+    }
+  }
+}
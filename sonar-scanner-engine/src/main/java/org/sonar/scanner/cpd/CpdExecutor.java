@@ -22,25 +22,44 @@ package org.sonar.scanner.cpd;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputComponent;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
 import org.sonar.duplications.index.CloneGroup;
+import org.sonar.duplications.index.CloneIndex;
 import org.sonar.duplications.index.ClonePart;
+import org.sonar.duplications.index.MemoryCloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
+import org.sonar.scanner.events.CpdExecutionEvent;
+import org.sonar.scanner.events.EventBus;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.Duplicate;
 import org.sonar.scanner.protocol.output.ScannerReport.Duplication;
@@ -50,11 +69,14 @@ import org.sonar.scanner.scan.filesystem.InputComponentStore;
 import org.sonar.scanner.util.ProgressReport;
 
 import static com.google.common.collect.FluentIterable.from;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * Runs on the root module, at the end of the project analysis.
  * It executes copy paste detection involving all files of all modules, which were indexed during sensors execution for each module
  * by {@link CpdSensor). The sensor is responsible for handling exclusions and block sizes.
+ * Files are processed concurrently (see {@link CpdSettings#THREADS_PROPERTY}). Duplications of a file are reused from
+ * the previous analysis when neither its blocks nor the blocks of other files sharing the same hashes have changed.
  */
 public class CpdExecutor {
   private static final Logger LOG = Loggers.get(CpdExecutor.class);
@@ -69,16 +91,21 @@ public class CpdExecutor {
   private final ProgressReport progressReport;
   private final CpdSettings settings;
   private final BranchConfiguration branchConfiguration;
-  private int count;
+  private final CpdCache cache;
+  private final EventBus eventBus;
+  private final AtomicInteger count = new AtomicInteger();
+  private final AtomicInteger reused = new AtomicInteger();
   private int total;
 
   public CpdExecutor(CpdSettings settings, SonarCpdBlockIndex index, ReportPublisher publisher, InputComponentStore inputComponentCache,
-    BranchConfiguration branchConfiguration) {
+    BranchConfiguration branchConfiguration, CpdCache cache, EventBus eventBus) {
     this.settings = settings;
     this.index = index;
     this.publisher = publisher;
     this.componentStore = inputComponentCache;
     this.branchConfiguration = branchConfiguration;
+    this.cache = cache;
+    this.eventBus = eventBus;
     this.progressReport = new ProgressReport("CPD computation", TimeUnit.SECONDS.toMillis(10));
   }
 
@@ -98,21 +125,55 @@ public class CpdExecutor {
       LOG.info("{} {} had no CPD blocks", filesWithoutBlocks, pluralize(filesWithoutBlocks));
     }
     progressReport.start(String.format("Calculating CPD for %d %s", total, pluralize(total)));
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    int threads = Math.max(1, settings.getThreads());
+    // detections are executed in their own threads, so that workers can give up on timeout. Each worker waits for
+    // one detection at a time, and detections stop when they are cancelled, so one thread per worker is enough.
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("CPD-detection-%d").setDaemon(true).build());
+    // bounded queue, so that blocks of a limited number of files are loaded in memory
+    ExecutorService workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads),
+      new ThreadFactoryBuilder().setNameFormat("CPD-%d").setDaemon(true).build(), new ThreadPoolExecutor.CallerRunsPolicy());
     try {
+      List<Future<?>> futures = new ArrayList<>(total);
       Iterator<ResourceBlocks> it = index.iterator();
 
       while (it.hasNext()) {
         ResourceBlocks resourceBlocks = it.next();
-        runCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks(), timeout);
-        count++;
+        futures.add(workers.submit(() -> {
+          runCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks(), timeout);
+          count.incrementAndGet();
+        }));
+      }
+      for (Future<?> future : futures) {
+        await(future);
       }
       progressReport.stop("CPD calculation finished");
+      if (reused.get() > 0) {
+        LOG.info("Duplications of {} unchanged {} reused from previous analysis", reused.get(), pluralize(reused.get()));
+      }
     } catch (Exception e) {
       progressReport.stop("");
       throw e;
     } finally {
-      executorService.shutdown();
+      workers.shutdownNow();
+      executorService.shutdownNow();
+    }
+  }
+
+  private static void await(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted during detection of duplications", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("Fail during detection of duplications", cause);
     }
   }
 
@@ -130,18 +191,12 @@ public class CpdExecutor {
 
     InputFile inputFile = (InputFile) component;
     LOG.debug("Detection of duplications for {}", inputFile.absolutePath());
-    progressReport.message(String.format("%d/%d - current file: %s", count, total, inputFile.absolutePath()));
+    progressReport.message(String.format("%d/%d - current file: %s", count.get(), total, inputFile.absolutePath()));
+    long start = System.nanoTime();
 
-    List<CloneGroup> duplications;
-    Future<List<CloneGroup>> futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
-    try {
-      duplications = futureResult.get(timeout, TimeUnit.MILLISECONDS);
-    } catch (TimeoutException e) {
-      LOG.warn("Timeout during detection of duplications for " + inputFile.absolutePath());
-      futureResult.cancel(true);
+    List<CloneGroup> duplications = detect(executorService, componentKey, fileBlocks, timeout, inputFile);
+    if (duplications == null) {
       return;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
     }
 
     List<CloneGroup> filtered;
@@ -154,6 +209,88 @@ public class CpdExecutor {
     }
 
     saveDuplications(component, filtered);
+    fireEvent(new CpdExecutionEvent(inputFile, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+  }
+
+  /**
+   * The result of the detection depends only on the blocks of the file and on the blocks of other files having the same
+   * hashes. They are retrieved once from the index to compute their fingerprint and, if needed, to detect duplications.
+   *
+   * @return duplications in the file, or {@code null} in case of timeout
+   */
+  @CheckForNull
+  private List<CloneGroup> detect(ExecutorService executorService, String componentKey, Collection<Block> fileBlocks, long timeout, InputFile inputFile) {
+    Set<ByteArray> hashes = new HashSet<>();
+    List<Block> otherBlocks = new ArrayList<>();
+    for (Block fileBlock : fileBlocks) {
+      if (hashes.add(fileBlock.getBlockHash())) {
+        for (Block block : index.getBySequenceHash(fileBlock.getBlockHash())) {
+          if (!componentKey.equals(block.getResourceId())) {
+            otherBlocks.add(block);
+          }
+        }
+      }
+    }
+    if (otherBlocks.isEmpty() && hashes.size() == fileBlocks.size()) {
+      // no duplications
+      return Collections.emptyList();
+    }
+
+    byte[] fingerprint = fingerprint(fileBlocks, otherBlocks);
+    List<CloneGroup> duplications = cache.getDuplications(componentKey, fingerprint);
+    if (duplications != null) {
+      reused.incrementAndGet();
+      return duplications;
+    }
+
+    CloneIndex neighbours = new MemoryCloneIndex();
+    otherBlocks.forEach(neighbours::insert);
+    Future<List<CloneGroup>> futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(neighbours, fileBlocks));
+    try {
+      duplications = futureResult.get(timeout, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      LOG.warn("Timeout during detection of duplications for " + inputFile.absolutePath());
+      futureResult.cancel(true);
+      return null;
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
+    }
+    cache.putDuplications(componentKey, fingerprint, duplications);
+    return duplications;
+  }
+
+  private static byte[] fingerprint(Collection<Block> fileBlocks, List<Block> otherBlocks) {
+    MessageDigest digest = DigestUtils.getMd5Digest();
+    List<Block> sortedFileBlocks = new ArrayList<>(fileBlocks);
+    sortedFileBlocks.sort(Comparator.comparingInt(Block::getIndexInFile));
+    sortedFileBlocks.forEach(block -> update(digest, block));
+    otherBlocks.sort(Comparator.comparing(Block::getResourceId).thenComparingInt(Block::getIndexInFile));
+    for (Block block : otherBlocks) {
+      digest.update(block.getResourceId().getBytes(UTF_8));
+      digest.update((byte) 0);
+      update(digest, block);
+    }
+    return digest.digest();
+  }
+
+  private static void update(MessageDigest digest, Block block) {
+    digest.update(block.getBlockHash().getBytes());
+    digest.update(ByteBuffer.allocate(5 * Integer.BYTES)
+      .putInt(block.getIndexInFile())
+      .putInt(block.getStartLine())
+      .putInt(block.getEndLine())
+      .putInt(block.getStartUnit())
+      .putInt(block.getEndUnit())
+      .array());
+  }
+
+  /**
+   * Files are processed concurrently, but handlers of events are not thread-safe
+   */
+  private void fireEvent(CpdExecutionEvent event) {
+    synchronized (eventBus) {
+      eventBus.fireEvent(event);
+    }
   }
 
   @VisibleForTesting
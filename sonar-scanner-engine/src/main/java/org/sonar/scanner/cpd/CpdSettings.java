@@ -26,6 +26,11 @@ import org.sonar.api.config.Configuration;
 import org.sonar.duplications.block.BlockChunker;
 
 public class CpdSettings {
+  /**
+   * Maximum number of files in which duplications are detected concurrently. Default is the number of processors.
+   */
+  public static final String THREADS_PROPERTY = "sonar.scanner.cpd.threads";
+
   private final Configuration settings;
   private final String branch;
 
@@ -49,4 +54,8 @@ public class CpdSettings {
   int getMinimumTokens(String languageKey) {
     return settings.getInt("sonar.cpd." + languageKey + ".minimumTokens").orElse(100);
   }
+
+  int getThreads() {
+    return settings.getInt(THREADS_PROPERTY).orElse(Runtime.getRuntime().availableProcessors());
+  }
 }
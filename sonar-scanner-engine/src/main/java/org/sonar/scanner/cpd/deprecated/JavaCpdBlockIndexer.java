@@ -41,6 +41,7 @@ import org.sonar.duplications.java.JavaTokenProducer;
 import org.sonar.duplications.statement.Statement;
 import org.sonar.duplications.statement.StatementChunker;
 import org.sonar.duplications.token.TokenChunker;
+import org.sonar.scanner.cpd.CpdCache;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
 
 public class JavaCpdBlockIndexer extends CpdBlockIndexer {
@@ -48,15 +49,18 @@ public class JavaCpdBlockIndexer extends CpdBlockIndexer {
   private static final Logger LOG = Loggers.get(JavaCpdBlockIndexer.class);
 
   private static final int BLOCK_SIZE = 10;
+  private static final String CHUNKER = "java:" + BLOCK_SIZE;
 
   private final FileSystem fs;
   private final Configuration settings;
   private final SonarCpdBlockIndex index;
+  private final CpdCache cache;
 
-  public JavaCpdBlockIndexer(FileSystem fs, Configuration settings, SonarCpdBlockIndex index) {
+  public JavaCpdBlockIndexer(FileSystem fs, Configuration settings, SonarCpdBlockIndex index, CpdCache cache) {
     this.fs = fs;
     this.settings = settings;
     this.index = index;
+    this.cache = cache;
   }
 
   @Override
@@ -85,6 +89,12 @@ public class JavaCpdBlockIndexer extends CpdBlockIndexer {
     BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
 
     for (InputFile inputFile : sourceFiles) {
+      List<Block> cachedBlocks = cache.getBlocks((DefaultInputFile) inputFile, CHUNKER);
+      if (cachedBlocks != null) {
+        LOG.debug("Populating index from blocks of {} in cache", inputFile);
+        index.insert(inputFile, cachedBlocks);
+        continue;
+      }
       LOG.debug("Populating index from {}", inputFile);
       String resourceEffectiveKey = ((DefaultInputFile) inputFile).key();
 
@@ -105,6 +115,7 @@ public class JavaCpdBlockIndexer extends CpdBlockIndexer {
       } catch (Exception e) {
         throw new IllegalStateException("Cannot process file " + inputFile.file(), e);
       }
+      cache.putBlocks((DefaultInputFile) inputFile, CHUNKER, blocks);
       index.insert(inputFile, blocks);
     }
   }
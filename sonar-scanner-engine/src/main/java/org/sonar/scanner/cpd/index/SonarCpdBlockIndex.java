@@ -87,12 +87,16 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
     return indexedFiles.contains(inputFile);
   }
 
-  public Collection<Block> getByInputFile(String resourceKey) {
+  public synchronized Collection<Block> getByInputFile(String resourceKey) {
     return mem.getByResourceId(resourceKey);
   }
 
+  /**
+   * Reads of {@link PackedMemoryCloneIndex} are not thread-safe, so they are serialized to allow
+   * the concurrent detection of duplications in several files.
+   */
   @Override
-  public Collection<Block> getBySequenceHash(ByteArray hash) {
+  public synchronized Collection<Block> getBySequenceHash(ByteArray hash) {
     return mem.getBySequenceHash(hash);
   }
 
@@ -107,12 +111,27 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
   }
 
   @Override
-  public Iterator<ResourceBlocks> iterator() {
-    return mem.iterator();
+  public synchronized Iterator<ResourceBlocks> iterator() {
+    Iterator<ResourceBlocks> it = mem.iterator();
+    return new Iterator<ResourceBlocks>() {
+      @Override
+      public boolean hasNext() {
+        synchronized (SonarCpdBlockIndex.this) {
+          return it.hasNext();
+        }
+      }
+
+      @Override
+      public ResourceBlocks next() {
+        synchronized (SonarCpdBlockIndex.this) {
+          return it.next();
+        }
+      }
+    };
   }
 
   @Override
-  public int noResources() {
+  public synchronized int noResources() {
     return mem.noResources();
   }
 
@@ -22,6 +22,7 @@ package org.sonar.scanner.issue;
 import java.util.Collection;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.scanner.issue.tracking.TrackedIssue;
+import org.sonar.scanner.issue.tracking.TrackedIssueCodec;
 import org.sonar.scanner.storage.Storage;
 import org.sonar.scanner.storage.Storages;
 
@@ -35,7 +36,7 @@ public class IssueCache {
   private final Storage<TrackedIssue> cache;
 
   public IssueCache(Storages caches) {
-    cache = caches.createCache("issues");
+    cache = caches.createCache("issues", new TrackedIssueCodec());
   }
 
   public Iterable<TrackedIssue> byComponent(String componentKey) {
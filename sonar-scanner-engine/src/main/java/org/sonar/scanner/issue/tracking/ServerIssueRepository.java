@@ -55,8 +55,7 @@ public class ServerIssueRepository {
 
   public void load() {
     Profiler profiler = Profiler.create(LOG).startInfo(LOG_MSG);
-    this.issuesCache = caches.createCache("previousIssues");
-    caches.registerValueCoder(ServerIssue.class, new ServerIssueValueCoder());
+    this.issuesCache = caches.createCache("previousIssues", new ServerIssueCodec());
     DefaultInputModule root = (DefaultInputModule) componentStore.root();
     previousIssuesLoader.load(root.getKeyWithBranch(), this::store);
     profiler.stopInfo();
@@ -0,0 +1,84 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.tracking;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.scanner.storage.Codec;
+
+import static org.sonar.scanner.storage.Codecs.readDouble;
+import static org.sonar.scanner.storage.Codecs.readInteger;
+import static org.sonar.scanner.storage.Codecs.readString;
+import static org.sonar.scanner.storage.Codecs.writeDouble;
+import static org.sonar.scanner.storage.Codecs.writeInteger;
+import static org.sonar.scanner.storage.Codecs.writeString;
+
+/**
+ * Line hashes of the file are not stored
+ */
+public class TrackedIssueCodec implements Codec<TrackedIssue> {
+
+  @Override
+  public void write(TrackedIssue issue, DataOutput output) throws IOException {
+    RuleKey ruleKey = issue.getRuleKey();
+    writeString(output, ruleKey == null ? null : ruleKey.toString());
+    writeString(output, issue.key());
+    writeString(output, issue.severity());
+    writeInteger(output, issue.startLine());
+    writeInteger(output, issue.startLineOffset());
+    writeInteger(output, issue.endLine());
+    writeInteger(output, issue.endLineOffset());
+    writeDouble(output, issue.gap());
+    output.writeBoolean(issue.isNew());
+    Date creationDate = issue.creationDate();
+    output.writeLong(creationDate == null ? -1L : creationDate.getTime());
+    writeString(output, issue.resolution());
+    writeString(output, issue.status());
+    writeString(output, issue.assignee());
+    writeString(output, issue.componentKey());
+    writeString(output, issue.getMessage());
+  }
+
+  @Override
+  public TrackedIssue read(DataInput input) throws IOException {
+    TrackedIssue issue = new TrackedIssue();
+    String ruleKey = readString(input);
+    issue.setRuleKey(ruleKey == null ? null : RuleKey.parse(ruleKey));
+    issue.setKey(readString(input));
+    issue.setSeverity(readString(input));
+    issue.setStartLine(readInteger(input));
+    issue.setStartLineOffset(readInteger(input));
+    issue.setEndLine(readInteger(input));
+    issue.setEndLineOffset(readInteger(input));
+    issue.setGap(readDouble(input));
+    issue.setNew(input.readBoolean());
+    long creationDate = input.readLong();
+    issue.setCreationDate(creationDate < 0 ? null : new Date(creationDate));
+    issue.setResolution(readString(input));
+    issue.setStatus(readString(input));
+    issue.setAssignee(readString(input));
+    issue.setComponentKey(readString(input));
+    issue.setMessage(readString(input));
+    return issue;
+  }
+}
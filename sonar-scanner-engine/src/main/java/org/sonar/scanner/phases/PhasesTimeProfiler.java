@@ -19,6 +19,8 @@
  */
 package org.sonar.scanner.phases;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.events.SensorExecutionHandler;
@@ -33,7 +35,8 @@ import org.sonar.scanner.util.ScannerUtils;
 public class PhasesTimeProfiler implements SensorExecutionHandler, SensorsPhaseHandler {
 
   private static final Logger LOG = Loggers.get(PhasesTimeProfiler.class);
-  private Profiler profiler = Profiler.create(LOG);
+  // thread-safe sensors may be executed concurrently, so each of them is profiled separately
+  private final Map<Sensor, Profiler> profilers = new ConcurrentHashMap<>();
   private final ScannerPluginRepository pluginRepo;
 
   public PhasesTimeProfiler(ScannerPluginRepository pluginRepo) {
@@ -56,9 +59,14 @@ public class PhasesTimeProfiler implements SensorExecutionHandler, SensorsPhaseH
       if (pluginKey != null) {
         suffix = " [" + pluginKey + "]";
       }
+      Profiler profiler = Profiler.create(LOG);
+      profilers.put(event.getSensor(), profiler);
       profiler.startInfo("Sensor " + ScannerUtils.describe(event.getSensor()) + suffix);
     } else {
-      profiler.stopInfo();
+      Profiler profiler = profilers.remove(event.getSensor());
+      if (profiler != null) {
+        profiler.stopInfo();
+      }
     }
   }
 
@@ -29,24 +29,39 @@ import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
 import org.sonar.api.batch.fs.internal.SensorStrategy;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
 
 @ScannerSide
 public class SensorsExecutor {
+  /**
+   * Maximum number of thread-safe sensors executed concurrently. Default is the number of processors.
+   */
+  public static final String THREADS_PROPERTY = "sonar.scanner.sensors.threads";
+
   private final ScannerExtensionDictionnary selector;
   private final DefaultInputModule module;
   private final EventBus eventBus;
   private final SensorStrategy strategy;
   private final boolean isRoot;
+  private final SensorsScheduler scheduler;
+
+  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy, EventBus eventBus, SensorStrategy strategy,
+    Configuration configuration) {
+    this(selector, module, hierarchy, eventBus, strategy,
+      configuration.getInt(THREADS_PROPERTY).orElse(Runtime.getRuntime().availableProcessors()));
+  }
 
-  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy, EventBus eventBus, SensorStrategy strategy) {
+  SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy, EventBus eventBus, SensorStrategy strategy,
+    int threads) {
     this.selector = selector;
     this.module = module;
     this.eventBus = eventBus;
     this.strategy = strategy;
     this.isRoot = hierarchy.isRoot(module);
+    this.scheduler = new SensorsScheduler(threads);
   }
 
   public void execute(SensorContext context) {
@@ -78,14 +93,21 @@ public class SensorsExecutor {
   }
 
   private void execute(SensorContext context, Collection<Sensor> sensors) {
-    for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
-    }
+    scheduler.execute(sensors, sensor -> executeSensor(context, sensor));
   }
 
   private void executeSensor(SensorContext context, Sensor sensor) {
-    eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
+    fireEvent(new SensorExecutionEvent(sensor, true));
     sensor.analyse(new Project(module), context);
-    eventBus.fireEvent(new SensorExecutionEvent(sensor, false));
+    fireEvent(new SensorExecutionEvent(sensor, false));
+  }
+
+  /**
+   * Thread-safe sensors may be executed concurrently, but handlers of events are not thread-safe
+   */
+  private void fireEvent(SensorExecutionEvent event) {
+    synchronized (eventBus) {
+      eventBus.fireEvent(event);
+    }
   }
 }
@@ -0,0 +1,114 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.phases;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import org.sonar.api.batch.Phase;
+import org.sonar.api.batch.Sensor;
+import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
+import org.sonar.scanner.sensor.SensorWrapper;
+
+/**
+ * Executes sensors in the order in which they are provided. Consecutive sensors of the same {@link Phase} which are
+ * declared thread-safe (see {@link org.sonar.api.batch.sensor.SensorDescriptor#threadSafe()}) are executed concurrently.
+ * Other sensors are executed alone: after all the previous sensors are done and before the next ones start.
+ */
+class SensorsScheduler {
+
+  private final int threads;
+
+  SensorsScheduler(int threads) {
+    this.threads = threads;
+  }
+
+  void execute(Collection<Sensor> sensors, Consumer<Sensor> sensorExecutor) {
+    List<Sensor> group = new ArrayList<>();
+    Phase.Name groupPhase = null;
+    for (Sensor sensor : sensors) {
+      if (threads > 1 && isThreadSafe(sensor)) {
+        Phase.Name phase = ScannerExtensionDictionnary.evaluatePhase(sensor);
+        if (phase != groupPhase) {
+          executeGroup(group, sensorExecutor);
+          groupPhase = phase;
+        }
+        group.add(sensor);
+      } else {
+        executeGroup(group, sensorExecutor);
+        sensorExecutor.accept(sensor);
+      }
+    }
+    executeGroup(group, sensorExecutor);
+  }
+
+  private static boolean isThreadSafe(Sensor sensor) {
+    return sensor instanceof SensorWrapper && ((SensorWrapper) sensor).isThreadSafe();
+  }
+
+  /**
+   * Executes the sensors of the group concurrently, then empties the group
+   */
+  private void executeGroup(List<Sensor> group, Consumer<Sensor> sensorExecutor) {
+    if (group.size() <= 1) {
+      group.forEach(sensorExecutor);
+      group.clear();
+      return;
+    }
+    ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threads, group.size()),
+      new ThreadFactoryBuilder().setNameFormat("Sensor-%d").setDaemon(true).build());
+    try {
+      List<Future<?>> futures = new ArrayList<>(group.size());
+      for (Sensor sensor : group) {
+        futures.add(executorService.submit(() -> sensorExecutor.accept(sensor)));
+      }
+      for (Future<?> future : futures) {
+        await(future);
+      }
+    } finally {
+      executorService.shutdownNow();
+      group.clear();
+    }
+  }
+
+  private static void await(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while executing sensors", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("Fail to execute sensor", cause);
+    }
+  }
+}
@@ -21,7 +21,7 @@ package org.sonar.scanner.profiling;
 
 public enum Phase {
 
-  INIT("Initializers"), SENSOR("Sensors"), DECORATOR("Decorators"), PERSISTER("Persisters"), POSTJOB("Post-Jobs");
+  INIT("Initializers"), SENSOR("Sensors"), DECORATOR("Decorators"), PERSISTER("Persisters"), POSTJOB("Post-Jobs"), CPD("CPD");
 
   private final String label;
 
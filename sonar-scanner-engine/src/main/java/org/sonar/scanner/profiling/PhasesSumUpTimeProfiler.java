@@ -42,13 +42,14 @@ import org.sonar.api.utils.System2;
 import org.sonar.api.utils.TimeUtils;
 import org.sonar.scanner.bootstrap.GlobalProperties;
 import org.sonar.scanner.events.BatchStepHandler;
+import org.sonar.scanner.events.CpdExecutionHandler;
 import org.sonar.scanner.util.ScannerUtils;
 
 import static org.sonar.scanner.profiling.AbstractTimeProfiling.sortByDescendingTotalTime;
 import static org.sonar.scanner.profiling.AbstractTimeProfiling.truncate;
 
 public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorExecutionHandler, PostJobExecutionHandler,
-  SensorsPhaseHandler, PostJobsPhaseHandler, InitializersPhaseHandler, InitializerExecutionHandler, BatchStepHandler {
+  SensorsPhaseHandler, PostJobsPhaseHandler, InitializersPhaseHandler, InitializerExecutionHandler, BatchStepHandler, CpdExecutionHandler {
 
   static final Logger LOG = LoggerFactory.getLogger(PhasesSumUpTimeProfiler.class);
   private static final int TEXT_RIGHT_PAD = 60;
@@ -210,4 +211,20 @@ public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorEx
     }
   }
 
+  /**
+   * Files are processed concurrently, so the time of the phase is the cumulated time of files
+   */
+  @Override
+  public void onCpdExecution(CpdExecutionEvent event) {
+    PhaseProfiling profiling = currentModuleProfiling.getProfilingPerPhase(Phase.CPD);
+    if (profiling == null) {
+      currentModuleProfiling.addPhaseProfiling(Phase.CPD);
+      profiling = currentModuleProfiling.getProfilingPerPhase(Phase.CPD);
+    }
+    String item = event.inputFile().toString();
+    profiling.newItemProfiling(item);
+    profiling.getProfilingPerItem(item).setTotalTime(event.duration());
+    profiling.setTotalTime(profiling.totalTime() + event.duration());
+  }
+
 }
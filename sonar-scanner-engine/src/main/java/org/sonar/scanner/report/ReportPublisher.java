@@ -24,6 +24,7 @@ import com.google.common.base.Throwables;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
@@ -41,11 +42,13 @@ import org.sonar.api.config.Configuration;
 import org.sonar.api.platform.Server;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
+import org.sonar.api.utils.Version;
 import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
+import org.sonar.scanner.protocol.output.ReportContainer;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonarqube.ws.Ce;
@@ -67,6 +70,12 @@ public class ReportPublisher implements Startable {
   public static final String VERBOSE_KEY = "sonar.verbose";
   public static final String METADATA_DUMP_FILENAME = "report-task.txt";
   private static final String CHARACTERISTIC = "characteristic";
+  /**
+   * SonarQube 7.1 is the first version of server which both reads reports in which data of components are packed
+   * in a {@link ReportContainer}, and accepts the report streamed as the raw body of the request to api/ce/submit.
+   */
+  private static final Version PACKED_AND_STREAMED_REPORT_MIN_SERVER_VERSION = Version.create(7, 1);
+  private static final String REPORT_FILE_NAME = "scanner-report.zip";
 
   private final Configuration settings;
   private final ScannerWsClient wsClient;
@@ -127,34 +136,69 @@ public class ReportPublisher implements Startable {
     // If this is a issues mode analysis then we should not upload reports
     String taskId = null;
     if (!analysisMode.isIssues()) {
-      File report = generateReportFile();
+      generateReport();
       if (shouldKeepReport()) {
         LOG.info("Analysis report generated in " + reportDir);
       }
-      if (!analysisMode.isMediumTest()) {
-        taskId = upload(report);
+      PostRequest.ContentWriter zipWriter = newZipWriter();
+      if (analysisMode.isMediumTest()) {
+        compressReport(zipWriter);
+      } else if (isServerVersionAtLeast(PACKED_AND_STREAMED_REPORT_MIN_SERVER_VERSION)) {
+        // the report is compressed while being uploaded, so that it's never stored on disk
+        taskId = upload(new PostRequest.Part(MediaTypes.ZIP, REPORT_FILE_NAME, zipWriter));
+      } else {
+        taskId = upload(compressReport(zipWriter));
       }
     }
     logSuccess(taskId);
   }
 
+  /**
+   * Data of components are packed in a {@link ReportContainer} while the report directory is zipped, so
+   * that the report is not copied on disk.
+   */
+  private PostRequest.ContentWriter newZipWriter() {
+    File dir = reportDir.toFile();
+    if (isServerVersionAtLeast(PACKED_AND_STREAMED_REPORT_MIN_SERVER_VERSION)) {
+      return output -> ReportContainer.zip(dir, output);
+    }
+    return output -> ZipUtils.zipDir(dir, output);
+  }
+
+  private boolean isServerVersionAtLeast(Version minVersion) {
+    String serverVersion = server.getVersion();
+    if (serverVersion == null) {
+      return false;
+    }
+    try {
+      return Version.parse(serverVersion).isGreaterThanOrEqual(minVersion);
+    } catch (IllegalArgumentException e) {
+      LOG.debug("Unable to parse version of server: {}", serverVersion);
+      return false;
+    }
+  }
+
   private boolean shouldKeepReport() {
     return settings.getBoolean(KEEP_REPORT_PROP_KEY).orElse(false) || settings.getBoolean(VERBOSE_KEY).orElse(false);
   }
 
-  private File generateReportFile() {
+  private void generateReport() {
+    long startTime = System.currentTimeMillis();
+    for (ReportPublisherStep publisher : publishers) {
+      publisher.publish(writer);
+    }
+    long stopTime = System.currentTimeMillis();
+    LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir.toFile())));
+  }
+
+  private File compressReport(PostRequest.ContentWriter zipWriter) {
     try {
       long startTime = System.currentTimeMillis();
-      for (ReportPublisherStep publisher : publishers) {
-        publisher.publish(writer);
+      File reportZip = temp.newFile("scanner-report", ".zip");
+      try (OutputStream output = FileUtils.openOutputStream(reportZip)) {
+        zipWriter.writeTo(output);
       }
       long stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir.toFile())));
-
-      startTime = System.currentTimeMillis();
-      File reportZip = temp.newFile("scanner-report", ".zip");
-      ZipUtils.zipDir(reportDir.toFile(), reportZip);
-      stopTime = System.currentTimeMillis();
       LOG.info("Analysis reports compressed in {}ms, zip size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportZip)));
       return reportZip;
     } catch (IOException e) {
@@ -167,9 +211,15 @@ public class ReportPublisher implements Startable {
    */
   @VisibleForTesting
   String upload(File report) {
+    return upload(new PostRequest.Part(MediaTypes.ZIP, report));
+  }
+
+  /**
+   * Uploads the report to server and returns the generated task id
+   */
+  private String upload(PostRequest.Part filePart) {
     LOG.debug("Upload report");
     long startTime = System.currentTimeMillis();
-    PostRequest.Part filePart = new PostRequest.Part(MediaTypes.ZIP, report);
     PostRequest post = new PostRequest("api/ce/submit")
       .setMediaType(MediaTypes.PROTOBUF)
       .setParam("organization", settings.get(ORGANIZATION).orElse(null))
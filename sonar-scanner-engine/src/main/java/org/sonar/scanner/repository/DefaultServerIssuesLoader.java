@@ -19,28 +19,138 @@
  */
 package org.sonar.scanner.repository;
 
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.home.cache.CacheFiles;
+import org.sonar.home.cache.FileCache;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.scanner.util.ScannerUtils;
 import org.sonarqube.ws.client.GetRequest;
 
+/**
+ * Issues of the server are kept in the user cache between analyses, so that only the issues
+ * changed since the previous load are requested to the server.
+ */
 public class DefaultServerIssuesLoader implements ServerIssuesLoader {
 
+  private static final Logger LOG = Loggers.get(DefaultServerIssuesLoader.class);
+
+  /**
+   * Closed issues are purged by the server after some days (30 by default). Cached issues are
+   * reloaded entirely before the closing of an issue could be missed.
+   */
+  static final long MAX_AGE = TimeUnit.DAYS.toMillis(7);
+
+  /**
+   * Issues are not committed by the server in the order of their update date, so the changes
+   * of the last hour before the previous load are requested again
+   */
+  static final long CHANGED_SINCE_MARGIN = TimeUnit.HOURS.toMillis(1);
+
   private final ScannerWsClient wsClient;
+  private final CacheFiles cacheFiles;
+  private final System2 system2;
 
-  public DefaultServerIssuesLoader(ScannerWsClient wsClient) {
+  public DefaultServerIssuesLoader(ScannerWsClient wsClient, FileCache fileCache, System2 system2) {
     this.wsClient = wsClient;
+    this.cacheFiles = new CacheFiles(fileCache, "server_issues");
+    this.system2 = system2;
   }
 
   @Override
   public void load(String componentKey, Consumer<ServerIssue> consumer) {
-    GetRequest getRequest = new GetRequest("/batch/issues.protobuf?key=" + ScannerUtils.encodeForUrl(componentKey));
-    InputStream is = wsClient.call(getRequest).contentStream();
-    parseIssues(is, consumer);
+    File cacheFile = cacheFile(componentKey);
+    Header header = readHeader(cacheFile);
+    if (header == null) {
+      loadAll(componentKey, cacheFile, consumer);
+    } else {
+      LOG.debug("Load server issues changed since {}", header.lastUpdate);
+      loadChanges(componentKey, cacheFile, header, consumer);
+    }
+  }
+
+  private void loadAll(String componentKey, File cacheFile, Consumer<ServerIssue> consumer) {
+    try (CacheWriter writer = new CacheWriter(cacheFile, system2.now(), 0L)) {
+      parseIssues(call(componentKey, null), issue -> {
+        writer.write(issue);
+        consumer.accept(issue);
+      });
+      writer.commit();
+    }
+  }
+
+  private void loadChanges(String componentKey, File cacheFile, Header header, Consumer<ServerIssue> consumer) {
+    Map<String, ServerIssue> changedIssuesByKey = new HashMap<>();
+    parseIssues(call(componentKey, header.lastUpdate - CHANGED_SINCE_MARGIN), issue -> changedIssuesByKey.put(issue.getKey(), issue));
+
+    try (CacheWriter writer = new CacheWriter(cacheFile, header.createdAt, header.lastUpdate)) {
+      try (DataInputStream cached = CacheFiles.openInput(cacheFile)) {
+        if (cached == null) {
+          throw new IOException("Cache file has been deleted or replaced");
+        }
+        Header.skip(cached);
+        parseIssues(cached, issue -> {
+          if (!changedIssuesByKey.containsKey(issue.getKey())) {
+            writer.write(issue);
+            consumer.accept(issue);
+          }
+        });
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to read cached issues " + cacheFile, e);
+      }
+      for (ServerIssue issue : changedIssuesByKey.values()) {
+        if (!Issue.STATUS_CLOSED.equals(issue.getStatus())) {
+          writer.write(issue);
+          consumer.accept(issue);
+        }
+      }
+      writer.commit();
+    }
+  }
+
+  private InputStream call(String componentKey, @Nullable Long changedSince) {
+    StringBuilder url = new StringBuilder("/batch/issues.protobuf?key=").append(ScannerUtils.encodeForUrl(componentKey));
+    if (changedSince != null) {
+      url.append("&changedSince=").append(changedSince);
+    }
+    return wsClient.call(new GetRequest(url.toString())).contentStream();
+  }
+
+  private File cacheFile(String componentKey) {
+    return cacheFiles.file(wsClient.baseUrl() + "\n" + componentKey);
+  }
+
+  @CheckForNull
+  private Header readHeader(File cacheFile) {
+    try (DataInputStream input = CacheFiles.openInput(cacheFile)) {
+      if (input == null) {
+        return null;
+      }
+      Header header = new Header(input.readLong(), input.readLong());
+      // no date of update if server does not support loading of changes
+      if (header.lastUpdate <= 0L || system2.now() - header.createdAt > MAX_AGE) {
+        return null;
+      }
+      return header;
+    } catch (IOException e) {
+      LOG.debug("Ignore invalid cache of server issues " + cacheFile, e);
+      return null;
+    }
   }
 
   private static void parseIssues(InputStream is, Consumer<ServerIssue> consumer) {
@@ -56,4 +166,70 @@ public class DefaultServerIssuesLoader implements ServerIssuesLoader {
       IOUtils.closeQuietly(is);
     }
   }
+
+  /**
+   * Cache files start with the date of last update of issues and the date of the complete load of issues.
+   * Then issues are delimited protobuf messages.
+   */
+  private static class Header {
+    private static final int SIZE = 2 * Long.BYTES;
+    private static final int LAST_UPDATE_POSITION = 0;
+
+    private final long lastUpdate;
+    private final long createdAt;
+
+    private Header(long lastUpdate, long createdAt) {
+      this.lastUpdate = lastUpdate;
+      this.createdAt = createdAt;
+    }
+
+    private static void skip(DataInputStream input) throws IOException {
+      input.readFully(new byte[SIZE]);
+    }
+  }
+
+  /**
+   * Writes the issues of the cache file, which is replaced on commit
+   */
+  private static class CacheWriter implements Closeable {
+    private final File cacheFile;
+    private final CacheFiles.Writer writer;
+    private long lastUpdate;
+
+    private CacheWriter(File cacheFile, long createdAt, long lastUpdate) {
+      this.cacheFile = cacheFile;
+      this.lastUpdate = lastUpdate;
+      try {
+        writer = CacheFiles.newWriter(cacheFile);
+        // written on commit
+        writer.output().writeLong(0L);
+        writer.output().writeLong(createdAt);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to create cache of server issues " + cacheFile, e);
+      }
+    }
+
+    private void write(ServerIssue issue) {
+      try {
+        issue.writeDelimitedTo(writer.output());
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to write cache of server issues " + cacheFile, e);
+      }
+      lastUpdate = Math.max(lastUpdate, issue.getUpdatedAt());
+    }
+
+    private void commit() {
+      try {
+        writer.writeLongAt(Header.LAST_UPDATE_POSITION, lastUpdate);
+        writer.commit();
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to write cache of server issues " + cacheFile, e);
+      }
+    }
+
+    @Override
+    public void close() {
+      IOUtils.closeQuietly(writer);
+    }
+  }
 }
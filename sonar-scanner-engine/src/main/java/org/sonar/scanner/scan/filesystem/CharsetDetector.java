@@ -22,6 +22,7 @@ package org.sonar.scanner.scan.filesystem;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -36,6 +37,7 @@ public class CharsetDetector {
   private BufferedInputStream stream;
   private Charset detectedCharset;
   private Charset userEncoding;
+  private boolean ran = false;
 
   public CharsetDetector(Path filePath, Charset userEncoding) {
     this.filePath = filePath;
@@ -51,9 +53,27 @@ public class CharsetDetector {
     }
   }
 
+  /**
+   * Detects the charset from the first bytes of the buffer, so that the file does not have to be read again
+   * to compute its metadata. The position of the buffer is moved after the byte order mark, if any.
+   */
+  public boolean run(ByteBuffer buffer) {
+    byte[] buf = new byte[Math.min(BYTES_TO_DECODE, buffer.remaining())];
+    buffer.duplicate().get(buf);
+    ran = true;
+    ByteOrderMark bom = detectBOM(buf);
+    if (bom != null) {
+      buffer.position(buffer.position() + bom.length());
+      return true;
+    }
+    return detect(buf);
+  }
+
   @CheckForNull
   public Charset charset() {
-    assertRun();
+    if (!ran) {
+      throw new IllegalStateException("Charset detection did not run");
+    }
     return detectedCharset;
   }
 
@@ -73,18 +93,33 @@ public class CharsetDetector {
   }
 
   private boolean detectCharset(byte[] buf) throws IOException {
-    ByteCharsetDetector detector = new ByteCharsetDetector(new CharsetValidation(), userEncoding);
-    ByteOrderMark bom = detector.detectBOM(buf);
+    ran = true;
+    ByteOrderMark bom = detectBOM(buf);
     if (bom != null) {
-      detectedCharset = Charset.forName(bom.getCharsetName());
       stream.skip(bom.length());
       return true;
     }
+    return detect(buf);
+  }
 
-    detectedCharset = detector.detect(buf);
+  @CheckForNull
+  private ByteOrderMark detectBOM(byte[] buf) {
+    ByteOrderMark bom = newDetector().detectBOM(buf);
+    if (bom != null) {
+      detectedCharset = Charset.forName(bom.getCharsetName());
+    }
+    return bom;
+  }
+
+  private boolean detect(byte[] buf) {
+    detectedCharset = newDetector().detect(buf);
     return detectedCharset != null;
   }
 
+  private ByteCharsetDetector newDetector() {
+    return new ByteCharsetDetector(new CharsetValidation(), userEncoding);
+  }
+
   private void assertRun() {
     if (stream == null) {
       throw new IllegalStateException("Charset detection did not run");
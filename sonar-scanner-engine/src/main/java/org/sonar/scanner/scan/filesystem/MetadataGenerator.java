@@ -20,8 +20,14 @@
 package org.sonar.scanner.scan.filesystem;
 
 import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile.Type;
@@ -29,6 +35,7 @@ import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.FileMetadata;
 import org.sonar.api.batch.fs.internal.Metadata;
+import org.sonar.api.utils.System2;
 import org.sonar.scanner.issue.ignore.scanner.IssueExclusionsLoader;
 
 public class MetadataGenerator {
@@ -39,35 +46,57 @@ public class MetadataGenerator {
   @VisibleForTesting
   static final Charset UTF_32LE = Charset.forName("UTF-32LE");
 
+  /**
+   * Smaller files are read in heap, as mapping a file in memory has a cost
+   */
+  private static final int MAPPING_THRESHOLD = 64 * 1024;
+
+  /**
+   * {@link FileChannel#map} does not support regions larger than 2GB
+   */
+  private static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+
   private final StatusDetection statusDetection;
   private final FileMetadata fileMetadata;
   private final DefaultInputModule inputModule;
   private final IssueExclusionsLoader exclusionsScanner;
+  private final System2 system2;
 
-  public MetadataGenerator(DefaultInputModule inputModule, StatusDetection statusDetection, FileMetadata fileMetadata, IssueExclusionsLoader exclusionsScanner) {
+  public MetadataGenerator(DefaultInputModule inputModule, StatusDetection statusDetection, FileMetadata fileMetadata, IssueExclusionsLoader exclusionsScanner,
+    System2 system2) {
     this.inputModule = inputModule;
     this.statusDetection = statusDetection;
     this.fileMetadata = fileMetadata;
     this.exclusionsScanner = exclusionsScanner;
+    this.system2 = system2;
   }
 
   /**
    * Sets all metadata in the file, including charset and status.
-   * It is an expensive computation, reading the entire file.
+   * It is an expensive computation, reading the entire file. The file is read only once: charset is
+   * detected on the first bytes of the content, then lines, offsets and hash are computed in a single pass.
+   * Files that can't be read in a single buffer (see {@link #readsInBuffer(long)}) are streamed instead.
    */
   public void setMetadata(final DefaultInputFile inputFile, Charset defaultEncoding) {
     CharsetDetector charsetDetector = new CharsetDetector(inputFile.path(), defaultEncoding);
     try {
+      ByteBuffer content = readsInBuffer(Files.size(inputFile.path())) ? readContent(inputFile.path()) : null;
       Charset charset;
-      if (charsetDetector.run()) {
+      if (content != null ? charsetDetector.run(content) : charsetDetector.run()) {
         charset = charsetDetector.charset();
       } else {
         LOG.debug("Failed to detect a valid charset for file '{}'. Using default charset.", inputFile);
         charset = defaultEncoding;
       }
-      InputStream is = charsetDetector.inputStream();
       inputFile.setCharset(charset);
-      Metadata metadata = fileMetadata.readMetadata(is, charset, inputFile.absolutePath(), exclusionsScanner.createCharHandlerFor(inputFile.key()));
+      Metadata metadata;
+      if (content != null) {
+        metadata = fileMetadata.readMetadata(content, charset, inputFile.absolutePath(), exclusionsScanner.createCharHandlerFor(inputFile.key()));
+      } else {
+        try (InputStream is = charsetDetector.inputStream()) {
+          metadata = fileMetadata.readMetadata(is, charset, inputFile.absolutePath(), exclusionsScanner.createCharHandlerFor(inputFile.key()));
+        }
+      }
       inputFile.setMetadata(metadata);
       inputFile.setStatus(statusDetection.status(inputModule.definition().getKeyWithBranch(), inputFile, metadata.hash()));
       LOG.debug("'{}' generated metadata {} with charset '{}'", inputFile, inputFile.type() == Type.TEST ? "as test " : "", charset);
@@ -76,4 +105,31 @@ public class MetadataGenerator {
     }
   }
 
+  /**
+   * Small files are read in heap and larger ones are mapped in memory, unless they are too large to be mapped.
+   * Mapping is also avoided on Windows, where a mapped file stays locked until the buffer is garbage collected,
+   * which would prevent the build from deleting or rewriting the file while the analysis is running.
+   */
+  @VisibleForTesting
+  boolean readsInBuffer(long size) {
+    return size < MAPPING_THRESHOLD || (size <= MAX_MAPPED_SIZE && !system2.isOsWindows());
+  }
+
+  private static ByteBuffer readContent(Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size >= MAPPING_THRESHOLD) {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+        // read until end of file
+      }
+      buffer.flip();
+      return buffer;
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read file " + path.toAbsolutePath(), e);
+    }
+  }
+
 }
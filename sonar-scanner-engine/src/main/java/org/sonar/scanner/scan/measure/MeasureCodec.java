@@ -0,0 +1,98 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.measure;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import org.sonar.api.batch.measure.MetricFinder;
+import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
+import org.sonar.scanner.storage.Codec;
+import org.sonar.scanner.storage.Codecs;
+
+class MeasureCodec implements Codec<DefaultMeasure<?>> {
+
+  private static final byte INTEGER = 0;
+  private static final byte LONG = 1;
+  private static final byte DOUBLE = 2;
+  private static final byte BOOLEAN = 3;
+  private static final byte STRING = 4;
+
+  private final MetricFinder metricFinder;
+
+  public MeasureCodec(MetricFinder metricFinder) {
+    this.metricFinder = metricFinder;
+  }
+
+  @Override
+  public void write(DefaultMeasure<?> measure, DataOutput output) throws IOException {
+    output.writeUTF(measure.metric().key());
+    Serializable value = measure.value();
+    if (value instanceof Integer) {
+      output.writeByte(INTEGER);
+      output.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      output.writeByte(LONG);
+      output.writeLong((Long) value);
+    } else if (value instanceof Double) {
+      output.writeByte(DOUBLE);
+      output.writeDouble((Double) value);
+    } else if (value instanceof Boolean) {
+      output.writeByte(BOOLEAN);
+      output.writeBoolean((Boolean) value);
+    } else if (value instanceof String) {
+      output.writeByte(STRING);
+      Codecs.writeString(output, (String) value);
+    } else {
+      throw new IllegalStateException("Unsupported type of value of measure " + measure.metric().key() + ": " + value.getClass());
+    }
+  }
+
+  @Override
+  public DefaultMeasure<?> read(DataInput input) throws IOException {
+    String metricKey = input.readUTF();
+    org.sonar.api.batch.measure.Metric<?> metric = metricFinder.findByKey(metricKey);
+    if (metric == null) {
+      throw new IllegalStateException("Unknow metric with key " + metricKey);
+    }
+    return new DefaultMeasure()
+      .forMetric(metric)
+      .withValue(readValue(input));
+  }
+
+  private static Serializable readValue(DataInput input) throws IOException {
+    byte type = input.readByte();
+    switch (type) {
+      case INTEGER:
+        return input.readInt();
+      case LONG:
+        return input.readLong();
+      case DOUBLE:
+        return input.readDouble();
+      case BOOLEAN:
+        return input.readBoolean();
+      case STRING:
+        return Codecs.readString(input);
+      default:
+        throw new IllegalStateException("Unsupported type of value: " + type);
+    }
+  }
+}
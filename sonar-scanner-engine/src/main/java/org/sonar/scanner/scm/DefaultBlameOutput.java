@@ -45,13 +45,15 @@ class DefaultBlameOutput implements BlameOutput {
   private static final Logger LOG = Loggers.get(DefaultBlameOutput.class);
 
   private final ScannerReportWriter writer;
+  private final ScmBlameCache blameCache;
   private final Set<InputFile> allFilesToBlame = new LinkedHashSet<>();
   private ProgressReport progressReport;
   private int count;
   private int total;
 
-  DefaultBlameOutput(ScannerReportWriter writer, List<InputFile> filesToBlame) {
+  DefaultBlameOutput(ScannerReportWriter writer, List<InputFile> filesToBlame, ScmBlameCache blameCache) {
     this.writer = writer;
+    this.blameCache = blameCache;
     this.allFilesToBlame.addAll(filesToBlame);
     count = 0;
     total = filesToBlame.size();
@@ -87,7 +89,9 @@ class DefaultBlameOutput implements BlameOutput {
       scmBuilder.addChangesetIndexByLine(changesetId);
       lineId++;
     }
-    writer.writeComponentChangesets(scmBuilder.build());
+    ScannerReport.Changesets changesets = scmBuilder.build();
+    writer.writeComponentChangesets(changesets);
+    blameCache.put(inputFile, changesets);
     allFilesToBlame.remove(file);
     count++;
     progressReport.message(count + "/" + total + " files analyzed");
@@ -0,0 +1,163 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.home.cache.CacheFiles;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+/**
+ * Blame information of files, kept in the user cache between analyses of the project. Entries are
+ * identified by the path and the hash of files, so that unchanged files don't have to be blamed again.
+ * Only the entries used by the current analysis are kept when the cache is saved.
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+@ScannerSide
+public class ScmBlameCache implements Startable {
+
+  private static final Logger LOG = Loggers.get(ScmBlameCache.class);
+
+  private final CacheFiles cacheFiles;
+  private final InputModuleHierarchy moduleHierarchy;
+  private Map<String, Entry> previousEntries;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private boolean changed = false;
+
+  public ScmBlameCache(FileCache fileCache, InputModuleHierarchy moduleHierarchy) {
+    this.cacheFiles = new CacheFiles(fileCache, "scm_blame");
+    this.moduleHierarchy = moduleHierarchy;
+  }
+
+  @Override
+  public void start() {
+    // cache is loaded when used
+  }
+
+  /**
+   * @return the blame information of the previous analysis, without reference of component, or {@code null}
+   * if the file was not blamed or has changed since then
+   */
+  @CheckForNull
+  public synchronized ScannerReport.Changesets get(DefaultInputFile inputFile) {
+    String path = inputFile.getProjectRelativePath();
+    Entry entry = previousEntries().get(path);
+    if (entry == null || !entry.hash.equals(inputFile.hash())) {
+      return null;
+    }
+    try {
+      ScannerReport.Changesets changesets = ScannerReport.Changesets.parseFrom(entry.changesets);
+      entries.put(path, entry);
+      return changesets;
+    } catch (InvalidProtocolBufferException e) {
+      LOG.debug("Ignore invalid blame information of {} in cache", inputFile, e);
+      return null;
+    }
+  }
+
+  public synchronized void put(DefaultInputFile inputFile, ScannerReport.Changesets changesets) {
+    byte[] bytes = changesets.toBuilder().clearComponentRef().build().toByteArray();
+    entries.put(inputFile.getProjectRelativePath(), new Entry(inputFile.hash(), bytes));
+    changed = true;
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (!changed && (previousEntries == null || entries.size() == previousEntries.size())) {
+      // cache not used or unchanged
+      return;
+    }
+    File file = cacheFile();
+    try (CacheFiles.Writer writer = CacheFiles.newWriter(file)) {
+      write(writer.output());
+      writer.commit();
+    } catch (IOException e) {
+      LOG.warn("Unable to save SCM blame cache " + file, e);
+    }
+  }
+
+  private Map<String, Entry> previousEntries() {
+    if (previousEntries == null) {
+      previousEntries = read(cacheFile());
+    }
+    return previousEntries;
+  }
+
+  private File cacheFile() {
+    DefaultInputModule root = moduleHierarchy.root();
+    return cacheFiles.file(root.getBaseDir().toAbsolutePath() + "\n" + root.getKeyWithBranch());
+  }
+
+  private static Map<String, Entry> read(File file) {
+    Map<String, Entry> result = new HashMap<>();
+    try (DataInputStream input = CacheFiles.openInput(file)) {
+      if (input == null) {
+        return result;
+      }
+      while (input.readBoolean()) {
+        String path = input.readUTF();
+        String hash = input.readUTF();
+        byte[] changesets = new byte[input.readInt()];
+        input.readFully(changesets);
+        result.put(path, new Entry(hash, changesets));
+      }
+      return result;
+    } catch (IOException e) {
+      LOG.debug("Ignore invalid SCM blame cache " + file, e);
+      return new HashMap<>();
+    }
+  }
+
+  private void write(DataOutputStream output) throws IOException {
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      output.writeBoolean(true);
+      output.writeUTF(entry.getKey());
+      output.writeUTF(entry.getValue().hash);
+      output.writeInt(entry.getValue().changesets.length);
+      output.write(entry.getValue().changesets);
+    }
+    output.writeBoolean(false);
+  }
+
+  private static class Entry {
+    private final String hash;
+    private final byte[] changesets;
+
+    private Entry(String hash, byte[] changesets) {
+      this.hash = hash;
+      this.changesets = changesets;
+    }
+  }
+}
@@ -54,9 +54,12 @@ public final class ScmPublisher {
   private final DefaultModuleFileSystem fs;
   private final ScannerReportWriter writer;
   private final BranchConfiguration branchConfiguration;
+  private final ScmBlameCache blameCache;
+  private int cachedFiles;
 
   public ScmPublisher(DefaultInputModule inputModule, ScmConfiguration configuration, ProjectRepositories projectRepositories,
-    ModuleInputComponentStore componentStore, DefaultModuleFileSystem fs, ReportPublisher reportPublisher, BranchConfiguration branchConfiguration) {
+    ModuleInputComponentStore componentStore, DefaultModuleFileSystem fs, ReportPublisher reportPublisher, BranchConfiguration branchConfiguration,
+    ScmBlameCache blameCache) {
     this.inputModule = inputModule;
     this.configuration = configuration;
     this.projectRepositories = projectRepositories;
@@ -64,6 +67,7 @@ public final class ScmPublisher {
     this.fs = fs;
     this.branchConfiguration = branchConfiguration;
     this.writer = reportPublisher.getWriter();
+    this.blameCache = blameCache;
   }
 
   public void publish() {
@@ -76,11 +80,15 @@ public final class ScmPublisher {
       return;
     }
 
+    cachedFiles = 0;
     List<InputFile> filesToBlame = collectFilesToBlame(writer);
+    if (cachedFiles > 0) {
+      LOG.info("Blame information of {} unchanged files loaded from cache", cachedFiles);
+    }
     if (!filesToBlame.isEmpty()) {
       String key = configuration.provider().key();
       LOG.info("SCM provider for this project is: " + key);
-      DefaultBlameOutput output = new DefaultBlameOutput(writer, filesToBlame);
+      DefaultBlameOutput output = new DefaultBlameOutput(writer, filesToBlame, blameCache);
       try {
         configuration.provider().blameCommand().blame(new DefaultBlameInput(fs, filesToBlame), output);
       } catch (Exception e) {
@@ -123,10 +131,23 @@ public final class ScmPublisher {
     writer.writeComponentChangesets(scmBuilder.build());
   }
 
-  private static void addIfNotEmpty(List<InputFile> filesToBlame, InputFile f) {
-    if (!f.isEmpty()) {
+  private void addIfNotEmpty(List<InputFile> filesToBlame, InputFile f) {
+    if (!f.isEmpty() && !copyFromCache((DefaultInputFile) f)) {
       filesToBlame.add(f);
     }
   }
 
+  private boolean copyFromCache(DefaultInputFile f) {
+    if (configuration.forceReloadAll()) {
+      return false;
+    }
+    ScannerReport.Changesets changesets = blameCache.get(f);
+    if (changesets == null) {
+      return false;
+    }
+    writer.writeComponentChangesets(changesets.toBuilder().setComponentRef(f.batchId()).build());
+    cachedFiles++;
+    return true;
+  }
+
 }
@@ -0,0 +1,122 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Helpers for implementations of {@link Codec}
+ *
+ * @since 7.1
+ */
+public final class Codecs {
+
+  private static final int CHUNK_SIZE = 8192;
+
+  private Codecs() {
+    // only static methods
+  }
+
+  /**
+   * Contrary to {@link DataOutput#writeUTF(String)}, the length of the string is not limited. Large strings
+   * are encoded by chunks, so that they are never copied entirely in memory.
+   */
+  public static void writeString(DataOutput output, @Nullable String s) throws IOException {
+    if (s == null) {
+      output.writeInt(-1);
+      return;
+    }
+    output.writeInt(utf8Length(s));
+    int start = 0;
+    while (start < s.length()) {
+      int end = Math.min(start + CHUNK_SIZE, s.length());
+      if (end < s.length() && Character.isHighSurrogate(s.charAt(end - 1))) {
+        // do not split surrogate pairs
+        end--;
+      }
+      output.write(s.substring(start, end).getBytes(UTF_8));
+      start = end;
+    }
+  }
+
+  /**
+   * Number of bytes returned by {@code s.getBytes(UTF_8)}. Unpaired surrogates are replaced by '?'.
+   */
+  static int utf8Length(String s) {
+    int length = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        length++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  @CheckForNull
+  public static String readString(DataInput input) throws IOException {
+    int length = input.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  public static void writeInteger(DataOutput output, @Nullable Integer i) throws IOException {
+    output.writeBoolean(i != null);
+    if (i != null) {
+      output.writeInt(i);
+    }
+  }
+
+  @CheckForNull
+  public static Integer readInteger(DataInput input) throws IOException {
+    return input.readBoolean() ? input.readInt() : null;
+  }
+
+  public static void writeDouble(DataOutput output, @Nullable Double d) throws IOException {
+    output.writeBoolean(d != null);
+    if (d != null) {
+      output.writeDouble(d);
+    }
+  }
+
+  @CheckForNull
+  public static Double readDouble(DataInput input) throws IOException {
+    return input.readBoolean() ? input.readDouble() : null;
+  }
+}
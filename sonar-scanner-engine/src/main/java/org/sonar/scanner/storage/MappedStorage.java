@@ -0,0 +1,200 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.google.common.collect.Iterables;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.annotation.CheckForNull;
+
+import static java.util.Arrays.copyOf;
+
+/**
+ * Values are encoded by a {@link Codec} and appended to {@link MappedValues}. Only their keys and offsets are
+ * kept on the heap, in an ordered map.
+ * <p>
+ * This storage is thread-safe. Iterators reflect the state of the storage at some point at or since their creation.
+ * </p>
+ */
+class MappedStorage<V> extends Storage<V> {
+
+  // bounds of the ranges of keys starting with a given key
+  private static final Object BEFORE = new Object();
+  private static final Object AFTER = new Object();
+  private static final Comparator<Object[]> KEY_COMPARATOR = MappedStorage::compareKeys;
+
+  private final MappedValues values;
+  private final Codec<V> codec;
+  private final ConcurrentSkipListMap<Object[], Long> offsets = new ConcurrentSkipListMap<>(KEY_COMPARATOR);
+
+  MappedStorage(String name, MappedValues values, Codec<V> codec) {
+    super(name);
+    this.values = values;
+    this.codec = codec;
+  }
+
+  @Override
+  void doPut(Object[] key, V value) {
+    for (Object o : key) {
+      if (o != null && !(o instanceof Comparable)) {
+        throw new IllegalArgumentException("Keys of storage '" + name + "' must be comparable: " + o.getClass());
+      }
+    }
+    try {
+      EncodingBuffer buffer = new EncodingBuffer();
+      DataOutputStream output = new DataOutputStream(buffer);
+      codec.write(value, output);
+      output.flush();
+      offsets.put(key.clone(), values.append(buffer.bytes(), buffer.size()));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to put element in the storage '" + name + "'", e);
+    }
+  }
+
+  @CheckForNull
+  @Override
+  V doGet(Object[] key) {
+    Long offset = offsets.get(key);
+    return offset == null ? null : decode(offset);
+  }
+
+  private V decode(long offset) {
+    try {
+      return codec.read(new DataInputStream(new ByteArrayInputStream(values.read(offset))));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to get element from storage '" + name + "'", e);
+    }
+  }
+
+  @Override
+  boolean doContainsKey(Object[] key) {
+    return offsets.containsKey(key);
+  }
+
+  @Override
+  boolean doRemove(Object[] key) {
+    return offsets.remove(key) != null;
+  }
+
+  @Override
+  void doClear(Object[] key) {
+    offsets.subMap(key, true, append(key, AFTER), false).clear();
+  }
+
+  @Override
+  public void clear() {
+    offsets.clear();
+  }
+
+  @Override
+  Set<Object> doKeySet(Object[] key) {
+    Set<Object> keys = new LinkedHashSet<>();
+    Object[] upperBound = append(key, AFTER);
+    Object[] child = offsets.ceilingKey(append(key, BEFORE));
+    while (child != null && compareKeys(child, upperBound) < 0) {
+      keys.add(child[key.length]);
+      // skip the descendants of the child
+      child = offsets.ceilingKey(append(copyOf(child, key.length + 1), AFTER));
+    }
+    return keys;
+  }
+
+  @Override
+  Iterable<V> doValues(Object[] key) {
+    return Iterables.unmodifiableIterable(Iterables.transform(descendants(key).values(), this::decode));
+  }
+
+  @Override
+  Iterable<Entry<V>> doEntries(Object[] key) {
+    return Iterables.unmodifiableIterable(Iterables.transform(descendants(key).entrySet(),
+      e -> new Entry<>(e.getKey().clone(), decode(e.getValue()))));
+  }
+
+  private NavigableMap<Object[], Long> descendants(Object[] key) {
+    if (key.length == 0) {
+      return offsets;
+    }
+    return offsets.subMap(append(key, BEFORE), true, append(key, AFTER), false);
+  }
+
+  private static Object[] append(Object[] key, Object element) {
+    Object[] result = copyOf(key, key.length + 1);
+    result[key.length] = element;
+    return result;
+  }
+
+  /**
+   * Keys are compared element by element. A key is lower than the keys it is a prefix of. Null elements are
+   * lower than non-null elements. Non-null elements at the same position must have the same type, otherwise
+   * {@link IllegalArgumentException} is raised.
+   */
+  private static int compareKeys(Object[] key1, Object[] key2) {
+    int length = Math.min(key1.length, key2.length);
+    for (int i = 0; i < length; i++) {
+      int c = compareElements(key1[i], key2[i]);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return Integer.compare(key1.length, key2.length);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareElements(Object o1, Object o2) {
+    if (o1 == o2) {
+      return 0;
+    }
+    if (o1 == BEFORE || o2 == AFTER) {
+      return -1;
+    }
+    if (o1 == AFTER || o2 == BEFORE) {
+      return 1;
+    }
+    if (o1 == null) {
+      return -1;
+    }
+    if (o2 == null) {
+      return 1;
+    }
+    if (o1.getClass() != o2.getClass()) {
+      // there's no natural order between different types
+      throw new IllegalArgumentException(String.format("Elements at the same position of keys must have the same type: %s and %s",
+        o1.getClass().getName(), o2.getClass().getName()));
+    }
+    return ((Comparable) o1).compareTo(o2);
+  }
+
+  /**
+   * Gives access to the internal buffer, to avoid copying it
+   */
+  private static class EncodingBuffer extends ByteArrayOutputStream {
+    byte[] bytes() {
+      return buf;
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Append-only log of binary values, stored in a memory-mapped file. Values are neither on the heap nor in the
+ * direct memory of the JVM, and the OS can write them to disk when memory is needed.
+ * <p>
+ * The file is mapped by segments of fixed size, which are created when needed. Values can span multiple segments.
+ * Values can be read concurrently, but are appended by a single thread at a time.
+ * </p>
+ * <p>
+ * Space is never reclaimed: values which are overwritten or removed from storages stay in the file until it
+ * is closed.
+ * </p>
+ */
+class MappedValues implements Closeable {
+
+  // 64Mb
+  private static final int DEFAULT_SEGMENT_BITS = 26;
+
+  private final File file;
+  private final RandomAccessFile randomAccessFile;
+  private final int segmentBits;
+  private final int segmentSize;
+  private final List<ByteBuffer> segments = new CopyOnWriteArrayList<>();
+  private final byte[] lengthBytes = new byte[Integer.BYTES];
+  private long size = 0L;
+
+  MappedValues(File file) {
+    this(file, DEFAULT_SEGMENT_BITS);
+  }
+
+  MappedValues(File file, int segmentBits) {
+    this.file = file;
+    this.segmentBits = segmentBits;
+    this.segmentSize = 1 << segmentBits;
+    try {
+      this.randomAccessFile = new RandomAccessFile(file, "rw");
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create storage file " + file, e);
+    }
+  }
+
+  /**
+   * @return the offset of the value, to be used to {@link #read(long)} it
+   */
+  synchronized long append(byte[] bytes, int length) {
+    long offset = size;
+    ByteBuffer.wrap(lengthBytes).putInt(length);
+    write(offset, lengthBytes, lengthBytes.length);
+    write(offset + lengthBytes.length, bytes, length);
+    size = offset + lengthBytes.length + length;
+    return offset;
+  }
+
+  byte[] read(long offset) {
+    byte[] length = new byte[Integer.BYTES];
+    read(offset, length);
+    byte[] bytes = new byte[ByteBuffer.wrap(length).getInt()];
+    read(offset + length.length, bytes);
+    return bytes;
+  }
+
+  long size() {
+    return size;
+  }
+
+  private void write(long offset, byte[] bytes, int length) {
+    int written = 0;
+    while (written < length) {
+      long position = offset + written;
+      ByteBuffer segment = segment((int) (position >>> segmentBits)).duplicate();
+      segment.position((int) (position & (segmentSize - 1)));
+      int count = Math.min(segment.remaining(), length - written);
+      segment.put(bytes, written, count);
+      written += count;
+    }
+  }
+
+  private void read(long offset, byte[] bytes) {
+    int read = 0;
+    while (read < bytes.length) {
+      long position = offset + read;
+      ByteBuffer segment = segments.get((int) (position >>> segmentBits)).duplicate();
+      segment.position((int) (position & (segmentSize - 1)));
+      int count = Math.min(segment.remaining(), bytes.length - read);
+      segment.get(bytes, read, count);
+      read += count;
+    }
+  }
+
+  private ByteBuffer segment(int index) {
+    while (segments.size() <= index) {
+      try {
+        MappedByteBuffer segment = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * segmentSize, segmentSize);
+        segments.add(segment);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to extend storage file " + file, e);
+      }
+    }
+    return segments.get(index);
+  }
+
+  /**
+   * Closes and deletes the file. Mapped segments are released by the garbage collector.
+   */
+  @Override
+  public synchronized void close() {
+    segments.clear();
+    try {
+      randomAccessFile.close();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to close storage file " + file, e);
+    } finally {
+      deleteQuietly(file);
+    }
+  }
+}
@@ -0,0 +1,350 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.persistit.Exchange;
+import com.persistit.Key;
+import com.persistit.KeyFilter;
+import com.persistit.Value;
+import com.persistit.exception.PersistitException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * <p>
+ * This storage is not thread-safe, due to direct usage of {@link com.persistit.Exchange}
+ * </p>
+ */
+class PersistitStorage<V> extends Storage<V> {
+
+  private final Exchange exchange;
+  @Nullable
+  private final Codec<V> codec;
+
+  /**
+   * @param codec if {@code null}, values are encoded by the {@link com.persistit.encoding.ValueCoder}s of Persistit
+   */
+  PersistitStorage(String name, Exchange exchange, @Nullable Codec<V> codec) {
+    super(name);
+    this.exchange = exchange;
+    this.codec = codec;
+  }
+
+  @Override
+  void doPut(Object[] key, V value) {
+    resetKey(key);
+    try {
+      if (codec == null) {
+        exchange.getValue().put(value);
+      } else {
+        ByteArrayOutputStream bytes = new BoundedByteArrayOutputStream(Value.MAXIMUM_SIZE);
+        DataOutputStream output = new DataOutputStream(bytes);
+        codec.write(value, output);
+        output.flush();
+        exchange.getValue().putByteArray(bytes.toByteArray());
+      }
+      exchange.store();
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to put element in the storage '" + name + "'", e);
+    }
+  }
+
+  @CheckForNull
+  @Override
+  V doGet(Object[] key) {
+    resetKey(key);
+    try {
+      exchange.fetch();
+      if (!exchange.getValue().isDefined()) {
+        return null;
+      }
+      return decode(exchange.getValue(), codec);
+    } catch (Exception e) {
+      // TODO add parameters to message
+      throw new IllegalStateException("Fail to get element from cache " + name, e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T decode(Value value, @Nullable Codec<T> codec) throws IOException {
+    if (codec == null) {
+      return (T) value.get();
+    }
+    return codec.read(new DataInputStream(new ByteArrayInputStream(value.getByteArray())));
+  }
+
+  @Override
+  boolean doContainsKey(Object[] key) {
+    resetKey(key);
+    try {
+      exchange.fetch();
+      return exchange.isValueDefined();
+    } catch (Exception e) {
+      // TODO add parameters to message
+      throw new IllegalStateException("Fail to check if element is in cache " + name, e);
+    }
+  }
+
+  @Override
+  boolean doRemove(Object[] key) {
+    resetKey(key);
+    try {
+      return exchange.remove();
+    } catch (Exception e) {
+      // TODO add parameters to message
+      throw new IllegalStateException("Fail to get element from cache " + name, e);
+    }
+  }
+
+  @Override
+  void doClear(Object[] key) {
+    resetKey(key);
+    try {
+      Key to = new Key(exchange.getKey());
+      to.append(Key.AFTER);
+      exchange.removeKeyRange(exchange.getKey(), to);
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to clear values from cache " + name, e);
+    }
+  }
+
+  @Override
+  public void clear() {
+    try {
+      exchange.clear();
+      exchange.removeAll();
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to clear cache", e);
+    }
+  }
+
+  @Override
+  Set<Object> doKeySet(Object[] key) {
+    try {
+      Set<Object> keys = new LinkedHashSet<>();
+      exchange.clear();
+      Exchange iteratorExchange = new Exchange(exchange);
+      for (Object o : key) {
+        iteratorExchange.append(o);
+      }
+      iteratorExchange.append(Key.BEFORE);
+      while (iteratorExchange.next(false)) {
+        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
+      }
+      return keys;
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to get keys from cache " + name, e);
+    }
+  }
+
+  @Override
+  Iterable<V> doValues(Object[] key) {
+    return new ValueIterable<>(exchange, codec, key);
+  }
+
+  @Override
+  Iterable<Entry<V>> doEntries(Object[] key) {
+    return new EntryIterable<>(exchange, codec, key);
+  }
+
+  private void resetKey(Object[] keys) {
+    exchange.clear();
+    for (Object o : keys) {
+      exchange.append(o);
+    }
+  }
+
+  //
+  // LAZY ITERATORS AND ITERABLES
+  //
+
+  private static Exchange iteratorExchange(Exchange originExchange, Object[] keys) {
+    originExchange.clear();
+    for (Object key : keys) {
+      originExchange.append(key);
+    }
+    originExchange.append(Key.BEFORE);
+    return new Exchange(originExchange);
+  }
+
+  private static KeyFilter keyFilter(Object[] keys) {
+    KeyFilter filter = new KeyFilter();
+    for (Object key : keys) {
+      filter = filter.append(KeyFilter.simpleTerm(key));
+    }
+    return filter;
+  }
+
+  private static class ValueIterable<T> implements Iterable<T> {
+    private final Exchange originExchange;
+    private final Codec<T> codec;
+    private final Object[] keys;
+
+    private ValueIterable(Exchange originExchange, @Nullable Codec<T> codec, Object[] keys) {
+      this.originExchange = originExchange;
+      this.codec = codec;
+      this.keys = keys;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return new ValueIterator<>(iteratorExchange(originExchange, keys), keyFilter(keys), codec);
+    }
+  }
+
+  private static class ValueIterator<T> implements Iterator<T> {
+    private final Exchange exchange;
+    private final KeyFilter keyFilter;
+    private final Codec<T> codec;
+
+    private ValueIterator(Exchange exchange, KeyFilter keyFilter, @Nullable Codec<T> codec) {
+      this.exchange = exchange;
+      this.keyFilter = keyFilter;
+      this.codec = codec;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        return exchange.hasNext(keyFilter);
+      } catch (PersistitException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public T next() {
+      try {
+        exchange.next(keyFilter);
+        if (exchange.getValue().isDefined()) {
+          return decode(exchange.getValue(), codec);
+        }
+      } catch (PersistitException | IOException e) {
+        throw new IllegalStateException(e);
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Removing an item is not supported");
+    }
+  }
+
+  private static class EntryIterable<T> implements Iterable<Entry<T>> {
+    private final Exchange originExchange;
+    private final Codec<T> codec;
+    private final Object[] keys;
+
+    private EntryIterable(Exchange originExchange, @Nullable Codec<T> codec, Object[] keys) {
+      this.originExchange = originExchange;
+      this.codec = codec;
+      this.keys = keys;
+    }
+
+    @Override
+    public Iterator<Entry<T>> iterator() {
+      return new EntryIterator<>(iteratorExchange(originExchange, keys), keyFilter(keys), codec);
+    }
+  }
+
+  private static class EntryIterator<T> implements Iterator<Entry<T>> {
+    private final Exchange exchange;
+    private final KeyFilter keyFilter;
+    private final Codec<T> codec;
+
+    private EntryIterator(Exchange exchange, KeyFilter keyFilter, @Nullable Codec<T> codec) {
+      this.exchange = exchange;
+      this.keyFilter = keyFilter;
+      this.codec = codec;
+    }
+
+    @Override
+    public boolean hasNext() {
+      try {
+        return exchange.hasNext(keyFilter);
+      } catch (PersistitException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public Entry<T> next() {
+      try {
+        exchange.next(keyFilter);
+        if (exchange.getValue().isDefined()) {
+          T value = decode(exchange.getValue(), codec);
+          Key key = exchange.getKey();
+          Object[] array = new Object[key.getDepth()];
+          for (int i = 0; i < key.getDepth(); i++) {
+            array[i] = key.indexTo(i - key.getDepth()).decode();
+          }
+          return new Entry<>(array, value);
+        }
+      } catch (PersistitException | IOException e) {
+        throw new IllegalStateException(e);
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Removing an item is not supported");
+    }
+  }
+
+  /**
+   * Fails as soon as the encoded value can not be stored by Persistit, instead of buffering it entirely
+   */
+  private static class BoundedByteArrayOutputStream extends ByteArrayOutputStream {
+    private final int maxSize;
+
+    BoundedByteArrayOutputStream(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+      checkSize(1);
+      super.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+      checkSize(len);
+      super.write(b, off, len);
+    }
+
+    private void checkSize(int len) {
+      if (count + len > maxSize) {
+        throw new IllegalStateException("Value is too large to be stored: more than " + maxSize + " bytes");
+      }
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Default codec, for values which are {@link java.io.Serializable}
+ */
+class SerializationCodec<V> implements Codec<V> {
+
+  @Override
+  public void write(V value, DataOutput output) throws IOException {
+    OutputStream stream = output instanceof OutputStream ? (OutputStream) output : new DataOutputAdapter(output);
+    ObjectOutputStream objectOutput = new ObjectOutputStream(stream);
+    objectOutput.writeObject(value);
+    objectOutput.flush();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public V read(DataInput input) throws IOException {
+    InputStream stream = input instanceof InputStream ? (InputStream) input : new DataInputAdapter(input);
+    try {
+      return (V) new ObjectInputStream(stream).readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Fail to deserialize value", e);
+    }
+  }
+
+  private static class DataOutputAdapter extends OutputStream {
+    private final DataOutput output;
+
+    DataOutputAdapter(DataOutput output) {
+      this.output = output;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      output.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      output.write(b, off, len);
+    }
+  }
+
+  private static class DataInputAdapter extends InputStream {
+    private final DataInput input;
+
+    DataInputAdapter(DataInput input) {
+      this.input = input;
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        return input.readUnsignedByte();
+      } catch (EOFException e) {
+        return -1;
+      }
+    }
+  }
+}
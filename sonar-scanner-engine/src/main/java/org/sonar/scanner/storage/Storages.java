@@ -24,24 +24,38 @@ import com.persistit.Exchange;
 import com.persistit.Persistit;
 import com.persistit.Value;
 import com.persistit.Volume;
-import com.persistit.encoding.CoderManager;
-import com.persistit.encoding.ValueCoder;
 import com.persistit.exception.PersistitException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 
 @ScannerSide
 public class Storages implements Startable {
-  private final Map<String, Exchange> cacheMap = new HashMap<>();
+  private static final Logger LOG = Loggers.get(Storages.class);
+
+  private final Set<String> cacheNames = new HashSet<>();
+  private final List<Exchange> exchanges = new ArrayList<>();
+  private final StoragesManager.Backend backend;
   private Persistit persistit;
   private Volume volume;
+  private MappedValues mappedValues;
 
   public Storages(StoragesManager storagesManager) {
-    persistit = storagesManager.persistit();
-    doStart();
+    backend = storagesManager.backend();
+    if (backend == StoragesManager.Backend.PERSISTIT) {
+      persistit = storagesManager.persistit();
+      doStartPersistit();
+    } else {
+      doStartMapped(storagesManager.tempDir());
+    }
   }
 
   @Override
@@ -49,7 +63,7 @@ public class Storages implements Startable {
     // done in constructor
   }
 
-  private void doStart() {
+  private void doStartPersistit() {
     try {
       persistit.flush();
       volume = persistit.createTemporaryVolume();
@@ -58,19 +72,42 @@ public class Storages implements Startable {
     }
   }
 
-  public void registerValueCoder(Class<?> clazz, ValueCoder coder) {
-    CoderManager cm = persistit.getCoderManager();
-    cm.registerValueCoder(clazz, coder);
+  private void doStartMapped(File tempDir) {
+    try {
+      mappedValues = new MappedValues(File.createTempFile("storage", ".dat", tempDir));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create a storage file", e);
+    }
   }
 
+  /**
+   * Creates a storage of which values are {@link java.io.Serializable}
+   */
   public <V> Storage<V> createCache(String cacheName) {
-    Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
-    Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: %s", cacheName);
+    return createStorage(cacheName, null);
+  }
+
+  /**
+   * @since 7.1
+   */
+  public <V> Storage<V> createCache(String cacheName, Codec<V> codec) {
+    return createStorage(cacheName, codec);
+  }
+
+  private <V> Storage<V> createStorage(String cacheName, @Nullable Codec<V> codec) {
+    Preconditions.checkState((volume != null && volume.isOpened()) || mappedValues != null, "Caches are not initialized");
+    Preconditions.checkState(!cacheNames.contains(cacheName), "Cache is already created: %s", cacheName);
     try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Storage<V> cache = new Storage<>(cacheName, exchange);
-      cacheMap.put(cacheName, exchange);
+      Storage<V> cache;
+      if (mappedValues != null) {
+        cache = new MappedStorage<>(cacheName, mappedValues, codec == null ? new SerializationCodec<>() : codec);
+      } else {
+        Exchange exchange = persistit.getExchange(volume, cacheName, true);
+        exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
+        cache = new PersistitStorage<>(cacheName, exchange, codec);
+        exchanges.add(exchange);
+      }
+      cacheNames.add(cacheName);
       return cache;
     } catch (Exception e) {
       throw new IllegalStateException("Fail to create cache: " + cacheName, e);
@@ -79,11 +116,11 @@ public class Storages implements Startable {
 
   @Override
   public void stop() {
-    for (Entry<String, Exchange> e : cacheMap.entrySet()) {
-      persistit.releaseExchange(e.getValue());
+    for (Exchange exchange : exchanges) {
+      persistit.releaseExchange(exchange);
     }
-
-    cacheMap.clear();
+    exchanges.clear();
+    cacheNames.clear();
 
     if (volume != null) {
       try {
@@ -94,5 +131,10 @@ public class Storages implements Startable {
       }
       volume = null;
     }
+    if (mappedValues != null) {
+      LOG.debug("Size of storage file: {} bytes", mappedValues.size());
+      mappedValues.close();
+      mappedValues = null;
+    }
   }
 }
@@ -23,11 +23,17 @@ import com.persistit.Persistit;
 import com.persistit.exception.PersistitException;
 import com.persistit.logging.Slf4jAdapter;
 import java.io.File;
+import java.util.Locale;
 import java.util.Properties;
+import javax.annotation.Nullable;
 import org.picocontainer.Startable;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.scanner.bootstrap.GlobalProperties;
 
 import static org.sonar.core.util.FileUtils.deleteQuietly;
 
@@ -38,18 +44,56 @@ import static org.sonar.core.util.FileUtils.deleteQuietly;
  */
 @ScannerSide
 public class StoragesManager implements Startable {
+  private static final Logger LOG = Loggers.get(StoragesManager.class);
+
+  /**
+   * Backend of storages, see {@link Backend}. Default is "persistit". Backend "mapped" is experimental.
+   */
+  public static final String BACKEND_PROPERTY = "sonar.scanner.storage";
+
+  public enum Backend {
+    /**
+     * Values are stored in temporary volumes of Persistit
+     */
+    PERSISTIT,
+    /**
+     * Experimental. Values are encoded by codecs and stored in memory-mapped files, see {@link MappedStorage}.
+     * Space of overwritten and removed values is not reused, so the files only grow during the analysis.
+     */
+    MAPPED;
+
+    static Backend of(@Nullable String value) {
+      if (value == null) {
+        return PERSISTIT;
+      }
+      try {
+        return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+      } catch (IllegalArgumentException e) {
+        throw MessageException.of(String.format("Invalid value of property '%s': %s. Supported values are 'persistit' and 'mapped'.", BACKEND_PROPERTY, value));
+      }
+    }
+  }
+
   private File tempDir;
   private Persistit persistit;
-  private final TempFolder tempFolder;
+  private final Backend backend;
 
-  public StoragesManager(TempFolder tempFolder) {
-    this.tempFolder = tempFolder;
-    initPersistit();
+  public StoragesManager(TempFolder tempFolder, GlobalProperties properties) {
+    this(tempFolder, Backend.of(properties.property(BACKEND_PROPERTY)));
+  }
+
+  public StoragesManager(TempFolder tempFolder, Backend backend) {
+    this.backend = backend;
+    tempDir = tempFolder.newDir("caches");
+    if (backend == Backend.PERSISTIT) {
+      initPersistit();
+    } else {
+      LOG.warn("Storage backend '{}' is experimental: space of overwritten and removed values is not reused", backend.name().toLowerCase(Locale.ENGLISH));
+    }
   }
 
   private void initPersistit() {
     try {
-      tempDir = tempFolder.newDir("caches");
       persistit = new Persistit();
       persistit.setPersistitLogger(new Slf4jAdapter(LoggerFactory.getLogger("PERSISTIT")));
       Properties props = new Properties();
@@ -95,4 +139,8 @@ public class StoragesManager implements Startable {
   Persistit persistit() {
     return persistit;
   }
+
+  Backend backend() {
+    return backend;
+  }
 }
@@ -0,0 +1,141 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.cpd;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.SonarRuntime;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.utils.Version;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.CloneGroup;
+import org.sonar.duplications.index.ClonePart;
+import org.sonar.home.cache.FileCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CpdCacheTest {
+
+  private static final byte[] FINGERPRINT = {1, 2, 3};
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private FileCache fileCache = mock(FileCache.class);
+  private InputModuleHierarchy moduleHierarchy = mock(InputModuleHierarchy.class);
+  private SonarRuntime runtime = mock(SonarRuntime.class);
+
+  @Before
+  public void setUp() throws IOException {
+    when(fileCache.getDir()).thenReturn(temp.newFolder());
+    File baseDir = temp.newFolder();
+    when(moduleHierarchy.root()).thenReturn(TestInputFileBuilder.newDefaultInputModule("foo", baseDir));
+    when(runtime.getApiVersion()).thenReturn(Version.create(7, 1));
+  }
+
+  @Test
+  public void reuse_blocks_of_unchanged_files() {
+    CpdCache cache = new CpdCache(fileCache, moduleHierarchy, runtime);
+    DefaultInputFile file = newFile("src/Foo.java", "hash1");
+    assertThat(cache.getBlocks(file, "java:10")).isNull();
+    cache.putBlocks(file, "java:10", Arrays.asList(newBlock(file, 0), newBlock(file, 1)));
+    cache.stop();
+
+    cache = new CpdCache(fileCache, moduleHierarchy, runtime);
+    assertThat(cache.getBlocks(newFile("src/Foo.java", "hash1"), "java:10")).containsExactly(newBlock(file, 0), newBlock(file, 1));
+    assertThat(cache.getBlocks(newFile("src/Foo.java", "hash2"), "java:10")).isNull();
+    assertThat(cache.getBlocks(newFile("src/Foo.java", "hash1"), "java:20")).isNull();
+    assertThat(cache.getBlocks(newFile("src/Bar.java", "hash1"), "java:10")).isNull();
+  }
+
+  @Test
+  public void reuse_duplications_of_same_fingerprint() {
+    CpdCache cache = new CpdCache(fileCache, moduleHierarchy, runtime);
+    CloneGroup group = CloneGroup.builder()
+      .setLength(12)
+      .setLengthInUnits(50)
+      .setOrigin(new ClonePart("foo:src/Foo.java", 0, 2, 14))
+      .setParts(Arrays.asList(new ClonePart("foo:src/Foo.java", 0, 2, 14), new ClonePart("foo:src/Bar.java", 3, 10, 22)))
+      .build();
+    cache.putDuplications("foo:src/Foo.java", FINGERPRINT, Collections.singletonList(group));
+    cache.stop();
+
+    cache = new CpdCache(fileCache, moduleHierarchy, runtime);
+    List<CloneGroup> groups = cache.getDuplications("foo:src/Foo.java", FINGERPRINT);
+    assertThat(groups).containsExactly(group);
+    assertThat(groups.get(0).getCloneUnitLength()).isEqualTo(12);
+    assertThat(groups.get(0).getLengthInUnits()).isEqualTo(50);
+    assertThat(cache.getDuplications("foo:src/Foo.java", new byte[] {1, 2, 4})).isNull();
+    assertThat(cache.getDuplications("foo:src/Bar.java", FINGERPRINT)).isNull();
+  }
+
+  @Test
+  public void keep_only_entries_used_by_last_analysis() {
+    CpdCache cache = new CpdCache(fileCache, moduleHierarchy, runtime);
+    cache.putDuplications("foo:src/Foo.java", FINGERPRINT, Collections.emptyList());
+    cache.putDuplications("foo:src/Bar.java", FINGERPRINT, Collections.emptyList());
+    cache.stop();
+
+    cache = new CpdCache(fileCache, moduleHierarchy, runtime);
+    assertThat(cache.getDuplications("foo:src/Foo.java", FINGERPRINT)).isEmpty();
+    cache.stop();
+
+    cache = new CpdCache(fileCache, moduleHierarchy, runtime);
+    assertThat(cache.getDuplications("foo:src/Foo.java", FINGERPRINT)).isEmpty();
+    assertThat(cache.getDuplications("foo:src/Bar.java", FINGERPRINT)).isNull();
+  }
+
+  @Test
+  public void drop_cache_when_version_changes() {
+    CpdCache cache = new CpdCache(fileCache, moduleHierarchy, runtime);
+    cache.putDuplications("foo:src/Foo.java", FINGERPRINT, Collections.emptyList());
+    cache.stop();
+
+    when(runtime.getApiVersion()).thenReturn(Version.create(7, 2));
+    cache = new CpdCache(fileCache, moduleHierarchy, runtime);
+    assertThat(cache.getDuplications("foo:src/Foo.java", FINGERPRINT)).isNull();
+  }
+
+  private static DefaultInputFile newFile(String path, String hash) {
+    return new TestInputFileBuilder("foo", path).setHash(hash).build();
+  }
+
+  private static Block newBlock(DefaultInputFile file, int indexInFile) {
+    return Block.builder()
+      .setResourceId(file.key())
+      .setBlockHash(new ByteArray((long) indexInFile))
+      .setIndexInFile(indexInFile)
+      .setLines(indexInFile + 1, indexInFile + 10)
+      .setUnit(indexInFile, indexInFile + 20)
+      .build();
+  }
+}
@@ -30,6 +30,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
@@ -42,6 +43,8 @@ import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.CloneGroup;
 import org.sonar.duplications.index.ClonePart;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
+import org.sonar.scanner.events.CpdExecutionEvent;
+import org.sonar.scanner.events.EventBus;
 import org.sonar.scanner.protocol.output.ScannerReport.Duplicate;
 import org.sonar.scanner.protocol.output.ScannerReport.Duplication;
 import org.sonar.scanner.protocol.output.ScannerReportReader;
@@ -51,7 +54,14 @@ import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
@@ -76,6 +86,8 @@ public class CpdExecutorTest {
   private DefaultInputFile batchComponent3;
   private File baseDir;
   private InputComponentStore componentStore;
+  private CpdCache cache;
+  private EventBus eventBus;
 
   @Before
   public void setUp() throws IOException {
@@ -90,7 +102,10 @@ public class CpdExecutorTest {
     index = new SonarCpdBlockIndex(publisher, settings);
     DefaultInputModule inputModule = TestInputFileBuilder.newDefaultInputModule("foo", baseDir);
     componentStore = new InputComponentStore(inputModule, mock(BranchConfiguration.class));
-    executor = new CpdExecutor(settings, index, publisher, componentStore, branchConfig);
+    cache = mock(CpdCache.class);
+    when(cache.getDuplications(anyString(), any(byte[].class))).thenReturn(null);
+    eventBus = mock(EventBus.class);
+    executor = new CpdExecutor(settings, index, publisher, componentStore, branchConfig, cache, eventBus);
     reader = new ScannerReportReader(outputDir);
 
     batchComponent1 = createComponent("src/Foo.php", 5);
@@ -102,7 +117,7 @@ public class CpdExecutorTest {
   public void skipIfShortBranch() {
     when(branchConfig.isShortLivingBranch()).thenReturn(true);
     index = mock(SonarCpdBlockIndex.class);
-    executor = new CpdExecutor(settings, index, publisher, componentStore, branchConfig);
+    executor = new CpdExecutor(settings, index, publisher, componentStore, branchConfig, cache, eventBus);
 
     executor.execute();
 
@@ -235,6 +250,77 @@ public class CpdExecutorTest {
         "Timeout during detection of duplications for .*Foo2.php");
   }
 
+  @Test
+  public void detect_duplications_and_cache_them() {
+    when(settings.getThreads()).thenReturn(2);
+    insertBlocks(batchComponent1, 0xA1L, 0xA2L, 0xA3L);
+    insertBlocks(batchComponent2, 0xA1L, 0xA2L, 0xA3L);
+    insertBlocks(batchComponent3, 0xB1L, 0xB2L);
+
+    executor.execute(60_000);
+
+    Duplication[] dups = readDuplications(1);
+    assertDuplication(dups[0], 1, 4, batchComponent2.batchId(), 1, 4);
+    verify(cache).putDuplications(eq(batchComponent1.key()), any(byte[].class), anyListOf(CloneGroup.class));
+    verify(cache).putDuplications(eq(batchComponent2.key()), any(byte[].class), anyListOf(CloneGroup.class));
+    // no need to detect duplications in files without common blocks
+    verify(cache, never()).getDuplications(eq(batchComponent3.key()), any(byte[].class));
+    verify(eventBus, times(3)).fireEvent(any(CpdExecutionEvent.class));
+  }
+
+  @Test
+  public void reuse_duplications_of_unchanged_files() {
+    insertBlocks(batchComponent1, 0xA1L, 0xA2L, 0xA3L);
+    insertBlocks(batchComponent2, 0xA1L, 0xA2L, 0xA3L);
+    List<CloneGroup> groups = Arrays.asList(newCloneGroup(new ClonePart(batchComponent1.key(), 0, 2, 4), new ClonePart(batchComponent2.key(), 0, 3, 5)));
+    when(cache.getDuplications(eq(batchComponent1.key()), any(byte[].class))).thenReturn(groups);
+
+    executor.execute(60_000);
+
+    Duplication[] dups = readDuplications(1);
+    assertDuplication(dups[0], 2, 4, batchComponent2.batchId(), 3, 5);
+    verify(cache, never()).putDuplications(eq(batchComponent1.key()), any(byte[].class), anyListOf(CloneGroup.class));
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Duplications of 1 unchanged file reused from previous analysis");
+  }
+
+  @Test
+  public void fingerprint_depends_on_blocks_of_other_files() {
+    insertBlocks(batchComponent1, 0xA1L, 0xA2L);
+    insertBlocks(batchComponent2, 0xA1L, 0xA2L);
+    executor.execute(60_000);
+    ArgumentCaptor<byte[]> fingerprint = ArgumentCaptor.forClass(byte[].class);
+    verify(cache).putDuplications(eq(batchComponent1.key()), fingerprint.capture(), anyListOf(CloneGroup.class));
+
+    SonarCpdBlockIndex otherIndex = new SonarCpdBlockIndex(publisher, settings);
+    otherIndex.insert(batchComponent1, index.getByInputFile(batchComponent1.key()));
+    otherIndex.insert(batchComponent3, Collections.singletonList(newBlock(batchComponent3, 1, 0xA1L)));
+    CpdCache otherCache = mock(CpdCache.class);
+    when(otherCache.getDuplications(anyString(), any(byte[].class))).thenReturn(null);
+    new CpdExecutor(settings, otherIndex, publisher, componentStore, branchConfig, otherCache, eventBus).execute(60_000);
+    ArgumentCaptor<byte[]> otherFingerprint = ArgumentCaptor.forClass(byte[].class);
+    verify(otherCache).putDuplications(eq(batchComponent1.key()), otherFingerprint.capture(), anyListOf(CloneGroup.class));
+
+    assertThat(otherFingerprint.getValue()).isNotEqualTo(fingerprint.getValue());
+  }
+
+  private void insertBlocks(DefaultInputFile file, long... hashes) {
+    List<Block> blocks = new ArrayList<>();
+    for (int i = 0; i < hashes.length; i++) {
+      blocks.add(newBlock(file, i, hashes[i]));
+    }
+    index.insert(file, blocks);
+  }
+
+  private static Block newBlock(DefaultInputFile file, int indexInFile, long hash) {
+    return Block.builder()
+      .setResourceId(file.key())
+      .setIndexInFile(indexInFile)
+      .setLines(indexInFile + 1, indexInFile + 2)
+      .setUnit(indexInFile, indexInFile + 1)
+      .setBlockHash(new ByteArray(hash))
+      .build();
+  }
+
   private Duplication[] readDuplications(int expected) {
     assertThat(reader.readComponentDuplications(batchComponent1.batchId())).hasSize(expected);
     Duplication[] duplications = new Duplication[expected];
@@ -40,7 +40,7 @@ public class DeprecatedCpdBlockIndexerSensorTest {
 
   @Before
   public void setUp() throws IOException {
-    sonarEngine = new JavaCpdBlockIndexer(null, null, null);
+    sonarEngine = new JavaCpdBlockIndexer(null, null, null, null);
     sonarBridgeEngine = new DefaultCpdBlockIndexer(new CpdMappings(), null, null, null);
 
     DefaultFileSystem fs = new DefaultFileSystem(temp.newFolder().toPath());
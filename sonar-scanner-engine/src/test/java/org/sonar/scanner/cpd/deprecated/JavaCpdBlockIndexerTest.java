@@ -22,6 +22,7 @@ package org.sonar.scanner.cpd.deprecated;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
@@ -34,18 +35,24 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.fs.FileSystem;
-import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.scanner.cpd.CpdCache;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 public class JavaCpdBlockIndexerTest {
   private static final String JAVA = "java";
@@ -53,12 +60,15 @@ public class JavaCpdBlockIndexerTest {
   @Mock
   private SonarCpdBlockIndex index;
 
+  @Mock
+  private CpdCache cache;
+
   @Captor
   private ArgumentCaptor<List<Block>> blockCaptor;
 
   private MapSettings settings;
   private JavaCpdBlockIndexer engine;
-  private InputFile file;
+  private DefaultInputFile file;
 
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
@@ -77,13 +87,14 @@ public class JavaCpdBlockIndexerTest {
     File ioFile = file.file();
     FileUtils.copyURLToFile(this.getClass().getResource("ManyStatements.java"), ioFile);
 
+    when(cache.getBlocks(any(DefaultInputFile.class), anyString())).thenReturn(null);
     settings = new MapSettings();
-    engine = new JavaCpdBlockIndexer(fs, settings.asConfig(), index);
+    engine = new JavaCpdBlockIndexer(fs, settings.asConfig(), index, cache);
   }
 
   @Test
   public void languageSupported() {
-    JavaCpdBlockIndexer engine = new JavaCpdBlockIndexer(mock(FileSystem.class), new MapSettings().asConfig(), index);
+    JavaCpdBlockIndexer engine = new JavaCpdBlockIndexer(mock(FileSystem.class), new MapSettings().asConfig(), index, cache);
     assertThat(engine.isLanguageSupported(JAVA)).isTrue();
     assertThat(engine.isLanguageSupported("php")).isFalse();
   }
@@ -104,4 +115,28 @@ public class JavaCpdBlockIndexerTest {
 
     assertThat(blockList).hasSize(26);
   }
+
+  @Test
+  public void cache_blocks_of_files() throws Exception {
+    engine.index(JAVA);
+
+    verify(index).insert(eq(file), blockCaptor.capture());
+    verify(cache).putBlocks(file, "java:10", blockCaptor.getValue());
+  }
+
+  @Test
+  public void reuse_blocks_of_unchanged_files() throws Exception {
+    List<Block> cachedBlocks = Collections.singletonList(Block.builder()
+      .setResourceId(file.key())
+      .setBlockHash(new ByteArray(1L))
+      .setIndexInFile(0)
+      .setLines(1, 10)
+      .build());
+    when(cache.getBlocks(file, "java:10")).thenReturn(cachedBlocks);
+
+    engine.index(JAVA);
+
+    verify(index).insert(file, cachedBlocks);
+    verify(cache, never()).putBlocks(any(DefaultInputFile.class), anyString(), any());
+  }
 }
@@ -22,9 +22,7 @@ package org.sonar.scanner.index;
 import com.google.common.collect.ImmutableMap;
 import java.util.Map;
 import org.junit.After;
-import org.junit.AfterClass;
 import org.junit.Before;
-import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.CoreProperties;
@@ -37,24 +35,24 @@ public abstract class AbstractCachesTest {
   @ClassRule
   public static TemporaryFolder temp = new TemporaryFolder();
 
-  protected static StoragesManager cachesManager;
+  protected StoragesManager cachesManager;
   protected Storages caches;
 
-  private static StoragesManager createCacheOnTemp() {
+  private static StoragesManager createCacheOnTemp(StoragesManager.Backend backend) {
     Map<String, String> props = ImmutableMap.of(CoreProperties.WORKING_DIRECTORY, temp.getRoot().getAbsolutePath(),
       CoreProperties.GLOBAL_WORKING_DIRECTORY, temp.getRoot().getAbsolutePath());
 
-    return new StoragesManager(new GlobalTempFolderProvider().provide(new GlobalProperties(props)));
+    return new StoragesManager(new GlobalTempFolderProvider().provide(new GlobalProperties(props)), backend);
   }
 
-  @BeforeClass
-  public static void startClass() {
-    cachesManager = createCacheOnTemp();
-    cachesManager.start();
+  protected StoragesManager.Backend backend() {
+    return StoragesManager.Backend.MAPPED;
   }
 
   @Before
   public void start() {
+    cachesManager = createCacheOnTemp(backend());
+    cachesManager.start();
     caches = new Storages(cachesManager);
     caches.start();
   }
@@ -65,12 +63,9 @@ public abstract class AbstractCachesTest {
       caches.stop();
       caches = null;
     }
-  }
-
-  @AfterClass
-  public static void stopClass() {
     if (cachesManager != null) {
       cachesManager.stop();
+      cachesManager = null;
     }
   }
 }
@@ -0,0 +1,93 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.tracking;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TrackedIssueCodecTest {
+
+  private TrackedIssueCodec underTest = new TrackedIssueCodec();
+
+  @Test
+  public void encode_and_decode_all_fields() throws IOException {
+    TrackedIssue issue = new TrackedIssue();
+    issue.setRuleKey(RuleKey.of("squid", "S123"));
+    issue.setKey("ABCD");
+    issue.setSeverity("MAJOR");
+    issue.setStartLine(1);
+    issue.setStartLineOffset(2);
+    issue.setEndLine(3);
+    issue.setEndLineOffset(4);
+    issue.setGap(5.5);
+    issue.setNew(true);
+    issue.setCreationDate(new Date(123456789L));
+    issue.setResolution("FIXED");
+    issue.setStatus("CLOSED");
+    issue.setAssignee("john");
+    issue.setComponentKey("project:src/Foo.java");
+    issue.setMessage("Fix me é");
+
+    TrackedIssue decoded = roundTrip(issue);
+
+    assertThat(decoded.getRuleKey()).isEqualTo(RuleKey.of("squid", "S123"));
+    assertThat(decoded.key()).isEqualTo("ABCD");
+    assertThat(decoded.severity()).isEqualTo("MAJOR");
+    assertThat(decoded.startLine()).isEqualTo(1);
+    assertThat(decoded.startLineOffset()).isEqualTo(2);
+    assertThat(decoded.endLine()).isEqualTo(3);
+    assertThat(decoded.endLineOffset()).isEqualTo(4);
+    assertThat(decoded.gap()).isEqualTo(5.5);
+    assertThat(decoded.isNew()).isTrue();
+    assertThat(decoded.creationDate()).isEqualTo(new Date(123456789L));
+    assertThat(decoded.resolution()).isEqualTo("FIXED");
+    assertThat(decoded.status()).isEqualTo("CLOSED");
+    assertThat(decoded.assignee()).isEqualTo("john");
+    assertThat(decoded.componentKey()).isEqualTo("project:src/Foo.java");
+    assertThat(decoded.getMessage()).isEqualTo("Fix me é");
+  }
+
+  @Test
+  public void encode_and_decode_missing_fields() throws IOException {
+    TrackedIssue decoded = roundTrip(new TrackedIssue());
+
+    assertThat(decoded.getRuleKey()).isNull();
+    assertThat(decoded.key()).isNull();
+    assertThat(decoded.startLine()).isNull();
+    assertThat(decoded.gap()).isNull();
+    assertThat(decoded.isNew()).isFalse();
+    assertThat(decoded.creationDate()).isNull();
+    assertThat(decoded.getMessage()).isNull();
+  }
+
+  private TrackedIssue roundTrip(TrackedIssue issue) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    underTest.write(issue, new DataOutputStream(bytes));
+    return underTest.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+}
@@ -24,7 +24,9 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
@@ -219,6 +221,48 @@ public class CpdMediumTest {
     assertThat(result.duplicationBlocksFor(inputFile1)).isEmpty();
   }
 
+  @Test
+  public void reuse_duplications_of_unchanged_files() throws IOException {
+    File srcDir = new File(baseDir, "src");
+    srcDir.mkdir();
+
+    String duplicatedStuff = "Sample xoo\ncontent\n"
+      + "foo\nbar\ntoto\ntiti\n"
+      + "foo\nbar\ntoto\ntiti\n"
+      + "bar\ntoto\ntiti\n"
+      + "foo\nbar\ntoto\ntiti";
+
+    FileUtils.write(new File(srcDir, "sample1.xoo"), duplicatedStuff);
+    File xooFile2 = new File(srcDir, "sample2.xoo");
+    FileUtils.write(xooFile2, duplicatedStuff);
+
+    Map<String, String> props = builder
+      .put("sonar.sources", "src")
+      .put("sonar.cpd.xoo.minimumTokens", "10")
+      .build();
+    TaskResult result = tester.newTask().properties(props).execute();
+    List<org.sonar.scanner.protocol.output.ScannerReport.Duplication> duplications = result.duplicationsFor(result.inputFile("src/sample1.xoo"));
+    assertThat(duplications).hasSize(1);
+    assertThat(logRecorder.getAllAsString()).doesNotContain("reused from previous analysis");
+
+    int logs = logRecorder.getAll().size();
+    result = tester.newTask().properties(props).execute();
+    assertThat(result.duplicationsFor(result.inputFile("src/sample1.xoo"))).isEqualTo(duplications);
+    assertThat(logsSince(logs)).contains("Duplications of 2 unchanged files reused from previous analysis");
+
+    // duplications of sample1.xoo are computed again, as the blocks of sample2.xoo have changed
+    FileUtils.write(xooFile2, "\n" + duplicatedStuff);
+    logs = logRecorder.getAll().size();
+    result = tester.newTask().properties(props).execute();
+    assertThat(result.duplicationsFor(result.inputFile("src/sample1.xoo"))).hasSize(1);
+    assertThat(logsSince(logs)).noneMatch(log -> log.contains("reused from previous analysis"));
+  }
+
+  private List<String> logsSince(int index) {
+    List<String> all = new ArrayList<>(logRecorder.getAll());
+    return all.subList(index, all.size());
+  }
+
   @Test
   public void testFilesWithoutBlocks() throws IOException {
     File srcDir = new File(baseDir, "src");
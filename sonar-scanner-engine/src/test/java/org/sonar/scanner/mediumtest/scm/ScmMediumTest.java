@@ -276,6 +276,35 @@ public class ScmMediumTest {
     assertThat(file2Scm).isNotNull();
   }
 
+  @Test
+  public void reuse_blame_of_files_unchanged_since_previous_analysis() throws IOException, URISyntaxException {
+    File baseDir = prepareProject();
+    TaskBuilder taskBuilder = tester.newTask()
+      .properties(ImmutableMap.<String, String>builder()
+        .put("sonar.task", "scan")
+        .put("sonar.projectBaseDir", baseDir.getAbsolutePath())
+        .put("sonar.projectKey", "com.foo.project")
+        .put("sonar.projectName", "Foo Project")
+        .put("sonar.projectVersion", "1.0-SNAPSHOT")
+        .put("sonar.projectDescription", "Description of Foo Project")
+        .put("sonar.sources", "src")
+        .put("sonar.scm.provider", "xoo")
+        .build());
+    taskBuilder.execute();
+    ScannerReport.Changesets blamed = getChangesets(baseDir, "src/sample.xoo");
+
+    // blame would fail without .scm file
+    FileUtils.forceDelete(new File(baseDir, "src/sample.xoo.scm"));
+    logTester.clear();
+    taskBuilder.execute();
+
+    ScannerReport.Changesets cached = getChangesets(baseDir, "src/sample.xoo");
+    assertThat(cached.getChangesetList()).isEqualTo(blamed.getChangesetList());
+    assertThat(cached.getChangesetIndexByLineList()).isEqualTo(blamed.getChangesetIndexByLineList());
+    assertThat(logTester.logs()).contains("Blame information of 1 unchanged files loaded from cache");
+    assertThat(logTester.logs()).doesNotContain(MISSING_BLAME_INFORMATION_FOR_THE_FOLLOWING_FILES);
+  }
+
   @Test
   public void configureUsingScmURL() throws IOException, URISyntaxException {
 
@@ -94,8 +94,8 @@ public class SensorsExecutorTest {
     InputModuleHierarchy hierarchy = mock(InputModuleHierarchy.class);
     when(hierarchy.isRoot(rootModule)).thenReturn(true);
 
-    rootModuleExecutor = new SensorsExecutor(selector, rootModule, hierarchy, mock(EventBus.class), strategy);
-    subModuleExecutor = new SensorsExecutor(selector, subModule, hierarchy, mock(EventBus.class), strategy);
+    rootModuleExecutor = new SensorsExecutor(selector, rootModule, hierarchy, mock(EventBus.class), strategy, 1);
+    subModuleExecutor = new SensorsExecutor(selector, subModule, hierarchy, mock(EventBus.class), strategy, 1);
   }
 
   @Test
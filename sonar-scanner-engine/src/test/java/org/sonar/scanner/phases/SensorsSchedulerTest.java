@@ -0,0 +1,183 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.phases;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.batch.Phase;
+import org.sonar.api.batch.sensor.Sensor;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.scanner.sensor.SensorOptimizer;
+import org.sonar.scanner.sensor.SensorWrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class SensorsSchedulerTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger maxRunning = new AtomicInteger();
+  private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+  @Test
+  public void execute_thread_safe_sensors_concurrently() {
+    CountDownLatch latch = new CountDownLatch(2);
+    SensorWrapper sensor1 = wrap(new AwaitingSensor("s1", true, latch));
+    SensorWrapper sensor2 = wrap(new AwaitingSensor("s2", true, latch));
+
+    new SensorsScheduler(2).execute(Arrays.asList(sensor1, sensor2), this::analyse);
+
+    assertThat(latch.getCount()).isZero();
+    assertThat(maxRunning.get()).isEqualTo(2);
+    assertThat(executed).containsOnly("s1", "s2");
+  }
+
+  @Test
+  public void execute_sensors_sequentially_when_single_thread() {
+    new SensorsScheduler(1).execute(Arrays.asList(
+      wrap(new TestSensor("s1", true)),
+      wrap(new TestSensor("s2", true))), this::analyse);
+
+    assertThat(maxRunning.get()).isEqualTo(1);
+    assertThat(executed).containsExactly("s1", "s2");
+  }
+
+  @Test
+  public void sensors_which_are_not_thread_safe_are_barriers() {
+    new SensorsScheduler(4).execute(Arrays.asList(
+      wrap(new TestSensor("s1", true)),
+      wrap(new TestSensor("s2", true)),
+      wrap(new TestSensor("s3", false)),
+      wrap(new TestSensor("s4", true)),
+      wrap(new TestSensor("s5", true))), this::analyse);
+
+    assertThat(executed).hasSize(5);
+    assertThat(executed.subList(0, 2)).containsOnly("s1", "s2");
+    assertThat(executed.get(2)).isEqualTo("s3");
+    assertThat(executed.subList(3, 5)).containsOnly("s4", "s5");
+  }
+
+  @Test
+  public void thread_safe_sensors_of_different_phases_are_not_executed_concurrently() {
+    new SensorsScheduler(4).execute(Arrays.asList(
+      wrap(new TestSensor("s1", true)),
+      wrap(new PostSensor("s2"))), this::analyse);
+
+    assertThat(maxRunning.get()).isEqualTo(1);
+    assertThat(executed).containsExactly("s1", "s2");
+  }
+
+  @Test
+  public void propagate_failure_of_concurrent_sensor() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("failure of s2");
+
+    new SensorsScheduler(2).execute(Arrays.asList(
+      wrap(new TestSensor("s1", true)),
+      wrap(new FailingSensor("s2"))), this::analyse);
+  }
+
+  private void analyse(org.sonar.api.batch.Sensor sensor) {
+    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+    try {
+      sensor.analyse(null, null);
+    } finally {
+      running.decrementAndGet();
+    }
+  }
+
+  private static SensorWrapper wrap(Sensor sensor) {
+    return new SensorWrapper(sensor, mock(SensorContext.class), mock(SensorOptimizer.class));
+  }
+
+  private class TestSensor implements Sensor {
+    final String name;
+    private final boolean threadSafe;
+
+    TestSensor(String name, boolean threadSafe) {
+      this.name = name;
+      this.threadSafe = threadSafe;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.name(name);
+      if (threadSafe) {
+        descriptor.threadSafe();
+      }
+    }
+
+    @Override
+    public void execute(SensorContext context) {
+      executed.add(name);
+    }
+  }
+
+  @Phase(name = Phase.Name.POST)
+  private class PostSensor extends TestSensor {
+    PostSensor(String name) {
+      super(name, true);
+    }
+  }
+
+  private class FailingSensor extends TestSensor {
+    FailingSensor(String name) {
+      super(name, true);
+    }
+
+    @Override
+    public void execute(SensorContext context) {
+      throw new IllegalStateException("failure of " + name);
+    }
+  }
+
+  private class AwaitingSensor extends TestSensor {
+    private final CountDownLatch latch;
+
+    AwaitingSensor(String name, boolean threadSafe, CountDownLatch latch) {
+      super(name, threadSafe);
+      this.latch = latch;
+    }
+
+    @Override
+    public void execute(SensorContext context) {
+      latch.countDown();
+      try {
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+      super.execute(context);
+    }
+  }
+}
@@ -43,11 +43,14 @@ import org.sonar.api.batch.events.SensorExecutionHandler;
 import org.sonar.api.batch.events.SensorExecutionHandler.SensorExecutionEvent;
 import org.sonar.api.batch.events.SensorsPhaseHandler;
 import org.sonar.api.batch.events.SensorsPhaseHandler.SensorsPhaseEvent;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.resources.Project;
 import org.sonar.api.utils.System2;
 import org.sonar.scanner.bootstrap.GlobalProperties;
 import org.sonar.scanner.events.BatchStepEvent;
+import org.sonar.scanner.events.CpdExecutionEvent;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -80,6 +83,23 @@ public class PhasesSumUpTimeProfilerTest {
     assertThat(profiler.currentModuleProfiling.getProfilingPerBatchStep("Free memory").totalTime()).isEqualTo(9L);
   }
 
+  @Test
+  public void testCpdPerFile() throws Exception {
+    Project project = mockProject("my:project", true);
+    DefaultInputFile file1 = new TestInputFileBuilder("my:project", "src/Foo.xoo").build();
+    DefaultInputFile file2 = new TestInputFileBuilder("my:project", "src/Bar.xoo").build();
+
+    profiler.onProjectAnalysis(projectEvent(project, true));
+    profiler.onCpdExecution(new CpdExecutionEvent(file1, 12L));
+    profiler.onCpdExecution(new CpdExecutionEvent(file2, 3L));
+    profiler.onProjectAnalysis(projectEvent(project, false));
+
+    PhaseProfiling cpdProfiling = profiler.currentModuleProfiling.getProfilingPerPhase(Phase.CPD);
+    assertThat(cpdProfiling.getProfilingPerItem(file1.toString()).totalTime()).isEqualTo(12L);
+    assertThat(cpdProfiling.getProfilingPerItem(file2.toString()).totalTime()).isEqualTo(3L);
+    assertThat(cpdProfiling.totalTime()).isEqualTo(15L);
+  }
+
   @Test
   public void testMultimoduleProject() throws Exception {
     final Project project = mockProject("project root", true);
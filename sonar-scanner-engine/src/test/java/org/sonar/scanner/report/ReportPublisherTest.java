@@ -19,12 +19,20 @@
  */
 package org.sonar.scanner.report;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -46,17 +54,24 @@ import org.sonar.core.config.CorePropertyDefinitions;
 import org.sonar.core.config.ScannerProperties;
 import org.sonar.scanner.bootstrap.GlobalAnalysisMode;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
+import org.sonar.scanner.protocol.output.ReportContainer;
+import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonarqube.ws.Ce;
+import org.sonarqube.ws.MediaTypes;
 import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.WsRequest;
 import org.sonarqube.ws.client.WsResponse;
 
 import static org.apache.commons.io.FileUtils.readFileToString;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
+import static java.util.stream.Collectors.toList;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.scanner.scan.branch.BranchType.SHORT;
@@ -202,6 +217,76 @@ public class ReportPublisherTest {
     assertThat(reportDir).doesNotExist();
   }
 
+  @Test
+  public void pack_data_of_components_in_report_container_if_supported_by_server() throws IOException {
+    when(server.getVersion()).thenReturn("7.1");
+
+    assertThat(generateReportEntries()).containsOnly("metadata.pb", ReportContainer.DATA_FILE_NAME, ReportContainer.INDEX_FILE_NAME);
+  }
+
+  @Test
+  public void do_not_pack_data_of_components_if_server_does_not_support_report_container() throws IOException {
+    when(server.getVersion()).thenReturn("7.0");
+
+    assertThat(generateReportEntries()).containsOnly("metadata.pb", "component-1.pb", "issues-1.pb");
+  }
+
+  private List<String> generateReportEntries() throws IOException {
+    when(mode.isMediumTest()).thenReturn(true);
+    File zip = temp.newFile();
+    TempFolder tempFolder = mock(TempFolder.class);
+    when(tempFolder.newFile(anyString(), anyString())).thenReturn(zip);
+    ReportPublisherStep step = writer -> {
+      writer.writeMetadata(ScannerReport.Metadata.newBuilder().setRootComponentRef(1).build());
+      writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+      writer.writeComponentIssues(1, Collections.singletonList(ScannerReport.Issue.newBuilder().setMsg("msg").build()));
+    };
+    ReportPublisher underTest = new ReportPublisher(settings.asConfig(), wsClient, server, contextPublisher, moduleHierarchy, mode, tempFolder,
+      new ReportPublisherStep[] {step}, branchConfiguration);
+
+    underTest.start();
+    underTest.execute();
+
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      return zipFile.stream().map(ZipEntry::getName).collect(toList());
+    }
+  }
+
+  @Test
+  public void stream_compressed_report_if_supported_by_server() throws Exception {
+    when(server.getVersion()).thenReturn("7.1");
+    TempFolder tempFolder = mock(TempFolder.class);
+    ReportPublisherStep step = writer -> writer.writeMetadata(ScannerReport.Metadata.newBuilder().setRootComponentRef(1).build());
+    ReportPublisher underTest = new ReportPublisher(settings.asConfig(), wsClient, server, contextPublisher, moduleHierarchy, mode, tempFolder,
+      new ReportPublisherStep[] {step}, branchConfiguration);
+    WsResponse response = mock(WsResponse.class);
+    when(response.failIfNotSuccessful()).thenReturn(response);
+    when(response.contentStream()).thenReturn(new ByteArrayInputStream(Ce.SubmitResponse.newBuilder().setTaskId("TASK-1").build().toByteArray()));
+    // content of the streamed part is written while the request is sent
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    when(wsClient.call(any(WsRequest.class))).thenAnswer(invocation -> {
+      PostRequest.Part part = ((PostRequest) invocation.getArguments()[0]).getParts().get("report");
+      assertThat(part.getFile()).isNull();
+      assertThat(part.getMediaType()).isEqualTo(MediaTypes.ZIP);
+      part.getContentWriter().writeTo(zip);
+      return response;
+    });
+
+    underTest.start();
+    underTest.execute();
+
+    // report is neither copied nor zipped on disk
+    verify(tempFolder, never()).newFile(anyString(), anyString());
+    verify(tempFolder, never()).newDir(anyString());
+    List<String> entries = new ArrayList<>();
+    try (ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+      for (ZipEntry entry = zipInput.getNextEntry(); entry != null; entry = zipInput.getNextEntry()) {
+        entries.add(entry.getName());
+      }
+    }
+    assertThat(entries).contains("metadata.pb");
+  }
+
   @Test
   public void test_ws_parameters() throws Exception {
     ReportPublisher underTest = new ReportPublisher(settings.asConfig(), wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
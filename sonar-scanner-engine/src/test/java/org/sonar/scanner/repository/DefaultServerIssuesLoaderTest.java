@@ -27,23 +27,40 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.System2;
+import org.sonar.home.cache.FileCache;
 import org.sonar.scanner.WsTestUtil;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class DefaultServerIssuesLoaderTest {
+
+  private static final long NOW = 1_500_000_000_000L;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private DefaultServerIssuesLoader loader;
   private ScannerWsClient wsClient;
+  private System2 system2;
 
   @Before
-  public void prepare() {
+  public void prepare() throws IOException {
     wsClient = mock(ScannerWsClient.class);
-    loader = new DefaultServerIssuesLoader(wsClient);
+    when(wsClient.baseUrl()).thenReturn("http://localhost:9000");
+    FileCache fileCache = mock(FileCache.class);
+    when(fileCache.getDir()).thenReturn(temp.newFolder());
+    system2 = mock(System2.class);
+    when(system2.now()).thenReturn(NOW);
+    loader = new DefaultServerIssuesLoader(wsClient, fileCache, system2);
   }
 
   @Test
@@ -66,6 +83,59 @@ public class DefaultServerIssuesLoaderTest {
     assertThat(result).extracting("key").containsExactly("ab1", "ab2");
   }
 
+  @Test
+  public void load_only_issues_changed_since_previous_load() throws Exception {
+    WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo", stream(
+      newIssue("ab1", "OPEN", 1_000L, "first"),
+      newIssue("ab2", "OPEN", 5_000_000L, "second"),
+      newIssue("ab3", "OPEN", 2_000L, "third")));
+    assertThat(load("foo")).extracting(ServerIssue::getKey).containsExactlyInAnyOrder("ab1", "ab2", "ab3");
+
+    long changedSince = 5_000_000L - DefaultServerIssuesLoader.CHANGED_SINCE_MARGIN;
+    WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo&changedSince=" + changedSince, stream(
+      newIssue("ab2", "OPEN", 6_000_000L, "second changed"),
+      newIssue("ab3", "CLOSED", 6_000_000L, "third"),
+      newIssue("ab4", "OPEN", 7_000_000L, "fourth")));
+    assertThat(load("foo"))
+      .extracting(ServerIssue::getKey, ServerIssue::getMsg)
+      .containsExactlyInAnyOrder(tuple("ab1", "first"), tuple("ab2", "second changed"), tuple("ab4", "fourth"));
+
+    // cache is updated
+    changedSince = 7_000_000L - DefaultServerIssuesLoader.CHANGED_SINCE_MARGIN;
+    WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo&changedSince=" + changedSince, stream());
+    assertThat(load("foo"))
+      .extracting(ServerIssue::getKey, ServerIssue::getMsg)
+      .containsExactlyInAnyOrder(tuple("ab1", "first"), tuple("ab2", "second changed"), tuple("ab4", "fourth"));
+  }
+
+  @Test
+  public void cache_is_specific_to_component() throws Exception {
+    WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo", stream(newIssue("ab1", "OPEN", 5_000_000L, "first")));
+    WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=bar", stream(newIssue("ab2", "OPEN", 5_000_000L, "second")));
+
+    assertThat(load("foo")).extracting(ServerIssue::getKey).containsExactly("ab1");
+    assertThat(load("bar")).extracting(ServerIssue::getKey).containsExactly("ab2");
+  }
+
+  @Test
+  public void load_all_issues_if_cache_is_too_old() throws Exception {
+    WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo", stream(newIssue("ab1", "OPEN", 5_000_000L, "first")));
+    load("foo");
+
+    when(system2.now()).thenReturn(NOW + DefaultServerIssuesLoader.MAX_AGE + 1);
+    WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo", stream(newIssue("ab2", "OPEN", 6_000_000L, "second")));
+    assertThat(load("foo")).extracting(ServerIssue::getKey).containsExactly("ab2");
+  }
+
+  @Test
+  public void load_all_issues_if_server_does_not_return_update_dates() throws Exception {
+    WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo", stream(ServerIssue.newBuilder().setKey("ab1").build()));
+    load("foo");
+
+    WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo", stream(ServerIssue.newBuilder().setKey("ab2").build()));
+    assertThat(load("foo")).extracting(ServerIssue::getKey).containsExactly("ab2");
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testError() throws IOException {
     InputStream is = mock(InputStream.class);
@@ -73,4 +143,22 @@ public class DefaultServerIssuesLoaderTest {
     WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo", is);
     loader.load("foo", mock(Consumer.class));
   }
+
+  private List<ServerIssue> load(String componentKey) {
+    List<ServerIssue> result = new ArrayList<>();
+    loader.load(componentKey, result::add);
+    return result;
+  }
+
+  private static ServerIssue newIssue(String key, String status, long updatedAt, String msg) {
+    return ServerIssue.newBuilder().setKey(key).setStatus(status).setUpdatedAt(updatedAt).setMsg(msg).build();
+  }
+
+  private static InputStream stream(ServerIssue... issues) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    for (ServerIssue issue : issues) {
+      issue.writeDelimitedTo(bos);
+    }
+    return new ByteArrayInputStream(bos.toByteArray());
+  }
 }
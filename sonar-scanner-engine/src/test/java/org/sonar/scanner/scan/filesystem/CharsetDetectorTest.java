@@ -22,6 +22,7 @@ package org.sonar.scanner.scan.filesystem;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -72,6 +73,24 @@ public class CharsetDetectorTest {
     assertThat(readFile(basedir.resolve("UTF-32LE.txt"), US_ASCII)).isEqualTo("UTF-32LE");
   }
 
+  @Test
+  public void should_detect_charset_from_BOM_of_buffer() throws IOException {
+    Path basedir = Paths.get("src/test/resources/org/sonar/scanner/scan/filesystem/");
+
+    ByteBuffer withoutBom = ByteBuffer.wrap(Files.readAllBytes(basedir.resolve("without_BOM.txt")));
+    CharsetDetector detector = new CharsetDetector(basedir.resolve("without_BOM.txt"), US_ASCII);
+    assertThat(detector.run(withoutBom)).isTrue();
+    assertThat(detector.charset()).isEqualTo(US_ASCII);
+    assertThat(withoutBom.position()).isEqualTo(0);
+
+    ByteBuffer utf16 = ByteBuffer.wrap(Files.readAllBytes(basedir.resolve("UTF-16BE.txt")));
+    detector = new CharsetDetector(basedir.resolve("UTF-16BE.txt"), US_ASCII);
+    assertThat(detector.run(utf16)).isTrue();
+    assertThat(detector.charset()).isEqualTo(UTF_16BE);
+    // position is after the BOM
+    assertThat(UTF_16BE.decode(utf16).toString()).startsWith("UTF-16BE");
+  }
+
   @Test
   public void always_try_utf8() throws IOException {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -24,6 +24,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -38,6 +39,7 @@ import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.FileMetadata;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.utils.PathUtils;
+import org.sonar.api.utils.System2;
 import org.sonar.scanner.issue.ignore.pattern.IssueExclusionPatternInitializer;
 import org.sonar.scanner.issue.ignore.pattern.PatternMatcher;
 import org.sonar.scanner.issue.ignore.scanner.IssueExclusionsLoader;
@@ -55,6 +57,8 @@ public class MetadataGeneratorTest {
   private StatusDetection statusDetection;
   @Mock
   private DefaultModuleFileSystem fs;
+  @Mock
+  private System2 system2;
 
   private FileMetadata metadata;
   private MetadataGenerator generator;
@@ -65,7 +69,7 @@ public class MetadataGeneratorTest {
     metadata = new FileMetadata();
     IssueExclusionsLoader issueExclusionsLoader = new IssueExclusionsLoader(mock(IssueExclusionPatternInitializer.class), mock(PatternMatcher.class));
     generator = new MetadataGenerator(new DefaultInputModule(ProjectDefinition.create().setKey("module").setBaseDir(temp.newFolder()).setWorkDir(temp.newFolder())),
-      statusDetection, metadata, issueExclusionsLoader);
+      statusDetection, metadata, issueExclusionsLoader, system2);
   }
 
   @Test
@@ -110,6 +114,47 @@ public class MetadataGeneratorTest {
     assertThat(inputFile.originalLineOffsets()).containsOnly(0, 4, 9);
   }
 
+  @Test
+  public void read_large_file_with_bom() throws Exception {
+    Path tempFile = temp.newFile().toPath();
+    String content = StringUtils.repeat("foo\r\n", 100_000);
+    FileUtils.write(tempFile.toFile(), "\uFEFF" + content, StandardCharsets.UTF_8, true);
+
+    DefaultInputFile inputFile = createInputFileWithMetadata(tempFile);
+    assertThat(inputFile.charset()).isEqualTo(StandardCharsets.UTF_8);
+    assertThat(inputFile.lines()).isEqualTo(100_001);
+    assertThat(inputFile.nonBlankLines()).isEqualTo(100_000);
+    assertThat(inputFile.hash()).isEqualTo(md5Hex(StringUtils.repeat("foo\n", 100_000)));
+    assertThat(inputFile.originalLineOffsets()[1]).isEqualTo(5);
+  }
+
+  @Test
+  public void stream_large_file_on_windows() throws Exception {
+    when(system2.isOsWindows()).thenReturn(true);
+    Path tempFile = temp.newFile().toPath();
+    String content = StringUtils.repeat("foo\r\n", 100_000);
+    FileUtils.write(tempFile.toFile(), "\uFEFF" + content, StandardCharsets.UTF_8, true);
+
+    DefaultInputFile inputFile = createInputFileWithMetadata(tempFile);
+    assertThat(inputFile.charset()).isEqualTo(StandardCharsets.UTF_8);
+    assertThat(inputFile.lines()).isEqualTo(100_001);
+    assertThat(inputFile.nonBlankLines()).isEqualTo(100_000);
+    assertThat(inputFile.hash()).isEqualTo(md5Hex(StringUtils.repeat("foo\n", 100_000)));
+    assertThat(inputFile.originalLineOffsets()[1]).isEqualTo(5);
+  }
+
+  @Test
+  public void read_in_buffer_only_files_that_can_be_mapped() {
+    assertThat(generator.readsInBuffer(10)).isTrue();
+    assertThat(generator.readsInBuffer(1024L * 1024)).isTrue();
+    assertThat(generator.readsInBuffer(Integer.MAX_VALUE)).isTrue();
+    assertThat(generator.readsInBuffer(Integer.MAX_VALUE + 1L)).isFalse();
+
+    when(system2.isOsWindows()).thenReturn(true);
+    assertThat(generator.readsInBuffer(10)).isTrue();
+    assertThat(generator.readsInBuffer(1024L * 1024)).isFalse();
+  }
+
   @Test
   public void use_default_charset_if_detection_fails() throws IOException {
     Path tempFile = temp.newFile().toPath();
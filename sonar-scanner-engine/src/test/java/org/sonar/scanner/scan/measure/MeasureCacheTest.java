@@ -29,6 +29,7 @@ import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.scanner.index.AbstractCachesTest;
 import org.sonar.scanner.storage.Storage.Entry;
+import org.sonar.scanner.storage.StoragesManager;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -45,6 +46,12 @@ public class MeasureCacheTest extends AbstractCachesTest {
 
   private MeasureCache measureCache;
 
+  @Override
+  protected StoragesManager.Backend backend() {
+    // size of values is limited by Persistit
+    return StoragesManager.Backend.PERSISTIT;
+  }
+
   @Before
   public void start() {
     super.start();
@@ -0,0 +1,77 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.measure;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.batch.measure.MetricFinder;
+import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
+import org.sonar.api.measures.CoreMetrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MeasureCodecTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private MetricFinder metricFinder = mock(MetricFinder.class);
+  private MeasureCodec underTest = new MeasureCodec(metricFinder);
+
+  @Test
+  public void encode_and_decode_values() throws IOException {
+    when(metricFinder.<Integer>findByKey(CoreMetrics.NCLOC_KEY)).thenReturn(CoreMetrics.NCLOC);
+    when(metricFinder.<Long>findByKey(CoreMetrics.TECHNICAL_DEBT_KEY)).thenReturn(CoreMetrics.TECHNICAL_DEBT);
+    when(metricFinder.<Double>findByKey(CoreMetrics.COVERAGE_KEY)).thenReturn(CoreMetrics.COVERAGE);
+    when(metricFinder.<String>findByKey(CoreMetrics.NCLOC_DATA_KEY)).thenReturn(CoreMetrics.NCLOC_DATA);
+
+    assertThat(roundTrip(new DefaultMeasure<Integer>().forMetric(CoreMetrics.NCLOC).withValue(12)).value()).isEqualTo(12);
+    assertThat(roundTrip(new DefaultMeasure<Long>().forMetric(CoreMetrics.TECHNICAL_DEBT).withValue(42L)).value()).isEqualTo(42L);
+    assertThat(roundTrip(new DefaultMeasure<Double>().forMetric(CoreMetrics.COVERAGE).withValue(75.5)).value()).isEqualTo(75.5);
+    DefaultMeasure<?> measure = roundTrip(new DefaultMeasure<String>().forMetric(CoreMetrics.NCLOC_DATA).withValue("1=1;2=0"));
+    assertThat(measure.metric()).isEqualTo(CoreMetrics.NCLOC_DATA);
+    assertThat(measure.value()).isEqualTo("1=1;2=0");
+  }
+
+  @Test
+  public void fail_to_decode_unknown_metric() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    underTest.write(new DefaultMeasure<Integer>().forMetric(CoreMetrics.NCLOC).withValue(12), new DataOutputStream(bytes));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Unknow metric with key ncloc");
+
+    underTest.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+
+  private DefaultMeasure<?> roundTrip(DefaultMeasure<?> measure) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    underTest.write(measure, new DataOutputStream(bytes));
+    return underTest.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+}
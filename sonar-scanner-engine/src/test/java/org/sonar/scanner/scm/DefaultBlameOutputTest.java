@@ -37,7 +37,7 @@ public class DefaultBlameOutputTest {
   public void shouldNotFailIfNotSameNumberOfLines() {
     InputFile file = new TestInputFileBuilder("foo", "src/main/java/Foo.java").setLines(10).build();
 
-    new DefaultBlameOutput(null, Arrays.asList(file)).blameResult(file, Arrays.asList(new BlameLine().revision("1").author("guy")));
+    new DefaultBlameOutput(null, Arrays.asList(file), null).blameResult(file, Arrays.asList(new BlameLine().revision("1").author("guy")));
   }
 
   @Test
@@ -47,7 +47,7 @@ public class DefaultBlameOutputTest {
     thrown.expect(IllegalArgumentException.class);
     thrown.expectMessage("It was not expected to blame file src/main/java/Foo.java");
 
-    new DefaultBlameOutput(null, Arrays.<InputFile>asList(new TestInputFileBuilder("foo", "src/main/java/Foo2.java").build()))
+    new DefaultBlameOutput(null, Arrays.<InputFile>asList(new TestInputFileBuilder("foo", "src/main/java/Foo2.java").build()), null)
       .blameResult(file, Arrays.asList(new BlameLine().revision("1").author("guy")));
   }
 
@@ -58,7 +58,7 @@ public class DefaultBlameOutputTest {
     thrown.expect(IllegalArgumentException.class);
     thrown.expectMessage("Blame date is null for file src/main/java/Foo.java at line 1");
 
-    new DefaultBlameOutput(null, Arrays.<InputFile>asList(file))
+    new DefaultBlameOutput(null, Arrays.<InputFile>asList(file), null)
       .blameResult(file, Arrays.asList(new BlameLine().revision("1").author("guy")));
   }
 
@@ -69,7 +69,7 @@ public class DefaultBlameOutputTest {
     thrown.expect(IllegalArgumentException.class);
     thrown.expectMessage("Blame revision is blank for file src/main/java/Foo.java at line 1");
 
-    new DefaultBlameOutput(null, Arrays.<InputFile>asList(file))
+    new DefaultBlameOutput(null, Arrays.<InputFile>asList(file), null)
       .blameResult(file, Arrays.asList(new BlameLine().date(new Date()).author("guy")));
   }
 
@@ -0,0 +1,107 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.InputModuleHierarchy;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ScmBlameCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private FileCache fileCache = mock(FileCache.class);
+  private InputModuleHierarchy moduleHierarchy = mock(InputModuleHierarchy.class);
+
+  @Before
+  public void setUp() throws IOException {
+    when(fileCache.getDir()).thenReturn(temp.newFolder());
+    File baseDir = temp.newFolder();
+    when(moduleHierarchy.root()).thenReturn(TestInputFileBuilder.newDefaultInputModule("foo", baseDir));
+  }
+
+  @Test
+  public void reuse_blame_of_unchanged_files() {
+    ScmBlameCache cache = new ScmBlameCache(fileCache, moduleHierarchy);
+    DefaultInputFile file = newFile("src/Foo.java", "hash1");
+    assertThat(cache.get(file)).isNull();
+    cache.put(file, changesets(12, "rev1"));
+    cache.stop();
+
+    cache = new ScmBlameCache(fileCache, moduleHierarchy);
+    ScannerReport.Changesets changesets = cache.get(newFile("src/Foo.java", "hash1"));
+    assertThat(changesets.getComponentRef()).isZero();
+    assertThat(changesets.getChangeset(0).getRevision()).isEqualTo("rev1");
+    assertThat(changesets.getChangesetIndexByLineList()).containsExactly(0, 0);
+  }
+
+  @Test
+  public void ignore_blame_of_changed_files() {
+    ScmBlameCache cache = new ScmBlameCache(fileCache, moduleHierarchy);
+    cache.put(newFile("src/Foo.java", "hash1"), changesets(12, "rev1"));
+    cache.stop();
+
+    cache = new ScmBlameCache(fileCache, moduleHierarchy);
+    assertThat(cache.get(newFile("src/Foo.java", "hash2"))).isNull();
+    assertThat(cache.get(newFile("src/Bar.java", "hash1"))).isNull();
+  }
+
+  @Test
+  public void keep_only_entries_used_by_last_analysis() {
+    ScmBlameCache cache = new ScmBlameCache(fileCache, moduleHierarchy);
+    cache.put(newFile("src/Foo.java", "hash1"), changesets(1, "rev1"));
+    cache.put(newFile("src/Bar.java", "hash2"), changesets(2, "rev2"));
+    cache.stop();
+
+    cache = new ScmBlameCache(fileCache, moduleHierarchy);
+    assertThat(cache.get(newFile("src/Foo.java", "hash1"))).isNotNull();
+    cache.stop();
+
+    cache = new ScmBlameCache(fileCache, moduleHierarchy);
+    assertThat(cache.get(newFile("src/Foo.java", "hash1"))).isNotNull();
+    assertThat(cache.get(newFile("src/Bar.java", "hash2"))).isNull();
+  }
+
+  private static DefaultInputFile newFile(String path, String hash) {
+    return new TestInputFileBuilder("foo", path).setHash(hash).setLines(2).build();
+  }
+
+  private static ScannerReport.Changesets changesets(int componentRef, String revision) {
+    return ScannerReport.Changesets.newBuilder()
+      .setComponentRef(componentRef)
+      .addChangeset(ScannerReport.Changesets.Changeset.newBuilder().setRevision(revision).setDate(123L))
+      .addChangesetIndexByLine(0)
+      .addChangesetIndexByLine(0)
+      .build();
+  }
+}
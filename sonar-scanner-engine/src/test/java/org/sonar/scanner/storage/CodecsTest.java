@@ -0,0 +1,74 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.google.common.base.Strings;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CodecsTest {
+
+  @Test
+  public void encode_and_decode_strings() throws IOException {
+    assertThat(roundTrip(null)).isNull();
+    assertThat(roundTrip("")).isEmpty();
+    assertThat(roundTrip("foo é € 😀")).isEqualTo("foo é € 😀");
+
+    // surrogate pair on the boundary of a chunk
+    String large = Strings.repeat("a", 8191) + "😀" + Strings.repeat("b", 10_000);
+    assertThat(roundTrip(large)).isEqualTo(large);
+  }
+
+  @Test
+  public void utf8_length() {
+    for (String s : new String[] {"", "abc", "é", "€", "😀", "\uD83D", "a\uDE00b"}) {
+      assertThat(Codecs.utf8Length(s)).as(s).isEqualTo(s.getBytes(UTF_8).length);
+    }
+  }
+
+  @Test
+  public void encode_and_decode_optional_numbers() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    Codecs.writeInteger(output, 12);
+    Codecs.writeInteger(output, null);
+    Codecs.writeDouble(output, 1.5);
+    Codecs.writeDouble(output, null);
+
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    assertThat(Codecs.readInteger(input)).isEqualTo(12);
+    assertThat(Codecs.readInteger(input)).isNull();
+    assertThat(Codecs.readDouble(input)).isEqualTo(1.5);
+    assertThat(Codecs.readDouble(input)).isNull();
+  }
+
+  private static String roundTrip(String s) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Codecs.writeString(new DataOutputStream(bytes), s);
+    return Codecs.readString(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedStorageTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private MappedValues values;
+  private MappedStorage<String> underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    values = new MappedValues(temp.newFile());
+    underTest = new MappedStorage<>("test", values, new SerializationCodec<>());
+  }
+
+  @After
+  public void tearDown() {
+    values.close();
+  }
+
+  @Test
+  public void keys_are_sorted_element_by_element() {
+    underTest.put("b", 1, "b1");
+    underTest.put("a", 2, "a2");
+    underTest.put("b", 0, "b0");
+
+    assertThat(underTest.values()).containsExactly("a2", "b0", "b1");
+  }
+
+  @Test
+  public void fail_if_elements_at_same_position_of_keys_have_different_types() {
+    underTest.put("europe", "france", "paris");
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Elements at the same position of keys must have the same type");
+
+    underTest.put("europe", 1, "rome");
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedValuesTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void append_and_read_values() throws Exception {
+    MappedValues values = new MappedValues(temp.newFile());
+
+    long first = values.append(bytes("foo"), 3);
+    long second = values.append(bytes("barbaz"), 3);
+    long empty = values.append(new byte[0], 0);
+
+    assertThat(first).isEqualTo(0L);
+    assertThat(second).isEqualTo(7L);
+    assertThat(values.size()).isEqualTo(18L);
+    assertThat(values.read(first)).isEqualTo(bytes("foo"));
+    assertThat(values.read(second)).isEqualTo(bytes("bar"));
+    assertThat(values.read(empty)).isEmpty();
+    values.close();
+  }
+
+  @Test
+  public void values_can_span_multiple_segments() throws Exception {
+    // segments of 16 bytes
+    MappedValues values = new MappedValues(temp.newFile(), 4);
+
+    long[] offsets = new long[20];
+    for (int i = 0; i < offsets.length; i++) {
+      byte[] value = bytes("value" + i + "-abcdefghijklmnopqrstuvwxyz");
+      offsets[i] = values.append(value, value.length);
+    }
+
+    for (int i = 0; i < offsets.length; i++) {
+      assertThat(values.read(offsets[i])).isEqualTo(bytes("value" + i + "-abcdefghijklmnopqrstuvwxyz"));
+    }
+    values.close();
+  }
+
+  @Test
+  public void delete_file_on_close() throws Exception {
+    File file = temp.newFile();
+    MappedValues values = new MappedValues(file);
+    values.append(bytes("foo"), 3);
+
+    values.close();
+
+    assertThat(file).doesNotExist();
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+}
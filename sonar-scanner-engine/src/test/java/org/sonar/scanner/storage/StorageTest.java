@@ -21,13 +21,29 @@ package org.sonar.scanner.storage;
 
 import com.google.common.collect.Iterables;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 import org.sonar.scanner.index.AbstractCachesTest;
 import org.sonar.scanner.storage.Storage.Entry;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+@RunWith(Parameterized.class)
 public class StorageTest extends AbstractCachesTest {
 
+  @Parameterized.Parameters(name = "{0}")
+  public static Object[] backends() {
+    return StoragesManager.Backend.values();
+  }
+
+  @Parameterized.Parameter
+  public StoragesManager.Backend backend;
+
+  @Override
+  protected StoragesManager.Backend backend() {
+    return backend;
+  }
+
   @Test
   public void one_part_key() {
     Storage<String> cache = caches.createCache("capitals");
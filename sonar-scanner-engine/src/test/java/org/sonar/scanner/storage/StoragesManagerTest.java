@@ -20,12 +20,28 @@
 package org.sonar.scanner.storage;
 
 import java.io.File;
+import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.TempFolder;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.scanner.index.AbstractCachesTest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class StoragesManagerTest extends AbstractCachesTest {
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  @Override
+  protected StoragesManager.Backend backend() {
+    return StoragesManager.Backend.PERSISTIT;
+  }
+
   @Test
   public void should_stop_and_clean_temp_dir() {
     File tempDir = cachesManager.tempDir();
@@ -39,4 +55,27 @@ public class StoragesManagerTest extends AbstractCachesTest {
     assertThat(cachesManager.tempDir()).isNull();
     assertThat(cachesManager.persistit()).isNull();
   }
+
+  @Test
+  public void backend_is_selected_by_property() {
+    assertThat(StoragesManager.Backend.of(null)).isEqualTo(StoragesManager.Backend.PERSISTIT);
+    assertThat(StoragesManager.Backend.of("mapped")).isEqualTo(StoragesManager.Backend.MAPPED);
+    assertThat(StoragesManager.Backend.of(" Persistit")).isEqualTo(StoragesManager.Backend.PERSISTIT);
+  }
+
+  @Test(expected = MessageException.class)
+  public void fail_on_unknown_backend() {
+    StoragesManager.Backend.of("mapdb");
+  }
+
+  @Test
+  public void warn_that_mapped_backend_is_experimental() throws Exception {
+    TempFolder tempFolder = mock(TempFolder.class);
+    when(tempFolder.newDir("caches")).thenReturn(temp.newFolder());
+
+    StoragesManager underTest = new StoragesManager(tempFolder, StoragesManager.Backend.MAPPED);
+    underTest.stop();
+
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly("Storage backend 'mapped' is experimental: space of overwritten and removed values is not reused");
+  }
 }
@@ -28,6 +28,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 
 public class StoragesTest extends AbstractCachesTest {
+
+  @Override
+  protected StoragesManager.Backend backend() {
+    return StoragesManager.Backend.PERSISTIT;
+  }
+
   @Test
   public void should_create_cache() {
     Storage<Element> cache = caches.createCache("foo");
@@ -53,6 +53,11 @@ public class FileStructure {
     }
   }
 
+  public static final String METADATA_FILE_NAME = "metadata.pb";
+  public static final String ANALYSIS_LOG_FILE_NAME = "analysis.log";
+  public static final String ACTIVE_RULES_FILE_NAME = "activerules.pb";
+  public static final String CONTEXT_PROPERTIES_FILE_NAME = "context-props.pb";
+
   private final File dir;
 
   public FileStructure(File dir) {
@@ -63,23 +68,44 @@ public class FileStructure {
   }
 
   public File metadataFile() {
-    return new File(dir, "metadata.pb");
+    return new File(dir, METADATA_FILE_NAME);
   }
 
   public File analysisLog() {
-    return new File(dir, "analysis.log");
+    return new File(dir, ANALYSIS_LOG_FILE_NAME);
   }
 
   public File activeRules() {
-    return new File(dir, "activerules.pb");
+    return new File(dir, ACTIVE_RULES_FILE_NAME);
   }
 
   public File fileFor(Domain domain, int componentRef) {
-    return new File(dir, domain.filePrefix + componentRef + domain.fileSuffix);
+    return new File(dir, fileNameFor(domain, componentRef));
+  }
+
+  /**
+   * Name of the file of the specified domain and component, relative to the root of the report.
+   */
+  public static String fileNameFor(Domain domain, int componentRef) {
+    return domain.filePrefix + componentRef + domain.fileSuffix;
+  }
+
+  /**
+   * Ref of the component of the specified file name if it is the name of a file of the specified domain, else -1.
+   */
+  static int componentRefOf(Domain domain, String fileName) {
+    if (!fileName.startsWith(domain.filePrefix) || !fileName.endsWith(domain.fileSuffix)) {
+      return -1;
+    }
+    String ref = fileName.substring(domain.filePrefix.length(), fileName.length() - domain.fileSuffix.length());
+    if (ref.isEmpty() || ref.length() > 9 || !ref.chars().allMatch(Character::isDigit)) {
+      return -1;
+    }
+    return Integer.parseInt(ref);
   }
 
   public File contextProperties() {
-    return new File(dir, "context-props.pb");
+    return new File(dir, CONTEXT_PROPERTIES_FILE_NAME);
   }
   
   public File root() {
@@ -0,0 +1,358 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.CheckForNull;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
+
+import static java.lang.String.format;
+
+/**
+ * Single-file container of the data of components, which replaces in the zipped report the many files of
+ * {@link FileStructure.Domain}. It is made of two zip entries:
+ * <ul>
+ *   <li>{@link #DATA_FILE_NAME}: the concatenation of the files of all domains and components. It's the first entry
+ *   of the zip and it's stored uncompressed, so that it can be memory mapped in place without extracting it.</li>
+ *   <li>{@link #INDEX_FILE_NAME}: the domain, component ref, offset in data, length and CRC-32 of each of them</li>
+ * </ul>
+ * Other files of the report (metadata, active rules, ...) are kept as they are.
+ */
+public class ReportContainer implements Closeable {
+
+  public static final String DATA_FILE_NAME = "components.data";
+  public static final String INDEX_FILE_NAME = "components.idx";
+
+  private static final int VERSION = 1;
+  private static final int RECORD_BYTES = 4 + 4 + 8 + 8 + 4;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_HEADER_BYTES = 30;
+
+  private final File zipFile;
+  private final FileChannel zipChannel;
+  private final long dataOffset;
+  private final Map<Long, Entry> entries;
+  private final boolean mapData;
+  // mapping of the whole data, or null if it is not mapped or too big to be mapped at once
+  @CheckForNull
+  private final MappedByteBuffer data;
+
+  private ReportContainer(File zipFile, FileChannel zipChannel, long dataOffset, long dataLength, Map<Long, Entry> entries, boolean mapData) throws IOException {
+    this.zipFile = zipFile;
+    this.zipChannel = zipChannel;
+    this.dataOffset = dataOffset;
+    this.entries = entries;
+    this.mapData = mapData;
+    this.data = mapData && dataLength <= Integer.MAX_VALUE ? zipChannel.map(FileChannel.MapMode.READ_ONLY, dataOffset, dataLength) : null;
+  }
+
+  /**
+   * Writes to {@code output}, which is not closed, the zip of the report of directory {@code reportDir}. The files
+   * of components are packed into the container, without being copied to disk: they are read a first time to compute
+   * checksums, which are required by uncompressed zip entries, then a second time to be written to the zip.
+   */
+  public static void zip(File reportDir, OutputStream output) throws IOException {
+    File[] files = reportDir.listFiles();
+    if (files == null) {
+      throw new IllegalStateException("Fail to list files of analysis report " + reportDir);
+    }
+    List<File> componentFiles = new ArrayList<>();
+    List<File> otherFiles = new ArrayList<>();
+    ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+    DataOutputStream index = new DataOutputStream(indexBytes);
+    index.writeInt(VERSION);
+    CRC32 dataCrc = new CRC32();
+    long dataLength = 0;
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    for (File file : files) {
+      Domain domain = file.isFile() ? domainOf(file) : null;
+      if (domain == null) {
+        otherFiles.add(file);
+      } else {
+        componentFiles.add(file);
+        CRC32 crc = new CRC32();
+        long length = checksum(file, buffer, crc, dataCrc);
+        index.writeInt(domain.ordinal());
+        index.writeInt(FileStructure.componentRefOf(domain, file.getName()));
+        index.writeLong(dataLength);
+        index.writeLong(length);
+        index.writeInt((int) crc.getValue());
+        dataLength += length;
+      }
+    }
+
+    ZipOutputStream zip = new ZipOutputStream(output);
+    ZipEntry dataEntry = new ZipEntry(DATA_FILE_NAME);
+    dataEntry.setMethod(ZipEntry.STORED);
+    dataEntry.setSize(dataLength);
+    dataEntry.setCompressedSize(dataLength);
+    dataEntry.setCrc(dataCrc.getValue());
+    zip.putNextEntry(dataEntry);
+    for (File file : componentFiles) {
+      Files.copy(file.toPath(), zip);
+    }
+    // fails if a file has been modified since its checksum has been computed
+    zip.closeEntry();
+
+    zip.putNextEntry(new ZipEntry(INDEX_FILE_NAME));
+    indexBytes.writeTo(zip);
+    zip.closeEntry();
+
+    for (File file : otherFiles) {
+      if (file.isFile()) {
+        zip.putNextEntry(new ZipEntry(file.getName()));
+        Files.copy(file.toPath(), zip);
+        zip.closeEntry();
+      }
+    }
+    zip.finish();
+    zip.flush();
+  }
+
+  @CheckForNull
+  private static Domain domainOf(File file) {
+    for (Domain domain : Domain.values()) {
+      if (FileStructure.componentRefOf(domain, file.getName()) >= 0) {
+        return domain;
+      }
+    }
+    return null;
+  }
+
+  private static long checksum(File file, ByteBuffer buffer, CRC32 crc, CRC32 dataCrc) throws IOException {
+    long length = 0;
+    try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      buffer.clear();
+      while (source.read(buffer) >= 0) {
+        buffer.flip();
+        crc.update(buffer.array(), 0, buffer.limit());
+        dataCrc.update(buffer.array(), 0, buffer.limit());
+        length += buffer.limit();
+        buffer.clear();
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Opens the container of the zipped report {@code zipFile}, as written by {@link #zip(File, OutputStream)}. Index is
+   * loaded in memory and data is memory mapped from the zip file.
+   */
+  public static ReportContainer open(File zipFile, ZipFile zip) {
+    return open(zipFile, zip, true);
+  }
+
+  /**
+   * Same as {@link #open(File, ZipFile)}, but data is read from the zip file when it is not memory mapped. A mapped
+   * buffer can't be released explicitly, and on Windows the zip file stays locked until the buffer is garbage
+   * collected, even after {@link #close()}.
+   */
+  public static ReportContainer open(File zipFile, ZipFile zip, boolean mapData) {
+    ZipEntry dataEntry = zip.getEntry(DATA_FILE_NAME);
+    ZipEntry indexEntry = zip.getEntry(INDEX_FILE_NAME);
+    if (dataEntry == null || indexEntry == null) {
+      throw new IllegalStateException("Container is missing in analysis report " + zipFile);
+    }
+    if (dataEntry.getMethod() != ZipEntry.STORED) {
+      throw new IllegalStateException(format("Entry %s of analysis report %s must not be compressed", DATA_FILE_NAME, zipFile));
+    }
+    Map<Long, Entry> entries;
+    try (InputStream indexInput = zip.getInputStream(indexEntry)) {
+      entries = readIndex(indexInput, indexEntry.getSize(), zipFile);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read index of container of analysis report " + zipFile, e);
+    }
+
+    FileChannel zipChannel = null;
+    try {
+      zipChannel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ);
+      long dataOffset = dataOffsetOf(zipChannel, zipFile);
+      return new ReportContainer(zipFile, zipChannel, dataOffset, dataEntry.getSize(), entries, mapData);
+    } catch (IOException e) {
+      closeQuietly(zipChannel);
+      throw new IllegalStateException("Fail to open container of analysis report " + zipFile, e);
+    }
+  }
+
+  private static Map<Long, Entry> readIndex(InputStream input, long size, File zipFile) throws IOException {
+    Map<Long, Entry> entries = new HashMap<>();
+    DataInputStream index = new DataInputStream(new BufferedInputStream(input, BUFFER_SIZE));
+    int version = index.readInt();
+    if (version != VERSION) {
+      throw new IllegalStateException(format("Unsupported version %d of container of analysis report %s", version, zipFile));
+    }
+    long records = (size - 4) / RECORD_BYTES;
+    for (long i = 0; i < records; i++) {
+      Domain domain = Domain.values()[index.readInt()];
+      int componentRef = index.readInt();
+      entries.put(key(domain, componentRef), new Entry(index.readLong(), index.readLong()));
+      // CRC-32 of data, which is not used when reading
+      index.readInt();
+    }
+    return entries;
+  }
+
+  /**
+   * Data is the first entry of the zip, so it follows the first local file header.
+   */
+  private static long dataOffsetOf(FileChannel zipChannel, File zipFile) throws IOException {
+    byte[] name = DATA_FILE_NAME.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_BYTES + name.length).order(ByteOrder.LITTLE_ENDIAN);
+    int read = 0;
+    while (header.hasRemaining() && read >= 0) {
+      read = zipChannel.read(header, header.position());
+    }
+    boolean valid = !header.hasRemaining()
+      && header.getInt(0) == LOCAL_HEADER_SIGNATURE
+      && header.getShort(8) == ZipEntry.STORED
+      && (header.getShort(26) & 0xFFFF) == name.length;
+    for (int i = 0; valid && i < name.length; i++) {
+      valid = header.get(LOCAL_HEADER_BYTES + i) == name[i];
+    }
+    if (!valid) {
+      throw new IllegalStateException(format("Entry %s must be the first entry of analysis report %s", DATA_FILE_NAME, zipFile));
+    }
+    int extraLength = header.getShort(28) & 0xFFFF;
+    return (long) LOCAL_HEADER_BYTES + name.length + extraLength;
+  }
+
+  public boolean contains(Domain domain, int componentRef) {
+    return entries.containsKey(key(domain, componentRef));
+  }
+
+  /**
+   * @return {@code null} if the container does not contain data for this domain and component
+   */
+  @CheckForNull
+  public InputStream open(Domain domain, int componentRef) {
+    Entry entry = entries.get(key(domain, componentRef));
+    if (entry == null) {
+      return null;
+    }
+    ByteBuffer buffer;
+    if (data != null) {
+      buffer = data.duplicate();
+      buffer.position((int) entry.offset);
+      buffer.limit((int) (entry.offset + entry.length));
+    } else {
+      try {
+        buffer = mapData ? zipChannel.map(FileChannel.MapMode.READ_ONLY, dataOffset + entry.offset, entry.length) : read(entry);
+      } catch (IOException e) {
+        throw new IllegalStateException(format("Fail to read %s of component %d in container of analysis report %s", domain, componentRef, zipFile), e);
+      }
+    }
+    return new ByteBufferInputStream(buffer);
+  }
+
+  private ByteBuffer read(Entry entry) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) entry.length);
+    while (buffer.hasRemaining()) {
+      if (zipChannel.read(buffer, dataOffset + entry.offset + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  @Override
+  public void close() throws IOException {
+    zipChannel.close();
+  }
+
+  private static long key(Domain domain, int componentRef) {
+    return ((long) domain.ordinal() << 32) | (componentRef & 0xFFFFFFFFL);
+  }
+
+  private static void closeQuietly(@CheckForNull Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        // ignored
+      }
+    }
+  }
+
+  private static final class Entry {
+    private final long offset;
+    private final long length;
+
+    private Entry(long offset, long length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(len, buffer.remaining());
+      buffer.get(bytes, off, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
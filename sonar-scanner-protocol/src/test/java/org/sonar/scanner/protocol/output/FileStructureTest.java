@@ -80,4 +80,10 @@ public class FileStructureTest {
     FileStructure structure = new FileStructure(dir);
     assertThat(structure.contextProperties()).exists().isFile().isEqualTo(file);
   }
+
+  @Test
+  public void fileNameFor_returns_name_of_file_relative_to_report_root() {
+    assertThat(FileStructure.fileNameFor(FileStructure.Domain.ISSUES, 3)).isEqualTo("issues-3.pb");
+    assertThat(FileStructure.fileNameFor(FileStructure.Domain.SOURCE, 42)).isEqualTo("source-42.txt");
+  }
 }
@@ -0,0 +1,147 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.Protobuf;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportContainerTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Test
+  public void pack_files_of_components_and_zip_other_files() throws Exception {
+    File reportDir = temp.newFolder();
+    ScannerReportWriter writer = new ScannerReportWriter(reportDir);
+    writer.writeMetadata(ScannerReport.Metadata.newBuilder().setProjectKey("foo").build());
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).setKey("foo").build());
+    writer.writeComponentIssues(3, asList(
+      ScannerReport.Issue.newBuilder().setMsg("first").build(),
+      ScannerReport.Issue.newBuilder().setMsg("second").build()));
+    FileUtils.write(writer.getSourceFile(3), "line1\nline2", StandardCharsets.UTF_8);
+
+    File zip = zip(reportDir);
+
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+      assertThat(entries).extracting(ZipEntry::getName).containsOnly(FileStructure.METADATA_FILE_NAME, ReportContainer.DATA_FILE_NAME, ReportContainer.INDEX_FILE_NAME);
+      // data is the first entry and it is not compressed
+      assertThat(entries.get(0).getName()).isEqualTo(ReportContainer.DATA_FILE_NAME);
+      assertThat(entries.get(0).getMethod()).isEqualTo(ZipEntry.STORED);
+
+      try (ReportContainer underTest = ReportContainer.open(zip, zipFile)) {
+        assertThat(underTest.contains(Domain.COMPONENT, 1)).isTrue();
+        assertThat(underTest.contains(Domain.ISSUES, 3)).isTrue();
+        assertThat(underTest.contains(Domain.ISSUES, 1)).isFalse();
+        assertThat(underTest.open(Domain.ISSUES, 1)).isNull();
+
+        assertThat(Protobuf.read(underTest.open(Domain.COMPONENT, 1), ScannerReport.Component.parser()).getKey()).isEqualTo("foo");
+        try (CloseableIterator<ScannerReport.Issue> issues = Protobuf.readStream(underTest.open(Domain.ISSUES, 3), ScannerReport.Issue.parser())) {
+          assertThat(issues.next().getMsg()).isEqualTo("first");
+          assertThat(issues.next().getMsg()).isEqualTo("second");
+          assertThat(issues.hasNext()).isFalse();
+        }
+        try (InputStream source = underTest.open(Domain.SOURCE, 3)) {
+          assertThat(IOUtils.toString(source, StandardCharsets.UTF_8)).isEqualTo("line1\nline2");
+        }
+      }
+    }
+  }
+
+  @Test
+  public void read_data_without_mapping_it() throws Exception {
+    File reportDir = temp.newFolder();
+    ScannerReportWriter writer = new ScannerReportWriter(reportDir);
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).setKey("foo").build());
+    FileUtils.write(writer.getSourceFile(3), "line1\nline2", StandardCharsets.UTF_8);
+    FileUtils.write(writer.getSourceFile(4), "", StandardCharsets.UTF_8);
+    File zip = zip(reportDir);
+
+    try (ZipFile zipFile = new ZipFile(zip);
+      ReportContainer underTest = ReportContainer.open(zip, zipFile, false)) {
+      assertThat(Protobuf.read(underTest.open(Domain.COMPONENT, 1), ScannerReport.Component.parser()).getKey()).isEqualTo("foo");
+      try (InputStream source = underTest.open(Domain.SOURCE, 3)) {
+        assertThat(IOUtils.toString(source, StandardCharsets.UTF_8)).isEqualTo("line1\nline2");
+      }
+      try (InputStream source = underTest.open(Domain.SOURCE, 4)) {
+        assertThat(IOUtils.toString(source, StandardCharsets.UTF_8)).isEmpty();
+      }
+    }
+  }
+
+  @Test
+  public void fail_to_open_if_data_is_compressed() throws Exception {
+    File zip = temp.newFile();
+    try (ZipOutputStream output = new ZipOutputStream(FileUtils.openOutputStream(zip))) {
+      output.putNextEntry(new ZipEntry(ReportContainer.DATA_FILE_NAME));
+      output.write(new byte[] {1, 2, 3});
+      output.putNextEntry(new ZipEntry(ReportContainer.INDEX_FILE_NAME));
+      output.write(new byte[] {0, 0, 0, 1});
+    }
+
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      expectedException.expect(IllegalStateException.class);
+      expectedException.expectMessage("Entry components.data of analysis report " + zip + " must not be compressed");
+
+      ReportContainer.open(zip, zipFile);
+    }
+  }
+
+  @Test
+  public void componentRefOf_parses_names_of_files_of_components() {
+    assertThat(FileStructure.componentRefOf(Domain.ISSUES, "issues-12.pb")).isEqualTo(12);
+    assertThat(FileStructure.componentRefOf(Domain.COVERAGES, "coverage-details-12.pb")).isEqualTo(-1);
+    assertThat(FileStructure.componentRefOf(Domain.COVERAGE_DETAILS, "coverage-details-12.pb")).isEqualTo(12);
+    assertThat(FileStructure.componentRefOf(Domain.SOURCE, "source-3.txt")).isEqualTo(3);
+    assertThat(FileStructure.componentRefOf(Domain.SOURCE, "source-.txt")).isEqualTo(-1);
+    assertThat(FileStructure.componentRefOf(Domain.ISSUES, "metadata.pb")).isEqualTo(-1);
+  }
+
+  private File zip(File reportDir) throws IOException {
+    File zip = temp.newFile();
+    try (OutputStream output = FileUtils.openOutputStream(zip)) {
+      ReportContainer.zip(reportDir, output);
+    }
+    return zip;
+  }
+}
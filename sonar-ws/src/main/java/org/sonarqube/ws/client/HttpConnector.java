@@ -22,6 +22,7 @@ package org.sonarqube.ws.client;
 import java.io.IOException;
 import java.net.Proxy;
 import java.util.Map;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.X509TrustManager;
@@ -35,6 +36,7 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -128,8 +130,16 @@ public class HttpConnector implements WsConnector {
     HttpUrl.Builder urlBuilder = prepareUrlBuilder(postRequest);
 
     RequestBody body;
+    String contentDisposition = null;
     Map<String, PostRequest.Part> parts = postRequest.getParts();
-    if (parts.isEmpty()) {
+    Map.Entry<String, PostRequest.Part> streamedPart = getSingleStreamedPart(parts);
+    if (streamedPart != null) {
+      // parameters are defined in the URL (as GET) and the body is the content of the part
+      completeUrlQueryParameters(postRequest, urlBuilder);
+      contentDisposition = format("form-data; name=\"%s\"; filename=\"%s\"", streamedPart.getKey(), streamedPart.getValue().getFileName());
+      body = toRequestBody(streamedPart.getValue());
+
+    } else if (parts.isEmpty()) {
       // parameters are defined in the body (application/x-www-form-urlencoded)
       FormBody.Builder formBody = new FormBody.Builder();
       postRequest.getParameters().getKeys()
@@ -144,19 +154,48 @@ public class HttpConnector implements WsConnector {
       MultipartBody.Builder bodyBuilder = new MultipartBody.Builder().setType(MultipartBody.FORM);
       parts.entrySet().forEach(param -> {
         PostRequest.Part part = param.getValue();
-        bodyBuilder.addFormDataPart(
-          param.getKey(),
-          part.getFile().getName(),
-          RequestBody.create(MediaType.parse(part.getMediaType()), part.getFile()));
+        bodyBuilder.addFormDataPart(param.getKey(), part.getFileName(), toRequestBody(part));
       });
       body = bodyBuilder.build();
     }
     Request.Builder okRequestBuilder = prepareOkRequestBuilder(postRequest, urlBuilder).post(body);
+    if (contentDisposition != null) {
+      okRequestBuilder.header("Content-Disposition", contentDisposition);
+    }
     Response response = doCall(noRedirectOkHttpClient, okRequestBuilder.build());
     response = checkRedirect(response);
     return new OkHttpResponse(response);
   }
 
+  @CheckForNull
+  private static Map.Entry<String, PostRequest.Part> getSingleStreamedPart(Map<String, PostRequest.Part> parts) {
+    if (parts.size() != 1) {
+      return null;
+    }
+    Map.Entry<String, PostRequest.Part> part = parts.entrySet().iterator().next();
+    return part.getValue().getContentWriter() == null ? null : part;
+  }
+
+  private static RequestBody toRequestBody(PostRequest.Part part) {
+    MediaType mediaType = MediaType.parse(part.getMediaType());
+    PostRequest.ContentWriter contentWriter = part.getContentWriter();
+    if (contentWriter == null) {
+      return RequestBody.create(mediaType, part.getFile());
+    }
+    // length is unknown, so content is sent with chunked transfer encoding
+    return new RequestBody() {
+      @Override
+      public MediaType contentType() {
+        return mediaType;
+      }
+
+      @Override
+      public void writeTo(BufferedSink sink) throws IOException {
+        contentWriter.writeTo(sink.outputStream());
+      }
+    };
+  }
+
   private HttpUrl.Builder prepareUrlBuilder(WsRequest wsRequest) {
     String path = wsRequest.getPath();
     return baseUrl
@@ -20,8 +20,11 @@
 package org.sonarqube.ws.client;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import javax.annotation.CheckForNull;
 
 /**
  * @since 5.3
@@ -39,6 +42,11 @@ public class PostRequest extends BaseRequest<PostRequest> {
     return Method.POST;
   }
 
+  /**
+   * A request which has a single part whose content is written on the fly (see {@link Part#Part(String, String, ContentWriter)})
+   * is not encoded as multipart: the content of the part is the body of the request, which is sent with chunked transfer
+   * encoding. The name of the part is given by the header "Content-Disposition".
+   */
   public PostRequest setPart(String name, Part part) {
     this.parts.put(name, part);
     return this;
@@ -51,19 +59,67 @@ public class PostRequest extends BaseRequest<PostRequest> {
   public static class Part {
     private final String mediaType;
     private final File file;
+    private final String fileName;
+    private final ContentWriter contentWriter;
 
     public Part(String mediaType, File file) {
       this.mediaType = mediaType;
       this.file = file;
+      this.fileName = file.getName();
+      this.contentWriter = null;
+    }
+
+    /**
+     * Part whose content is written on the fly while the request is sent, so that it does not have to be
+     * stored before. The content may be written more than once if the request is retried.
+     *
+     * @since 7.1
+     */
+    public Part(String mediaType, String fileName, ContentWriter contentWriter) {
+      this.mediaType = mediaType;
+      this.file = null;
+      this.fileName = fileName;
+      this.contentWriter = contentWriter;
     }
 
     public String getMediaType() {
       return mediaType;
     }
 
+    /**
+     * @return {@code null} if the content is written on the fly
+     */
+    @CheckForNull
     public File getFile() {
       return file;
     }
+
+    /**
+     * @since 7.1
+     */
+    public String getFileName() {
+      return fileName;
+    }
+
+    /**
+     * @return {@code null} if the content is a file
+     * @since 7.1
+     */
+    @CheckForNull
+    public ContentWriter getContentWriter() {
+      return contentWriter;
+    }
+  }
+
+  /**
+   * @since 7.1
+   */
+  @FunctionalInterface
+  public interface ContentWriter {
+    /**
+     * Writes the content. The stream must not be closed.
+     */
+    void writeTo(OutputStream output) throws IOException;
   }
 
 }
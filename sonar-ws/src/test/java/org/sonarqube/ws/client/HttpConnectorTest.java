@@ -380,6 +380,48 @@ public class HttpConnectorTest {
       .contains("the report content");
   }
 
+  @Test
+  public void upload_streamed_part_as_body_of_request() throws Exception {
+    answerHelloWorld();
+    PostRequest request = new PostRequest("api/report/upload")
+      .setParam("project", "theKey")
+      .setPart("report", new PostRequest.Part(MediaTypes.ZIP, "report.zip", out -> out.write("the report content".getBytes(UTF_8))))
+      .setMediaType(MediaTypes.PROTOBUF);
+
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+    WsResponse response = underTest.call(request);
+
+    assertThat(response.hasContent()).isTrue();
+    RecordedRequest recordedRequest = server.takeRequest();
+    assertThat(recordedRequest.getMethod()).isEqualTo("POST");
+    assertThat(recordedRequest.getPath()).isEqualTo("/api/report/upload?project=theKey");
+    assertThat(recordedRequest.getHeader("Content-Type")).isEqualTo(MediaTypes.ZIP);
+    assertThat(recordedRequest.getHeader("Content-Disposition")).isEqualTo("form-data; name=\"report\"; filename=\"report.zip\"");
+    assertThat(recordedRequest.getHeader("Transfer-Encoding")).isEqualTo("chunked");
+    assertThat(recordedRequest.getBody().readUtf8()).isEqualTo("the report content");
+  }
+
+  @Test
+  public void upload_streamed_part_in_multipart_request_when_multiple_parts() throws Exception {
+    answerHelloWorld();
+    File reportFile = temp.newFile();
+    FileUtils.write(reportFile, "the report content");
+    PostRequest request = new PostRequest("api/report/upload")
+      .setPart("report", new PostRequest.Part(MediaTypes.TXT, reportFile))
+      .setPart("other", new PostRequest.Part(MediaTypes.ZIP, "other.zip", out -> out.write("the streamed content".getBytes(UTF_8))));
+
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+    underTest.call(request);
+
+    RecordedRequest recordedRequest = server.takeRequest();
+    String body = IOUtils.toString(recordedRequest.getBody().inputStream());
+    assertThat(body)
+      .contains("Content-Disposition: form-data; name=\"report\"")
+      .contains("the report content")
+      .contains("Content-Disposition: form-data; name=\"other\"; filename=\"other.zip\"")
+      .contains("the streamed content");
+  }
+
   @Test
   public void http_error() throws Exception {
     server.enqueue(new MockResponse().setResponseCode(404));
@@ -0,0 +1,131 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarqube.tests.performance.scanner;
+
+import com.sonar.orchestrator.Orchestrator;
+import com.sonar.orchestrator.build.BuildResult;
+import com.sonar.orchestrator.build.SonarScanner;
+import java.io.File;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarqube.tests.performance.AbstractPerfTest;
+import org.sonarqube.tests.performance.MavenLogs;
+import org.sonarqube.tests.performance.PerfRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the backends of scanner storages (property sonar.scanner.storage) on a project of 100k files
+ */
+public class StorageTest extends AbstractPerfTest {
+
+  private static final int NB_FILES = 100_000;
+  private static final int NB_LINES_PER_FILE = 20;
+
+  @Rule
+  public PerfRule perfRule = new PerfRule(4) {
+    @Override
+    protected void beforeEachRun() {
+      orchestrator.resetData();
+    }
+  };
+
+  @ClassRule
+  public static TemporaryFolder temp = new TemporaryFolder();
+
+  @ClassRule
+  public static Orchestrator orchestrator = ScannerPerformanceSuite.ORCHESTRATOR;
+
+  private static File baseDir;
+
+  @BeforeClass
+  public static void setUp() throws IOException {
+    baseDir = prepareProject();
+  }
+
+  @Before
+  public void cleanDatabase() {
+    orchestrator.resetData();
+  }
+
+  @Test
+  public void scan_100k_files_with_persistit_storage() {
+    BuildResult result = run("persistit");
+    perfRule.assertDurationAround(MavenLogs.extractTotalTime(result.getLogs()), 240_000L);
+  }
+
+  @Test
+  public void scan_100k_files_with_mapped_storage() {
+    BuildResult result = run("mapped");
+    perfRule.assertDurationAround(MavenLogs.extractTotalTime(result.getLogs()), 200_000L);
+  }
+
+  /**
+   * Space of overwritten values is not reused by the mapped storage, so the size of its file, where values are stored
+   * instead of the heap, must stay below 1KB per line of code
+   */
+  @Test
+  public void size_of_mapped_storage_file_is_bounded() {
+    BuildResult result = run("mapped", "sonar.verbose", "true");
+
+    Matcher matcher = Pattern.compile("Size of storage file: (\\d+) bytes").matcher(result.getLogs());
+    assertThat(matcher.find()).isTrue();
+    assertThat(Long.parseLong(matcher.group(1))).isLessThan(NB_FILES * NB_LINES_PER_FILE * 1_024L);
+  }
+
+  private static BuildResult run(String storage, String... properties) {
+    SonarScanner scanner = SonarScanner.create()
+      .setProperties(
+        "sonar.projectKey", "storage-" + storage,
+        "sonar.projectName", "Storage " + storage,
+        "sonar.projectVersion", "1.0",
+        "sonar.sources", "src",
+        "sonar.profile", "one-xoo-issue-per-line",
+        "sonar.scanner.storage", storage,
+        "sonar.scm.disabled", "true",
+        "sonar.cpd.exclusions", "**",
+        "sonar.showProfiling", "true")
+      .setProperties(properties);
+    scanner.setEnvironmentVariable("SONAR_SCANNER_OPTS", "-Xmx512m -server")
+      .setProjectDir(baseDir);
+    return orchestrator.executeBuild(scanner);
+  }
+
+  private static File prepareProject() throws IOException {
+    File baseDir = temp.newFolder();
+    File srcDir = new File(baseDir, "src");
+    String content = StringUtils.repeat(StringUtils.repeat("a", 50) + "\n", NB_LINES_PER_FILE);
+    for (int nb = 1; nb <= NB_FILES; nb++) {
+      // 1000 files per directory
+      File xooFile = new File(srcDir, "dir" + (nb / 1000) + "/sample" + nb + ".xoo");
+      FileUtils.write(xooFile, content);
+    }
+    return baseDir;
+  }
+}
@@ -25,7 +25,8 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
   ComputeEnginePerfTest.class,
-  ServerPerfTest.class
+  ServerPerfTest.class,
+  SourceLinesPerfTest.class
 })
 public class ServerPerformanceSuite {
 }
@@ -0,0 +1,90 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2018 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarqube.tests.performance.server;
+
+import com.sonar.orchestrator.Orchestrator;
+import com.sonar.orchestrator.build.SonarScanner;
+import com.sonar.orchestrator.locator.FileLocation;
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonarqube.tests.performance.AbstractPerfTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SourceLinesPerfTest extends AbstractPerfTest {
+
+  private static final int NB_LINES = 50_000;
+  private static final int NB_REQUESTS = 100;
+
+  @ClassRule
+  public static TemporaryFolder temp = new TemporaryFolder();
+
+  @ClassRule
+  public static Orchestrator orchestrator = Orchestrator
+    .builderEnv()
+    .addPlugin(FileLocation.byWildcardMavenFilename(new File("../plugins/sonar-xoo-plugin/target"), "sonar-xoo-plugin-*.jar"))
+    .build();
+
+  @BeforeClass
+  public static void analyzeLargeFile() throws IOException {
+    File baseDir = temp.newFolder();
+    File srcDir = new File(baseDir, "src");
+    srcDir.mkdir();
+    StringBuilder content = new StringBuilder();
+    for (int i = 1; i <= NB_LINES; i++) {
+      content.append("public static final String CONSTANT_").append(i).append(" = \"generated value ").append(i).append("\";\n");
+    }
+    FileUtils.write(new File(srcDir, "Generated.xoo"), content.toString());
+
+    orchestrator.executeBuild(SonarScanner.create()
+      .setProperties(
+        "sonar.projectKey", "large-file",
+        "sonar.projectName", "Large File",
+        "sonar.projectVersion", "1.0",
+        "sonar.sources", "src",
+        "sonar.scm.disabled", "true",
+        "sonar.cpd.exclusions", "**")
+      .setProjectDir(baseDir));
+  }
+
+  @Test
+  public void read_range_of_lines_of_large_file() {
+    int from = NB_LINES / 2;
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < NB_REQUESTS; i++) {
+      String json = orchestrator.getServer().newHttpCall("api/sources/lines")
+        .setParam("key", "large-file:src/Generated.xoo")
+        .setParam("from", String.valueOf(from))
+        .setParam("to", String.valueOf(from + 19))
+        .execute()
+        .getBodyAsString();
+      assertThat(json).contains("CONSTANT_" + from);
+    }
+    long duration = System.currentTimeMillis() - start;
+
+    // only the chunk of lines containing the range is decompressed, whatever the size of the file
+    assertDurationLessThan(duration, 3_000L);
+  }
+}